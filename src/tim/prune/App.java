@@ -4,6 +4,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
 import java.util.HashSet;
+import java.util.List;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -22,9 +23,11 @@ import tim.prune.gui.SidebarController;
 import tim.prune.gui.Viewport;
 import tim.prune.gui.colour.ColourerCaretaker;
 import tim.prune.gui.colour.PointColourer;
+import tim.prune.gui.map.tile.TilePackFile;
 import tim.prune.load.FileLoader;
 import tim.prune.load.ItemToLoad;
 import tim.prune.load.JpegLoader;
+import tim.prune.load.MultiFileLoader;
 import tim.prune.load.ItemToLoad.BlockStatus;
 import tim.prune.save.ExifSaver;
 import tim.prune.save.FileSaver;
@@ -154,7 +157,7 @@ public class App
 
 
 	/**
-	 * Load the specified data files one by one
+	 * Load the specified data files, either all together or one by one
 	 * @param inDataFiles arraylist containing File objects to load
 	 */
 	public void loadDataFiles(ArrayList<File> inDataFiles)
@@ -162,6 +165,12 @@ public class App
 		if (inDataFiles == null || inDataFiles.isEmpty()) {
 			return;
 		}
+		if (inDataFiles.size() > 1 && inDataFiles.stream().allMatch(MultiFileLoader::canLoad))
+		{
+			// Parse them all in parallel and then load them with a single command
+			new MultiFileLoader(this).loadFiles(new ArrayList<>(inDataFiles));
+			return;
+		}
 		for (File file : inDataFiles) {
 			_itemsToLoad.add(ItemToLoad.dataFile(file));
 		}
@@ -272,6 +281,8 @@ public class App
 		if (_config.getConfigBoolean(Config.KEY_AUTOSAVE_SETTINGS)) {
 			new SaveConfig(this).silentSave();
 		}
+		// Save the indexes of the tile pack files so that they don't need to be scanned next time
+		TilePackFile.closeAll();
 		System.exit(0);
 	}
 
@@ -300,6 +311,18 @@ public class App
 		}
 	}
 
+	/**
+	 * Inform that several files have been loaded together
+	 * @param inFiles files loaded
+	 */
+	public void addRecentFiles(List<File> inFiles)
+	{
+		for (File file : inFiles) {
+			_config.getRecentFileList().addFile(new RecentFile(file, true));
+		}
+		UpdateMessageBroker.informSubscribers(DataSubscriber.FILE_LOADED);
+	}
+
 	/**
 	 * Inform the app that a file load process is complete, either successfully or cancelled
 	 */
@@ -48,12 +48,27 @@ public class EditSingleFieldCmd extends Command
 		for (PointEdit edit : _editList) {
 			inInfo.getTrack().getPoint(edit.getPointIndex()).setFieldValue(_field, edit.getValue(), _unitSet, isUndo());
 		}
-		if (_field == Field.LATITUDE || _field == Field.LONGITUDE) {
+		if (_field == Field.LATITUDE || _field == Field.LONGITUDE
+			|| _field == Field.WAYPT_NAME || _field == Field.NEW_SEGMENT)
+		{
 			inInfo.getTrack().requestRescale();
 		}
+		else if (!_editList.isEmpty()) {
+			inInfo.getTrack().pointsChanged(getFirstPointIndex());
+		}
 		return true;
 	}
 
+	/** @return the lowest index of all the edited points */
+	private int getFirstPointIndex()
+	{
+		int firstIndex = Integer.MAX_VALUE;
+		for (PointEdit edit : _editList) {
+			firstIndex = Math.min(firstIndex, edit.getPointIndex());
+		}
+		return firstIndex;
+	}
+
 	@Override
 	protected Command makeInverse(TrackInfo inInfo) {
 		return new EditSingleFieldCmd(this, _field, makeOppositeEdits(inInfo.getTrack()), _unitSet);
@@ -65,6 +65,7 @@ public class InsertPointCmd extends Command
 			DataPoint nextTrackPoint = inInfo.getTrack().getNextTrackPoint(_pointIndex + 1);
 			if (nextTrackPoint != null) {
 				nextTrackPoint.setSegmentStart(_nextSegmentFlag);
+				inInfo.getTrack().requestRescale();
 			}
 		}
 		return added;
@@ -65,6 +65,7 @@ public class SetSegmentsCmd extends Command
 			final boolean segmentFlag = entry.getValue();
 			point.setSegmentStart(segmentFlag);
 		}
+		inInfo.getTrack().requestRescale();
 		return !_segmentFlags.isEmpty();
 	}
 
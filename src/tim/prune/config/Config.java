@@ -65,6 +65,8 @@ public class Config
 	public static final String KEY_WINDOW_BOUNDS = "prune.windowbounds";
 	/** Key for path to disk cache */
 	public static final String KEY_DISK_CACHE = "prune.diskcache";
+	/** True to keep the disk cache in one pack file per map layer */
+	public static final String KEY_DISK_CACHE_PACKED = "prune.diskcachepacked";
 	/** Key for working online flag */
 	public static final String KEY_ONLINE_MODE = "prune.onlinemode";
 	/** Key for width of thumbnails in kmz */
@@ -126,6 +128,8 @@ public class Config
 	public static final String KEY_ASKED_ABOUT_CONFIG_MIGRATION = "prune.configmigrationasked";
 	/** Show zoom level in status bar or not */
 	public static final String KEY_SHOW_ZOOMLEVEL = "prune.showzoomlevel";
+	/** Memory limit for the map tile cache in megabytes */
+	public static final String KEY_TILE_CACHE_MEMORY = "prune.tilecachememory";
 
 
 	/** Initialise the default properties */
@@ -197,6 +201,8 @@ public class Config
 		props.put(KEY_WPICON_SALT, "-1"); // no waypoint colouring by default
 		props.put(KEY_ICONS_DOUBLE_SIZE, "0"); // regular size by default
 		props.put(KEY_SHOW_ZOOMLEVEL, "0"); // don't show
+		props.put(KEY_TILE_CACHE_MEMORY, "128"); // megabytes
+		props.put(KEY_DISK_CACHE_PACKED, "0"); // a file per tile
 		props.put(KEY_ASKED_ABOUT_CONFIG_MIGRATION, "0"); // not asked
 		return props;
 	}
@@ -5,12 +5,9 @@ import java.awt.GridLayout;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.JTable;
 
 import tim.prune.App;
-import tim.prune.I18nManager;
 import tim.prune.cmd.Command;
 import tim.prune.cmd.CorrelateMediaCmd;
 import tim.prune.cmd.MediaLinkType;
@@ -107,6 +104,7 @@ public class AudioCorrelator extends Correlator
 	 */
 	protected void createPreview(TimeDifference inTimeDiff, boolean inShowWarning)
 	{
+		final int previewId = startPreview();
 		TimeDifference timeLimit = parseTimeLimit();
 		double angDistLimit = parseDistanceLimit();
 		MediaPreviewTableModel model = new MediaPreviewTableModel("dialog.correlate.select.audioname", getTimezone());
@@ -115,6 +113,9 @@ public class AudioCorrelator extends Correlator
 		int numAudios = audios.getCount();
 		for (int i=0; i<numAudios; i++)
 		{
+			if (isPreviewCancelled(previewId)) {
+				return;
+			}
 			AudioClip audio = audios.get(i);
 			PointMediaPair pair = getPointPairForMedia(_app.getTrackInfo().getTrack(), audio, inTimeDiff);
 			MediaPreviewTableRow row = new MediaPreviewTableRow(pair);
@@ -142,22 +143,7 @@ public class AudioCorrelator extends Correlator
 			row.setCorrelateFlag(correlate);
 			model.addRow(row);
 		}
-		_previewTable.setModel(model);
-		// Set distance units
-		model.setDistanceUnits(getSelectedDistanceUnits());
-		// Set column widths
-		_previewTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
-		final int[] colWidths = {150, 160, 100, 100, 50};
-		for (int i=0; i<model.getColumnCount(); i++) {
-			_previewTable.getColumnModel().getColumn(i).setPreferredWidth(colWidths[i]);
-		}
-		// check if any audios found
-		_okButton.setEnabled(model.hasAnySelected());
-		if (inShowWarning && !model.hasAnySelected())
-		{
-			JOptionPane.showMessageDialog(_dialog, I18nManager.getText("dialog.correlate.alloutsiderange"),
-				getName(), JOptionPane.ERROR_MESSAGE);
-		}
+		showPreview(previewId, model, inShowWarning);
 	}
 
 	/**
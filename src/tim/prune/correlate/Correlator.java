@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.TimeZone;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -23,6 +24,7 @@ import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import tim.prune.App;
 import tim.prune.GenericFunction;
@@ -54,6 +56,8 @@ public abstract class Correlator extends GenericFunction
 	private boolean _previewEnabled = false; // flag required to enable preview function on final panel
 	private boolean[] _cardEnabled = null; // flag for each card
 	private TimeZone _timezone = null;
+	private TrackTimeIndex _timeIndex = null;
+	private final AtomicInteger _previewCounter = new AtomicInteger();
 	private JTextField _offsetHourBox = null, _offsetMinBox = null, _offsetSecBox = null;
 	private JRadioButton _mediaLaterOption = null, _pointLaterOption = null;
 	private JRadioButton _timeLimitRadio = null, _distLimitRadio = null;
@@ -118,6 +122,7 @@ public abstract class Correlator extends GenericFunction
 		_okButton.setEnabled(false);
 		// Init timezone to the currently selected one
 		_timezone = TimezoneHelper.getSelectedTimezone(getConfig());
+		_timeIndex = null;
 		// Go to first available card
 		int card = 0;
 		_cardEnabled = null;
@@ -607,6 +612,66 @@ public abstract class Correlator extends GenericFunction
 	 */
 	protected abstract void createPreview(TimeDifference inTimeDiff, boolean inShowWarning);
 
+	/**
+	 * Cancel any preview which is currently being made, because the options have changed
+	 */
+	public void cancelPreview() {
+		_previewCounter.incrementAndGet();
+	}
+
+	/**
+	 * @return id of a new preview, replacing any other one currently being made
+	 */
+	protected int startPreview() {
+		return _previewCounter.incrementAndGet();
+	}
+
+	/**
+	 * @param inPreviewId id of preview
+	 * @return true if the preview has been cancelled or replaced by a newer one
+	 */
+	protected boolean isPreviewCancelled(int inPreviewId) {
+		return _previewCounter.get() != inPreviewId;
+	}
+
+	/**
+	 * Show the finished preview in the table, unless it has been cancelled in the meantime
+	 * @param inPreviewId id of preview
+	 * @param inModel table model containing the preview
+	 * @param inShowWarning true to show warning if all points out of range
+	 */
+	protected void showPreview(int inPreviewId, MediaPreviewTableModel inModel, boolean inShowWarning)
+	{
+		Runnable update = () -> {
+			if (isPreviewCancelled(inPreviewId)) {
+				return;
+			}
+			_previewTable.setModel(inModel);
+			// Set distance units
+			inModel.setDistanceUnits(getSelectedDistanceUnits());
+			// Set column widths
+			_previewTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+			final int[] colWidths = {150, 160, 100, 100, 50};
+			for (int i=0; i<inModel.getColumnCount(); i++) {
+				_previewTable.getColumnModel().getColumn(i).setPreferredWidth(colWidths[i]);
+			}
+			// check if any media found
+			_okButton.setEnabled(inModel.hasAnySelected());
+			if (inShowWarning && !inModel.hasAnySelected())
+			{
+				JOptionPane.showMessageDialog(_dialog, I18nManager.getText("dialog.correlate.alloutsiderange"),
+					getName(), JOptionPane.ERROR_MESSAGE);
+			}
+		};
+		// Previews triggered by changing the options are made in the background
+		if (SwingUtilities.isEventDispatchThread()) {
+			update.run();
+		}
+		else {
+			SwingUtilities.invokeLater(update);
+		}
+	}
+
 
 	/**
 	 * Get the timestamp of the given media
@@ -627,30 +692,25 @@ public abstract class Correlator extends GenericFunction
 	 */
 	protected PointMediaPair getPointPairForMedia(Track inTrack, MediaObject inMedia, TimeDifference inOffset)
 	{
-		PointMediaPair pair = new PointMediaPair(inMedia);
-		if (inMedia.hasTimestamp())
-		{
-			// Add/subtract offset to media timestamp
-			Timestamp mediaStamp = getMediaTimestamp(inMedia);
-			int numPoints = inTrack.getNumPoints();
-			for (int i=0; i<numPoints; i++)
-			{
-				DataPoint point = inTrack.getPoint(i);
-				if (point.getPhoto() == null && point.getAudio() == null)
-				{
-					Timestamp pointStamp = point.getTimestamp();
-					if (pointStamp != null && pointStamp.isValid())
-					{
-						long numSeconds = pointStamp.getSecondsSince(mediaStamp, _timezone)
-							+ inOffset.getTotalSeconds();
-						pair.addPoint(point, numSeconds);
-					}
-				}
-			}
+		if (!inMedia.hasTimestamp()) {
+			return new PointMediaPair(inMedia);
 		}
-		return pair;
+		// Add/subtract offset to media timestamp
+		final long mediaMillis = getMediaTimestamp(inMedia).getMilliseconds(_timezone);
+		return getTimeIndex(inTrack).findPointPair(inMedia, mediaMillis, inOffset.getTotalSeconds());
 	}
 
+	/**
+	 * @param inTrack track object
+	 * @return sorted index of the point timestamps, made when first needed
+	 */
+	private synchronized TrackTimeIndex getTimeIndex(Track inTrack)
+	{
+		if (_timeIndex == null || _timeIndex.getTrack() != inTrack) {
+			_timeIndex = new TrackTimeIndex(inTrack, _timezone);
+		}
+		return _timeIndex;
+	}
 
 	/**
 	 * Finish the correlation
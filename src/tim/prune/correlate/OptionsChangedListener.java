@@ -89,8 +89,9 @@ public class OptionsChangedListener implements KeyListener, ActionListener, Item
 	 */
 	private void optionsChanged()
 	{
-		// disable ok button
+		// disable ok button and stop any preview which is already running
 		_correlator.disableOkButton();
+		_correlator.cancelPreview();
 		// start new thread to trigger preview
 		_threadCount++;
 		new Thread(this).start();
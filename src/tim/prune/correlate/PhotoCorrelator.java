@@ -3,11 +3,8 @@ package tim.prune.correlate;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.swing.JOptionPane;
-import javax.swing.JTable;
 
 import tim.prune.App;
-import tim.prune.I18nManager;
 import tim.prune.cmd.Command;
 import tim.prune.cmd.CorrelateMediaCmd;
 import tim.prune.cmd.MediaLinkType;
@@ -56,6 +53,7 @@ public class PhotoCorrelator extends Correlator
 	 */
 	protected void createPreview(TimeDifference inTimeDiff, boolean inShowWarning)
 	{
+		final int previewId = startPreview();
 		TimeDifference timeLimit = parseTimeLimit();
 		double angDistLimit = parseDistanceLimit();
 		MediaPreviewTableModel model = new MediaPreviewTableModel("dialog.correlate.select.photoname", getTimezone());
@@ -64,6 +62,9 @@ public class PhotoCorrelator extends Correlator
 		int numPhotos = photos.getCount();
 		for (int i=0; i<numPhotos; i++)
 		{
+			if (isPreviewCancelled(previewId)) {
+				return;
+			}
 			Photo photo = photos.get(i);
 			PointMediaPair pair = getPointPairForMedia(_app.getTrackInfo().getTrack(), photo, inTimeDiff);
 			MediaPreviewTableRow row = new MediaPreviewTableRow(pair);
@@ -91,22 +92,7 @@ public class PhotoCorrelator extends Correlator
 			row.setCorrelateFlag(correlate);
 			model.addRow(row);
 		}
-		_previewTable.setModel(model);
-		// Set distance units
-		model.setDistanceUnits(getSelectedDistanceUnits());
-		// Set column widths
-		_previewTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
-		final int[] colWidths = {150, 160, 100, 100, 50};
-		for (int i=0; i<model.getColumnCount(); i++) {
-			_previewTable.getColumnModel().getColumn(i).setPreferredWidth(colWidths[i]);
-		}
-		// check if any photos found
-		_okButton.setEnabled(model.hasAnySelected());
-		if (inShowWarning && !model.hasAnySelected())
-		{
-			JOptionPane.showMessageDialog(_dialog, I18nManager.getText("dialog.correlate.alloutsiderange"),
-				getName(), JOptionPane.ERROR_MESSAGE);
-		}
+		showPreview(previewId, model, inShowWarning);
 	}
 
 
@@ -0,0 +1,154 @@
+package tim.prune.correlate;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.MediaObject;
+import tim.prune.data.Timestamp;
+import tim.prune.data.Track;
+
+/**
+ * Timestamps of the track points which could be correlated with media,
+ * sorted so that the points either side of each media item can be found
+ * by binary search instead of looking at every point
+ */
+class TrackTimeIndex
+{
+	/** Track which was indexed */
+	private final Track _track;
+	/** Timestamps in milliseconds, in ascending order */
+	private final long[] _millis;
+	/** Point index for each timestamp */
+	private final int[] _pointIndexes;
+
+
+	/**
+	 * Constructor
+	 * @param inTrack track object
+	 * @param inTimezone timezone to use for the timestamps
+	 */
+	TrackTimeIndex(Track inTrack, TimeZone inTimezone)
+	{
+		_track = inTrack;
+		final int numPoints = inTrack.getNumPoints();
+		long[] millis = new long[numPoints];
+		int[] pointIndexes = new int[numPoints];
+		int numIndexed = 0;
+		boolean sorted = true;
+		for (int i=0; i<numPoints; i++)
+		{
+			DataPoint point = inTrack.getPoint(i);
+			// Points which already have media can't be used
+			if (point.getPhoto() == null && point.getAudio() == null)
+			{
+				Timestamp pointStamp = point.getTimestamp();
+				if (pointStamp != null && pointStamp.isValid())
+				{
+					millis[numIndexed] = pointStamp.getMilliseconds(inTimezone);
+					pointIndexes[numIndexed] = i;
+					sorted = sorted && (numIndexed == 0 || millis[numIndexed] >= millis[numIndexed - 1]);
+					numIndexed++;
+				}
+			}
+		}
+		if (!sorted) {
+			sortByTime(millis, pointIndexes, numIndexed);
+		}
+		_millis = Arrays.copyOf(millis, numIndexed);
+		_pointIndexes = Arrays.copyOf(pointIndexes, numIndexed);
+	}
+
+	/**
+	 * Sort the timestamps, keeping the points in track order when the times are equal
+	 */
+	private static void sortByTime(long[] inMillis, int[] inPointIndexes, int inCount)
+	{
+		Integer[] order = new Integer[inCount];
+		for (int i=0; i<inCount; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(inMillis[a], inMillis[b]));
+		long[] millis = Arrays.copyOf(inMillis, inCount);
+		int[] pointIndexes = Arrays.copyOf(inPointIndexes, inCount);
+		for (int i=0; i<inCount; i++)
+		{
+			inMillis[i] = millis[order[i]];
+			inPointIndexes[i] = pointIndexes[order[i]];
+		}
+	}
+
+	/** @return the track which was indexed */
+	Track getTrack() {
+		return _track;
+	}
+
+	/**
+	 * Find the nearest points before and after the given media time,
+	 * giving the same result as comparing every point with the media
+	 * @param inMedia media object
+	 * @param inMediaMillis media timestamp in milliseconds
+	 * @param inOffsetSeconds time offset to apply in seconds
+	 * @return point pair resulting from correlation
+	 */
+	PointMediaPair findPointPair(MediaObject inMedia, long inMediaMillis, long inOffsetSeconds)
+	{
+		PointMediaPair pair = new PointMediaPair(inMedia);
+		// First entry whose whole number of seconds after the media is positive
+		final int firstAfter = findFirst(inMediaMillis, inOffsetSeconds, 1L);
+		if (firstAfter > 0) {
+			addNearestPoint(pair, firstAfter - 1, -1, inMediaMillis, inOffsetSeconds);
+		}
+		// First entry which isn't before the media
+		final int firstNotBefore = findFirst(inMediaMillis, inOffsetSeconds, 0L);
+		if (firstNotBefore < _millis.length) {
+			addNearestPoint(pair, firstNotBefore, 1, inMediaMillis, inOffsetSeconds);
+		}
+		return pair;
+	}
+
+	/**
+	 * @return number of seconds from the media to the given entry, as used by the pair
+	 */
+	private long getSeconds(int inEntry, long inMediaMillis, long inOffsetSeconds) {
+		return (_millis[inEntry] - inMediaMillis) / 1000L + inOffsetSeconds;
+	}
+
+	/**
+	 * Binary search for the first entry with at least the given number of seconds
+	 */
+	private int findFirst(long inMediaMillis, long inOffsetSeconds, long inMinSeconds)
+	{
+		int low = 0, high = _millis.length;
+		while (low < high)
+		{
+			final int mid = (low + high) >>> 1;
+			if (getSeconds(mid, inMediaMillis, inOffsetSeconds) < inMinSeconds) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Add the earliest point in the track which has the same number of seconds as the given entry
+	 * @param inPair pair to add to
+	 * @param inEntry index of entry
+	 * @param inStep direction in which to look for other entries with the same seconds
+	 */
+	private void addNearestPoint(PointMediaPair inPair, int inEntry, int inStep,
+		long inMediaMillis, long inOffsetSeconds)
+	{
+		final long seconds = getSeconds(inEntry, inMediaMillis, inOffsetSeconds);
+		int pointIndex = _pointIndexes[inEntry];
+		for (int e = inEntry + inStep; e >= 0 && e < _millis.length
+			&& getSeconds(e, inMediaMillis, inOffsetSeconds) == seconds; e += inStep)
+		{
+			pointIndex = Math.min(pointIndex, _pointIndexes[e]);
+		}
+		inPair.addPoint(_track.getPoint(pointIndex), seconds);
+	}
+}
@@ -40,6 +40,27 @@ public class AltitudeRange
 		_previousExtreme = 0;
 	}
 
+	/**
+	 * Copy constructor
+	 * @param inOther range to copy, including the state of its climb/descent calculations
+	 */
+	AltitudeRange(AltitudeRange inOther)
+	{
+		_wiggleLimit = inOther._wiggleLimit;
+		if (inOther._range.hasData())
+		{
+			_range.addValue(inOther._range.getMinimum());
+			_range.addValue(inOther._range.getMaximum());
+		}
+		_climb = inOther._climb;
+		_descent = inOther._descent;
+		_gotPreviousValue = inOther._gotPreviousValue;
+		_previousValue = inOther._previousValue;
+		_gotPreviousMinimum = inOther._gotPreviousMinimum;
+		_gotPreviousMaximum = inOther._gotPreviousMaximum;
+		_previousExtreme = inOther._previousExtreme;
+	}
+
 
 	/**
 	 * Add a value to the range
@@ -198,6 +219,67 @@ public class AltitudeRange
 		return (int) ((_descent + lastSegmentDescent) * inUnit.getMultFactorFromStd());
 	}
 
+	/**
+	 * Both ranges may still be going up (or down) from different extremes,
+	 * but then their climbs (or descents) just differ by the difference between the extremes
+	 * @param inOther other range
+	 * @return true if both ranges will change in the same way from now on
+	 */
+	boolean hasSameState(AltitudeRange inOther)
+	{
+		return _gotPreviousValue == inOther._gotPreviousValue && _previousValue == inOther._previousValue
+			&& _gotPreviousMinimum == inOther._gotPreviousMinimum
+			&& _gotPreviousMaximum == inOther._gotPreviousMaximum;
+	}
+
+	/**
+	 * @param inValues minimum and maximum of the values to be added next
+	 * @return true if adding any values within this range leaves the climb/descent calculations unchanged
+	 */
+	boolean isUnchangedBy(DoubleRange inValues)
+	{
+		if (!inValues.hasData()) {
+			return true;
+		}
+		if (!_gotPreviousValue) {
+			return false;
+		}
+		// Going up, only a rise or a drop of more than the tolerance make a difference
+		final double lowest = (_gotPreviousMaximum ? _previousValue : _previousValue - _wiggleLimit);
+		final double highest = (_gotPreviousMinimum ? _previousValue : _previousValue + _wiggleLimit);
+		return inValues.getMinimum() >= lowest && inValues.getMaximum() <= highest;
+	}
+
+	/**
+	 * Combine the calculations for a section of the track with those from the start of the track
+	 * @param inSection range started at the beginning of the section
+	 * @param inSyncState range from the start of the track, at the point where it reached the same state as inSection
+	 * @param inEndState range from the start of the track, at the end of the section
+	 * @param inValues minimum and maximum altitudes within the section
+	 * @return range giving the climb and descent of the section
+	 */
+	static AltitudeRange combine(AltitudeRange inSection, AltitudeRange inSyncState,
+		AltitudeRange inEndState, DoubleRange inValues)
+	{
+		AltitudeRange result = new AltitudeRange(inEndState);
+		result._climb = inSection._climb + inEndState._climb - inSyncState._climb;
+		result._descent = inSection._descent + inEndState._descent - inSyncState._descent;
+		// Still going in the same direction, but from different extremes
+		if (inSection._gotPreviousMinimum) {
+			result._climb += (int) (inSyncState._previousExtreme - inSection._previousExtreme);
+		}
+		else if (inSection._gotPreviousMaximum) {
+			result._descent += (int) (inSection._previousExtreme - inSyncState._previousExtreme);
+		}
+		result._range.clear();
+		if (inValues.hasData())
+		{
+			result._range.addValue(inValues.getMinimum());
+			result._range.addValue(inValues.getMaximum());
+		}
+		return result;
+	}
+
 	/**
 	 * @return overall height gain in metres
 	 */
@@ -11,7 +11,9 @@ import java.text.NumberFormat;
 public class Coordinate
 {
 	private static final int NUMDIGITS_DEFAULT = -1;
-	private static final CoordFormatters _coordFormatters = new CoordFormatters();
+	/** Number formatters, one set for each thread so that points can be formatted in parallel */
+	private static final ThreadLocal<CoordFormatters> _coordFormatters
+		= ThreadLocal.withInitial(CoordFormatters::new);
 
 	public enum Format {DEG_MIN_SEC, DEG_MIN, DEG, DEG_WITHOUT_CARDINAL, DEG_MIN_SEC_WITH_SPACES, JUST_CARDINAL, DECIMAL_FORCE_POINT, NONE}
 
@@ -284,7 +286,7 @@ public class Coordinate
 		_asDouble = inValue;
 		_value = null;
 		_cardinal = inCardinal;
-		NumberFormat degFormatter = _coordFormatters.getLocalFormatter(6);
+		NumberFormat degFormatter = _coordFormatters.get().getLocalFormatter(6);
 		_originalString = degFormatter.format(_asDouble);
 		_originalFormat = Format.DEG_WITHOUT_CARDINAL;
 	}
@@ -364,8 +366,8 @@ public class Coordinate
 			case DECIMAL_FORCE_POINT:
 				// value = value.roundToDegrees(numDigits);
 				NumberFormat degFormatter = (inFormat == Format.DECIMAL_FORCE_POINT ?
-						_coordFormatters.getUkFormatter(numDigits) :
-						_coordFormatters.getLocalFormatter(numDigits));
+						_coordFormatters.get().getUkFormatter(numDigits) :
+						_coordFormatters.get().getLocalFormatter(numDigits));
 				if (inFormat == Format.DEG) {
 					return _cardinal.printable + ' ' + degFormatter.format(Math.abs(_asDouble));
 				}
@@ -395,7 +397,7 @@ public class Coordinate
 	{
 		if (_localDecimalChar == 0)
 		{
-			NumberFormat format = _coordFormatters.getLocalFormatter(3);
+			NumberFormat format = _coordFormatters.get().getLocalFormatter(3);
 			if (format instanceof DecimalFormat) {
 				_localDecimalChar = ((DecimalFormat) format).getDecimalFormatSymbols().getDecimalSeparator();
 			}
@@ -114,6 +114,22 @@ public class DataPoint
 		}
 	}
 
+	/**
+	 * Share the values of those fields which are repeated on many points
+	 * @param inPool pool of values for the current load
+	 */
+	public void poolValues(ValuePool inPool)
+	{
+		if (_fieldValues == null || _fieldList == null) {
+			return;
+		}
+		final int numValues = Math.min(_fieldValues.length, _fieldList.getNumFields());
+		for (int i=0; i<numValues; i++)
+		{
+			_fieldValues[i] = inPool.getValue(_fieldList.getField(i), _fieldValues[i]);
+		}
+	}
+
 	/**
 	 * Constructor for additional points without altitude
 	 * @param inLatitude latitude
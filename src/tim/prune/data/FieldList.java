@@ -39,6 +39,17 @@ public class FieldList
 	public int getFieldIndex(Field inField)
 	{
 		if (inField == null) return -1;
+		if (inField.isBuiltIn())
+		{
+			// Built-in fields are single instances, so they can be compared without their names
+			for (int i=0; i<_fields.size(); i++)
+			{
+				if (_fields.get(i) == inField) {
+					return i;
+				}
+			}
+			return -1;
+		}
 		int index = 0;
 		for (Field field : _fields)
 		{
@@ -61,6 +72,25 @@ public class FieldList
 	}
 
 
+	/**
+	 * @param inOtherList other FieldList object
+	 * @return true if this list already contains all the fields of the other list
+	 */
+	public boolean containsAll(FieldList inOtherList)
+	{
+		if (inOtherList == null || inOtherList == this) {
+			return true;
+		}
+		for (Field field : inOtherList._fields)
+		{
+			if (!contains(field)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
 	/**
 	 * @return number of fields in list
 	 */
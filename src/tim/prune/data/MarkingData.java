@@ -36,6 +36,19 @@ public class MarkingData
 		}
 	}
 
+	/**
+	 * @return a copy of these markings which can be changed independently
+	 */
+	public MarkingData copy()
+	{
+		MarkingData copy = new MarkingData(_track);
+		checkSize();
+		if (_flags != null) {
+			copy._flags = _flags.clone();
+		}
+		return copy;
+	}
+
 	public void clear() {
 		_flags = null;
 	}
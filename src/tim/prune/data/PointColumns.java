@@ -0,0 +1,320 @@
+package tim.prune.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import tim.prune.gui.map.MapUtils;
+
+/**
+ * Holds the coordinates and flags of all the points in a Track
+ * as parallel arrays of primitives, so that loops over many points
+ * don't need to go through the Coordinate objects of each DataPoint.
+ * The Track keeps these columns up to date as points are inserted and deleted.
+ * Only the latitudes and longitudes are stored, taking the same 16 bytes per point
+ * as the x and y values which the Track used to hold, plus two bits for the flags.
+ * The scaled x and y values are calculated from them when needed.
+ */
+public class PointColumns
+{
+	private int _numPoints;
+	/** Coordinates in degrees, or NaN if the point isn't valid */
+	private double[] _latitudes, _longitudes;
+	private final BitSet _waypoints, _segmentStarts;
+	private int _numValid = 0, _numWaypoints = 0;
+	private final DoubleRange _latRange = new DoubleRange(), _lonRange = new DoubleRange();
+	private final DoubleRange _xRange = new DoubleRange(), _yRange = new DoubleRange();
+	/** Flag set when a point on the edge of the ranges has been removed */
+	private boolean _rangesOutdated = false;
+
+
+	/**
+	 * Constructor
+	 * @param inTrack track from which to take the points
+	 */
+	PointColumns(Track inTrack)
+	{
+		_numPoints = inTrack.getNumPoints();
+		allocate(_numPoints);
+		_waypoints = new BitSet(_numPoints);
+		_segmentStarts = new BitSet(_numPoints);
+		for (int p=0; p<_numPoints; p++) {
+			setPoint(p, inTrack.getPoint(p));
+		}
+	}
+
+	/**
+	 * Allocate new arrays with the given capacity, keeping the existing values
+	 * @param inCapacity new capacity
+	 */
+	private void allocate(int inCapacity)
+	{
+		_latitudes = copyOf(_latitudes, inCapacity);
+		_longitudes = copyOf(_longitudes, inCapacity);
+	}
+
+	private static double[] copyOf(double[] inArray, int inCapacity) {
+		return inArray == null ? new double[inCapacity] : Arrays.copyOf(inArray, inCapacity);
+	}
+
+	/**
+	 * Set the values for the given position from the given point
+	 * @param inIndex index of point
+	 * @param inPoint point to take the values from
+	 */
+	private void setPoint(int inIndex, DataPoint inPoint)
+	{
+		_waypoints.clear(inIndex);
+		_segmentStarts.clear(inIndex);
+		if (inPoint == null || !inPoint.isValid())
+		{
+			_latitudes[inIndex] = _longitudes[inIndex] = Double.NaN;
+			return;
+		}
+		_latitudes[inIndex] = inPoint.getLatitude().getDouble();
+		_longitudes[inIndex] = inPoint.getLongitude().getDouble();
+		if (inPoint.isWaypoint()) {
+			_waypoints.set(inIndex);
+			_numWaypoints++;
+		}
+		if (inPoint.getSegmentStart()) {
+			_segmentStarts.set(inIndex);
+		}
+		_numValid++;
+		if (!_rangesOutdated) {
+			addToRanges(inIndex);
+		}
+	}
+
+	/** Add the values of the given point to the ranges */
+	private void addToRanges(int inIndex)
+	{
+		_latRange.addValue(_latitudes[inIndex]);
+		_lonRange.addValue(_longitudes[inIndex]);
+		_xRange.addValue(getX(inIndex));
+		_yRange.addValue(getY(inIndex));
+	}
+
+	/**
+	 * Remove the given point from the counts, and check whether the ranges need recalculating
+	 * @param inIndex index of point being removed
+	 */
+	private void removePoint(int inIndex)
+	{
+		if (!isValid(inIndex)) {
+			return;
+		}
+		_numValid--;
+		if (isWaypoint(inIndex)) {
+			_numWaypoints--;
+		}
+		if (isOnEdge(_latRange, _latitudes[inIndex]) || isOnEdge(_lonRange, _longitudes[inIndex])) {
+			_rangesOutdated = true;
+		}
+	}
+
+	/** @return true if the given value is the minimum or maximum of the range */
+	private static boolean isOnEdge(DoubleRange inRange, double inValue) {
+		return inValue <= inRange.getMinimum() || inValue >= inRange.getMaximum();
+	}
+
+	/**
+	 * Points have been inserted into the track, so insert their values too
+	 * @param inTrack track containing the new points
+	 * @param inIndex index of first inserted point
+	 * @param inCount number of points inserted
+	 */
+	void insertPoints(Track inTrack, int inIndex, int inCount)
+	{
+		final int newSize = _numPoints + inCount;
+		final int capacity = _latitudes.length;
+		if (newSize > capacity) {
+			// grow by half again to keep the cost of appending point by point linear
+			allocate(Math.max(newSize, capacity + capacity / 2 + 16));
+		}
+		final int numAfter = _numPoints - inIndex;
+		if (numAfter > 0)
+		{
+			System.arraycopy(_latitudes, inIndex, _latitudes, inIndex + inCount, numAfter);
+			System.arraycopy(_longitudes, inIndex, _longitudes, inIndex + inCount, numAfter);
+			moveBits(_waypoints, inIndex, inIndex + inCount, numAfter);
+			moveBits(_segmentStarts, inIndex, inIndex + inCount, numAfter);
+		}
+		for (int i=0; i<inCount; i++) {
+			setPoint(inIndex + i, inTrack.getPoint(inIndex + i));
+		}
+		_numPoints = newSize;
+	}
+
+	/**
+	 * A point has been deleted from the track, so remove its values too
+	 * @param inIndex index of deleted point
+	 */
+	void deletePoint(int inIndex)
+	{
+		removePoint(inIndex);
+		final int numAfter = _numPoints - inIndex - 1;
+		if (numAfter > 0)
+		{
+			System.arraycopy(_latitudes, inIndex + 1, _latitudes, inIndex, numAfter);
+			System.arraycopy(_longitudes, inIndex + 1, _longitudes, inIndex, numAfter);
+		}
+		moveBits(_waypoints, inIndex + 1, inIndex, numAfter);
+		moveBits(_segmentStarts, inIndex + 1, inIndex, numAfter);
+		_numPoints--;
+	}
+
+	/**
+	 * Move a range of flags up or down, clearing the ones left behind
+	 * @param inBits flags to change
+	 * @param inFrom index of first flag to move
+	 * @param inTo new index of first flag
+	 * @param inCount number of flags to move
+	 */
+	private static void moveBits(BitSet inBits, int inFrom, int inTo, int inCount)
+	{
+		final BitSet moved = inBits.get(inFrom, inFrom + inCount);
+		inBits.clear(Math.min(inFrom, inTo), Math.max(inFrom, inTo) + inCount);
+		for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+			inBits.set(inTo + i);
+		}
+	}
+
+	/**
+	 * The track has been cropped, so drop the values of the following points
+	 * @param inNewSize new number of points
+	 */
+	void cropTo(int inNewSize)
+	{
+		for (int i=inNewSize; i<_numPoints; i++) {
+			removePoint(i);
+		}
+		_waypoints.clear(inNewSize, _numPoints);
+		_segmentStarts.clear(inNewSize, _numPoints);
+		_numPoints = inNewSize;
+	}
+
+	/**
+	 * The given point has changed (for example its segment flag), so refresh its values
+	 * @param inIndex index of point
+	 * @param inPoint point to take the values from
+	 */
+	void updatePoint(int inIndex, DataPoint inPoint)
+	{
+		removePoint(inIndex);
+		setPoint(inIndex, inPoint);
+	}
+
+	/**
+	 * Recalculate the ranges if necessary after points have been removed
+	 */
+	private synchronized void checkRanges()
+	{
+		if (_rangesOutdated)
+		{
+			_latRange.clear();
+			_lonRange.clear();
+			_xRange.clear();
+			_yRange.clear();
+			for (int p=0; p<_numPoints; p++)
+			{
+				if (isValid(p)) {
+					addToRanges(p);
+				}
+			}
+			_rangesOutdated = false;
+		}
+	}
+
+	/** @return number of points */
+	public int getNumPoints() {
+		return _numPoints;
+	}
+
+	/** @return latitude of specified point in degrees */
+	public double getLatitude(int inIndex) {
+		return _latitudes[inIndex];
+	}
+
+	/** @return longitude of specified point in degrees */
+	public double getLongitude(int inIndex) {
+		return _longitudes[inIndex];
+	}
+
+	/** @return scaled x value of specified point */
+	public double getX(int inIndex) {
+		return isValid(inIndex) ? MapUtils.getXFromLongitude(_longitudes[inIndex]) : 0.0;
+	}
+
+	/** @return scaled y value of specified point */
+	public double getY(int inIndex) {
+		return isValid(inIndex) ? MapUtils.getYFromLatitude(_latitudes[inIndex]) : 0.0;
+	}
+
+	/** @return true if the specified point has valid coordinates */
+	public boolean isValid(int inIndex) {
+		return !Double.isNaN(_latitudes[inIndex]);
+	}
+
+	/** @return true if the specified point is a waypoint */
+	public boolean isWaypoint(int inIndex) {
+		return _waypoints.get(inIndex);
+	}
+
+	/** @return true if the specified point starts a new segment */
+	public boolean isSegmentStart(int inIndex) {
+		return _segmentStarts.get(inIndex);
+	}
+
+	/** @return true if any valid point is a waypoint */
+	public boolean hasWaypoints() {
+		return _numWaypoints > 0;
+	}
+
+	/** @return true if any valid point is a track point */
+	public boolean hasTrackPoints() {
+		return _numValid > _numWaypoints;
+	}
+
+	/**
+	 * Calculate the angular distance between two points
+	 * @param inIndex1 index of first point
+	 * @param inIndex2 index of second point
+	 * @return angular distance between points in radians
+	 */
+	public double calculateRadiansBetween(int inIndex1, int inIndex2)
+	{
+		if (!isValid(inIndex1) || !isValid(inIndex2)) {
+			return 0.0;
+		}
+		return Distance.calculateRadiansBetween(_latitudes[inIndex1], _longitudes[inIndex1],
+			_latitudes[inIndex2], _longitudes[inIndex2]);
+	}
+
+	/** @return range of latitudes */
+	public DoubleRange getLatRange()
+	{
+		checkRanges();
+		return _latRange;
+	}
+
+	/** @return range of longitudes */
+	public DoubleRange getLonRange()
+	{
+		checkRanges();
+		return _lonRange;
+	}
+
+	/** @return range of x values */
+	public DoubleRange getXRange()
+	{
+		checkRanges();
+		return _xRange;
+	}
+
+	/** @return range of y values */
+	public DoubleRange getYRange()
+	{
+		checkRanges();
+		return _yRange;
+	}
+}
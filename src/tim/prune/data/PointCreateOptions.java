@@ -25,14 +25,15 @@ public class PointCreateOptions
 	public Unit getAltitudeUnits() {return _altitudeUnit;}
 
 	/**
-	 * @param inUnit speed units (only m/s, ft/s, km/h and mph accepted)
+	 * @param inUnit speed units (only m/s, ft/s, km/h, mph and knots accepted)
 	 */
 	public void setSpeedUnits(Unit inUnit)
 	{
 		if (inUnit == UnitSetLibrary.SPEED_UNITS_METRESPERSEC
 			|| inUnit == UnitSetLibrary.SPEED_UNITS_FEETPERSEC
 			|| inUnit == UnitSetLibrary.SPEED_UNITS_KMPERHOUR
-			|| inUnit == UnitSetLibrary.SPEED_UNITS_MILESPERHOUR)
+			|| inUnit == UnitSetLibrary.SPEED_UNITS_MILESPERHOUR
+			|| inUnit == UnitSetLibrary.SPEED_UNITS_KNOTS)
 		{
 			_speedUnit = inUnit;
 		}
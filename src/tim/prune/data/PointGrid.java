@@ -0,0 +1,395 @@
+package tim.prune.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Uniform grid over the scaled x and y values of a track's points,
+ * used to find the points near a given position without looping over the whole track.
+ * Small edits update the grid in place, as long as the new points lie within its bounds.
+ */
+public class PointGrid
+{
+	private final PointColumns _columns;
+	private final double _minX, _minY;
+	private final double _cellWidth, _cellHeight;
+	private final int _numCols, _numRows;
+	/** Start position in _pointIndexes for each cell, plus one extra at the end */
+	private final int[] _cellStarts;
+	/** Point indexes grouped by cell, with spare capacity at the end */
+	private int[] _pointIndexes;
+	/** Cell of each point, or -1 if the point isn't valid */
+	private int[] _pointCells;
+	/** Number of points in the track */
+	private int _numPoints;
+	/** Number of indexed points above which the cells are too full, and the grid should be rebuilt */
+	private final int _maxIndexed;
+
+	/** Average number of points to aim for in each cell */
+	private static final int POINTS_PER_CELL = 4;
+	/** Maximum number of cells along each side */
+	private static final int MAX_CELLS_PER_SIDE = 2048;
+	/** Maximum number of points inserted in place, above which the grid is rebuilt */
+	private static final int MAX_POINTS_INSERTED = 64;
+
+
+	/**
+	 * Constructor
+	 * @param inColumns point columns from the track
+	 */
+	PointGrid(PointColumns inColumns)
+	{
+		_columns = inColumns;
+		final int numPoints = inColumns.getNumPoints();
+		_numPoints = numPoints;
+		DoubleRange xRange = inColumns.getXRange();
+		DoubleRange yRange = inColumns.getYRange();
+		_minX = xRange.getMinimum();
+		_minY = yRange.getMinimum();
+		final double width = Math.max(xRange.getRange(), 1e-9);
+		final double height = Math.max(yRange.getRange(), 1e-9);
+		// Choose the grid dimensions according to the shape of the track
+		final double numCells = Math.max(1.0, numPoints / (double) POINTS_PER_CELL);
+		_numCols = clampSize(Math.sqrt(numCells * width / height));
+		_numRows = clampSize(numCells / _numCols);
+		_cellWidth = width / _numCols;
+		_cellHeight = height / _numRows;
+
+		// Count the valid points in each cell, then sort the point indexes by cell
+		final int totalCells = _numCols * _numRows;
+		_cellStarts = new int[totalCells + 1];
+		_pointCells = new int[numPoints];
+		for (int i=0; i<numPoints; i++)
+		{
+			_pointCells[i] = getCellOfPoint(i);
+			if (_pointCells[i] >= 0) {
+				_cellStarts[_pointCells[i] + 1]++;
+			}
+		}
+		for (int c=0; c<totalCells; c++) {
+			_cellStarts[c + 1] += _cellStarts[c];
+		}
+		_pointIndexes = new int[_cellStarts[totalCells]];
+		final int[] fillPositions = new int[totalCells];
+		System.arraycopy(_cellStarts, 0, fillPositions, 0, totalCells);
+		for (int i=0; i<numPoints; i++)
+		{
+			if (_pointCells[i] >= 0) {
+				_pointIndexes[fillPositions[_pointCells[i]]++] = i;
+			}
+		}
+		_maxIndexed = Math.max(2 * _pointIndexes.length, 16 * POINTS_PER_CELL);
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return cell containing the point, or -1 if the point isn't valid
+	 */
+	private int getCellOfPoint(int inIndex)
+	{
+		if (!_columns.isValid(inIndex)) {
+			return -1;
+		}
+		return getCell(getColumn(_columns.getX(inIndex)), getRow(_columns.getY(inIndex)));
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return true if the point is invalid or lies within the bounds of the grid
+	 */
+	private boolean isInsideGrid(int inIndex)
+	{
+		if (!_columns.isValid(inIndex)) {
+			return true;
+		}
+		final double x = _columns.getX(inIndex), y = _columns.getY(inIndex);
+		return x >= _minX && x <= _minX + _numCols * _cellWidth
+			&& y >= _minY && y <= _minY + _numRows * _cellHeight;
+	}
+
+	/**
+	 * Points have been inserted into the columns, so add them to the grid
+	 * @param inIndex index of first inserted point
+	 * @param inCount number of inserted points
+	 * @return true if the grid was updated, false if it has to be rebuilt instead
+	 */
+	boolean insertPoints(int inIndex, int inCount)
+	{
+		if (inCount > MAX_POINTS_INSERTED || _cellStarts[_cellStarts.length - 1] + inCount > _maxIndexed) {
+			return false;
+		}
+		for (int i=0; i<inCount; i++)
+		{
+			// Points outside the grid would break the distance limits of the search
+			if (!isInsideGrid(inIndex + i)) {
+				return false;
+			}
+		}
+		shiftIndexes(inIndex, inCount);
+		if (_numPoints + inCount > _pointCells.length) {
+			_pointCells = Arrays.copyOf(_pointCells, _numPoints + inCount + _numPoints / 2);
+		}
+		System.arraycopy(_pointCells, inIndex, _pointCells, inIndex + inCount, _numPoints - inIndex);
+		_numPoints += inCount;
+		for (int i=inIndex; i<inIndex + inCount; i++)
+		{
+			_pointCells[i] = getCellOfPoint(i);
+			if (_pointCells[i] >= 0) {
+				addToCell(_pointCells[i], i);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A point has been deleted from the columns, so remove it from the grid
+	 * @param inIndex index of deleted point
+	 */
+	void deletePoint(int inIndex)
+	{
+		final int cell = _pointCells[inIndex];
+		if (cell >= 0) {
+			removeFromCell(cell, inIndex);
+		}
+		System.arraycopy(_pointCells, inIndex + 1, _pointCells, inIndex, _numPoints - inIndex - 1);
+		_numPoints--;
+		shiftIndexes(inIndex + 1, -1);
+	}
+
+	/**
+	 * The columns have been cropped, so remove the following points from the grid
+	 * @param inNewSize new number of points
+	 */
+	void cropTo(int inNewSize)
+	{
+		final int totalCells = _cellStarts.length - 1;
+		int numKept = 0, cellStart = 0;
+		for (int c=0; c<totalCells; c++)
+		{
+			final int cellEnd = _cellStarts[c + 1];
+			_cellStarts[c] = numKept;
+			for (int p=cellStart; p<cellEnd; p++)
+			{
+				if (_pointIndexes[p] < inNewSize) {
+					_pointIndexes[numKept++] = _pointIndexes[p];
+				}
+			}
+			cellStart = cellEnd;
+		}
+		_cellStarts[totalCells] = numKept;
+		_numPoints = Math.min(_numPoints, inNewSize);
+	}
+
+	/**
+	 * Add the given amount to all the point indexes from the given one onwards
+	 */
+	private void shiftIndexes(int inFromIndex, int inDelta)
+	{
+		final int numIndexed = _cellStarts[_cellStarts.length - 1];
+		for (int p=0; p<numIndexed; p++)
+		{
+			if (_pointIndexes[p] >= inFromIndex) {
+				_pointIndexes[p] += inDelta;
+			}
+		}
+	}
+
+	/**
+	 * Add the given point index to the end of the given cell
+	 */
+	private void addToCell(int inCell, int inIndex)
+	{
+		final int numIndexed = _cellStarts[_cellStarts.length - 1];
+		if (numIndexed == _pointIndexes.length) {
+			_pointIndexes = Arrays.copyOf(_pointIndexes, numIndexed + numIndexed / 2 + 16);
+		}
+		final int position = _cellStarts[inCell + 1];
+		System.arraycopy(_pointIndexes, position, _pointIndexes, position + 1, numIndexed - position);
+		_pointIndexes[position] = inIndex;
+		for (int c=inCell + 1; c<_cellStarts.length; c++) {
+			_cellStarts[c]++;
+		}
+	}
+
+	/**
+	 * Remove the given point index from the given cell
+	 */
+	private void removeFromCell(int inCell, int inIndex)
+	{
+		final int numIndexed = _cellStarts[_cellStarts.length - 1];
+		for (int p=_cellStarts[inCell]; p<_cellStarts[inCell + 1]; p++)
+		{
+			if (_pointIndexes[p] == inIndex)
+			{
+				System.arraycopy(_pointIndexes, p + 1, _pointIndexes, p, numIndexed - p - 1);
+				for (int c=inCell + 1; c<_cellStarts.length; c++) {
+					_cellStarts[c]--;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @param inSize desired number of cells
+	 * @return number of cells clamped to the allowed limits
+	 */
+	private static int clampSize(double inSize) {
+		return (int) Math.max(1, Math.min(MAX_CELLS_PER_SIDE, Math.ceil(inSize)));
+	}
+
+	/** @return column index for the given x value, clamped to the grid */
+	private int getColumn(double inX)
+	{
+		final int col = (int) Math.floor((inX - _minX) / _cellWidth);
+		return Math.max(0, Math.min(_numCols - 1, col));
+	}
+
+	/** @return row index for the given y value, clamped to the grid */
+	private int getRow(double inY)
+	{
+		final int row = (int) Math.floor((inY - _minY) / _cellHeight);
+		return Math.max(0, Math.min(_numRows - 1, row));
+	}
+
+	/** @return cell index for the given column and row */
+	private int getCell(int inCol, int inRow) {
+		return inRow * _numCols + inCol;
+	}
+
+	/**
+	 * Find the nearest point to the specified x and y coordinates,
+	 * using the same distance measure and tie-breaking as a linear scan
+	 * @param inX x coordinate
+	 * @param inY y coordinate
+	 * @param inMaxDist maximum distance from selected coordinates, or negative for no limit
+	 * @param inJustTrackPoints true if waypoints should be ignored
+	 * @return index of nearest point or -1 if none within the maximum distance
+	 */
+	public int getNearestPointIndex(double inX, double inY, double inMaxDist, boolean inJustTrackPoints)
+	{
+		NearestResult result = new NearestResult();
+		// x values wrap around, so also look from one world to the left and right
+		for (double xShift : new double[] {0.0, -1.0, 1.0}) {
+			searchRings(inX, inY, xShift, inMaxDist, inJustTrackPoints, result);
+		}
+		if (result._index < 0) {
+			// Nothing within the limit, or no suitable points at all (then fall back to the first one)
+			return inMaxDist > 0.0 ? -1 : 0;
+		}
+		// Check whether it's within required distance
+		if (result._distance > inMaxDist && inMaxDist > 0.0) {
+			return -1;
+		}
+		return result._index;
+	}
+
+	/**
+	 * Search the cells in rings around the given position, stopping when
+	 * no closer points can be found
+	 */
+	private void searchRings(double inX, double inY, double inXShift, double inMaxDist,
+		boolean inJustTrackPoints, NearestResult inResult)
+	{
+		final double shiftedX = inX + inXShift;
+		final int centreCol = getColumn(shiftedX), centreRow = getRow(inY);
+		// Distance from the query position to the edge of the grid, if it's outside
+		final double gapX = Math.max(0.0, Math.max(_minX - shiftedX, shiftedX - (_minX + _numCols * _cellWidth)));
+		final double gapY = Math.max(0.0, Math.max(_minY - inY, inY - (_minY + _numRows * _cellHeight)));
+		final double minCellSize = Math.min(_cellWidth, _cellHeight);
+		final int maxRing = Math.max(_numCols, _numRows);
+		for (int ring=0; ring<=maxRing; ring++)
+		{
+			// Lower bound for the distance of any point in this ring
+			final double ringDist = gapX + gapY + Math.max(0, ring - 1) * minCellSize;
+			if ((inResult._index >= 0 && ringDist > inResult._distance)
+				|| (inMaxDist > 0.0 && ringDist > inMaxDist))
+			{
+				return;
+			}
+			final int minRow = Math.max(0, centreRow - ring), maxRow = Math.min(_numRows - 1, centreRow + ring);
+			for (int row = minRow; row <= maxRow; row++)
+			{
+				final boolean edgeRow = (row == centreRow - ring || row == centreRow + ring);
+				final int colStep = (edgeRow || ring == 0) ? 1 : 2 * ring;
+				for (int col = centreCol - ring; col <= centreCol + ring; col += colStep)
+				{
+					if (col >= 0 && col < _numCols) {
+						checkCell(getCell(col, row), inX, inY, inJustTrackPoints, inResult);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check all the points in the given cell against the current nearest
+	 */
+	private void checkCell(int inCell, double inX, double inY, boolean inJustTrackPoints,
+		NearestResult inResult)
+	{
+		for (int p=_cellStarts[inCell]; p<_cellStarts[inCell + 1]; p++)
+		{
+			final int i = _pointIndexes[p];
+			if (inJustTrackPoints && _columns.isWaypoint(i)) {
+				continue;
+			}
+			final double dist = Math.abs(_columns.getY(i) - inY) + getMinXDist(_columns.getX(i) - inX);
+			if (inResult._index < 0 || dist < inResult._distance
+				|| (dist == inResult._distance && i < inResult._index))
+			{
+				inResult._index = i;
+				inResult._distance = dist;
+			}
+		}
+	}
+
+	/**
+	 * @param inX x value of point
+	 * @return minimum wrapped value
+	 */
+	static double getMinXDist(double inX) {
+		return Math.min(Math.min(Math.abs(inX), Math.abs(inX-1.0)), Math.abs(inX+1.0));
+	}
+
+	/**
+	 * Find all the points inside the given rectangle
+	 * @param inMinX minimum x value
+	 * @param inMinY minimum y value
+	 * @param inMaxX maximum x value
+	 * @param inMaxY maximum y value
+	 * @return flags for the indexes of the points inside the rectangle (inclusive)
+	 */
+	public BitSet getPointsInRectangle(double inMinX, double inMinY, double inMaxX, double inMaxY)
+	{
+		BitSet result = new BitSet(_numPoints);
+		if (inMaxX < inMinX || inMaxY < inMinY) {
+			return result;
+		}
+		final int minCol = getColumn(inMinX), maxCol = getColumn(inMaxX);
+		final int minRow = getRow(inMinY), maxRow = getRow(inMaxY);
+		for (int row = minRow; row <= maxRow; row++)
+		{
+			for (int col = minCol; col <= maxCol; col++)
+			{
+				final int cell = getCell(col, row);
+				for (int p=_cellStarts[cell]; p<_cellStarts[cell + 1]; p++)
+				{
+					final int i = _pointIndexes[p];
+					final double x = _columns.getX(i), y = _columns.getY(i);
+					if (x >= inMinX && x <= inMaxX && y >= inMinY && y <= inMaxY) {
+						result.set(i);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/** Holder for the best point found so far */
+	private static class NearestResult
+	{
+		private int _index = -1;
+		private double _distance = 0.0;
+	}
+}
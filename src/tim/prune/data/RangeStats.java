@@ -26,6 +26,38 @@ public class RangeStats
 		_movingAltitudeRange = new AltitudeRange(inAltitudeTolerance);
 	}
 
+	/**
+	 * Constructor for results which have already been calculated
+	 * @param inNumPoints number of points
+	 * @param inNumSegments number of segments
+	 * @param inTotalAltitudes altitude range including segment gaps
+	 * @param inMovingAltitudes altitude range just within segments
+	 * @param inEarliest earliest timestamp, or null
+	 * @param inLatest latest timestamp, or null
+	 * @param inMovingMillis milliseconds within segments
+	 * @param inTimesIncomplete true if any timestamps are missing
+	 * @param inTimesOutOfSequence true if any timestamps are out of sequence
+	 * @param inTotalRads total distance in radians
+	 * @param inMovingRads distance within segments in radians
+	 */
+	RangeStats(int inNumPoints, int inNumSegments, AltitudeRange inTotalAltitudes,
+		AltitudeRange inMovingAltitudes, Timestamp inEarliest, Timestamp inLatest, long inMovingMillis,
+		boolean inTimesIncomplete, boolean inTimesOutOfSequence, double inTotalRads, double inMovingRads)
+	{
+		_numPoints = inNumPoints;
+		_numSegments = inNumSegments;
+		_foundTrackPoint = inNumSegments > 0;
+		_totalAltitudeRange = inTotalAltitudes;
+		_movingAltitudeRange = inMovingAltitudes;
+		_earliestTimestamp = inEarliest;
+		_latestTimestamp = inLatest;
+		_movingMilliseconds = inMovingMillis;
+		_timesIncomplete = inTimesIncomplete;
+		_timesOutOfSequence = inTimesOutOfSequence;
+		_totalDistanceRads = inTotalRads;
+		_movingDistanceRads = inMovingRads;
+	}
+
 	/**
 	 * Constructor giving Track
 	 * @param inTrack track object to calculate with
@@ -44,8 +76,22 @@ public class RangeStats
 	 */
 	protected void populateFromTrack(Track inTrack, int inStartIndex, int inEndIndex)
 	{
-		for (int i=inStartIndex; i<=inEndIndex; i++) {
-			addPoint(inTrack.getPoint(i));
+		// Distances are taken from the track's coordinate arrays rather than the points
+		final PointColumns columns = inTrack.getColumns();
+		int prevTrackPointIndex = -1;
+		for (int i=inStartIndex; i<=inEndIndex; i++)
+		{
+			DataPoint point = inTrack.getPoint(i);
+			if (point == null) {
+				continue;
+			}
+			final boolean isTrackPoint = !point.isWaypoint();
+			final double rads = (isTrackPoint && prevTrackPointIndex >= 0 ?
+				columns.calculateRadiansBetween(prevTrackPointIndex, i) : 0.0);
+			addPoint(point, rads);
+			if (isTrackPoint) {
+				prevTrackPointIndex = i;
+			}
 		}
 	}
 
@@ -57,6 +103,15 @@ public class RangeStats
 		if (inPoint == null) {
 			return;
 		}
+		addPoint(inPoint, DataPoint.calculateRadiansBetween(_prevPoint, inPoint));
+	}
+
+	/**
+	 * @param inPoint point to add to the calculations
+	 * @param inRadsFromPrevious angular distance from the previous track point, if any
+	 */
+	private void addPoint(DataPoint inPoint, double inRadsFromPrevious)
+	{
 		_numPoints++;
 		// ignore all waypoints
 		if (inPoint.isWaypoint()) {
@@ -69,7 +124,7 @@ public class RangeStats
 		// Get the distance to the previous track point
 		if (_prevPoint != null)
 		{
-			double rads = DataPoint.calculateRadiansBetween(_prevPoint, inPoint);
+			final double rads = inRadsFromPrevious;
 			_totalDistanceRads += rads;
 			if (!inPoint.getSegmentStart()) {
 				_movingDistanceRads += rads;
@@ -125,7 +180,7 @@ public class RangeStats
 		}
 
 		// allow child classes to do additional calculations
-		doFurtherCalculations(inPoint);
+		doFurtherCalculations(inPoint, inRadsFromPrevious);
 
 		_prevPoint = inPoint;
 	}
@@ -133,8 +188,9 @@ public class RangeStats
 	/**
 	 * Hook for subclasses to do what they want in addition
 	 * @param inPoint incoming point
+	 * @param inRadsFromPrevious angular distance from the previous track point
 	 */
-	protected void doFurtherCalculations(DataPoint inPoint)
+	protected void doFurtherCalculations(DataPoint inPoint, double inRadsFromPrevious)
 	{
 	}
 
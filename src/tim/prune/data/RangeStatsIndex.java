@@ -0,0 +1,419 @@
+package tim.prune.data;
+
+import java.util.ArrayList;
+
+/**
+ * Index of the statistics along a track, so that the statistics of any range
+ * can be found without going through all of its points.
+ * The running totals from the start of the track are kept at the start of each block
+ * of points, together with the extreme values within each block.  The totals for a range
+ * are then the difference between the totals at its two ends, which only needs the points
+ * of one partial block at each end.  The index is only built as far as it's needed,
+ * and is cut back to the first changed point whenever the track is edited.
+ */
+public class RangeStatsIndex
+{
+	private final Track _track;
+	private final int _altitudeTolerance;
+	/** Totals from the start of the track up to (not including) the first point of each block */
+	private final ArrayList<Totals> _blockStarts = new ArrayList<>();
+	/** Extreme values within each complete block */
+	private final ArrayList<Extremes> _blockExtremes = new ArrayList<>();
+
+	private static final int BLOCK_SIZE = 256;
+
+
+	/** Running totals from the start of the track */
+	private static class Totals
+	{
+		private int _prevTrackIndex = -1;
+		private int _numTrackPoints = 0;
+		private int _numSegmentStarts = 0;
+		private int _numUntimed = 0;
+		private double _totalRads = 0.0, _movingRads = 0.0;
+		private Timestamp _movingTimestamp = null;
+		private long _movingMillis = 0L;
+		private int _numBackwardSteps = 0;
+		private final AltitudeRange _totalAltitudes, _movingAltitudes;
+
+		private Totals(int inAltitudeTolerance)
+		{
+			_totalAltitudes = new AltitudeRange(inAltitudeTolerance);
+			_movingAltitudes = new AltitudeRange(inAltitudeTolerance);
+		}
+
+		private Totals(Totals inOther)
+		{
+			_prevTrackIndex = inOther._prevTrackIndex;
+			_numTrackPoints = inOther._numTrackPoints;
+			_numSegmentStarts = inOther._numSegmentStarts;
+			_numUntimed = inOther._numUntimed;
+			_totalRads = inOther._totalRads;
+			_movingRads = inOther._movingRads;
+			_movingTimestamp = inOther._movingTimestamp;
+			_movingMillis = inOther._movingMillis;
+			_numBackwardSteps = inOther._numBackwardSteps;
+			_totalAltitudes = new AltitudeRange(inOther._totalAltitudes);
+			_movingAltitudes = new AltitudeRange(inOther._movingAltitudes);
+		}
+
+		/**
+		 * Add the given point to the totals, in the same way as RangeStats does
+		 * @param inPoint point to add
+		 * @param inIndex index of point
+		 * @param inColumns columns of track for calculating distances
+		 */
+		private void addPoint(DataPoint inPoint, int inIndex, PointColumns inColumns)
+		{
+			if (inPoint == null || inPoint.isWaypoint()) {
+				return;
+			}
+			final boolean isSegmentStart = inPoint.getSegmentStart();
+			final double rads = (_prevTrackIndex >= 0 ? inColumns.calculateRadiansBetween(_prevTrackIndex, inIndex) : 0.0);
+			_totalRads += rads;
+			if (!isSegmentStart) {
+				_movingRads += rads;
+			}
+			_numTrackPoints++;
+			if (isSegmentStart)
+			{
+				_numSegmentStarts++;
+				_movingTimestamp = null;
+			}
+			if (inPoint.hasTimestamp())
+			{
+				Timestamp timestamp = inPoint.getTimestamp();
+				if (_movingTimestamp != null)
+				{
+					final long millisLater = timestamp.getMillisecondsSince(_movingTimestamp);
+					if (millisLater < 0) {
+						_numBackwardSteps++;
+					}
+					else {
+						_movingMillis += millisLater;
+					}
+				}
+				_movingTimestamp = timestamp;
+			}
+			else {
+				_numUntimed++;
+			}
+			if (inPoint.hasAltitude())
+			{
+				Altitude altitude = inPoint.getAltitude();
+				_totalAltitudes.addValue(altitude);
+				if (isSegmentStart) {
+					_movingAltitudes.ignoreValue(altitude);
+				}
+				else {
+					_movingAltitudes.addValue(altitude);
+				}
+			}
+			_prevTrackIndex = inIndex;
+		}
+	}
+
+	/** Extreme values of timestamps and altitudes */
+	private static class Extremes
+	{
+		private Timestamp _earliest = null, _latest = null;
+		private final DoubleRange _altitudes = new DoubleRange();
+
+		/** @param inPoint point to add, ignoring waypoints */
+		private void addPoint(DataPoint inPoint)
+		{
+			if (inPoint == null || inPoint.isWaypoint()) {
+				return;
+			}
+			if (inPoint.hasTimestamp()) {
+				addTimestamp(inPoint.getTimestamp());
+			}
+			if (inPoint.hasAltitude()) {
+				_altitudes.addValue((int) inPoint.getAltitude().getMetricValue());
+			}
+		}
+
+		private void addTimestamp(Timestamp inTimestamp)
+		{
+			if (_earliest == null || inTimestamp.isBefore(_earliest)) {
+				_earliest = inTimestamp;
+			}
+			if (_latest == null || inTimestamp.isAfter(_latest)) {
+				_latest = inTimestamp;
+			}
+		}
+
+		/** @param inOther extremes of another block to include */
+		private void combine(Extremes inOther)
+		{
+			if (inOther._earliest != null)
+			{
+				addTimestamp(inOther._earliest);
+				addTimestamp(inOther._latest);
+			}
+			if (inOther._altitudes.hasData())
+			{
+				_altitudes.addValue(inOther._altitudes.getMinimum());
+				_altitudes.addValue(inOther._altitudes.getMaximum());
+			}
+		}
+	}
+
+
+	/**
+	 * Constructor
+	 * @param inTrack track object
+	 * @param inAltitudeTolerance altitude tolerance in metres
+	 */
+	RangeStatsIndex(Track inTrack, int inAltitudeTolerance)
+	{
+		_track = inTrack;
+		_altitudeTolerance = inAltitudeTolerance;
+	}
+
+	/** @return altitude tolerance in metres */
+	int getAltitudeTolerance() {
+		return _altitudeTolerance;
+	}
+
+	/**
+	 * Points have been changed, so the index needs to be recalculated from the given index onwards
+	 * @param inIndex index of first changed point
+	 */
+	synchronized void invalidateFrom(int inIndex)
+	{
+		final int blockIndex = Math.max(0, inIndex) / BLOCK_SIZE;
+		while (_blockStarts.size() > blockIndex + 1) {
+			_blockStarts.remove(_blockStarts.size() - 1);
+		}
+		while (_blockExtremes.size() > blockIndex) {
+			_blockExtremes.remove(_blockExtremes.size() - 1);
+		}
+	}
+
+	/**
+	 * Make sure that the index is built up to the start of the given block
+	 * @param inBlockIndex index of block
+	 * @param inColumns columns of track
+	 */
+	private void ensureBlocks(int inBlockIndex, PointColumns inColumns)
+	{
+		if (_blockStarts.isEmpty()) {
+			_blockStarts.add(new Totals(_altitudeTolerance));
+		}
+		while (_blockStarts.size() <= inBlockIndex)
+		{
+			final int blockIndex = _blockStarts.size() - 1;
+			Totals totals = new Totals(_blockStarts.get(blockIndex));
+			Extremes extremes = new Extremes();
+			for (int i=blockIndex * BLOCK_SIZE; i<(blockIndex + 1) * BLOCK_SIZE; i++)
+			{
+				DataPoint point = _track.getPoint(i);
+				totals.addPoint(point, i, inColumns);
+				extremes.addPoint(point);
+			}
+			_blockExtremes.add(extremes);
+			_blockStarts.add(totals);
+		}
+	}
+
+	/**
+	 * @param inIndex point index, or -1 for the start of the track
+	 * @param inColumns columns of track
+	 * @return totals from the start of the track up to and including the given point
+	 */
+	private Totals getTotalsAt(int inIndex, PointColumns inColumns)
+	{
+		if (inIndex < 0) {
+			return new Totals(_altitudeTolerance);
+		}
+		final int blockIndex = inIndex / BLOCK_SIZE;
+		ensureBlocks(blockIndex, inColumns);
+		Totals totals = new Totals(_blockStarts.get(blockIndex));
+		for (int i=blockIndex * BLOCK_SIZE; i<=inIndex; i++) {
+			totals.addPoint(_track.getPoint(i), i, inColumns);
+		}
+		return totals;
+	}
+
+	/**
+	 * @return extreme values of the points between the given indexes (inclusive)
+	 */
+	private Extremes getExtremes(int inStartIndex, int inEndIndex)
+	{
+		Extremes extremes = new Extremes();
+		int i = inStartIndex;
+		while (i <= inEndIndex)
+		{
+			final int blockIndex = i / BLOCK_SIZE;
+			if (i % BLOCK_SIZE == 0 && i + BLOCK_SIZE - 1 <= inEndIndex && blockIndex < _blockExtremes.size())
+			{
+				extremes.combine(_blockExtremes.get(blockIndex));
+				i += BLOCK_SIZE;
+			}
+			else
+			{
+				extremes.addPoint(_track.getPoint(i));
+				i++;
+			}
+		}
+		return extremes;
+	}
+
+	/**
+	 * Get the statistics for the given range, giving the same results as constructing a RangeStats
+	 * @param inStartIndex start index (inclusive)
+	 * @param inEndIndex end index (inclusive)
+	 * @return statistics of the range
+	 */
+	public RangeStats getRangeStats(int inStartIndex, int inEndIndex)
+	{
+		// Get the columns first, to avoid holding this lock while waiting for the track
+		final PointColumns columns = _track.getColumns();
+		synchronized (this)
+		{
+			return calculateRangeStats(inStartIndex, inEndIndex, columns);
+		}
+	}
+
+	/**
+	 * Calculate the statistics for the given range
+	 * @param inStartIndex start index (inclusive)
+	 * @param inEndIndex end index (inclusive)
+	 * @param inColumns columns of track
+	 * @return statistics of the range
+	 */
+	private RangeStats calculateRangeStats(int inStartIndex, int inEndIndex, PointColumns inColumns)
+	{
+		final int startIndex = Math.max(0, inStartIndex);
+		final int endIndex = Math.min(inEndIndex, _track.getNumPoints() - 1);
+		if (endIndex < startIndex) {
+			return new RangeStats(_altitudeTolerance);
+		}
+		final int numPoints = endIndex - startIndex + 1;
+		// Waypoints at the start of the range don't count
+		int firstIndex = startIndex;
+		while (firstIndex <= endIndex && _track.getPoint(firstIndex).isWaypoint()) {
+			firstIndex++;
+		}
+		if (firstIndex > endIndex)
+		{
+			return new RangeStats(numPoints, 0, new AltitudeRange(_altitudeTolerance),
+				new AltitudeRange(_altitudeTolerance), null, null, 0L, false, false, 0.0, 0.0);
+		}
+		final Totals atFirst = getTotalsAt(firstIndex, inColumns);
+		final Totals atEnd = getTotalsAt(endIndex, inColumns);
+		final boolean firstHasTimestamp = _track.getPoint(firstIndex).hasTimestamp();
+		final int numTrackPoints = atEnd._numTrackPoints - atFirst._numTrackPoints + 1;
+		final int numUntimed = atEnd._numUntimed - atFirst._numUntimed + (firstHasTimestamp ? 0 : 1);
+
+		// Moving time is counted from the first point with a timestamp
+		long movingMillis = 0L;
+		boolean outOfSequence = false;
+		if (numUntimed < numTrackPoints)
+		{
+			Totals atFirstTimed = atFirst;
+			if (!firstHasTimestamp)
+			{
+				atFirstTimed = new Totals(atFirst);
+				for (int i=firstIndex+1; i<=endIndex; i++)
+				{
+					DataPoint point = _track.getPoint(i);
+					atFirstTimed.addPoint(point, i, inColumns);
+					if (!point.isWaypoint() && point.hasTimestamp()) {
+						break;
+					}
+				}
+			}
+			movingMillis = atEnd._movingMillis - atFirstTimed._movingMillis;
+			outOfSequence = atEnd._numBackwardSteps > atFirstTimed._numBackwardSteps;
+		}
+
+		final Extremes extremes = getExtremes(firstIndex, endIndex);
+		AltitudeRange[] altitudes = getAltitudeRanges(firstIndex, endIndex, atEnd, extremes._altitudes, inColumns);
+		return new RangeStats(numPoints, atEnd._numSegmentStarts - atFirst._numSegmentStarts + 1,
+			altitudes[0], altitudes[1], extremes._earliest, extremes._latest, movingMillis,
+			numUntimed > 0, outOfSequence,
+			atEnd._totalRads - atFirst._totalRads, atEnd._movingRads - atFirst._movingRads);
+	}
+
+	/**
+	 * Climb and descent depend on where the calculation started, because of the altitude tolerance.
+	 * So the calculation for the range is followed alongside the one from the start of the track
+	 * until the two reach the same state, after which they can only differ by a constant.
+	 * This happens as soon as the range's own calculation finds a direction, and until then
+	 * whole blocks which can't change its state are skipped using their extreme altitudes.
+	 * @param inFirstIndex index of first track point of range
+	 * @param inEndIndex end index of range
+	 * @param inAtEnd totals at the end of the range
+	 * @param inValues minimum and maximum altitudes of range
+	 * @param inColumns columns of track
+	 * @return total altitude range and moving altitude range
+	 */
+	private AltitudeRange[] getAltitudeRanges(int inFirstIndex, int inEndIndex, Totals inAtEnd,
+		DoubleRange inValues, PointColumns inColumns)
+	{
+		Totals section = new Totals(_altitudeTolerance);
+		Totals fromStart = null;
+		AltitudeRange totalSection = null, totalSync = null;
+		AltitudeRange movingSection = null, movingSync = null;
+		int i = inFirstIndex;
+		while (i <= inEndIndex && (totalSync == null || movingSync == null))
+		{
+			if (i % BLOCK_SIZE == 0 && i + BLOCK_SIZE - 1 <= inEndIndex
+				&& canSkipBlock(i / BLOCK_SIZE, section, totalSync == null, movingSync == null))
+			{
+				i += BLOCK_SIZE;
+				fromStart = null;
+				continue;
+			}
+			if (fromStart == null) {
+				fromStart = getTotalsAt(i, inColumns);
+			}
+			else {
+				fromStart.addPoint(_track.getPoint(i), i, inColumns);
+			}
+			section.addPoint(_track.getPoint(i), i, inColumns);
+			if (totalSync == null && section._totalAltitudes.hasSameState(fromStart._totalAltitudes))
+			{
+				totalSection = new AltitudeRange(section._totalAltitudes);
+				totalSync = new AltitudeRange(fromStart._totalAltitudes);
+			}
+			if (movingSync == null && section._movingAltitudes.hasSameState(fromStart._movingAltitudes))
+			{
+				movingSection = new AltitudeRange(section._movingAltitudes);
+				movingSync = new AltitudeRange(fromStart._movingAltitudes);
+			}
+			i++;
+		}
+		// If the calculations never met, then the section's own calculation covers the whole range
+		AltitudeRange totalRange = (totalSync == null ?
+			AltitudeRange.combine(section._totalAltitudes, section._totalAltitudes, section._totalAltitudes, inValues)
+			: AltitudeRange.combine(totalSection, totalSync, inAtEnd._totalAltitudes, inValues));
+		AltitudeRange movingRange = (movingSync == null ?
+			AltitudeRange.combine(section._movingAltitudes, section._movingAltitudes, section._movingAltitudes, inValues)
+			: AltitudeRange.combine(movingSection, movingSync, inAtEnd._movingAltitudes, inValues));
+		return new AltitudeRange[] {totalRange, movingRange};
+	}
+
+	/**
+	 * @param inBlockIndex index of complete block
+	 * @param inSection totals of the range so far
+	 * @param inCheckTotal true to check the total altitudes
+	 * @param inCheckMoving true to check the moving altitudes
+	 * @return true if the points of the block can't change the climb/descent state of the range
+	 */
+	private boolean canSkipBlock(int inBlockIndex, Totals inSection, boolean inCheckTotal, boolean inCheckMoving)
+	{
+		if (inBlockIndex >= _blockExtremes.size()) {
+			return false;
+		}
+		final DoubleRange altitudes = _blockExtremes.get(inBlockIndex)._altitudes;
+		if (inCheckTotal && !inSection._totalAltitudes.isUnchangedBy(altitudes)) {
+			return false;
+		}
+		// A segment start resets the moving altitudes
+		return !inCheckMoving || (inSection._movingAltitudes.isUnchangedBy(altitudes)
+			&& _blockStarts.get(inBlockIndex + 1)._numSegmentStarts == _blockStarts.get(inBlockIndex)._numSegmentStarts);
+	}
+}
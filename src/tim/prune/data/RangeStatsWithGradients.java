@@ -41,14 +41,14 @@ public class RangeStatsWithGradients extends RangeStats
 	/**
 	 * Add the given point to the calculations
 	 * @param inPoint incoming point
+	 * @param inRadsFromPrevious angular distance from the previous track point
 	 */
-	protected void doFurtherCalculations(DataPoint inPoint)
+	protected void doFurtherCalculations(DataPoint inPoint, double inRadsFromPrevious)
 	{
 		if (_prevPoint != null)
 		{
 			// Keep track of rads since last point with an altitude
-			double rads = DataPoint.calculateRadiansBetween(_prevPoint, inPoint);
-			_radsSinceLastAltitude += rads;
+			_radsSinceLastAltitude += inRadsFromPrevious;
 		}
 
 		if (inPoint.hasAltitude())
@@ -64,7 +64,7 @@ public class Selection
 	{
 		final int altitudeTolerance = inConfig.getConfigInt(Config.KEY_ALTITUDE_TOLERANCE) / 100;
 		if (_track.getNumPoints() > 0 && hasRangeSelected()) {
-			return new RangeStats(_track, _startIndex, _endIndex, altitudeTolerance);
+			return _track.getRangeStatsIndex(altitudeTolerance).getRangeStats(_startIndex, _endIndex);
 		}
 		else {
 			return new RangeStats(altitudeTolerance);
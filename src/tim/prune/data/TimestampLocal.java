@@ -91,9 +91,12 @@ public class TimestampLocal extends Timestamp
 	protected String format(DateFormat inFormat, TimeZone inTimezone)
 	{
 		Calendar cal = getCalendar(inTimezone);
-		if (inTimezone != null) {
-			inFormat.setTimeZone(inTimezone);
+		synchronized(inFormat)
+		{
+			if (inTimezone != null) {
+				inFormat.setTimeZone(inTimezone);
+			}
+			return inFormat.format(cal.getTime());
 		}
-		return inFormat.format(cal.getTime());
 	}
 }
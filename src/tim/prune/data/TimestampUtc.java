@@ -5,15 +5,15 @@ import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
  * Class to hold a UTC-based timestamp, for example of a track point.
  * When the selected timezone changes, this timestamp will keep its
  * numerical value but the date and time will change accordingly.
+ * Parsing is thread-safe, so that points can be loaded in parallel.
  */
 public class TimestampUtc extends Timestamp
 {
@@ -21,26 +21,23 @@ public class TimestampUtc extends Timestamp
 	private final long _milliseconds;
 	private final String _text;
 
-	private static final DateFormat ISO_8601_FORMAT_NOZ = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-	private static DateFormat[] ALL_DATE_FORMATS = null;
-	private static Calendar CALENDAR = null;
-	private static final Pattern ISO8601_FRACTIONAL_PATTERN
-		= Pattern.compile("(\\d{4})-(\\d{2})-(\\d{2})T(\\d{2}):(\\d{2}):(\\d{2})(?:[.,](\\d{1,3}))?(Z|[+-]\\d{2}(?::?\\d{2})?)?");
-		//                    year     month     day T  hour    minute    sec             millisec   Z or +/-  hours  :   minutes
-	private static final Pattern GENERAL_TIMESTAMP_PATTERN
-		= Pattern.compile("(\\d{4})\\D(\\d{2})\\D(\\d{2})\\D(\\d{2})\\D(\\d{2})\\D(\\d{2})");
+	/** Date formats for the less common strings, one set for each parsing thread */
+	private static final ThreadLocal<DateFormat[]> DATE_FORMATS
+		= ThreadLocal.withInitial(TimestampUtc::createDateFormats);
 	private static long SECS_SINCE_1970 = 0L;
 	private static long SECS_SINCE_GARTRIP = 0L;
 	private static long MSECS_SINCE_1970 = 0L;
 	private static long MSECS_SINCE_1990 = 0L;
 	private static long TWENTY_YEARS_IN_SECS = 0L;
 	private static final long GARTRIP_OFFSET = 631065600L;
+	/** Value returned by the fast parsers if the string doesn't match */
+	static final long NOT_PARSED = Long.MIN_VALUE;
+	private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
 
-	/** Identifier for the parsing strategy to use */
+	/** Identifier for the parsing strategy to use if the fast paths don't match */
 	private enum ParseType
 	{
 		NONE,
-		ISO8601_FRACTIONAL,
 		LONG,
 		FIXED_FORMAT0,
 		FIXED_FORMAT1,
@@ -50,45 +47,55 @@ public class TimestampUtc extends Timestamp
 		FIXED_FORMAT5,
 		FIXED_FORMAT6,
 		FIXED_FORMAT7,
-		FIXED_FORMAT8,
-		GENERAL_STRING
+		FIXED_FORMAT8
 	}
 
-	/** Array of parse types to loop through (first one is changed to last successful type) */
-	private static final ParseType[] ALL_PARSE_TYPES = {ParseType.NONE, ParseType.ISO8601_FRACTIONAL, ParseType.LONG,
+	/** Array of parse types to loop through */
+	private static final ParseType[] ALL_PARSE_TYPES = {ParseType.LONG,
 		ParseType.FIXED_FORMAT0, ParseType.FIXED_FORMAT1, ParseType.FIXED_FORMAT2, ParseType.FIXED_FORMAT3,
 		ParseType.FIXED_FORMAT4, ParseType.FIXED_FORMAT5, ParseType.FIXED_FORMAT6, ParseType.FIXED_FORMAT7,
-		ParseType.FIXED_FORMAT8, ParseType.GENERAL_STRING};
+		ParseType.FIXED_FORMAT8};
+	/** Last successful parse type, which is tried first */
+	private static volatile ParseType LAST_PARSE_TYPE = ParseType.NONE;
 
 	// Static block to initialise offsets
 	static
 	{
-		CALENDAR = Calendar.getInstance();
+		Calendar calendar = Calendar.getInstance();
 		TimeZone gmtZone = TimeZone.getTimeZone("GMT");
-		CALENDAR.setTimeZone(gmtZone);
-		MSECS_SINCE_1970 = CALENDAR.getTimeInMillis();
+		calendar.setTimeZone(gmtZone);
+		MSECS_SINCE_1970 = calendar.getTimeInMillis();
 		SECS_SINCE_1970 = MSECS_SINCE_1970 / 1000L;
 		SECS_SINCE_GARTRIP = SECS_SINCE_1970 - GARTRIP_OFFSET;
-		CALENDAR.add(Calendar.YEAR, -20);
-		MSECS_SINCE_1990 = CALENDAR.getTimeInMillis();
+		calendar.add(Calendar.YEAR, -20);
+		MSECS_SINCE_1990 = calendar.getTimeInMillis();
 		TWENTY_YEARS_IN_SECS = (MSECS_SINCE_1970 - MSECS_SINCE_1990) / 1000L;
-		// Date formats
-		ALL_DATE_FORMATS = new DateFormat[]
+	}
+
+	/**
+	 * @return new set of date formats for parsing, in the order of the fixed parse types
+	 */
+	private static DateFormat[] createDateFormats()
+	{
+		DateFormat[] formats = new DateFormat[]
 		{
-			DEFAULT_DATETIME_FORMAT,
+			DateFormat.getDateTimeInstance(),
 			new SimpleDateFormat("EEE MMM dd HH:mm:ss yyyy"),
 			new SimpleDateFormat("HH:mm:ss dd MMM yyyy"),
 			new SimpleDateFormat("dd MMM yyyy HH:mm:ss"),
 			new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss"),
 			new SimpleDateFormat("yyyy MMM dd HH:mm:ss"),
 			new SimpleDateFormat("MMM dd, yyyy hh:mm:ss aa"),
-			ISO_8601_FORMAT, ISO_8601_FORMAT_NOZ
+			new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US),
+			new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss")
 		};
-		for (DateFormat df : ALL_DATE_FORMATS)
+		TimeZone gmtZone = TimeZone.getTimeZone("GMT");
+		for (DateFormat df : formats)
 		{
 			df.setLenient(false);
 			df.setTimeZone(gmtZone);
 		}
+		return formats;
 	}
 
 
@@ -98,39 +105,197 @@ public class TimestampUtc extends Timestamp
 	 */
 	public TimestampUtc(String inString)
 	{
-		String text = null;
-		long millis = 0L;
-		if (inString != null && !inString.equals(""))
+		final long millis = parseMillis(inString);
+		_valid = (millis != NOT_PARSED);
+		_text = _valid ? inString : null;
+		_milliseconds = _valid ? millis : 0L;
+	}
+
+	/**
+	 * Parse the given string, trying the fast paths before the other formats
+	 * @param inString String to parse
+	 * @return milliseconds if parse was successful, otherwise NOT_PARSED
+	 */
+	static long parseMillis(String inString)
+	{
+		if (inString == null || inString.equals("")) {
+			return NOT_PARSED;
+		}
+		long millis = parseIso8601(inString, 0, inString.length());
+		if (millis == NOT_PARSED) {
+			millis = parseGeneral(inString, 0, inString.length());
+		}
+		if (millis != NOT_PARSED) {
+			return millis;
+		}
+		// Try the last successful type first, then each of the others in turn
+		final ParseType lastType = LAST_PARSE_TYPE;
+		Long parsedMillis = parseString(inString, lastType);
+		if (parsedMillis != null) {
+			return parsedMillis;
+		}
+		for (ParseType type : ALL_PARSE_TYPES)
 		{
-			// Try each of the parse types in turn
-			for (ParseType type : ALL_PARSE_TYPES)
+			if (type != lastType)
 			{
-				Long parsedMillis = parseString(inString, type);
+				parsedMillis = parseString(inString, type);
 				if (parsedMillis != null)
 				{
-					ALL_PARSE_TYPES[0] = type;
-					text = inString;
-					millis = parsedMillis;
-					break;
+					LAST_PARSE_TYPE = type;
+					return parsedMillis;
+				}
+			}
+		}
+		return NOT_PARSED;
+	}
+
+	/**
+	 * Parse an ISO 8601 timestamp like 2018-03-03T10:22:33.45+01:00,
+	 * with optional fractions of a second and optional timezone
+	 * @param inText text containing the timestamp
+	 * @param inStart index of first character
+	 * @param inEnd index after the last character
+	 * @return milliseconds if parse was successful, otherwise NOT_PARSED
+	 */
+	static long parseIso8601(CharSequence inText, int inStart, int inEnd)
+	{
+		if (inEnd - inStart < 19
+			|| inText.charAt(inStart + 4) != '-' || inText.charAt(inStart + 7) != '-'
+			|| inText.charAt(inStart + 10) != 'T'
+			|| inText.charAt(inStart + 13) != ':' || inText.charAt(inStart + 16) != ':')
+		{
+			return NOT_PARSED;
+		}
+		long millis = parseDateTime(inText, inStart);
+		if (millis == NOT_PARSED) {
+			return NOT_PARSED;
+		}
+		int pos = inStart + 19;
+		// Fractions of a second, with up to three digits
+		if (pos < inEnd && (inText.charAt(pos) == '.' || inText.charAt(pos) == ','))
+		{
+			final int fracStart = ++pos;
+			int fraction = 0;
+			while (pos < inEnd && pos < fracStart + 3 && isDigit(inText.charAt(pos)))
+			{
+				fraction = fraction * 10 + (inText.charAt(pos) - '0');
+				pos++;
+			}
+			switch (pos - fracStart)
+			{
+				case 0: return NOT_PARSED;
+				case 1: millis += fraction * 100; break;
+				case 2: millis += fraction * 10;  break;
+				default: millis += fraction;
+			}
+		}
+		// Timezone, either Z or a signed offset in hours with optional minutes
+		if (pos < inEnd)
+		{
+			final char zoneChar = inText.charAt(pos);
+			if (zoneChar == 'Z') {
+				pos++;
+			}
+			else if (zoneChar == '+' || zoneChar == '-')
+			{
+				final int hours = (pos + 3 <= inEnd) ? parseDigits(inText, pos + 1, pos + 3) : -1;
+				if (hours < 0) {
+					return NOT_PARSED;
+				}
+				pos += 3;
+				int minutes = 0;
+				if (pos < inEnd)
+				{
+					if (inText.charAt(pos) == ':') {
+						pos++;
+					}
+					minutes = (pos + 2 <= inEnd) ? parseDigits(inText, pos, pos + 2) : -1;
+					if (minutes < 0) {
+						return NOT_PARSED;
+					}
+					pos += 2;
+				}
+				// Out-of-range offsets are ignored, so the time is taken as UTC
+				if (hours <= 23 && minutes <= 59)
+				{
+					final long offsetMillis = (hours * 60L + minutes) * 60L * 1000L;
+					millis += (zoneChar == '+' ? -offsetMillis : offsetMillis);
 				}
 			}
 		}
-		_text = text;
-		_milliseconds = millis;
-		_valid = (_text != null);
+		return (pos == inEnd ? millis : NOT_PARSED);
+	}
+
+	/**
+	 * Parse a general timestamp of exactly 19 characters like 2018/03/03 10:22:33,
+	 * with any non-digit separators and no timezone
+	 * @param inText text containing the timestamp
+	 * @param inStart index of first character
+	 * @param inEnd index after the last character
+	 * @return milliseconds if parse was successful, otherwise NOT_PARSED
+	 */
+	static long parseGeneral(CharSequence inText, int inStart, int inEnd)
+	{
+		if (inEnd - inStart != 19) {
+			return NOT_PARSED;
+		}
+		for (int i = 4; i < 19; i += 3)
+		{
+			if (isDigit(inText.charAt(inStart + i))) {
+				return NOT_PARSED;
+			}
+		}
+		return parseDateTime(inText, inStart);
+	}
+
+	/**
+	 * Parse the digits of the date and time, ignoring the separators
+	 * @return milliseconds if all the fields are numeric, otherwise NOT_PARSED
+	 */
+	private static long parseDateTime(CharSequence inText, int inStart)
+	{
+		final int year = parseDigits(inText, inStart, inStart + 4);
+		final int month = parseDigits(inText, inStart + 5, inStart + 7);
+		final int day = parseDigits(inText, inStart + 8, inStart + 10);
+		final int hour = parseDigits(inText, inStart + 11, inStart + 13);
+		final int minute = parseDigits(inText, inStart + 14, inStart + 16);
+		final int second = parseDigits(inText, inStart + 17, inStart + 19);
+		if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+			return NOT_PARSED;
+		}
+		return getMilliseconds(year, month, day, hour, minute, second);
+	}
+
+	/**
+	 * @return value of the decimal digits in the given range, or -1 if there are other characters
+	 */
+	private static int parseDigits(CharSequence inText, int inStart, int inEnd)
+	{
+		int value = 0;
+		for (int i = inStart; i < inEnd; i++)
+		{
+			final char c = inText.charAt(i);
+			if (!isDigit(c)) {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/** @return true if the character is one of the ascii digits */
+	private static boolean isDigit(char inChar) {
+		return inChar >= '0' && inChar <= '9';
 	}
 
 	/**
 	 * Try to parse the given string in the specified way
 	 * @param inString String to parse
 	 * @param inType parse type to use
-	 * @return milliseconds if parse was successful, otherwise false
+	 * @return milliseconds if parse was successful, otherwise null
 	 */
 	private static Long parseString(String inString, ParseType inType)
 	{
-		if (inString == null || inString.equals("")) {
-			return null;
-		}
 		switch (inType)
 		{
 			case NONE:
@@ -145,53 +310,9 @@ public class TimestampUtc extends Timestamp
 				catch (NumberFormatException ignored) {}
 				break;
 
-			case ISO8601_FRACTIONAL:
-				final Matcher fmatcher = ISO8601_FRACTIONAL_PATTERN.matcher(inString);
-				if (fmatcher.matches())
-				{
-					try {
-						return getMilliseconds(Integer.parseInt(fmatcher.group(1)), // year
-							Integer.parseInt(fmatcher.group(2)), // month
-							Integer.parseInt(fmatcher.group(3)), // day
-							Integer.parseInt(fmatcher.group(4)), // hour
-							Integer.parseInt(fmatcher.group(5)), // minute
-							Integer.parseInt(fmatcher.group(6)), // second
-							fmatcher.group(7),                   // fractional seconds
-							fmatcher.group(8));                  // timezone, if any
-					}
-					catch (NumberFormatException ignored) {}
-				}
-				break;
-
-			case FIXED_FORMAT0: return parseString(inString, ALL_DATE_FORMATS[0]);
-			case FIXED_FORMAT1: return parseString(inString, ALL_DATE_FORMATS[1]);
-			case FIXED_FORMAT2: return parseString(inString, ALL_DATE_FORMATS[2]);
-			case FIXED_FORMAT3: return parseString(inString, ALL_DATE_FORMATS[3]);
-			case FIXED_FORMAT4: return parseString(inString, ALL_DATE_FORMATS[4]);
-			case FIXED_FORMAT5: return parseString(inString, ALL_DATE_FORMATS[5]);
-			case FIXED_FORMAT6: return parseString(inString, ALL_DATE_FORMATS[6]);
-			case FIXED_FORMAT7: return parseString(inString, ALL_DATE_FORMATS[7]);
-			case FIXED_FORMAT8: return parseString(inString, ALL_DATE_FORMATS[8]);
-
-			case GENERAL_STRING:
-				if (inString.length() == 19)
-				{
-					final Matcher matcher = GENERAL_TIMESTAMP_PATTERN.matcher(inString);
-					if (matcher.matches())
-					{
-						try {
-							return getMilliseconds(Integer.parseInt(matcher.group(1)),
-								Integer.parseInt(matcher.group(2)),
-								Integer.parseInt(matcher.group(3)),
-								Integer.parseInt(matcher.group(4)),
-								Integer.parseInt(matcher.group(5)),
-								Integer.parseInt(matcher.group(6)),
-								null, null); // no fractions of a second and no timezone
-						}
-						catch (NumberFormatException ignored) {} // parse shouldn't fail if matcher matched
-					}
-				}
-				break;
+			default:
+				DateFormat[] formats = DATE_FORMATS.get();
+				return parseString(inString, formats[inType.ordinal() - ParseType.FIXED_FORMAT0.ordinal()]);
 		}
 		return null;
 	}
@@ -200,7 +321,7 @@ public class TimestampUtc extends Timestamp
 	/**
 	 * Try to parse the given string with the given date format
 	 * @param inString String to parse
-	 * @param inDateFormat Date format to use
+	 * @param inDateFormat Date format to use, only used by the current thread
 	 * @return milliseconds if successful
 	 */
 	private static Long parseString(String inString, DateFormat inDateFormat)
@@ -209,8 +330,7 @@ public class TimestampUtc extends Timestamp
 		Date date = inDateFormat.parse(inString, pPos);
 		if (date != null && inString.length() == pPos.getIndex()) // require use of _all_ the string, not just the beginning
 		{
-			CALENDAR.setTime(date);
-			return CALENDAR.getTimeInMillis();
+			return date.getTime();
 		}
 		return null;
 	}
@@ -229,52 +349,38 @@ public class TimestampUtc extends Timestamp
 
 
 	/**
-	 * Convert the given timestamp parameters into a number of milliseconds
+	 * Convert the given UTC timestamp fields into a number of milliseconds.
+	 * Like a lenient calendar, values out of range overflow into the next field
 	 * @param inYear year
 	 * @param inMonth month, beginning with 1
 	 * @param inDay day of month, beginning with 1
 	 * @param inHour hour of day, 0-24
 	 * @param inMinute minute
 	 * @param inSecond seconds
-	 * @param inFraction fractions of a second
-	 * @param inTimezone timezone, if any
 	 * @return number of milliseconds
 	 */
-	private static long getMilliseconds(int inYear, int inMonth, int inDay,
-		int inHour, int inMinute, int inSecond, String inFraction, String inTimezone)
+	static long getMilliseconds(int inYear, int inMonth, int inDay,
+		int inHour, int inMinute, int inSecond)
 	{
-		Calendar cal = Calendar.getInstance();
-		// Timezone, if any
-		if (inTimezone == null || inTimezone.equals("") || inTimezone.equals("Z")) {
-			// No timezone, use zulu
-			cal.setTimeZone(TimeZone.getTimeZone("GMT"));
-		}
-		else {
-			// Timezone specified, pass to calendar
-			cal.setTimeZone(TimeZone.getTimeZone("GMT" + inTimezone));
-		}
-		cal.set(Calendar.YEAR, inYear);
-		cal.set(Calendar.MONTH, inMonth - 1);
-		cal.set(Calendar.DAY_OF_MONTH, inDay);
-		cal.set(Calendar.HOUR_OF_DAY, inHour);
-		cal.set(Calendar.MINUTE, inMinute);
-		cal.set(Calendar.SECOND, inSecond);
-		int millis = 0;
-		if (inFraction != null)
-		{
-			try {
-				int frac = Integer.parseInt(inFraction);
-				final int fracLen = inFraction.length();
-				switch (fracLen) {
-					case 1: millis = frac * 100; break;
-					case 2: millis = frac * 10;  break;
-					case 3: millis = frac;       break;
-				}
-			}
-			catch (NumberFormatException nfe) {} // ignore errors, millis stay at 0
-		}
-		cal.set(Calendar.MILLISECOND, millis);
-		return cal.getTimeInMillis();
+		final long totalMonths = inYear * 12L + inMonth - 1;
+		final long days = getDaysSince1970(Math.floorDiv(totalMonths, 12L), (int) Math.floorMod(totalMonths, 12L) + 1)
+			+ inDay - 1;
+		return days * MILLIS_PER_DAY + ((inHour * 60L + inMinute) * 60L + inSecond) * 1000L;
+	}
+
+	/**
+	 * @return number of days from 1970-01-01 to the first day of the given month, in the Gregorian calendar
+	 */
+	private static long getDaysSince1970(long inYear, int inMonth)
+	{
+		// Count from March so that the leap day comes at the end of the year
+		final long year = (inMonth <= 2 ? inYear - 1 : inYear);
+		final long era = Math.floorDiv(year, 400L);
+		final long yearOfEra = year - era * 400L;
+		final int monthFromMarch = (inMonth + 9) % 12;
+		final long dayOfYear = (153 * monthFromMarch + 2) / 5;
+		final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468L;
 	}
 
 	/**
@@ -369,11 +475,73 @@ public class TimestampUtc extends Timestamp
 		{
 			return _text;
 		}
+		// ISO text in UTC can be made directly without a shared DateFormat
+		if (isValid() && inFormat == Format.ISO8601 && inTimezone == null)
+		{
+			String text = formatIso8601(_milliseconds, hasMilliseconds());
+			if (text != null) {
+				return text;
+			}
+		}
 
 		// Nothing cached, so use the regular one
 		return super.getText(inFormat, inTimezone);
 	}
 
+	/**
+	 * Format the given time in ISO 8601 format in UTC, giving the same text as the ISO DateFormats
+	 * @param inMillis milliseconds since 1970
+	 * @param inWithMillis true to include the milliseconds
+	 * @return formatted text, or null if the year isn't between 1900 and 9999
+	 */
+	static String formatIso8601(long inMillis, boolean inWithMillis)
+	{
+		// Convert days since 1970 to year, month and day, counting years from March
+		final long days = Math.floorDiv(inMillis, MILLIS_PER_DAY) + 719468L;
+		final long era = Math.floorDiv(days, 146097L);
+		final long dayOfEra = days - era * 146097L;
+		final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		final int monthFromMarch = (int) ((5 * dayOfYear + 2) / 153);
+		final int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+		final int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+		final long year = yearOfEra + era * 400L + (month <= 2 ? 1 : 0);
+		if (year < 1900 || year > 9999) {
+			return null;
+		}
+		final int millisOfDay = (int) Math.floorMod(inMillis, MILLIS_PER_DAY);
+		char[] chars = new char[inWithMillis ? 24 : 20];
+		putDigits(chars, 0, (int) year, 4);
+		chars[4] = '-';
+		putDigits(chars, 5, month, 2);
+		chars[7] = '-';
+		putDigits(chars, 8, day, 2);
+		chars[10] = 'T';
+		putDigits(chars, 11, millisOfDay / 3600000, 2);
+		chars[13] = ':';
+		putDigits(chars, 14, millisOfDay / 60000 % 60, 2);
+		chars[16] = ':';
+		putDigits(chars, 17, millisOfDay / 1000 % 60, 2);
+		if (inWithMillis)
+		{
+			chars[19] = '.';
+			putDigits(chars, 20, millisOfDay % 1000, 3);
+		}
+		chars[chars.length - 1] = 'Z';
+		return new String(chars);
+	}
+
+	/** Write the given number into the array with leading zeroes */
+	private static void putDigits(char[] inChars, int inStart, int inValue, int inNumDigits)
+	{
+		int value = inValue;
+		for (int i=inStart + inNumDigits - 1; i>=inStart; i--)
+		{
+			inChars[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
 	/** @return a string describing the interpolated timestamp between two existing ones */
 	public static String interpolate(Timestamp inStartStamp, Timestamp inEndStamp, double inFrac)
 	{
@@ -399,13 +567,11 @@ public class TimestampUtc extends Timestamp
 	 */
 	protected String format(DateFormat inFormat, TimeZone inTimezone)
 	{
-		synchronized(CALENDAR)
+		// The formats are shared, so points can only be formatted in parallel if they're locked
+		synchronized(inFormat)
 		{
-			CALENDAR.setTimeZone(TimeZone.getTimeZone("GMT"));
 			inFormat.setTimeZone(inTimezone == null ? TimeZone.getTimeZone("GMT") : inTimezone);
-
-			CALENDAR.setTimeInMillis(_milliseconds);
-			return inFormat.format(CALENDAR.getTime());
+			return inFormat.format(new Date(_milliseconds));
 		}
 	}
 
@@ -1,9 +1,12 @@
 package tim.prune.data;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import tim.prune.UpdateMessageBroker;
-import tim.prune.gui.map.MapUtils;
 
 
 /**
@@ -14,18 +17,26 @@ public class Track
 {
 	// Data points
 	private DataPoint[] _dataPoints;
-	// Scaled x, y values
-	private double[] _xValues = null;
-	private double[] _yValues = null;
+	// Coordinates, scaled x, y values and flags
+	private PointColumns _columns = null;
+	// Spatial index of the scaled x, y values
+	private PointGrid _grid = null;
+	// Indexes of cumulative statistics for each altitude tolerance, built on demand
+	private final LinkedHashMap<Integer, RangeStatsIndex> _statsIndexes
+		= new LinkedHashMap<>(4, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, RangeStatsIndex> inEldest) {
+				return size() > MAX_STATS_INDEXES;
+			}
+		};
+	// Speeds and gradients of all points, built on demand
+	private TrackMotion _motion = null;
 	private boolean _scaled = false;
 	private int _numPoints;
-	private boolean _hasTrackpoint = false;
-	private boolean _hasWaypoint = false;
 	private FieldList _masterFieldList;
-	// variable ranges
-	private DoubleRange _latRange = null, _longRange = null;
-	private DoubleRange _xRange = null, _yRange = null;
 
+	/** Number of altitude tolerances for which an index is kept */
+	private static final int MAX_STATS_INDEXES = 3;
 
 	/**
 	 * Constructor for empty track
@@ -57,16 +68,34 @@ public class Track
 	/**
 	 * Request that a rescale be done to recalculate derived values
 	 */
-	public void requestRescale() {
+	public void requestRescale()
+	{
 		_scaled = false;
+		pointsChanged(0);
+	}
+
+	/**
+	 * Some values of the points have been changed, so statistics need to be recalculated
+	 * @param inIndex index of the first changed point
+	 */
+	public synchronized void pointsChanged(int inIndex)
+	{
+		for (RangeStatsIndex statsIndex : _statsIndexes.values()) {
+			statsIndex.invalidateFrom(inIndex);
+		}
+		_motion = null;
 	}
 
 	/**
 	 * Extend the track's field list with the given additional fields
 	 * @param inFieldList list of fields to be added
 	 */
-	private void extendFieldList(FieldList inFieldList) {
-		_masterFieldList = _masterFieldList.merge(inFieldList);
+	private void extendFieldList(FieldList inFieldList)
+	{
+		// Most points share the field list of their source, so usually there's nothing to add
+		if (!_masterFieldList.containsAll(inFieldList)) {
+			_masterFieldList = _masterFieldList.merge(inFieldList);
+		}
 	}
 
 	////////////////// Modification methods //////////////////////
@@ -81,8 +110,7 @@ public class Track
 		if (inNewSize >= 0 && inNewSize < getNumPoints())
 		{
 			_numPoints = inNewSize;
-			// needs to be scaled again
-			_scaled = false;
+			columnsCropped();
 			UpdateMessageBroker.informSubscribers();
 		}
 	}
@@ -98,28 +126,23 @@ public class Track
 		if (point == null) {
 			return false;
 		}
+		int nextTrackPointIndex = -1;
 		if (point.getSegmentStart())
 		{
-			DataPoint nextTrackPoint = getNextTrackPoint(inIndex+1);
-			if (nextTrackPoint != null) {
-				nextTrackPoint.setSegmentStart(true);
+			nextTrackPointIndex = getNextTrackPointIndex(inIndex+1);
+			if (nextTrackPointIndex >= 0) {
+				getPoint(nextTrackPointIndex).setSegmentStart(true);
 			}
 		}
-		DataPoint[] newPointArray = new DataPoint[_numPoints - 1];
-		// Copy points before the selected point
-		if (inIndex > 0) {
-			System.arraycopy(_dataPoints, 0, newPointArray, 0, inIndex);
-		}
-		// Copy points after
+		// Move the following points down
 		int numAfter = _numPoints - inIndex - 1;
 		if (numAfter > 0) {
-			System.arraycopy(_dataPoints, inIndex + 1, newPointArray, inIndex, numAfter);
+			System.arraycopy(_dataPoints, inIndex + 1, _dataPoints, inIndex, numAfter);
 		}
-		// Copy points over original array
-		_dataPoints = newPointArray;
 		_numPoints --;
-		// needs to be scaled again
-		_scaled = false;
+		_dataPoints[_numPoints] = null;
+		// the next track point has now moved down by one
+		columnsDeleted(inIndex, nextTrackPointIndex < 0 ? -1 : nextTrackPointIndex - 1);
 		return true;
 	}
 
@@ -139,7 +162,7 @@ public class Track
 		}
 		// Copy array references
 		_dataPoints = newPointArray;
-		_scaled = false;
+		requestRescale();
 		return true;
 	}
 
@@ -172,8 +195,7 @@ public class Track
 	 */
 	public DoubleRange getXRange()
 	{
-		if (!_scaled) {scalePoints();}
-		return _xRange;
+		return getColumns().getXRange();
 	}
 
 	/**
@@ -181,8 +203,7 @@ public class Track
 	 */
 	public DoubleRange getYRange()
 	{
-		if (!_scaled) {scalePoints();}
-		return _yRange;
+		return getColumns().getYRange();
 	}
 
 	/**
@@ -190,36 +211,60 @@ public class Track
 	 */
 	public DoubleRange getLatRange()
 	{
-		if (!_scaled) {scalePoints();}
-		return _latRange;
+		return getColumns().getLatRange();
 	}
 	/**
 	 * @return The range of lon values as a DoubleRange object
 	 */
 	public DoubleRange getLonRange()
 	{
-		if (!_scaled) {scalePoints();}
-		return _longRange;
+		return getColumns().getLonRange();
 	}
 
 	/**
 	 * @param inPointNum point index, starting at 0
 	 * @return scaled x value of specified point
 	 */
-	public double getX(int inPointNum)
-	{
-		if (!_scaled) {scalePoints();}
-		return _xValues[inPointNum];
+	public double getX(int inPointNum) {
+		return getColumns().getX(inPointNum);
 	}
 
 	/**
 	 * @param inPointNum point index, starting at 0
 	 * @return scaled y value of specified point
 	 */
-	public double getY(int inPointNum)
+	public double getY(int inPointNum) {
+		return getColumns().getY(inPointNum);
+	}
+
+	/**
+	 * @return the coordinates and flags of all points as primitive arrays
+	 */
+	public PointColumns getColumns()
 	{
 		if (!_scaled) {scalePoints();}
-		return _yValues[inPointNum];
+		return _columns;
+	}
+
+	/**
+	 * @param inAltitudeTolerance altitude tolerance in metres
+	 * @return index for calculating the statistics of any range of the track
+	 */
+	public synchronized RangeStatsIndex getRangeStatsIndex(int inAltitudeTolerance)
+	{
+		return _statsIndexes.computeIfAbsent(inAltitudeTolerance,
+			tolerance -> new RangeStatsIndex(this, tolerance));
+	}
+
+	/**
+	 * @return speeds and gradients of all the points
+	 */
+	public synchronized TrackMotion getMotion()
+	{
+		if (_motion == null) {
+			_motion = new TrackMotion(this);
+		}
+		return _motion;
 	}
 
 	/**
@@ -289,19 +334,15 @@ public class Track
 	/**
 	 * @return true if track contains at least one trackpoint
 	 */
-	public boolean hasTrackPoints()
-	{
-		if (!_scaled) {scalePoints();}
-		return _hasTrackpoint;
+	public boolean hasTrackPoints() {
+		return getColumns().hasTrackPoints();
 	}
 
 	/**
 	 * @return true if track contains waypoints
 	 */
-	public boolean hasWaypoints()
-	{
-		if (!_scaled) {scalePoints();}
-		return _hasWaypoint;
+	public boolean hasWaypoints() {
+		return getColumns().hasWaypoints();
 	}
 
 	/**
@@ -374,43 +415,24 @@ public class Track
 	 */
 	private synchronized void scalePoints()
 	{
-		// Loop through all points in track, to see limits of lat, long
-		_longRange = new DoubleRange();
-		_latRange = new DoubleRange();
-		_hasWaypoint = false; _hasTrackpoint = false;
-		for (int p=0; p < getNumPoints(); p++)
+		if (!_scaled)
 		{
-			DataPoint point = getPoint(p);
-			if (point != null && point.isValid())
-			{
-				_longRange.addValue(point.getLongitude().getDouble());
-				_latRange.addValue(point.getLatitude().getDouble());
-				if (point.isWaypoint()) {
-					_hasWaypoint = true;
-				}
-				else {
-					_hasTrackpoint = true;
-				}
-			}
+			_columns = new PointColumns(this);
+			_grid = null;
+			_scaled = true;
 		}
+	}
 
-		// Loop over points and calculate scales
-		_xValues = new double[getNumPoints()];
-		_yValues = new double[getNumPoints()];
-		_xRange = new DoubleRange();
-		_yRange = new DoubleRange();
-		for (int p=0; p < getNumPoints(); p++)
-		{
-			DataPoint point = getPoint(p);
-			if (point != null)
-			{
-				_xValues[p] = MapUtils.getXFromLongitude(point.getLongitude().getDouble());
-				_xRange.addValue(_xValues[p]);
-				_yValues[p] = MapUtils.getYFromLatitude(point.getLatitude().getDouble());
-				_yRange.addValue(_yValues[p]);
-			}
+	/**
+	 * @return spatial index of the points, built on demand after a rescale
+	 */
+	private synchronized PointGrid getGrid()
+	{
+		if (!_scaled) {scalePoints();}
+		if (_grid == null) {
+			_grid = new PointGrid(_columns);
 		}
-		_scaled = true;
+		return _grid;
 	}
 
 	/**
@@ -419,7 +441,7 @@ public class Track
 	 * @return point index of nearest track point
 	 */
 	public int getNearestTrackPointIndex(int inPointIndex) {
-		return getNearestPointIndex(_xValues[inPointIndex], _yValues[inPointIndex], -1.0, true);
+		return getNearestPointIndex(getX(inPointIndex), getY(inPointIndex), -1.0, true);
 	}
 
 	/**
@@ -433,43 +455,24 @@ public class Track
 	 */
 	public int getNearestPointIndex(double inX, double inY, double inMaxDist, boolean inJustTrackPoints)
 	{
-		int nearestPoint = 0;
-		double nearestDist = -1.0;
-		double mDist, yDist;
 		try {
-			for (int i=0; i < getNumPoints(); i++)
-			{
-				if (!inJustTrackPoints || !_dataPoints[i].isWaypoint())
-				{
-					yDist = Math.abs(_yValues[i] - inY);
-					if (yDist < nearestDist || nearestDist < 0.0)
-					{
-						// y dist is within range, so check x too
-						mDist = yDist + getMinXDist(_xValues[i] - inX);
-						if (mDist < nearestDist || nearestDist < 0.0)
-						{
-							nearestPoint = i;
-							nearestDist = mDist;
-						}
-					}
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException obe) {
-			return -1; // probably moving the mouse while data is changing
+			return getGrid().getNearestPointIndex(inX, inY, inMaxDist, inJustTrackPoints);
 		}
-		// Check whether it's within required distance
-		if (nearestDist > inMaxDist && inMaxDist > 0.0) {
-			return -1;
+		catch (ArrayIndexOutOfBoundsException obe) {
+			return -1; // probably moving the mouse while data is changing
 		}
-		return nearestPoint;
 	}
 
 	/**
-	 * @param inX x value of point
-	 * @return minimum wrapped value
+	 * Find all the points within the given rectangle of scaled x and y values
+	 * @param inMinX minimum x value
+	 * @param inMinY minimum y value
+	 * @param inMaxX maximum x value
+	 * @param inMaxY maximum y value
+	 * @return flags for the indexes of the points inside the rectangle
 	 */
-	private static double getMinXDist(double inX) {
-		return Math.min(Math.min(Math.abs(inX), Math.abs(inX-1.0)), Math.abs(inX+1.0));
+	public BitSet getPointsInRectangle(double inMinX, double inMinY, double inMaxX, double inMaxY) {
+		return getGrid().getPointsInRectangle(inMinX, inMinY, inMaxX, inMaxY);
 	}
 
 	/**
@@ -527,6 +530,25 @@ public class Track
 		return null;
 	}
 
+	/**
+	 * @param inStartIndex index to start looking from
+	 * @return index of next track point, or -1 if end of data reached
+	 */
+	private int getNextTrackPointIndex(int inStartIndex)
+	{
+		for (int i=inStartIndex; i<_numPoints; i++)
+		{
+			DataPoint point = getPoint(i);
+			if (point == null) {
+				return -1;
+			}
+			if (point.isValid() && !point.isWaypoint()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * @param inStartIndex start index of range
 	 * @param inEndIndex end index of range
@@ -581,21 +603,14 @@ public class Track
 		if (inIndex > _numPoints || inPoint == null) {
 			return false;
 		}
-		// Make new array to copy points over to
-		DataPoint[] newPointArray = new DataPoint[_numPoints + 1];
-		if (inIndex > 0) {
-			System.arraycopy(_dataPoints, 0, newPointArray, 0, inIndex);
-		}
-		newPointArray[inIndex] = inPoint;
+		ensureCapacity(_numPoints + 1);
 		if (inIndex < _numPoints) {
-			System.arraycopy(_dataPoints, inIndex, newPointArray, inIndex+1, _numPoints - inIndex);
+			System.arraycopy(_dataPoints, inIndex, _dataPoints, inIndex+1, _numPoints - inIndex);
 		}
-		// Change over to new array
-		_dataPoints = newPointArray;
+		_dataPoints[inIndex] = inPoint;
 		_numPoints++;
 		extendFieldList(inPoint.getFieldList());
-		// needs to be scaled again
-		_scaled = false;
+		columnsInserted(inIndex, 1);
 		UpdateMessageBroker.informSubscribers();
 		return true;
 	}
@@ -610,20 +625,81 @@ public class Track
 		if (inPoints == null || inPoints.isEmpty()) {
 			return false;
 		}
-		// Make new array to copy points over to
-		DataPoint[] newPointArray = new DataPoint[_numPoints + inPoints.size()];
-		System.arraycopy(_dataPoints, 0, newPointArray, 0, _numPoints);
-		int index = _numPoints;
+		final int firstIndex = _numPoints;
+		ensureCapacity(_numPoints + inPoints.size());
 		for (DataPoint point : inPoints)
 		{
-			newPointArray[index] = point;
+			_dataPoints[_numPoints] = point;
 			extendFieldList(point.getFieldList());
-			index++;
+			_numPoints++;
 		}
-		// Change over to new array
-		_dataPoints = newPointArray;
-		_numPoints = _dataPoints.length;
-		_scaled = false;
+		columnsInserted(firstIndex, inPoints.size());
 		return true;
 	}
+
+	/**
+	 * Make sure the point array can hold the given number of points,
+	 * growing it by half again so that appending point by point stays linear
+	 * @param inNumPoints number of points required
+	 */
+	private void ensureCapacity(int inNumPoints)
+	{
+		if (inNumPoints > _dataPoints.length)
+		{
+			final int newLength = Math.max(inNumPoints, _dataPoints.length + _dataPoints.length / 2 + 16);
+			_dataPoints = Arrays.copyOf(_dataPoints, newLength);
+		}
+	}
+
+	/**
+	 * Points have been inserted, so update the columns if they have already been scaled
+	 * @param inIndex index of first inserted point
+	 * @param inCount number of inserted points
+	 */
+	private synchronized void columnsInserted(int inIndex, int inCount)
+	{
+		if (_scaled)
+		{
+			_columns.insertPoints(this, inIndex, inCount);
+			if (_grid != null && !_grid.insertPoints(inIndex, inCount)) {
+				_grid = null;
+			}
+		}
+		pointsChanged(inIndex);
+	}
+
+	/**
+	 * A point has been deleted, so update the columns if they have already been scaled
+	 * @param inIndex index of deleted point
+	 * @param inChangedIndex index of point whose segment flag was changed, or -1
+	 */
+	private synchronized void columnsDeleted(int inIndex, int inChangedIndex)
+	{
+		if (_scaled)
+		{
+			_columns.deletePoint(inIndex);
+			if (inChangedIndex >= 0) {
+				_columns.updatePoint(inChangedIndex, getPoint(inChangedIndex));
+			}
+			if (_grid != null) {
+				_grid.deletePoint(inIndex);
+			}
+		}
+		pointsChanged(inIndex);
+	}
+
+	/**
+	 * The track has been cropped, so update the columns if they have already been scaled
+	 */
+	private synchronized void columnsCropped()
+	{
+		if (_scaled)
+		{
+			_columns.cropTo(_numPoints);
+			if (_grid != null) {
+				_grid.cropTo(_numPoints);
+			}
+		}
+		pointsChanged(_numPoints);
+	}
 }
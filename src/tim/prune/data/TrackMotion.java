@@ -0,0 +1,274 @@
+package tim.prune.data;
+
+/**
+ * Horizontal speeds, vertical speeds and gradients for all the points of a track,
+ * giving the same values as the SpeedCalculator and GradientCalculator.
+ * The timestamps, altitudes and distances are first taken from the points in a single pass,
+ * and then the windows around each point are worked out using just these arrays.
+ * Values are held in metres per second, so they can be given in any units.
+ * The timestamps are kept too, for the compression methods which compare them.
+ */
+public class TrackMotion
+{
+	private final boolean[] _hasHSpeed, _hasVSpeed, _hasGradient;
+	private final double[] _hSpeeds, _vSpeeds, _gradients;
+	private final boolean[] _hasTimestamp;
+	private final long[] _millis;
+
+	/** Timestamps need to be at least this far apart to calculate speeds */
+	private static final long MIN_TIME_DIFFERENCE_MS = 1000L;
+
+
+	/**
+	 * Constructor, calculating all the values
+	 * @param inTrack track object
+	 */
+	TrackMotion(Track inTrack)
+	{
+		final int numPoints = inTrack.getNumPoints();
+		_hasHSpeed = new boolean[numPoints];
+		_hasVSpeed = new boolean[numPoints];
+		_hasGradient = new boolean[numPoints];
+		_hSpeeds = new double[numPoints];
+		_vSpeeds = new double[numPoints];
+		_gradients = new double[numPoints];
+
+		// Collect everything needed from the points
+		final boolean[] isTrackPoint = new boolean[numPoints];
+		final boolean[] isSegmentStart = new boolean[numPoints];
+		final boolean[] hasTime = _hasTimestamp = new boolean[numPoints];
+		final boolean[] hasAltitude = new boolean[numPoints];
+		final long[] millis = _millis = new long[numPoints];
+		final double[] altitudes = new double[numPoints];
+		// Distance from the previous point which isn't a waypoint
+		final double[] radsFromPrevious = new double[numPoints];
+		final PointColumns columns = inTrack.getColumns();
+		int prevIndex = -1;
+		for (int i=0; i<numPoints; i++)
+		{
+			DataPoint point = inTrack.getPoint(i);
+			isTrackPoint[i] = !point.isWaypoint();
+			isSegmentStart[i] = point.getSegmentStart();
+			hasTime[i] = point.hasTimestamp();
+			if (hasTime[i]) {
+				millis[i] = point.getTimestamp().getMilliseconds(null);
+			}
+			hasAltitude[i] = point.hasAltitude();
+			if (hasAltitude[i]) {
+				altitudes[i] = point.getAltitude().getMetricValue();
+			}
+			if (point.hasHSpeed())
+			{
+				_hSpeeds[i] = point.getHSpeed().getValueInMetresPerSec();
+				_hasHSpeed[i] = true;
+			}
+			if (point.hasVSpeed())
+			{
+				_vSpeeds[i] = point.getVSpeed().getValueInMetresPerSec();
+				_hasVSpeed[i] = true;
+			}
+			if (isTrackPoint[i])
+			{
+				radsFromPrevious[i] = (prevIndex >= 0 ? columns.calculateRadiansBetween(prevIndex, i) : 0.0);
+				prevIndex = i;
+			}
+		}
+
+		for (int i=0; i<numPoints; i++)
+		{
+			if (!isTrackPoint[i] || !hasTime[i]) {
+				continue;
+			}
+			final boolean needHSpeed = !_hasHSpeed[i];
+			final boolean needVSpeed = !_hasVSpeed[i] && hasAltitude[i];
+			if (!needHSpeed && !needVSpeed) {
+				continue;
+			}
+			double totalRads = 0.0;
+			long earlyMillis = millis[i], lateMillis = millis[i];
+			double firstAltitude = altitudes[i], lastAltitude = altitudes[i];
+			// Count backwards until timestamp earlier than now; total distances back to this point
+			if (!isSegmentStart[i])
+			{
+				int nextIndex = i;
+				for (int j=i-1; j>=0; j--)
+				{
+					if (isTrackPoint[j] && hasTime[j] && millis[j] < millis[i])
+					{
+						totalRads += radsFromPrevious[nextIndex];
+						earlyMillis = millis[j];
+						if (hasAltitude[j]) {
+							firstAltitude = altitudes[j];
+						}
+					}
+					if (isTrackPoint[j]) {
+						nextIndex = j;
+					}
+					if (isSegmentStart[j] || (hasTime[j] && millis[i] - millis[j] >= MIN_TIME_DIFFERENCE_MS)) {
+						break;
+					}
+				}
+			}
+			// Count forwards until timestamp later than now; total distances forward to this point
+			for (int j=i+1; j<numPoints; j++)
+			{
+				if (isTrackPoint[j] && hasTime[j] && millis[j] >= millis[i] && !isSegmentStart[j])
+				{
+					totalRads += radsFromPrevious[j];
+					lateMillis = millis[j];
+					if (hasAltitude[j]) {
+						lastAltitude = altitudes[j];
+					}
+				}
+				if (isSegmentStart[j] || (hasTime[j] && millis[j] - millis[i] >= MIN_TIME_DIFFERENCE_MS)) {
+					break;
+				}
+			}
+			// See if we've managed to get a time range of at least a second
+			final long milliseconds = lateMillis - earlyMillis;
+			if (milliseconds >= MIN_TIME_DIFFERENCE_MS)
+			{
+				if (needHSpeed)
+				{
+					final double metres = Distance.convertRadiansToDistance(totalRads, UnitSetLibrary.UNITS_METRES);
+					_hSpeeds[i] = metres / milliseconds * 1000.0;
+					_hasHSpeed[i] = true;
+				}
+				if (needVSpeed)
+				{
+					_vSpeeds[i] = (lastAltitude - firstAltitude) / milliseconds * 1000.0;
+					_hasVSpeed[i] = true;
+				}
+			}
+		}
+		calculateGradients(inTrack, columns, isTrackPoint, isSegmentStart, hasAltitude, altitudes);
+	}
+
+	/**
+	 * Calculate the gradients from the previous and next track points
+	 */
+	private void calculateGradients(Track inTrack, PointColumns inColumns, boolean[] inIsTrackPoint,
+		boolean[] inIsSegmentStart, boolean[] inHasAltitude, double[] inAltitudes)
+	{
+		final int numPoints = inIsTrackPoint.length;
+		int prevIndex = -1;
+		int nextIndex = -1;
+		for (int i=0; i<numPoints; i++)
+		{
+			if (inIsTrackPoint[i] && inHasAltitude[i])
+			{
+				// If the point has horizontal and vertical speeds already then just use those
+				DataPoint point = inTrack.getPoint(i);
+				if (point.hasHSpeed() && point.hasVSpeed())
+				{
+					_gradients[i] = point.getVSpeed().getValueInMetresPerSec() / point.getHSpeed().getValueInMetresPerSec();
+					_hasGradient[i] = true;
+				}
+				else if (!inIsSegmentStart[i] && prevIndex >= 0)
+				{
+					// Use the previous track point and the next track point
+					if (nextIndex <= i) {
+						nextIndex = findNextTrackPoint(inTrack, i + 1);
+					}
+					if (nextIndex >= 0 && !inIsSegmentStart[nextIndex]
+						&& inHasAltitude[prevIndex] && inHasAltitude[nextIndex])
+					{
+						final double horizRads = inColumns.calculateRadiansBetween(prevIndex, i)
+							+ inColumns.calculateRadiansBetween(i, nextIndex);
+						final double horizDist = Distance.convertRadiansToDistance(horizRads, UnitSetLibrary.UNITS_METRES);
+						final double heightDiff = inAltitudes[nextIndex] - inAltitudes[prevIndex];
+						_gradients[i] = Math.atan2(heightDiff, horizDist);
+						_hasGradient[i] = true;
+					}
+				}
+			}
+			if (inIsTrackPoint[i] && inTrack.getPoint(i).isValid()) {
+				prevIndex = i;
+			}
+		}
+	}
+
+	/**
+	 * @return index of the next valid track point from the given index, or -1
+	 */
+	private static int findNextTrackPoint(Track inTrack, int inStartIndex)
+	{
+		for (int i=inStartIndex; i<inTrack.getNumPoints(); i++)
+		{
+			DataPoint point = inTrack.getPoint(i);
+			if (point.isValid() && !point.isWaypoint()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** @return number of points */
+	public int getNumPoints() {
+		return _hSpeeds.length;
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return true if the point has a horizontal speed
+	 */
+	public boolean hasHorizontalSpeed(int inIndex) {
+		return inIndex >= 0 && inIndex < _hasHSpeed.length && _hasHSpeed[inIndex];
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @param inUnit speed unit
+	 * @return horizontal speed in the given units
+	 */
+	public double getHorizontalSpeed(int inIndex, Unit inUnit) {
+		return _hSpeeds[inIndex] * inUnit.getMultFactorFromStd();
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return true if the point has a vertical speed
+	 */
+	public boolean hasVerticalSpeed(int inIndex) {
+		return inIndex >= 0 && inIndex < _hasVSpeed.length && _hasVSpeed[inIndex];
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @param inUnit vertical speed unit
+	 * @return vertical speed in the given units
+	 */
+	public double getVerticalSpeed(int inIndex, Unit inUnit) {
+		return _vSpeeds[inIndex] * inUnit.getMultFactorFromStd();
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return true if the point has a gradient
+	 */
+	public boolean hasGradient(int inIndex) {
+		return inIndex >= 0 && inIndex < _hasGradient.length && _hasGradient[inIndex];
+	}
+
+	/**
+	 * @param inIndex point index
+	 * @return gradient, as given by the GradientCalculator
+	 */
+	public double getGradient(int inIndex) {
+		return _gradients[inIndex];
+	}
+
+	/** @return true if the specified point has a timestamp */
+	public boolean hasTimestamp(int inIndex) {
+		return _hasTimestamp[inIndex];
+	}
+
+	/**
+	 * @param inEarlierIndex index of the earlier point
+	 * @param inLaterIndex index of the later point
+	 * @return number of whole seconds between the timestamps of the two points
+	 */
+	public long getSecondsBetween(int inEarlierIndex, int inLaterIndex) {
+		return (_millis[inLaterIndex] - _millis[inEarlierIndex]) / 1000L;
+	}
+}
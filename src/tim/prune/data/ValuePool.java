@@ -0,0 +1,72 @@
+package tim.prune.data;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Pool of the field values which are repeated on many points,
+ * such as waypoint types, symbols and extension values,
+ * so that each distinct value is only held once.
+ * Each load uses its own pool, which is dropped once the load is finished.
+ * Columns which turn out to have mostly distinct values are no longer pooled.
+ */
+public class ValuePool
+{
+	/** Values for each field */
+	private final IdentityHashMap<Field, Column> _columns = new IdentityHashMap<>();
+
+	/** Longer values are unlikely to be repeated so they aren't pooled */
+	private static final int MAX_VALUE_LENGTH = 40;
+	/** Number of values of a column to see before checking the proportion of distinct values */
+	private static final int MIN_VALUES_CHECKED = 1000;
+	/** Maximum proportion of distinct values for the column to be worth pooling */
+	private static final double MAX_DISTINCT_RATIO = 0.5;
+
+
+	/** Pooled values of a single field */
+	private static class Column
+	{
+		private final HashMap<String, String> _values = new HashMap<>();
+		private int _numSeen = 0;
+		private boolean _pooling = true;
+	}
+
+	/**
+	 * @param inField field to check
+	 * @return true if the values of this field are pooled
+	 */
+	private static boolean isPooledField(Field inField)
+	{
+		return inField == Field.WAYPT_TYPE || inField == Field.SYMBOL
+			|| (inField != null && !inField.isBuiltIn());
+	}
+
+	/**
+	 * @param inField field of the value
+	 * @param inValue value to look up
+	 * @return the shared instance of an equal value, or the given value if it isn't pooled
+	 */
+	public String getValue(Field inField, String inValue)
+	{
+		if (inValue == null || inValue.length() > MAX_VALUE_LENGTH || !isPooledField(inField)) {
+			return inValue;
+		}
+		Column column = _columns.computeIfAbsent(inField, f -> new Column());
+		if (!column._pooling) {
+			return inValue;
+		}
+		column._numSeen++;
+		String pooled = column._values.putIfAbsent(inValue, inValue);
+		if (pooled != null) {
+			return pooled;
+		}
+		if (column._numSeen >= MIN_VALUES_CHECKED
+			&& column._values.size() > column._numSeen * MAX_DISTINCT_RATIO)
+		{
+			// Too many different values, so pooling them would only take up more space
+			column._pooling = false;
+			column._values.clear();
+		}
+		return inValue;
+	}
+}
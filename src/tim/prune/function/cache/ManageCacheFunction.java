@@ -8,6 +8,7 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.io.File;
+import java.io.IOException;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -30,6 +31,7 @@ import tim.prune.I18nManager;
 import tim.prune.config.Config;
 import tim.prune.fileutils.FileList;
 import tim.prune.gui.WholeNumberField;
+import tim.prune.gui.map.tile.TilePackFile;
 
 /**
  * Function class to manage the tile cache on local disk
@@ -326,6 +328,12 @@ public class ManageCacheFunction extends GenericFunction implements Runnable
 		{
 			if (_setsTable.isRowSelected(i))
 			{
+				TilePackFile packFile = _model.getTileSet(i).getPackFile();
+				if (packFile != null)
+				{
+					totalDeleted += deleteTilesFrom(packFile, ageLimit);
+					continue;
+				}
 				File dir = new File(_model.getCacheDir(), _model.getTileSet(i).getPath());
 				if (dir.exists())
 				{
@@ -351,6 +359,27 @@ public class ManageCacheFunction extends GenericFunction implements Runnable
 	}
 
 
+	/**
+	 * Delete all tiles from the pack file which are older than the age limit, and compact it
+	 * @param inPackFile pack file to delete from
+	 * @param inMaxDays age limit in days
+	 * @return number of tiles deleted
+	 */
+	private static int deleteTilesFrom(TilePackFile inPackFile, int inMaxDays)
+	{
+		final long now = System.currentTimeMillis();
+		try
+		{
+			return inPackFile.purge(timestamp -> inMaxDays < 0
+				|| (now - timestamp) / 1000 / 60 / 60 / 24 > inMaxDays);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Failed to purge " + inPackFile.getFile() + ": " + e.getMessage());
+			return 0;
+		}
+	}
+
 	/**
 	 * Delete recursively all files which are older than the age limit
 	 * @param inDir directory to delete from
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import tim.prune.fileutils.FileList;
 import tim.prune.gui.map.MapSource;
 import tim.prune.gui.map.MapSourceLibrary;
+import tim.prune.gui.map.tile.TilePackFile;
 
 /**
  * Class to obtain and hold information about the current
@@ -54,6 +55,7 @@ public class TileCacheModel
 				getTileSets(subdir, null, _tileSets);
 			}
 		}
+		addPackFiles(_cacheDir, null, _tileSets);
 		// Loop over found tile sets and create summary rowinfo
 		_summaryRow = new RowInfo();
 		for (TileSet ts : _tileSets) {
@@ -86,6 +88,7 @@ public class TileCacheModel
 		// If a tileset wasn't found, look through subdirectories
 		if (!tsFound)
 		{
+			addPackFiles(inDir, wholePath, inTsList);
 			// Go through subdirectories and look at each of them too
 			for (File subdir : FileList.filesIn(inDir))
 			{
@@ -98,6 +101,31 @@ public class TileCacheModel
 		}
 	}
 
+	/**
+	 * Add a tileset for each pack file in the given directory
+	 * @param inDir directory to search
+	 * @param inParentPath path of directory relative to cache root, or null for the root
+	 * @param inTsList arraylist to hold the results
+	 */
+	private static void addPackFiles(File inDir, String inParentPath, ArrayList<TileSet> inTsList)
+	{
+		final String parentPath = (inParentPath == null ? "" : inParentPath);
+		for (File file : FileList.filesIn(inDir))
+		{
+			final String name = file.getName();
+			if (file.isFile() && name.endsWith(TilePackFile.FILE_EXTENSION))
+			{
+				// Pack file is named after the directory which the tiles would otherwise be in
+				final String dirPath = parentPath
+					+ name.substring(0, name.length() - TilePackFile.FILE_EXTENSION.length()) + File.separator;
+				TileSet ts = new TileSet(TilePackFile.getPackFile(file), parentPath + name, matchConfig(dirPath));
+				if (ts.getRowInfo().getNumTiles() > 0) {
+					inTsList.add(ts);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Match the given directory name to find the configs which use it
 	 * @param inName name of directory to match
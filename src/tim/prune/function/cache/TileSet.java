@@ -1,8 +1,10 @@
 package tim.prune.function.cache;
 
 import java.io.File;
+import java.io.IOException;
 
 import tim.prune.fileutils.FileList;
+import tim.prune.gui.map.tile.TilePackFile;
 
 
 /**
@@ -17,6 +19,8 @@ public class TileSet
 	private final String _path;
 	/** Comma-separated list of configs using this tileset */
 	private final String _usedBy;
+	/** Pack file holding the tiles, or null if they're in directories */
+	private final TilePackFile _packFile;
 
 
 	/**
@@ -29,6 +33,7 @@ public class TileSet
 	{
 		_path = inPath;
 		_usedBy = inUsedBy;
+		_packFile = null;
 		// Go through zoom directories and construct row info objects
 		if (inDir != null && inDir.exists() && inDir.isDirectory() && inDir.canRead())
 		{
@@ -44,6 +49,36 @@ public class TileSet
 		}
 	}
 
+	/**
+	 * Constructor for a tileset held in a single pack file
+	 * @param inPackFile pack file containing the tiles
+	 * @param inPath String describing relative path from cache root
+	 * @param inUsedBy String describing which configs use this Tileset
+	 */
+	public TileSet(TilePackFile inPackFile, String inPath, String inUsedBy)
+	{
+		_path = inPath;
+		_usedBy = inUsedBy;
+		_packFile = inPackFile;
+		try
+		{
+			int[] numTilesPerZoom = inPackFile.getNumTilesPerZoom();
+			int numTiles = 0;
+			for (int zoom=0; zoom<numTilesPerZoom.length; zoom++)
+			{
+				if (numTilesPerZoom[zoom] > 0)
+				{
+					_rowInfo.addZoom(zoom);
+					numTiles += numTilesPerZoom[zoom];
+				}
+			}
+			_rowInfo.addTiles(numTiles, inPackFile.getTotalTileBytes());
+		}
+		catch (IOException e) {
+			System.err.println("Failed to read tile pack " + inPackFile.getFile() + ": " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Check if a directory name is numeric
 	 * @param inName name of directory
@@ -134,4 +169,9 @@ public class TileSet
 	public String getUsedBy() {
 		return _usedBy;
 	}
+
+	/** @return pack file holding the tiles, or null if the tiles are in directories */
+	public TilePackFile getPackFile() {
+		return _packFile;
+	}
 }
@@ -117,11 +117,23 @@ public class CompressTrackFunction extends MarkAndDeleteFunction implements Comp
 
 
 	/**
-	 * Finish the dialog when OK pressed
+	 * Finish the dialog when OK pressed, once all the methods have been calculated
 	 */
 	private void finish()
 	{
-		MarkingData markings = _panelController.recalculateAll();
+		_okButton.setEnabled(false);
+		_panelController.recalculateAll(this::applyMarkings);
+	}
+
+	/**
+	 * Mark the points for deletion according to the results of all the methods
+	 * @param inMarkings markings from all the methods
+	 */
+	private void applyMarkings(MarkingData inMarkings)
+	{
+		if (!_dialog.isVisible()) {
+			return; // cancelled while the methods were being calculated
+		}
 		_app.getTrackInfo().clearAllMarkers();
 		// All flags are now combined in the markings object
 		int numMarked = 0;
@@ -132,8 +144,8 @@ public class CompressTrackFunction extends MarkAndDeleteFunction implements Comp
 			if (point.isWaypoint()) {
 				continue;
 			}
-			boolean deletePoint = markings.isPointMarkedForDeletion(i) && !point.hasMedia();
-			boolean setSegmentFlag = deletePoint && markings.isPointMarkedForSegmentBreak(i);
+			boolean deletePoint = inMarkings.isPointMarkedForDeletion(i) && !point.hasMedia();
+			boolean setSegmentFlag = deletePoint && inMarkings.isPointMarkedForSegmentBreak(i);
 			_app.getTrackInfo().markPointForDeletion(i, deletePoint, setSegmentFlag);
 			if (deletePoint) {
 				numMarked++;
@@ -13,7 +13,8 @@ public enum CompressionMethodType
 	TIME_DIFFERENCE(7, "TSA"),
 	TOO_SLOW(8, "SLO"),
 	TOO_FAST(9, "FAS"),
-	SKI_LIFTS(10, "SKI");
+	SKI_LIFTS(10, "SKI"),
+	VISVALINGAM(11, "VIS");
 
 	private final int _index;
 	private final String _key;
@@ -1,8 +1,11 @@
 package tim.prune.function.compress;
 
+import java.util.BitSet;
+
 import tim.prune.App;
 import tim.prune.UpdateMessageBroker;
-import tim.prune.data.DataPoint;
+import tim.prune.data.Track;
+import tim.prune.gui.map.MapUtils;
 
 /**
  * Function to mark all the points inside or outside the selected rectangle
@@ -64,19 +67,19 @@ public class MarkPointsInRectangleFunction extends MarkAndDeleteFunction
 			return;
 		}
 
-		// Loop over all points in track
-		final int numPoints = _app.getTrackInfo().getTrack().getNumPoints();
+		// Use the track's spatial index to find the points inside the rectangle
+		final Track track = _app.getTrackInfo().getTrack();
+		final int numPoints = track.getNumPoints();
+		// y values decrease as the latitude increases
+		final BitSet pointsInside = track.getPointsInRectangle(
+			MapUtils.getXFromLongitude(_minLon), MapUtils.getYFromLatitude(_maxLat),
+			MapUtils.getXFromLongitude(_maxLon), MapUtils.getYFromLatitude(_minLat));
 		int numMarked = 0;
 		int numNotMarked = 0;
 		_app.getTrackInfo().clearAllMarkers();
 		for (int i=0; i<numPoints; i++)
 		{
-			DataPoint point = _app.getTrackInfo().getTrack().getPoint(i);
-			// For each point, see if it's within the rectangle
-			final double pointLon = point.getLongitude().getDouble();
-			final double pointLat = point.getLatitude().getDouble();
-			final boolean insideRect = (pointLon >= _minLon && pointLon <= _maxLon
-				&& pointLat >= _minLat && pointLat <= _maxLat);
+			final boolean insideRect = pointsInside.get(i);
 			if (insideRect == _markInside) {
 				_app.getTrackInfo().markPointForDeletion(i);
 				numMarked++;
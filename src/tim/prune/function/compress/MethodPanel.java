@@ -32,6 +32,7 @@ public class MethodPanel extends JPanel
 	private final DecimalNumberField _speedHighLimitField = new DecimalNumberField();
 	private final DecimalNumberField _distanceLimitField = new DecimalNumberField();
 	private final WholeNumberField _timeLimitField = new WholeNumberField(5);
+	private final WholeNumberField _visvalingamPointsField = new WholeNumberField(6);
 	private final JPanel _cardPanel = new JPanel();
 	private final CardLayout _cards = new CardLayout();
 	private final JLabel _numToDeleteLabel;
@@ -180,6 +181,13 @@ public class MethodPanel extends JPanel
 		_cardPanel.add(distancePanel, CompressionMethodType.NEARBY_WITH_DISTANCE.toString());
 		// Card 10 - Ski lifts
 		_cardPanel.add(new JPanel(), CompressionMethodType.SKI_LIFTS.toString());
+		// Card 11 - Visvalingam-Whyatt
+		final JPanel visvalingamPanel = new JPanel();
+		visvalingamPanel.setLayout(new FlowLayout());
+		visvalingamPanel.add(makeParamLabel("visvalingam"));
+		visvalingamPanel.add(_visvalingamPointsField);
+		_visvalingamPointsField.setValue(getIntValue(inValues, CompressionMethodType.VISVALINGAM));
+		_cardPanel.add(visvalingamPanel, CompressionMethodType.VISVALINGAM.toString());
 	}
 
 	private static JLabel makeParamLabel(String inMethodName) {
@@ -214,7 +222,8 @@ public class MethodPanel extends JPanel
 		_activeCheckbox.addItemListener(e -> showLabel());
 		final JTextField[] editFields = new JTextField[] {
 			_nearbySpanField, _douglasSpanField, _wackyFactorField, _singletonFactorField,
-			_speedLowLimitField, _speedHighLimitField, _distanceLimitField, _timeLimitField
+			_speedLowLimitField, _speedHighLimitField, _distanceLimitField, _timeLimitField,
+			_visvalingamPointsField
 		};
 		final KeyListener keyListener = new KeyListener() {
 			public void keyPressed(KeyEvent e) {}
@@ -239,7 +248,7 @@ public class MethodPanel extends JPanel
 	private static String[] getMethodNames()
 	{
 		String[] keys = {"none", "duplicates", "closepoints", "wacky", "singletons",
-			"douglaspeucker", "distancelimit", "timelimit", "tooslow", "toofast", "skilifts"};
+			"douglaspeucker", "distancelimit", "timelimit", "tooslow", "toofast", "skilifts", "visvalingam"};
 		String[] texts = new String[keys.length];
 		for (int i=0; i<keys.length; i++) {
 			texts[i] = I18nManager.getText("dialog.compress.method." + keys[i]);
@@ -266,7 +275,7 @@ public class MethodPanel extends JPanel
 			CompressionMethodType.SINGLETONS, CompressionMethodType.DOUGLAS_PEUCKER,
 			CompressionMethodType.NEARBY_WITH_DISTANCE, CompressionMethodType.TIME_DIFFERENCE,
 			CompressionMethodType.TOO_SLOW, CompressionMethodType.TOO_FAST,
-			CompressionMethodType.SKI_LIFTS};
+			CompressionMethodType.SKI_LIFTS, CompressionMethodType.VISVALINGAM};
 		return types[_methodCombo.getSelectedIndex()];
 	}
 
@@ -286,6 +295,7 @@ public class MethodPanel extends JPanel
 			case TOO_SLOW: return new ValueExchanger(isActive, 8, selectedMethod, _speedLowLimitField.getValue());
 			case TOO_FAST: return new ValueExchanger(isActive, 9, selectedMethod, _speedHighLimitField.getValue());
 			case SKI_LIFTS: return new ValueExchanger(isActive, 10, selectedMethod, 0);
+			case VISVALINGAM: return new ValueExchanger(isActive, 11, selectedMethod, _visvalingamPointsField.getValue());
 			case NONE:
 			default:
 				return new ValueExchanger();
@@ -320,6 +330,9 @@ public class MethodPanel extends JPanel
 			case TOO_FAST:
 				_speedHighLimitField.setValue(inValues._doubleFactor);
 				break;
+			case VISVALINGAM:
+				_visvalingamPointsField.setValue(inValues._intFactor);
+				break;
 			case DUPLICATES:
 			case SKI_LIFTS:
 			case NONE:
@@ -383,6 +396,10 @@ public class MethodPanel extends JPanel
 			case SKI_LIFTS:
 				comboIndex = 10;
 				break;
+			case VISVALINGAM:
+				comboIndex = 11;
+				_visvalingamPointsField.setValue(NumberUtils.getIntOrZero(inMethod.getParam()));
+				break;
 			default:
 				break;
 		}
@@ -434,7 +451,7 @@ public class MethodPanel extends JPanel
 	{
 		_compressionMethod = null;
 		if (_parent != null) {
-			_parent.recalculateAll();
+			_parent.startPreview();
 		}
 	}
 
@@ -488,6 +505,8 @@ public class MethodPanel extends JPanel
 				return new TooFastMethod(getSpeedLimitMetric(_speedHighLimitField.getValue()));
 			case SKI_LIFTS:
 				return new SkiLiftsMethod();
+			case VISVALINGAM:
+				return new VisvalingamMethod(_visvalingamPointsField.getValue());
 			case NONE:
 			default:
 				return null;
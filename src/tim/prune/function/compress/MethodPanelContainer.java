@@ -1,5 +1,7 @@
 package tim.prune.function.compress;
 
+import java.util.function.Consumer;
+
 import tim.prune.data.MarkingData;
 
 /** Interface used by each panel to communicate to their container */
@@ -9,5 +11,6 @@ public interface MethodPanelContainer
 	void movePanelDown(int inIndex);
 	void deletePanel(int inIndex);
 
-	MarkingData recalculateAll();
+	void recalculateAll(Consumer<MarkingData> inCallback);
+	void startPreview();
 }
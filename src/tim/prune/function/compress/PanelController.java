@@ -2,6 +2,13 @@ package tim.prune.function.compress;
 
 import java.awt.Container;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
 
 import tim.prune.config.Config;
 import tim.prune.data.MarkingData;
@@ -15,6 +22,47 @@ public class PanelController implements MethodPanelContainer
 	private final ArrayList<MethodPanel> _panels = new ArrayList<>();
 	private final Container _container;
 	private ParameterValues _values = null;
+	/**
+	 * Results of each method, kept so that unchanged methods don't have to be run again.
+	 * These and the track details are only used by the preview executor, so they don't need locking
+	 */
+	private final ArrayList<CompressionStage> _stages = new ArrayList<>();
+	/** Details of the unmodified track, shared by all the methods */
+	private TrackDetails _trackDetails = null;
+	/** Counter to identify the latest preview, so that older ones can be abandoned */
+	private final AtomicInteger _previewCounter = new AtomicInteger();
+
+	/** Executor for calculating the previews and the final result in the background, one at a time */
+	private static final ExecutorService PREVIEW_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "CompressionPreview");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+
+	/** Result of a single method, applied after all the methods before it */
+	private static class CompressionStage
+	{
+		private final String _settings;
+		private final MarkingData _markings;
+		private final int _numDeleted;
+
+		private CompressionStage(String inSettings, MarkingData inMarkings, int inNumDeleted)
+		{
+			_settings = inSettings;
+			_markings = inMarkings;
+			_numDeleted = inNumDeleted;
+		}
+
+		/**
+		 * The methods are recreated whenever their parameters are edited,
+		 * so they're compared by their settings, which include the method type
+		 * @return true if this stage was calculated with the same settings
+		 */
+		private boolean matches(String inSettings) {
+			return _settings.equals(inSettings);
+		}
+	}
 
 	/** Constructor */
 	public PanelController(Track inTrack, CompressionDialog inParent, Container inContainer)
@@ -74,7 +122,7 @@ public class PanelController implements MethodPanelContainer
 			return; // move not allowed
 		}
 		MethodPanel.swapPanels(_panels.get(inLowerIndex), _panels.get(inHigherIndex));
-		recalculateAll();
+		startPreview();
 	}
 
 	private void addPanel(MethodPanel inPanel)
@@ -104,6 +152,12 @@ public class PanelController implements MethodPanelContainer
 
 	public void deleteAllPanels()
 	{
+		// The track may have changed since the dialog was last shown
+		_previewCounter.incrementAndGet();
+		PREVIEW_EXECUTOR.execute(() -> {
+			_stages.clear();
+			_trackDetails = null;
+		});
 		while (!_panels.isEmpty())
 		{
 			_container.remove(0);
@@ -120,25 +174,151 @@ public class PanelController implements MethodPanelContainer
 		}
 	}
 
-	public MarkingData recalculateAll()
+	/**
+	 * Recalculate all the methods in the background, for example when the dialog is confirmed.
+	 * This runs after any preview which is still in progress, so if that preview
+	 * has the same settings then its results are used.
+	 * @param inCallback called on the event dispatch thread with the markings from all the methods
+	 */
+	public void recalculateAll(Consumer<MarkingData> inCallback)
 	{
-		int totalDeleted = 0;
+		final List<CompressionMethod> methods = getPanelMethods();
+		final List<String> settings = getSettings(methods);
+		PREVIEW_EXECUTOR.execute(() -> {
+			final int[] numDeleted = new int[methods.size()];
+			final MarkingData markings = runStages(methods, settings, -1, numDeleted);
+			SwingUtilities.invokeLater(() -> {
+				int totalDeleted = 0;
+				for (int i=0; i<numDeleted.length; i++)
+				{
+					if (methods.get(i) != null && i < _panels.size()) {
+						_panels.get(i).showNumDeleted(numDeleted[i]);
+					}
+					totalDeleted += numDeleted[i];
+				}
+				_parentDialog.informNumPointsDeleted(totalDeleted);
+				inCallback.accept(markings);
+			});
+		});
+	}
+
+	/**
+	 * Recalculate the methods in the background, abandoning any previous preview.
+	 * Only the methods which have changed and those after them are run again
+	 */
+	public void startPreview()
+	{
+		final int previewId = _previewCounter.incrementAndGet();
+		final List<CompressionMethod> methods = getPanelMethods();
+		final List<String> settings = getSettings(methods);
+		PREVIEW_EXECUTOR.execute(() -> {
+			if (isPreviewCancelled(previewId)) {
+				return;
+			}
+			runStages(methods, settings, previewId, new int[methods.size()]);
+		});
+	}
+
+	/** @return true if the given preview has been replaced by a later one */
+	private boolean isPreviewCancelled(int inPreviewId) {
+		return inPreviewId != _previewCounter.get();
+	}
+
+	/** @return the method from each panel, or null if the panel doesn't have one */
+	private List<CompressionMethod> getPanelMethods()
+	{
+		ArrayList<CompressionMethod> methods = new ArrayList<>();
+		for (MethodPanel panel : _panels) {
+			methods.add(panel == null ? null : panel.getCompressionMethod());
+		}
+		return methods;
+	}
+
+	/** @return the settings of each of the given methods, including whether they're active */
+	private static List<String> getSettings(List<CompressionMethod> inMethods)
+	{
+		ArrayList<String> settings = new ArrayList<>();
+		for (CompressionMethod method : inMethods) {
+			settings.add(method == null ? "" : method.getTotalSettingsString());
+		}
+		return settings;
+	}
+
+	/**
+	 * Run each of the methods in turn, reusing the results from before the first changed method.
+	 * This is only called on the preview executor, so no lock is held while the methods run
+	 * @param inMethods method from each panel, or null
+	 * @param inSettings settings of each method
+	 * @param inPreviewId id of the preview, or -1 if it can't be abandoned
+	 * @param inNumDeleted array to hold the number of points deleted by each method
+	 * @return markings from all the methods, or null if the preview was abandoned
+	 */
+	private MarkingData runStages(List<CompressionMethod> inMethods, List<String> inSettings,
+		int inPreviewId, int[] inNumDeleted)
+	{
+		if (_trackDetails == null) {
+			_trackDetails = new TrackDetails(_track);
+		}
+		int numUnchanged = 0;
+		while (numUnchanged < _stages.size() && numUnchanged < inMethods.size()
+			&& _stages.get(numUnchanged).matches(inSettings.get(numUnchanged)))
+		{
+			numUnchanged++;
+		}
+		while (_stages.size() > numUnchanged) {
+			_stages.remove(_stages.size() - 1);
+		}
 		MarkingData markings = new MarkingData(_track);
-		for (MethodPanel panel : _panels)
+		int totalDeleted = 0;
+		for (int i=0; i<inMethods.size(); i++)
 		{
-			CompressionMethod method = (panel == null ? null : panel.getCompressionMethod());
-			if (method != null)
+			if (i < numUnchanged) {
+				markings = _stages.get(i)._markings;
+			}
+			else
 			{
-				TrackDetails details = new TrackDetails(_track);
-				int numDeletedByThisMethod = method.preview(_track, details, markings);
-				panel.showNumDeleted(numDeletedByThisMethod);
-				totalDeleted += numDeletedByThisMethod;
+				if (inPreviewId >= 0 && isPreviewCancelled(inPreviewId)) {
+					return null;
+				}
+				final CompressionMethod method = inMethods.get(i);
+				int numDeleted = 0;
+				if (method != null && method.isActive())
+				{
+					// The markings of the previous stage are kept unchanged
+					markings = markings.copy();
+					numDeleted = method.preview(_track, _trackDetails, markings);
+				}
+				_stages.add(new CompressionStage(inSettings.get(i), markings, numDeleted));
+			}
+			inNumDeleted[i] = _stages.get(i)._numDeleted;
+			totalDeleted += inNumDeleted[i];
+			if (inPreviewId >= 0) {
+				showStageResult(inPreviewId, i, inMethods.get(i) != null, inNumDeleted[i], totalDeleted);
 			}
 		}
-		_parentDialog.informNumPointsDeleted(totalDeleted);
+		if (inMethods.isEmpty() && inPreviewId >= 0) {
+			showStageResult(inPreviewId, 0, false, 0, 0);
+		}
 		return markings;
 	}
 
+	/**
+	 * Show the result of a single method in the preview, together with the total so far
+	 */
+	private void showStageResult(int inPreviewId, int inPanelIndex, boolean inHasMethod,
+		int inNumDeleted, int inTotalDeleted)
+	{
+		SwingUtilities.invokeLater(() -> {
+			if (isPreviewCancelled(inPreviewId)) {
+				return;
+			}
+			if (inHasMethod && inPanelIndex < _panels.size()) {
+				_panels.get(inPanelIndex).showNumDeleted(inNumDeleted);
+			}
+			_parentDialog.informNumPointsDeleted(inTotalDeleted);
+		});
+	}
+
 	public MethodList getMethodList()
 	{
 		MethodList methods = new MethodList();
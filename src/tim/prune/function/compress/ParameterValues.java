@@ -17,6 +17,7 @@ public class ParameterValues extends HashMap<CompressionMethodType, String>
 		put(CompressionMethodType.TOO_SLOW, "2");
 		put(CompressionMethodType.TOO_FAST, "40");
 		put(CompressionMethodType.TIME_DIFFERENCE, "20");
+		put(CompressionMethodType.VISVALINGAM, "1000");
 	}
 
 	public void applyNewStyleConfig(String inConfigString)
@@ -2,6 +2,7 @@ package tim.prune.function.compress;
 
 import tim.prune.data.DataPoint;
 import tim.prune.data.MarkingData;
+import tim.prune.data.PointColumns;
 import tim.prune.data.Track;
 
 /**
@@ -52,6 +53,7 @@ public class TrackDetails
 		_waypoints = new boolean[numPoints];
 		int prevTrackPointIndex = -1;
 		int numDistances = 0; double totalRadians = 0.0;
+		final PointColumns columns = _track.getColumns();
 		// Loop over points
 		for (int i=0; i<numPoints; i++)
 		{
@@ -69,10 +71,10 @@ public class TrackDetails
 				}
 				else
 				{
-					// Add up distances between points within the same track segment
-					if (prevTrackPointIndex >= 0) {
+					// Add up distances between points within the same track segment, if both have coordinates
+					if (prevTrackPointIndex >= 0 && columns.isValid(prevTrackPointIndex) && columns.isValid(i)) {
 						numDistances++;
-						totalRadians += DataPoint.calculateRadiansBetween(_track.getPoint(prevTrackPointIndex), point);
+						totalRadians += columns.calculateRadiansBetween(prevTrackPointIndex, i);
 					}
 				}
 				prevTrackPointIndex = i;
@@ -98,7 +100,7 @@ public class TrackDetails
 		for (int i=0; i<inTrack.getNumPoints(); i++)
 		{
 			DataPoint p = inTrack.getPoint(i);
-			if (p.isWaypoint()) {
+			if (p.isWaypoint() || !p.isValid()) {
 				continue;
 			}
 			final double latitude = p.getLatitude().getDouble();
@@ -200,10 +202,18 @@ public class TrackDetails
 
 	public TrackDetails modifyUsingMarkings(MarkingData inMarkings)
 	{
-		initialise();
-		TrackDetails modified = new TrackDetails(_track);
-		modified.initialise();
 		int numPoints = _track.getNumPoints();
+		if (_segmentStarts == null || _segmentStarts.length != numPoints) {
+			initialise();
+		}
+		// Start from a copy of these details instead of measuring the whole track again
+		TrackDetails modified = new TrackDetails(_track);
+		modified._trackSpan = _trackSpan;
+		modified._trackRadians = _trackRadians;
+		modified._meanRadians = _meanRadians;
+		modified._waypoints = _waypoints;
+		modified._segmentStarts = _segmentStarts.clone();
+		modified._segmentEnds = _segmentEnds.clone();
 		int prevTrackPointIndex = -1;
 		boolean setNextSegment = false;
 		// Loop over points
@@ -105,6 +105,9 @@ public abstract class CompressionMethod
 		if (SkiLiftsMethod.recogniseString(inString)) {
 			return new SkiLiftsMethod();
 		}
+		if (VisvalingamMethod.recogniseString(inString)) {
+			return new VisvalingamMethod(inString);
+		}
 		return null;
 	}
 
@@ -140,17 +143,20 @@ public abstract class CompressionMethod
 		return true;
 	}
 
-	protected static DataPoint getNextTrackPoint(Track inTrack, int inIndex, MarkingData inMarkings)
+	/**
+	 * @return index of the next track point after the given index which isn't deleted, or -1 if none
+	 */
+	protected static int getNextTrackPointIndex(Track inTrack, int inIndex, MarkingData inMarkings)
 	{
 		int index = inIndex + 1;
 		while (index < inTrack.getNumPoints())
 		{
 			DataPoint point = inTrack.getPoint(index);
 			if (!point.isWaypoint() && !inMarkings.isPointMarkedForDeletion(index)) {
-				return point;
+				return index;
 			}
 			index++;
 		}
-		return null;
+		return -1;
 	}
 }
@@ -1,17 +1,25 @@
 package tim.prune.function.compress.methods;
 
+import java.util.Arrays;
+import java.util.concurrent.CountedCompleter;
+
 import tim.prune.data.DataPoint;
 import tim.prune.data.MarkingData;
 import tim.prune.data.NumberUtils;
+import tim.prune.data.PointColumns;
 import tim.prune.data.Track;
 import tim.prune.function.compress.CompressionMethodType;
 import tim.prune.function.compress.TrackDetails;
-import tim.prune.function.compress.XYpoint;
 
 public class DouglasPeuckerMethod extends CompressionMethod
 {
 	private final int _factor;
 
+	/** Tracks with at least this many points are compressed using several threads */
+	private static final int MIN_POINTS_FOR_PARALLEL = 20000;
+	/** Ranges with at least this many points are compressed in their own task */
+	private static final int MIN_POINTS_PER_TASK = 5000;
+
 	public DouglasPeuckerMethod(int factor) {
 		_factor = factor;
 	}
@@ -38,6 +46,9 @@ public class DouglasPeuckerMethod extends CompressionMethod
 		int origNumDeleted = inMarkings.getNumDeleted();
 		// Convert inFlags into keepFlags
 		int[] keepFlags = new int[numPoints];
+		// Start and end indexes of each segment to compress
+		int[] segments = new int[16];
+		int numSegmentValues = 0;
 		int segStart = -1, segEnd = -1;
 		// Loop over all points in track
 		for (int i=0; i<numPoints; i++)
@@ -45,11 +56,12 @@ public class DouglasPeuckerMethod extends CompressionMethod
 			DataPoint currPoint = inTrack.getPoint(i);
 			if (currPoint.getSegmentStart())
 			{
-				// new segment found, so process previous one
+				// new segment found, so remember previous one
 				if (segStart > -1 && segEnd > segStart)
 				{
 					keepFlags[segEnd] = 1; // keep
-					compressSegment(inTrack, keepFlags, segStart, segEnd, threshold);
+					segments = addRange(segments, numSegmentValues, segStart, segEnd);
+					numSegmentValues += 2;
 					segStart = segEnd = -1;
 				}
 			}
@@ -68,9 +80,18 @@ public class DouglasPeuckerMethod extends CompressionMethod
 			}
 		}
 		// Last segment, if any
-		if (segStart >= 0 && segEnd > segStart) {
+		if (segStart >= 0 && segEnd > segStart)
+		{
 			keepFlags[segEnd] = 1; // keep
-			compressSegment(inTrack, keepFlags, segStart, segEnd, threshold);
+			segments = addRange(segments, numSegmentValues, segStart, segEnd);
+			numSegmentValues += 2;
+		}
+		// Each segment only touches its own flags, so they can all be compressed together
+		if (numSegmentValues > 0)
+		{
+			SegmentCompressor compressor = new SegmentCompressor(inTrack, keepFlags, threshold,
+				numPoints >= MIN_POINTS_FOR_PARALLEL);
+			new RangeTask(null, compressor, Arrays.copyOf(segments, numSegmentValues)).invoke();
 		}
 		// Convert keepFlags back into inFlags
 		for (int i=1; i<numPoints; i++)
@@ -83,110 +104,237 @@ public class DouglasPeuckerMethod extends CompressionMethod
 	}
 
 	/**
-	 * Compress the given segment (recursively)
-	 * @param inTrack the track to compress
-	 * @param inFlags int array of deletion flags for entire track
-	 * @param inSegStart index of start of segment
-	 * @param inSegEnd index of end of segment
-	 * @param inThreshold threshold to use
+	 * Add a range to the end of the given array, enlarging it if necessary
+	 * @param inRanges array of start and end indexes
+	 * @param inNumValues number of values already in the array
+	 * @param inStart start index of range
+	 * @param inEnd end index of range
+	 * @return array containing the new range
 	 */
-	private void compressSegment(Track inTrack, int[] inFlags, int inSegStart, int inSegEnd,
-		double inThreshold)
+	private static int[] addRange(int[] inRanges, int inNumValues, int inStart, int inEnd)
 	{
-		// System.out.println("Compress segment " + inSegStart + "-" + inSegEnd);
-		final int numPoints = inSegEnd - inSegStart + 1;
-		if (numPoints < 3) {
-			 // segment too short to compress
-			return;
+		int[] ranges = inRanges;
+		if (inNumValues + 2 > ranges.length) {
+			ranges = Arrays.copyOf(ranges, ranges.length * 2);
 		}
-		// Calculate parameters of straight line between first and last
-		XYpoint startxy = new XYpoint(inTrack.getX(inSegStart), inTrack.getY(inSegStart));
-		XYpoint endxy = new XYpoint(inTrack.getX(inSegEnd), inTrack.getY(inSegEnd));
-		XYpoint ab = startxy.vectorTo(endxy);
-		final double dist2AB = ab.len2();
-		// create unit vector perpendicular to AB
-		final double distAB = ab.len();
-		XYpoint perpendicular = new XYpoint(ab.y/distAB, -ab.x/distAB);
-		// Check whether distAB is 0.0 - if so, find furthest point from startxy and compress from start to here and here to end
-		if (distAB <= 0.0)
+		ranges[inNumValues] = inStart;
+		ranges[inNumValues + 1] = inEnd;
+		return ranges;
+	}
+
+	/**
+	 * Holds the track and flags while the segments are compressed,
+	 * and splits each range at its furthest point
+	 */
+	private static class SegmentCompressor
+	{
+		private final Track _track;
+		private final PointColumns _columns;
+		/** y values of all the points, calculated once as they're used many times */
+		private final double[] _yValues;
+		private final int[] _flags;
+		private final double _threshold;
+		private final boolean _parallel;
+
+		/**
+		 * Constructor
+		 * @param inTrack the track to compress
+		 * @param inFlags int array of deletion flags for entire track
+		 * @param inThreshold threshold to use
+		 * @param inParallel true to split large ranges into separate tasks
+		 */
+		SegmentCompressor(Track inTrack, int[] inFlags, double inThreshold, boolean inParallel)
 		{
-			final int furthestIndex = getFurthestPointIndex(inTrack, inSegStart, inSegEnd);
-			if (furthestIndex > inSegStart)
-			{
-				compressSegment(inTrack, inFlags, inSegStart, furthestIndex, inThreshold);
-				compressSegment(inTrack, inFlags, furthestIndex, inSegEnd, inThreshold);
+			_track = inTrack;
+			// Scale the points before any tasks are started
+			_columns = inTrack.getColumns();
+			_yValues = new double[_columns.getNumPoints()];
+			for (int i=0; i<_yValues.length; i++) {
+				_yValues[i] = _columns.getY(i);
 			}
-			return;
+			_flags = inFlags;
+			_threshold = inThreshold;
+			_parallel = inParallel;
 		}
 
-		double maxDist = -1.0;
-		int furthestIndex = -1;
-		for (int i=inSegStart+1; i<inSegEnd; i++)
+		/** @return true if large ranges can be compressed in separate tasks */
+		boolean isParallel() {
+			return _parallel;
+		}
+
+		/**
+		 * Find where the given range should be split, marking the split point to be kept if necessary
+		 * @param inSegStart index of start of range
+		 * @param inSegEnd index of end of range
+		 * @return index at which to split the range, or -1 if it's finished
+		 */
+		int findSplit(int inSegStart, int inSegEnd)
 		{
-			if (inFlags[i] == 0) // unknown status
+			final int numPoints = inSegEnd - inSegStart + 1;
+			if (numPoints < 3) {
+				 // segment too short to compress
+				return -1;
+			}
+			// Calculate parameters of straight line between first and last
+			final double startX = _columns.getX(inSegStart), startY = _yValues[inSegStart];
+			final double endX = _columns.getX(inSegEnd), endY = _yValues[inSegEnd];
+			final double abX = endX - startX, abY = endY - startY;
+			final double dist2AB = abX * abX + abY * abY;
+			// create unit vector perpendicular to AB
+			final double distAB = Math.sqrt(dist2AB);
+			final double perpX = abY / distAB, perpY = -abX / distAB;
+			// Check whether distAB is 0.0 - if so, split at furthest point from start
+			if (distAB <= 0.0)
 			{
-				XYpoint currPoint = new XYpoint(inTrack.getX(i), inTrack.getY(i));
-				XYpoint ac = startxy.vectorTo(currPoint);
-				double distAP = ab.dot(ac) / dist2AB;
-				// calc distance from point to line depending on distAP
-				final double dist;
-				if (distAP < 0.0) {
-					dist = ac.len(); // outside line segment AB on the A side
-				}
-				else if (distAP > 1.0) {
-					dist = endxy.vectorTo(currPoint).len(); // outside on the B side
-				}
-				else {
-					// P lies between A and B so use dot product
-					dist = Math.abs(perpendicular.dot(ac));
-				}
-				if (dist > maxDist)
+				final int furthestIndex = getFurthestPointIndex(inSegStart, inSegEnd);
+				return furthestIndex > inSegStart ? furthestIndex : -1;
+			}
+
+			double maxDist = -1.0;
+			int furthestIndex = -1;
+			for (int i=inSegStart+1; i<inSegEnd; i++)
+			{
+				if (_flags[i] == 0) // unknown status
 				{
-					maxDist = dist;
-					furthestIndex = i;
+					final double acX = _columns.getX(i) - startX, acY = _yValues[i] - startY;
+					double distAP = (abX * acX + abY * acY) / dist2AB;
+					// calc distance from point to line depending on distAP
+					final double dist;
+					if (distAP < 0.0) {
+						dist = Math.sqrt(acX * acX + acY * acY); // outside line segment AB on the A side
+					}
+					else if (distAP > 1.0)
+					{
+						// outside on the B side
+						final double bcX = _columns.getX(i) - endX, bcY = _yValues[i] - endY;
+						dist = Math.sqrt(bcX * bcX + bcY * bcY);
+					}
+					else {
+						// P lies between A and B so use dot product
+						dist = Math.abs(perpX * acX + perpY * acY);
+					}
+					if (dist > maxDist)
+					{
+						maxDist = dist;
+						furthestIndex = i;
+					}
 				}
 			}
+			// Check furthest point and see if it's further than the threshold
+			if (maxDist > _threshold)
+			{
+				_flags[furthestIndex] = 1;
+				return furthestIndex;
+			}
+			return -1;
 		}
-		// Check furthest point and see if it's further than the threshold
-		if (maxDist > inThreshold)
+
+		/**
+		 * Find the index of the point furthest away from the start point
+		 * @param inStartIndex start index of segment to check
+		 * @param inEndIndex end index of segment to check
+		 * @return index of furthest point, or -1 if none found
+		 */
+		private int getFurthestPointIndex(int inStartIndex, int inEndIndex)
 		{
-			inFlags[furthestIndex] = 1;
-			// Make recursive calls for bit before and bit after kept point
-			compressSegment(inTrack, inFlags, inSegStart, furthestIndex, inThreshold);
-			compressSegment(inTrack, inFlags, furthestIndex, inSegEnd, inThreshold);
+			int furthestIndex = -1;
+			if (inStartIndex >= 0 && inEndIndex > inStartIndex)
+			{
+				double maxDist = 0.0;
+				// Loop over points between start and end
+				for (int i=inStartIndex+1; i<inEndIndex; i++)
+				{
+					DataPoint p = _track.getPoint(i);
+					if (p.isWaypoint() || !_columns.isValid(i)) {
+						continue;
+					}
+					double distFromStart = _columns.calculateRadiansBetween(inStartIndex, i);
+					if (distFromStart > maxDist)
+					{
+						furthestIndex = i;
+						maxDist = distFromStart;
+					}
+				}
+			}
+			return furthestIndex;
 		}
 	}
 
 	/**
-	 * Find the index of the point furthest away from the start and end points
-	 * @param inTrack the track to compress
-	 * @param inStartIndex start index of segment to check
-	 * @param inEndIndex end index of segment to check
-	 * @return index of furthest point, or -1 if none found
+	 * Task to compress some ranges of points, using its own stack of ranges instead of recursion
+	 * so that long tracks can't overflow the thread's stack.
+	 * Large ranges are forked off as separate tasks if the compressor allows it,
+	 * and the parent task completes once all of its children have finished.
 	 */
-	private int getFurthestPointIndex(Track inTrack, int inStartIndex, int inEndIndex)
+	private static class RangeTask extends CountedCompleter<Void>
 	{
-		int furthestIndex = -1;
-		if (inStartIndex >= 0 && inEndIndex > inStartIndex)
+		private final SegmentCompressor _compressor;
+		private final int[] _ranges;
+
+		/**
+		 * Constructor
+		 * @param inParent parent task, or null
+		 * @param inCompressor compressor holding the track and flags
+		 * @param inRanges start and end indexes of the ranges to compress
+		 */
+		RangeTask(CountedCompleter<?> inParent, SegmentCompressor inCompressor, int[] inRanges)
+		{
+			super(inParent);
+			_compressor = inCompressor;
+			_ranges = inRanges;
+		}
+
+		@Override
+		public void compute()
 		{
-			final DataPoint startPoint = inTrack.getPoint(inStartIndex);
-			double maxDist = 0.0;
-			// Loop over points between start and end
-			for (int i=inStartIndex+1; i<inEndIndex; i++)
+			// Pending ranges, as pairs of start and end indexes
+			int[] stack = new int[Math.max(32, _ranges.length)];
+			int stackSize = 0;
+			// Push in reverse so that the ranges are taken in order, and keep the first one in this task
+			for (int i=_ranges.length-2; i>=0; i-=2) {
+				stackSize = pushOrFork(stack, stackSize, _ranges[i], _ranges[i+1], i > 0);
+			}
+			while (stackSize > 0)
 			{
-				DataPoint p = inTrack.getPoint(i);
-				if (p.isWaypoint()) {
-					continue;
-				}
-				double distFromStart = DataPoint.calculateRadiansBetween(startPoint, p);
-				if (distFromStart > maxDist)
+				final int end = stack[--stackSize];
+				final int start = stack[--stackSize];
+				final int split = _compressor.findSplit(start, end);
+				if (split >= 0)
 				{
-					furthestIndex = i;
-					maxDist = distFromStart;
+					if (stackSize + 4 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stackSize = pushOrFork(stack, stackSize, split, end, true);
+					stackSize = pushOrFork(stack, stackSize, start, split, true);
 				}
 			}
+			tryComplete();
+		}
+
+		/**
+		 * Either fork a new task for the given range if it's large enough, or push it onto the stack
+		 * @param inStack stack with room for the range
+		 * @param inStackSize current size of stack
+		 * @param inStart start index of range
+		 * @param inEnd end index of range
+		 * @param inAllowFork true if the range may be given to a new task
+		 * @return new size of stack
+		 */
+		private int pushOrFork(int[] inStack, int inStackSize, int inStart, int inEnd, boolean inAllowFork)
+		{
+			if (inEnd - inStart < 2) {
+				return inStackSize; // nothing to compress
+			}
+			if (inAllowFork && _compressor.isParallel() && inEnd - inStart >= MIN_POINTS_PER_TASK)
+			{
+				addToPendingCount(1);
+				new RangeTask(this, _compressor, new int[] {inStart, inEnd}).fork();
+				return inStackSize;
+			}
+			inStack[inStackSize] = inStart;
+			inStack[inStackSize + 1] = inEnd;
+			return inStackSize + 2;
 		}
-		return furthestIndex;
 	}
 
 	public String getSettingsString() {
@@ -2,6 +2,7 @@ package tim.prune.function.compress.methods;
 
 import tim.prune.data.DataPoint;
 import tim.prune.data.MarkingData;
+import tim.prune.data.PointColumns;
 import tim.prune.data.Track;
 import tim.prune.function.compress.TrackDetails;
 
@@ -18,7 +19,8 @@ public abstract class NearbyPointsMethod extends CompressionMethod
 		// Loop over all points checking distances to previous point
 		// TODO: Maybe this should also check distance to _next_ point as well!
 		int numPoints = inTrack.getNumPoints();
-		DataPoint prevPoint = null;
+		final PointColumns columns = inTrack.getColumns();
+		int prevIndex = -1;
 		int numDeleted = 0;
 		for (int i=0; i<numPoints; i++)
 		{
@@ -27,18 +29,18 @@ public abstract class NearbyPointsMethod extends CompressionMethod
 				continue;
 			}
 			DataPoint currPoint = inTrack.getPoint(i);
-			// Don't consider waypoints
-			if (currPoint.isWaypoint()) {
+			// Don't consider waypoints or points without coordinates
+			if (currPoint.isWaypoint() || !columns.isValid(i)) {
 				continue;
 			}
 			boolean deleted = false;
 			// Don't delete any photo points or start/end of segments
 			if (!currPoint.hasMedia()
 				&& !isPointAtSegmentBoundary(i, inDetails, inMarkings)
-				&& prevPoint != null)
+				&& prevIndex >= 0)
 			{
-				// Check current point against prevPoint
-				double radians = DataPoint.calculateRadiansBetween(prevPoint, currPoint);
+				// Check current point against previous point
+				double radians = columns.calculateRadiansBetween(prevIndex, i);
 				if (radians < radianThreshold)
 				{
 					inMarkings.markPointForDeletion(i);
@@ -47,7 +49,7 @@ public abstract class NearbyPointsMethod extends CompressionMethod
 				}
 			}
 			if (!deleted) {
-				prevPoint = currPoint;
+				prevIndex = i;
 			}
 		}
 		return numDeleted;
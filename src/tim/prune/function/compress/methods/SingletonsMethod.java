@@ -3,6 +3,7 @@ package tim.prune.function.compress.methods;
 import tim.prune.data.DataPoint;
 import tim.prune.data.MarkingData;
 import tim.prune.data.NumberUtils;
+import tim.prune.data.PointColumns;
 import tim.prune.data.Track;
 import tim.prune.function.compress.CompressionMethodType;
 import tim.prune.function.compress.TrackDetails;
@@ -32,26 +33,28 @@ public class SingletonsMethod extends CompressionMethod
 		final int numPoints = inTrack.getNumPoints();
 		int numDeleted = 0;
 		double threshold = tweakFactor(_factor) * inDetails.getMeanRadians();
-		DataPoint currPoint = null, prevPoint = null;
+		final PointColumns columns = inTrack.getColumns();
+		int prevIndex = -1;
 		final TrackDetails modifiedDetails = inDetails.modifyUsingMarkings(inMarkings);
 		// Loop over all points looking for points far away from neighbours
 		for (int i=0; i<numPoints; i++)
 		{
-			if (inMarkings.isPointMarkedForDeletion(i)) {
+			// Distances can't be measured without coordinates
+			if (inMarkings.isPointMarkedForDeletion(i) || !columns.isValid(i)) {
 				continue;
 			}
-			currPoint = inTrack.getPoint(i);
+			final DataPoint currPoint = inTrack.getPoint(i);
 			// Don't delete any waypoints or photo points
 			// Only interested in start and end of segments
 			if (!currPoint.isWaypoint() && !currPoint.hasMedia()
 				&& modifiedDetails.isSegmentStart(i) && modifiedDetails.isSegmentEnd(i))
 			{
 				// Measure distance from previous track point
-				if (DataPoint.calculateRadiansBetween(prevPoint, currPoint) > threshold)
+				if (prevIndex >= 0 && columns.calculateRadiansBetween(prevIndex, i) > threshold)
 				{
 					// Now need to find next track point, and measure distances
-					DataPoint nextPoint = getNextTrackPoint(inTrack, i+1, inMarkings);
-					if (nextPoint == null || DataPoint.calculateRadiansBetween(currPoint, nextPoint) > threshold)
+					final int nextIndex = getNextTrackPointIndex(inTrack, i+1, inMarkings);
+					if (nextIndex < 0 || (columns.isValid(nextIndex) && columns.calculateRadiansBetween(i, nextIndex) > threshold))
 					{
 						// Found a point to delete
 						inMarkings.markPointForDeletion(i);
@@ -61,7 +64,7 @@ public class SingletonsMethod extends CompressionMethod
 			}
 			// Remember last (not-deleted) track point
 			if (!currPoint.isWaypoint() && !inMarkings.isPointMarkedForDeletion(i)) {
-				prevPoint = currPoint;
+				prevIndex = i;
 			}
 		}
 		return numDeleted;
@@ -5,6 +5,7 @@ import tim.prune.data.Distance;
 import tim.prune.data.MarkingData;
 import tim.prune.data.RangeStats;
 import tim.prune.data.Track;
+import tim.prune.data.TrackMotion;
 import tim.prune.data.Unit;
 import tim.prune.data.UnitSetLibrary;
 import tim.prune.function.compress.CompressionMethodType;
@@ -23,10 +24,10 @@ public class SkiLiftsMethod extends ParameterlessMethod
 	{
 		final int numPoints = inTrack.getNumPoints();
 		final int numAlreadyDeleted = inMarkings.getNumDeleted();
+		final TrackMotion motion = inTrack.getMotion();
 		int previousStartIndex = -1;
 		for (int i=0; i<numPoints; i++)
 		{
-			DataPoint currPoint = inTrack.getPoint(i);
 			// Look forwards from point i to point n
 			int n = i+1;
 			DataPoint endPoint = inTrack.getPoint(n);
@@ -34,7 +35,7 @@ public class SkiLiftsMethod extends ParameterlessMethod
 					&& endPoint.hasAltitude()
 					&& endPoint.hasTimestamp()
 					&& !endPoint.isWaypoint()
-					&& endPoint.getTimestamp().getSecondsSince(currPoint.getTimestamp()) < SECONDS_TO_LOOK_FORWARD)
+					&& motion.getSecondsBetween(i, n) < SECONDS_TO_LOOK_FORWARD)
 			{
 				n++;
 				endPoint = inTrack.getPoint(n);
@@ -87,15 +88,15 @@ public class SkiLiftsMethod extends ParameterlessMethod
 			return false;
 		}
 		// Check whether any points are present which can't be deleted (waypoints, points
-		// without altitude or speed)
+		// without coordinates, altitude or speed)
 		for (int i=inStartIndex; i<=inEndIndex; i++)
 		{
 			DataPoint point = inTrack.getPoint(i);
-			if (point == null || point.isWaypoint() || !point.hasAltitude() || !point.hasTimestamp()) {
+			if (point == null || !point.isValid() || point.isWaypoint() || !point.hasAltitude() || !point.hasTimestamp()) {
 				return false;
 			}
 		}
-		RangeStats stats = new RangeStats(inTrack, inStartIndex, inEndIndex, 0);
+		RangeStats stats = inTrack.getRangeStatsIndex(0).getRangeStats(inStartIndex, inEndIndex);
 		Unit unitMetres = UnitSetLibrary.UNITS_METRES;
 		int descent = stats.getTotalAltitudeRange().getDescent(unitMetres);
 		if (descent < ALLOWED_METRES_DOWNHILL)
@@ -104,11 +105,8 @@ public class SkiLiftsMethod extends ParameterlessMethod
 			if (ascent > (descent * MINIMUM_ASCENT_FACTOR))
 			{
 				// Now check distance and compare to distance between start and end
-				final DataPoint startPoint = inTrack.getPoint(inStartIndex);
-				final DataPoint endPoint = inTrack.getPoint(inEndIndex);
-
 				final double trackDist = stats.getTotalDistance(unitMetres);
-				final double directRadians = DataPoint.calculateRadiansBetween(startPoint, endPoint);
+				final double directRadians = inTrack.getColumns().calculateRadiansBetween(inStartIndex, inEndIndex);
 				final double endToEndDist = Distance.convertRadiansToDistance(directRadians, unitMetres);
 				// Check for straight(ish) line
 				return (trackDist / endToEndDist) < STRAIGHTNESS_FACTOR;
@@ -4,6 +4,7 @@ import tim.prune.data.DataPoint;
 import tim.prune.data.MarkingData;
 import tim.prune.data.NumberUtils;
 import tim.prune.data.Track;
+import tim.prune.data.TrackMotion;
 import tim.prune.function.compress.CompressionMethodType;
 import tim.prune.function.compress.TrackDetails;
 
@@ -31,7 +32,8 @@ public class TooSoonMethod extends CompressionMethod
 	{
 		// Loop over all points checking time since previous point
 		int numPoints = inTrack.getNumPoints();
-		DataPoint prevPoint = null;
+		final TrackMotion motion = inTrack.getMotion();
+		int prevIndex = -1;
 		int numDeleted = 0;
 		for (int i=0; i<numPoints; i++)
 		{
@@ -47,10 +49,10 @@ public class TooSoonMethod extends CompressionMethod
 			// Don't delete any photo points or start/end of segments
 			if (!currPoint.hasMedia()
 				&& !inDetails.isSegmentStart(i) && !inDetails.isSegmentEnd(i)
-				&& prevPoint != null)
+				&& prevIndex >= 0)
 			{
-				// Check current point against prevPoint
-				long seconds = currPoint.getTimestamp().getSecondsSince(prevPoint.getTimestamp());
+				// Check current point against previous point
+				long seconds = motion.getSecondsBetween(prevIndex, i);
 				if (seconds >= 0 && seconds < _secondsLimit)
 				{
 					inMarkings.markPointForDeletion(i);
@@ -58,7 +60,7 @@ public class TooSoonMethod extends CompressionMethod
 				}
 			}
 			if (!inMarkings.isPointMarkedForDeletion(i)) {
-				prevPoint = currPoint;
+				prevIndex = i;
 			}
 		}
 		return numDeleted;
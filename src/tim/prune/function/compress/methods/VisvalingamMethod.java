@@ -0,0 +1,241 @@
+package tim.prune.function.compress.methods;
+
+import java.util.Arrays;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.MarkingData;
+import tim.prune.data.NumberUtils;
+import tim.prune.data.Track;
+import tim.prune.function.compress.CompressionMethodType;
+import tim.prune.function.compress.TrackDetails;
+
+/**
+ * Visvalingam-Whyatt compression, which repeatedly removes the track point
+ * making the smallest triangle with its neighbours until only the
+ * requested number of track points is left
+ */
+public class VisvalingamMethod extends CompressionMethod
+{
+	/** Number of track points to keep */
+	private final int _numPoints;
+
+	public VisvalingamMethod(int inNumPoints) {
+		_numPoints = inNumPoints;
+	}
+
+	public VisvalingamMethod(String inString) {
+		_numPoints = NumberUtils.getIntOrZero(recogniseString(inString) ? inString.substring(4) : inString);
+	}
+
+	public CompressionMethodType getType() {
+		return CompressionMethodType.VISVALINGAM;
+	}
+
+	public String getParam() {
+		return "" + Math.abs(_numPoints);
+	}
+
+	public int compress(Track inTrack, TrackDetails inDetails, MarkingData inMarkings)
+	{
+		final int numToKeep = Math.abs(_numPoints);
+		if (numToKeep <= 0) {
+			return 0;
+		}
+		final int numPoints = inTrack.getNumPoints();
+		// Linked list of the remaining track points
+		int[] prevIndexes = new int[numPoints];
+		int[] nextIndexes = new int[numPoints];
+		int numRemaining = 0;
+		int prevIndex = -1;
+		for (int i=0; i<numPoints; i++)
+		{
+			prevIndexes[i] = nextIndexes[i] = -1;
+			if (!inMarkings.isPointMarkedForDeletion(i) && !inDetails.isWaypoint(i))
+			{
+				prevIndexes[i] = prevIndex;
+				if (prevIndex >= 0) {
+					nextIndexes[prevIndex] = i;
+				}
+				prevIndex = i;
+				numRemaining++;
+			}
+		}
+		if (numRemaining <= numToKeep) {
+			return 0;
+		}
+		// Fill heap with the areas of the points which may be removed
+		AreaHeap heap = new AreaHeap(numPoints);
+		for (int i=0; i<numPoints; i++)
+		{
+			if (prevIndexes[i] >= 0 && nextIndexes[i] >= 0 && canRemove(inTrack, inDetails, i)) {
+				heap.add(i, calculateArea(inTrack, prevIndexes[i], i, nextIndexes[i]));
+			}
+		}
+		int numDeleted = 0;
+		while (numRemaining > numToKeep && !heap.isEmpty())
+		{
+			final double area = heap.getSmallestArea();
+			final int index = heap.removeSmallest();
+			inMarkings.markPointForDeletion(index);
+			numDeleted++;
+			numRemaining--;
+			// Join neighbours together
+			final int prev = prevIndexes[index], next = nextIndexes[index];
+			nextIndexes[prev] = next;
+			prevIndexes[next] = prev;
+			// Neighbours can't have a smaller area than the point just removed
+			if (heap.contains(prev)) {
+				heap.update(prev, Math.max(area, calculateArea(inTrack, prevIndexes[prev], prev, next)));
+			}
+			if (heap.contains(next)) {
+				heap.update(next, Math.max(area, calculateArea(inTrack, prev, next, nextIndexes[next])));
+			}
+		}
+		return numDeleted;
+	}
+
+	/**
+	 * @return true if the point may be removed, false if it has media or starts or ends a segment
+	 */
+	private static boolean canRemove(Track inTrack, TrackDetails inDetails, int inIndex)
+	{
+		DataPoint point = inTrack.getPoint(inIndex);
+		return !point.hasMedia() && !inDetails.isSegmentStart(inIndex) && !inDetails.isSegmentEnd(inIndex);
+	}
+
+	/**
+	 * @return area of the triangle made by the three given points
+	 */
+	private static double calculateArea(Track inTrack, int inIndex1, int inIndex2, int inIndex3)
+	{
+		final double x1 = inTrack.getX(inIndex1), y1 = inTrack.getY(inIndex1);
+		return Math.abs((inTrack.getX(inIndex2) - x1) * (inTrack.getY(inIndex3) - y1)
+			- (inTrack.getX(inIndex3) - x1) * (inTrack.getY(inIndex2) - y1)) / 2.0;
+	}
+
+	public String getSettingsString() {
+		return getType().getKey() + _numPoints;
+	}
+
+	static boolean recogniseString(String inString) {
+		return recogniseString(inString, CompressionMethodType.VISVALINGAM);
+	}
+
+	/**
+	 * Binary min-heap of point indexes ordered by area, which also knows where
+	 * each point is in the heap so that its area can be changed
+	 */
+	private static class AreaHeap
+	{
+		/** Point indexes in heap order */
+		private final int[] _heap;
+		/** Position of each point in the heap, or -1 */
+		private final int[] _positions;
+		/** Area of each point */
+		private final double[] _areas;
+		private int _size = 0;
+
+		AreaHeap(int inNumPoints)
+		{
+			_heap = new int[inNumPoints];
+			_positions = new int[inNumPoints];
+			_areas = new double[inNumPoints];
+			Arrays.fill(_positions, -1);
+		}
+
+		boolean isEmpty() {
+			return _size == 0;
+		}
+
+		boolean contains(int inIndex) {
+			return _positions[inIndex] >= 0;
+		}
+
+		double getSmallestArea() {
+			return _areas[_heap[0]];
+		}
+
+		void add(int inIndex, double inArea)
+		{
+			_areas[inIndex] = inArea;
+			_heap[_size] = inIndex;
+			_positions[inIndex] = _size;
+			_size++;
+			moveUp(_size - 1);
+		}
+
+		/** @return point index with the smallest area, which is removed from the heap */
+		int removeSmallest()
+		{
+			final int index = _heap[0];
+			_positions[index] = -1;
+			_size--;
+			if (_size > 0)
+			{
+				_heap[0] = _heap[_size];
+				_positions[_heap[0]] = 0;
+				moveDown(0);
+			}
+			return index;
+		}
+
+		void update(int inIndex, double inArea)
+		{
+			_areas[inIndex] = inArea;
+			moveDown(_positions[inIndex]);
+			moveUp(_positions[inIndex]);
+		}
+
+		/** @return true if the first point should be nearer the top than the second */
+		private boolean isBefore(int inIndex1, int inIndex2)
+		{
+			final double area1 = _areas[inIndex1], area2 = _areas[inIndex2];
+			// Equal areas are taken in track order
+			return area1 < area2 || (area1 == area2 && inIndex1 < inIndex2);
+		}
+
+		private void moveUp(int inPosition)
+		{
+			int pos = inPosition;
+			while (pos > 0)
+			{
+				final int parent = (pos - 1) / 2;
+				if (!isBefore(_heap[pos], _heap[parent])) {
+					break;
+				}
+				swap(pos, parent);
+				pos = parent;
+			}
+		}
+
+		private void moveDown(int inPosition)
+		{
+			int pos = inPosition;
+			while (true)
+			{
+				final int left = pos * 2 + 1, right = left + 1;
+				int smallest = pos;
+				if (left < _size && isBefore(_heap[left], _heap[smallest])) {
+					smallest = left;
+				}
+				if (right < _size && isBefore(_heap[right], _heap[smallest])) {
+					smallest = right;
+				}
+				if (smallest == pos) {
+					break;
+				}
+				swap(pos, smallest);
+				pos = smallest;
+			}
+		}
+
+		private void swap(int inPosition1, int inPosition2)
+		{
+			final int index1 = _heap[inPosition1], index2 = _heap[inPosition2];
+			_heap[inPosition1] = index2;
+			_heap[inPosition2] = index1;
+			_positions[index2] = inPosition1;
+			_positions[index1] = inPosition2;
+		}
+	}
+}
@@ -25,7 +25,9 @@ import javax.swing.event.ListSelectionEvent;
 import tim.prune.App;
 import tim.prune.GenericFunction;
 import tim.prune.I18nManager;
+import tim.prune.config.Config;
 import tim.prune.config.TimezoneHelper;
+import tim.prune.function.filesleuth.data.ContentIndex;
 import tim.prune.function.filesleuth.data.DateRange;
 import tim.prune.function.filesleuth.data.Filter;
 import tim.prune.function.filesleuth.data.LocationFilter;
@@ -90,12 +92,28 @@ public class FindFilesFunction extends GenericFunction implements DateRangeUser,
 		_trackList.addListener(idx -> updateProgressBar());
 		TimeZone timezone = TimezoneHelper.getSelectedTimezone(getConfig());
 		// Make a scan controller, which will attach itself to the list
-		_scanController = new ScanController(_trackList, timezone);
+		_scanController = new ScanController(_trackList, timezone, makeContentIndex(timezone));
 		_progressBar.setIndeterminate(true);
 		new TrackFileFinder(_trackList, _startDir, _subdirectories).begin();
 		_dialog.setVisible(true);
 	}
 
+	/**
+	 * @return index of the file contents kept in the disk cache, or null if there's no disk cache
+	 */
+	private ContentIndex makeContentIndex(TimeZone inTimezone)
+	{
+		final String cachePath = getConfig().getConfigString(Config.KEY_DISK_CACHE);
+		if (cachePath == null || cachePath.equals("")) {
+			return null;
+		}
+		File cacheDir = new File(cachePath);
+		if (!cacheDir.exists() || !cacheDir.isDirectory() || !cacheDir.canWrite()) {
+			return null;
+		}
+		return new ContentIndex(ContentIndex.getIndexFile(cacheDir, _startDir), inTimezone);
+	}
+
 	/**
 	 * @return the contents of the window as a Component
 	 */
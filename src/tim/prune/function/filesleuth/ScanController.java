@@ -2,6 +2,7 @@ package tim.prune.function.filesleuth;
 
 import java.util.*;
 
+import tim.prune.function.filesleuth.data.ContentIndex;
 import tim.prune.function.filesleuth.data.TrackContents;
 import tim.prune.function.filesleuth.data.TrackFile;
 import tim.prune.function.filesleuth.data.TrackFileList;
@@ -12,38 +13,66 @@ public class ScanController implements TrackListListener, WorkerCoordinator
 {
 	private final TrackFileList _trackList;
 	private final TimeZone _timezone;
+	private final ContentIndex _index;
 	private int _numCurrentWorkers = 0;
+	private boolean _indexSaveStarted = false;
 	private final LinkedList<AbstractFileScanner> _waitingScanners = new LinkedList<>();
 	private ScannerCreator _scannerCreator = FileScanner::new;
 
 	private static final int MAX_PARALLEL_SCANS = 10;
 
-	/** Constructor */
-	public ScanController(TrackFileList inList, TimeZone inTimezone)
+	/** Constructor without an index, so every file is scanned */
+	public ScanController(TrackFileList inList, TimeZone inTimezone) {
+		this(inList, inTimezone, null);
+	}
+
+	/**
+	 * Constructor
+	 * @param inList list of track files
+	 * @param inTimezone timezone to use for dates
+	 * @param inIndex index of previously scanned files, or null
+	 */
+	public ScanController(TrackFileList inList, TimeZone inTimezone, ContentIndex inIndex)
 	{
 		_trackList = inList;
 		_trackList.addListener(this);
 		_timezone = inTimezone;
+		_index = inIndex;
 	}
 
 	@Override
 	public void reactToTrackListChange(int inIndex)
 	{
-		List<TrackFile> tracks = _trackList.getCurrentContents();
-		for (int i=inIndex; i<tracks.size(); i++)
+		// Files which haven't changed since they were indexed don't need to be scanned again
+		LinkedHashMap<TrackFile, TrackContents> indexedFiles = new LinkedHashMap<>();
+		for (TrackFile track : _trackList.getContentsFrom(inIndex))
 		{
-			TrackFile track = tracks.get(i);
 			if (track.getStatus() == TrackFileStatus.FOUND
 					&& _trackList.claimTrackFileForScanning(track))
 			{
-				_waitingScanners.add(_scannerCreator.createScanner(track, this, _timezone));
+				TrackContents contents = (_index == null ? null : _index.getContents(track.getFile()));
+				if (contents == null) {
+					_waitingScanners.add(_scannerCreator.createScanner(track, this, _timezone));
+				}
+				else {
+					indexedFiles.put(track, contents);
+				}
 			}
 		}
+		indexedFiles.forEach(_trackList::scanComplete);
 		startWaitingScanners();
+		saveIndexIfFinished();
 	}
 
-	public synchronized void cancel() {
-		_waitingScanners.clear();
+	public void cancel()
+	{
+		synchronized (this) {
+			_waitingScanners.clear();
+		}
+		// Keep the results of the files scanned so far
+		if (_index != null) {
+			new Thread(_index::save).start();
+		}
 	}
 
 	public synchronized void startWaitingScanners()
@@ -59,11 +88,34 @@ public class ScanController implements TrackListListener, WorkerCoordinator
 	@Override
 	public void informWorkComplete(TrackFile inFile, TrackContents inContents)
 	{
+		if (_index != null && inFile != null) {
+			_index.putContents(inFile.getFile(), inContents);
+		}
 		_trackList.scanComplete(inFile, inContents);
 		synchronized (this) {
 			_numCurrentWorkers--;
 		}
 		startWaitingScanners();
+		saveIndexIfFinished();
+	}
+
+	/**
+	 * Once all the files have been found and scanned, the index is saved once,
+	 * on its own thread because this may be called while the track list is locked
+	 */
+	private void saveIndexIfFinished()
+	{
+		if (_index == null || !_trackList.isListComplete()) {
+			return;
+		}
+		synchronized (this)
+		{
+			if (_indexSaveStarted || _numCurrentWorkers > 0 || !_waitingScanners.isEmpty()) {
+				return;
+			}
+			_indexSaveStarted = true;
+		}
+		new Thread(_index::save).start();
 	}
 
 	/** TEST_ONLY: replace the scanner creator to use a different type of worker for testing */
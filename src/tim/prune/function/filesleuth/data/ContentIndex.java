@@ -0,0 +1,313 @@
+package tim.prune.function.filesleuth.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TimeZone;
+
+import tim.prune.data.DoubleRange;
+
+/**
+ * Index of the contents of track files, which is saved to disk so that
+ * only new or changed files need to be scanned again in later searches.
+ * Files are recognised by their path, size and modification time.
+ */
+public class ContentIndex
+{
+	private final File _indexFile;
+	private final TimeZone _timezone;
+	private final HashMap<String, Entry> _entries = new HashMap<>();
+	private boolean _loaded = false;
+	private boolean _changed = false;
+	/** True once the entries of missing files have been removed during this search */
+	private boolean _pruned = false;
+
+	private static final String FILE_HEADER = "GpsPrune file sleuth index";
+	private static final int FORMAT_VERSION = 1;
+	/** Limit for the length of a single string, to catch corrupted files */
+	private static final int MAX_STRING_BYTES = 10 * 1024 * 1024;
+
+	/** Contents of a single file along with its size and modification time */
+	private static class Entry
+	{
+		private final long _size;
+		private final long _modified;
+		private final TrackContents _contents;
+		private boolean _used = false;
+
+		private Entry(long inSize, long inModified, TrackContents inContents)
+		{
+			_size = inSize;
+			_modified = inModified;
+			_contents = inContents;
+		}
+	}
+
+
+	/**
+	 * Constructor
+	 * @param inIndexFile file in which to save the index
+	 * @param inTimezone timezone used for the dates of the contents
+	 */
+	public ContentIndex(File inIndexFile, TimeZone inTimezone)
+	{
+		_indexFile = inIndexFile;
+		_timezone = inTimezone;
+	}
+
+	/**
+	 * @param inCacheDir disk cache directory
+	 * @param inStartDir directory being searched
+	 * @return file to use for the index of the given search directory
+	 */
+	public static File getIndexFile(File inCacheDir, File inStartDir)
+	{
+		final int pathHash = inStartDir.getAbsolutePath().hashCode();
+		return new File(new File(inCacheDir, "filesleuth"), "index" + Integer.toHexString(pathHash) + ".dat");
+	}
+
+	/**
+	 * @param inFile file to look up
+	 * @return the indexed contents, or null if the file isn't indexed or has changed
+	 */
+	public synchronized TrackContents getContents(File inFile)
+	{
+		loadIfNecessary();
+		Entry entry = _entries.get(inFile.getAbsolutePath());
+		if (entry == null || entry._size != inFile.length() || entry._modified != inFile.lastModified()) {
+			return null;
+		}
+		entry._used = true;
+		return entry._contents;
+	}
+
+	/**
+	 * Add the newly-scanned contents of the given file to the index
+	 */
+	public synchronized void putContents(File inFile, TrackContents inContents)
+	{
+		if (inFile == null || inContents == null) {
+			return;
+		}
+		loadIfNecessary();
+		Entry entry = new Entry(inFile.length(), inFile.lastModified(), inContents);
+		entry._used = true;
+		_entries.put(inFile.getAbsolutePath(), entry);
+		_changed = true;
+	}
+
+	/** @return the number of files in the index */
+	public synchronized int getNumFiles()
+	{
+		loadIfNecessary();
+		return _entries.size();
+	}
+
+	/**
+	 * Load the index from disk if it hasn't been loaded yet,
+	 * starting with an empty index if it can't be read
+	 */
+	private void loadIfNecessary()
+	{
+		if (_loaded) {
+			return;
+		}
+		_loaded = true;
+		if (!_indexFile.exists()) {
+			return;
+		}
+		try (DataInputStream inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(_indexFile))))
+		{
+			if (!inStream.readUTF().equals(FILE_HEADER) || inStream.readInt() != FORMAT_VERSION
+				|| !inStream.readUTF().equals(getTimezoneId()))
+			{
+				// Different format or different timezone, so all files have to be scanned again
+				return;
+			}
+			final int numEntries = inStream.readInt();
+			for (int i=0; i<numEntries; i++)
+			{
+				final String path = readString(inStream);
+				final long size = inStream.readLong();
+				final long modified = inStream.readLong();
+				_entries.put(path, new Entry(size, modified, readContents(inStream)));
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Error reading file index: " + e.getMessage());
+			_entries.clear();
+		}
+	}
+
+	/**
+	 * Save the index to disk if it has changed, leaving out the files
+	 * which weren't found during this search and which no longer exist.
+	 * The check for missing files is only done the first time.
+	 * @return true if the index didn't need saving or was saved successfully
+	 */
+	public synchronized boolean save()
+	{
+		if (!_pruned)
+		{
+			_pruned = true;
+			for (Iterator<Map.Entry<String, Entry>> iter = _entries.entrySet().iterator(); iter.hasNext(); )
+			{
+				Map.Entry<String, Entry> entry = iter.next();
+				if (!entry.getValue()._used && !new File(entry.getKey()).exists())
+				{
+					iter.remove();
+					_changed = true;
+				}
+			}
+		}
+		if (!_changed) {
+			return true;
+		}
+		File indexDir = _indexFile.getParentFile();
+		if (indexDir != null && !indexDir.exists() && !indexDir.mkdirs()) {
+			return false;
+		}
+		// Write to a temporary file first so that a failure doesn't leave a partial index
+		File tempFile = new File(indexDir, _indexFile.getName() + ".tmp");
+		try
+		{
+			try (DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+			{
+				outStream.writeUTF(FILE_HEADER);
+				outStream.writeInt(FORMAT_VERSION);
+				outStream.writeUTF(getTimezoneId());
+				outStream.writeInt(_entries.size());
+				for (Map.Entry<String, Entry> entry : _entries.entrySet())
+				{
+					writeString(outStream, entry.getKey());
+					outStream.writeLong(entry.getValue()._size);
+					outStream.writeLong(entry.getValue()._modified);
+					writeContents(outStream, entry.getValue()._contents);
+				}
+			}
+			Files.move(tempFile.toPath(), _indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			_changed = false;
+			return true;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Error saving file index: " + e.getMessage());
+			tempFile.delete();
+			return false;
+		}
+	}
+
+	/** @return id of the timezone, which must match for the index to be used */
+	private String getTimezoneId() {
+		return _timezone == null ? "" : _timezone.getID();
+	}
+
+	private static void writeContents(DataOutputStream inStream, TrackContents inContents)
+		throws IOException
+	{
+		writeString(inStream, inContents.getNameOrDescription());
+		DateRange dateRange = inContents.getDateRange();
+		writeString(inStream, dateRange.getDateFrom() == null ? "" : dateRange.getDateFrom().toString());
+		writeString(inStream, dateRange.getDateTo() == null ? "" : dateRange.getDateTo().toString());
+		inStream.writeInt(inContents.getNumStrings());
+		if (inContents.getNumStrings() > 0)
+		{
+			for (String s : inContents.getStrings()) {
+				writeString(inStream, s);
+			}
+		}
+		// Bounds are saved as the latitude range followed by each of the longitude ranges
+		TrackBounds bounds = inContents.getBounds();
+		writeRange(inStream, bounds.getLatitudeRange());
+		int numLongitudeRanges = 0;
+		for (DoubleRange range : bounds.getLongitudeRanges())
+		{
+			if (range.hasData()) {
+				numLongitudeRanges++;
+			}
+		}
+		inStream.writeInt(numLongitudeRanges);
+		for (DoubleRange range : bounds.getLongitudeRanges())
+		{
+			if (range.hasData()) {
+				writeRange(inStream, range);
+			}
+		}
+	}
+
+	private static void writeRange(DataOutputStream inStream, DoubleRange inRange)
+		throws IOException
+	{
+		inStream.writeBoolean(inRange.hasData());
+		if (inRange.hasData())
+		{
+			inStream.writeDouble(inRange.getMinimum());
+			inStream.writeDouble(inRange.getMaximum());
+		}
+	}
+
+	private TrackContents readContents(DataInputStream inStream) throws IOException
+	{
+		TrackContents contents = new TrackContents(_timezone);
+		contents.setName(readString(inStream));
+		contents.setDateRange(Date.parseString(readString(inStream)), Date.parseString(readString(inStream)));
+		final int numStrings = inStream.readInt();
+		for (int i=0; i<numStrings; i++) {
+			contents.addString(readString(inStream));
+		}
+		final double[] latitudes = readRange(inStream);
+		final int numLongitudeRanges = inStream.readInt();
+		for (int i=0; i<numLongitudeRanges; i++)
+		{
+			final double[] longitudes = readRange(inStream);
+			if (latitudes != null && longitudes != null)
+			{
+				// Adding the two corners restores both the latitude range and this longitude range
+				contents.addCoordinates(latitudes[0], longitudes[0]);
+				contents.addCoordinates(latitudes[1], longitudes[1]);
+			}
+		}
+		return contents;
+	}
+
+	/** @return minimum and maximum values, or null if the range was empty */
+	private static double[] readRange(DataInputStream inStream) throws IOException
+	{
+		if (!inStream.readBoolean()) {
+			return null;
+		}
+		final double minimum = inStream.readDouble();
+		return new double[] {minimum, inStream.readDouble()};
+	}
+
+	/** Write a string of any length, unlike DataOutputStream.writeUTF */
+	private static void writeString(DataOutputStream inStream, String inString) throws IOException
+	{
+		byte[] bytes = inString.getBytes(StandardCharsets.UTF_8);
+		inStream.writeInt(bytes.length);
+		inStream.write(bytes);
+	}
+
+	private static String readString(DataInputStream inStream) throws IOException
+	{
+		final int numBytes = inStream.readInt();
+		if (numBytes < 0 || numBytes > MAX_STRING_BYTES) {
+			throw new IOException("Invalid string length " + numBytes);
+		}
+		byte[] bytes = new byte[numBytes];
+		inStream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -31,6 +31,14 @@ public class TrackBounds
 		_longitudeRanges[pocket].addValue(inLongitude);
 	}
 
+	DoubleRange getLatitudeRange() {
+		return _latitudeRange;
+	}
+
+	DoubleRange[] getLongitudeRanges() {
+		return _longitudeRanges;
+	}
+
 	/** @return which pocket the given longitude belongs to */
 	private static int getPocket(double inLongitude) {
 		return ((int) (inLongitude + 180.0)) / 10;
@@ -93,6 +93,13 @@ public class TrackContents
 		return new DateRange(_dateFrom, _dateTo);
 	}
 
+	/** Set the date range directly, when restoring the contents from the index */
+	void setDateRange(Date inFrom, Date inTo)
+	{
+		_dateFrom = inFrom;
+		_dateTo = inTo;
+	}
+
 	public boolean matchesDateFilter(DateRange inFilter) {
 		return inFilter.overlaps(getDateRange());
 	}
@@ -101,6 +108,10 @@ public class TrackContents
 		_trackBounds.addCoordinates(inLatitude, inLongitude);
 	}
 
+	TrackBounds getBounds() {
+		return _trackBounds;
+	}
+
 	/**
 	 * Note, this is just the _coarse_ location filter
 	 * using the bounding rectangle. If this matches, then
@@ -11,7 +11,7 @@ public class TrackFileList
 	/** List of track files including their contents */
 	private final ArrayList<TrackFile> _tracks = new ArrayList<>();
 	private final ArrayList<TrackListListener> _listeners = new ArrayList<>();
-	private boolean _listComplete = false;
+	private volatile boolean _listComplete = false;
 
 
 	public synchronized void clear()
@@ -32,8 +32,11 @@ public class TrackFileList
 		return _listComplete;
 	}
 
-	public void setListComplete() {
+	/** All the files have been found, so the listeners are informed, without holding the lock */
+	public void setListComplete()
+	{
 		_listComplete = true;
+		triggerListeners(getCurrentSize());
 	}
 
 	/**
@@ -79,4 +82,9 @@ public class TrackFileList
 	public synchronized List<TrackFile> getCurrentContents() {
 		return List.copyOf(_tracks);
 	}
+
+	/** Make a shallow copy of just the end of the list, starting from the given index */
+	public synchronized List<TrackFile> getContentsFrom(int inIndex) {
+		return List.copyOf(_tracks.subList(Math.min(Math.max(inIndex, 0), _tracks.size()), _tracks.size()));
+	}
 }
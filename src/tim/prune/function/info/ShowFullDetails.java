@@ -33,9 +33,9 @@ import tim.prune.data.Photo;
 import tim.prune.data.RangeStatsWithGradients;
 import tim.prune.data.Selection;
 import tim.prune.data.SourceInfo;
-import tim.prune.data.SpeedCalculator;
 import tim.prune.data.SpeedValue;
 import tim.prune.data.Track;
+import tim.prune.data.TrackMotion;
 import tim.prune.data.Unit;
 import tim.prune.data.UnitSet;
 import tim.prune.gui.CoordDisplay;
@@ -231,13 +231,16 @@ public class ShowFullDetails extends GenericFunction
 	private SpeedValue calculateMaxSpeed(Track inTrack, int inStartIndex, int inEndIndex)
 	{
 		SpeedValue maxSpeed = new SpeedValue();
-		SpeedValue currSpeed = new SpeedValue();
+		TrackMotion motion = inTrack.getMotion();
+		final Unit speedUnit = getConfig().getUnitSet().getSpeedUnit();
 		for (int i=inStartIndex; i<=inEndIndex; i++)
 		{
-			SpeedCalculator.calculateSpeed(inTrack, i, getConfig().getUnitSet(), currSpeed);
-			if (currSpeed.isValid() && (!maxSpeed.isValid() || currSpeed.getValue() > maxSpeed.getValue()))
+			if (motion.hasHorizontalSpeed(i))
 			{
-				maxSpeed.setValue(currSpeed.getValue());
+				final double speed = motion.getHorizontalSpeed(i, speedUnit);
+				if (!maxSpeed.isValid() || speed > maxSpeed.getValue()) {
+					maxSpeed.setValue(speed);
+				}
 			}
 		}
 		return maxSpeed;
@@ -288,21 +291,21 @@ public class ShowFullDetails extends GenericFunction
 		addTextPair(result, "fieldname.waypointtype", point.getFieldValue(Field.WAYPT_TYPE));
 
 		// Speed can come from either timestamps and distances, or speed values in data
-		SpeedValue speedValue = new SpeedValue();
-		SpeedCalculator.calculateSpeed(inTrack, inPointIndex, unitSet, speedValue);
-		if (speedValue.isValid())
+		TrackMotion motion = inTrack.getMotion();
+		if (motion.hasHorizontalSpeed(inPointIndex))
 		{
-			final String speedUnitsStr = I18nManager.getText(unitSet.getSpeedUnit().getShortnameKey());
-			String speed = DisplayUtils.roundedNumber(speedValue.getValue());
+			final Unit speedUnit = unitSet.getSpeedUnit();
+			final String speedUnitsStr = I18nManager.getText(speedUnit.getShortnameKey());
+			String speed = DisplayUtils.roundedNumber(motion.getHorizontalSpeed(inPointIndex, speedUnit));
 			addTextPair(result, "fieldname.speed", speed, speedUnitsStr);
 		}
 
 		// Now do the vertical speed in the same way
-		SpeedCalculator.calculateVerticalSpeed(inTrack, inPointIndex, unitSet, speedValue);
-		if (speedValue.isValid())
+		if (motion.hasVerticalSpeed(inPointIndex))
 		{
-			final String vSpeedUnitsStr = I18nManager.getText(unitSet.getVerticalSpeedUnit().getShortnameKey());
-			String speed = DisplayUtils.roundedNumber(speedValue.getValue());
+			final Unit vSpeedUnit = unitSet.getVerticalSpeedUnit();
+			final String vSpeedUnitsStr = I18nManager.getText(vSpeedUnit.getShortnameKey());
+			String speed = DisplayUtils.roundedNumber(motion.getVerticalSpeed(inPointIndex, vSpeedUnit));
 			addTextPair(result, "fieldname.verticalspeed", speed, vSpeedUnitsStr);
 		}
 
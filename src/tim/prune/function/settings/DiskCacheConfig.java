@@ -6,6 +6,7 @@ import java.awt.FlowLayout;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.io.IOException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
@@ -16,6 +17,7 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EtchedBorder;
 
 import tim.prune.App;
@@ -25,6 +27,10 @@ import tim.prune.I18nManager;
 import tim.prune.UpdateMessageBroker;
 import tim.prune.config.Config;
 import tim.prune.function.cache.ManageCacheFunction;
+import tim.prune.gui.ProgressDialog;
+import tim.prune.gui.map.MapSource;
+import tim.prune.gui.map.MapSourceLibrary;
+import tim.prune.gui.map.tile.TilePackMigrator;
 
 /**
  * Class to show the popup window for setting the path to disk cache
@@ -32,12 +38,14 @@ import tim.prune.function.cache.ManageCacheFunction;
 public class DiskCacheConfig extends GenericFunction
 {
 	private JDialog _dialog = null;
-	private JCheckBox _cacheCheckbox = null;
+	private JCheckBox _cacheCheckbox = null, _packedCheckbox = null;
 	private JTextField _cacheDirBox = null;
 	private JButton _browseButton = null;
 	private JButton _okButton = null, _manageButton = null;
-	private boolean _initialCheckState = false;
+	private boolean _initialCheckState = false, _initialPackedState = false;
 	private String _initialCacheDir = null;
+	/** Flag set by the progress dialog to stop copying tiles into pack files */
+	private volatile boolean _migrationCancelled = false;
 
 	/**
 	 * Constructor
@@ -89,6 +97,9 @@ public class DiskCacheConfig extends GenericFunction
 		JPanel dirHolderPanel = new JPanel();
 		dirHolderPanel.setLayout(new BorderLayout());
 		dirHolderPanel.add(dirPanel, BorderLayout.NORTH);
+		_packedCheckbox = new JCheckBox(I18nManager.getText("dialog.diskcache.packed"));
+		_packedCheckbox.addActionListener(e -> enableButtons());
+		dirHolderPanel.add(_packedCheckbox, BorderLayout.SOUTH);
 		dialogPanel.add(dirHolderPanel, BorderLayout.CENTER);
 
 		// OK, Cancel buttons at the bottom right
@@ -131,6 +142,7 @@ public class DiskCacheConfig extends GenericFunction
 		final String path = _cacheDirBox.getText();
 		_cacheDirBox.setEditable(checkState);
 		_browseButton.setEnabled(checkState);
+		_packedCheckbox.setEnabled(checkState);
 		boolean ok = false;
 		// If checkbox has stayed off then disable ok
 		if (!_initialCheckState && !checkState) {
@@ -143,7 +155,9 @@ public class DiskCacheConfig extends GenericFunction
 			if (checkState)
 			{
 				// checkbox is on, check value
-				if (path.equals("") || path.equals(_initialCacheDir)) {
+				if (path.equals("") || (path.equals(_initialCacheDir)
+					&& _packedCheckbox.isSelected() == _initialPackedState))
+				{
 					// Value blank or same as before
 					ok = false;
 				}
@@ -177,6 +191,8 @@ public class DiskCacheConfig extends GenericFunction
 		_cacheCheckbox.setSelected(currPath != null);
 		_cacheDirBox.setText(currPath==null?"":currPath);
 		_initialCacheDir = currPath;
+		_initialPackedState = getConfig().getConfigBoolean(Config.KEY_DISK_CACHE_PACKED);
+		_packedCheckbox.setSelected(_initialPackedState);
 		enableButtons();
 		// Remember current state
 		_initialCheckState = _cacheCheckbox.isSelected();
@@ -227,7 +243,64 @@ public class DiskCacheConfig extends GenericFunction
 			}
 		}
 		getConfig().setConfigString(Config.KEY_DISK_CACHE, cachePath);
+		final boolean packed = _packedCheckbox.isSelected();
+		getConfig().setConfigBoolean(Config.KEY_DISK_CACHE_PACKED, packed);
+		// Offer to copy the existing tiles into the pack files
+		if (cachePath != null && packed && !_initialPackedState
+			&& JOptionPane.showConfirmDialog(_dialog, I18nManager.getText("dialog.diskcache.migrate"),
+				getName(), JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION)
+		{
+			_migrationCancelled = false;
+			ProgressDialog progress = new ProgressDialog(_parentFrame, getNameKey(), null,
+				() -> _migrationCancelled = true);
+			progress.show();
+			new Thread(() -> migrateTiles(cachePath, progress)).start();
+		}
 		// inform subscribers so that tiles are wiped from memory and refetched
 		UpdateMessageBroker.informSubscribers(DataSubscriber.MAPSERVER_CHANGED);
 	}
+
+	/**
+	 * Copy the tiles of all the map sources from the directory layout into pack files
+	 * @param inCachePath path to the disk cache
+	 * @param inProgress progress dialog, updated after each layer
+	 */
+	private void migrateTiles(String inCachePath, ProgressDialog inProgress)
+	{
+		int numLayers = 0;
+		for (int i=0; i<MapSourceLibrary.getNumSources(); i++) {
+			numLayers += MapSourceLibrary.getSource(i).getNumLayers();
+		}
+		final int totalLayers = numLayers;
+		int numCopied = 0, numLayersDone = 0;
+		try
+		{
+			for (int i=0; i<MapSourceLibrary.getNumSources() && !_migrationCancelled; i++)
+			{
+				MapSource source = MapSourceLibrary.getSource(i);
+				for (int l=0; l<source.getNumLayers() && !_migrationCancelled; l++)
+				{
+					numCopied += TilePackMigrator.migrate(inCachePath, source.getSiteName(l));
+					final int layersDone = ++numLayersDone;
+					SwingUtilities.invokeLater(() -> inProgress.showProgress(layersDone, totalLayers));
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			final String message = e.getMessage();
+			SwingUtilities.invokeLater(() -> {
+				inProgress.close();
+				_app.showErrorMessageNoLookup(getNameKey(), message);
+			});
+			return;
+		}
+		final int numTiles = numCopied;
+		SwingUtilities.invokeLater(() -> {
+			inProgress.close();
+			JOptionPane.showMessageDialog(_parentFrame,
+				I18nManager.getTextWithNumber("dialog.diskcache.migrated", numTiles),
+				getName(), JOptionPane.INFORMATION_MESSAGE);
+		});
+	}
 }
@@ -66,26 +66,26 @@ public class Interpolator
 	 * Calculate the altitude for the given point
 	 * @param inLongDegrees longitude of point to get the altitude for
 	 * @param inLatDegrees latitude of point to get the altitude for
-	 * @param inHeights height array from tile
+	 * @param inHeights decoded heights of the tile
 	 * @param inIsNormalTrack true if track is a normal track, false for a terrain track
-	 * @param inTilePixelsPerSide number of pixels per side of tile
 	 * @return the altitude
 	 */
 	public static double calculateAltitude(double inLongDegrees, double inLatDegrees,
-		int[] inHeights, boolean inIsNormalTrack, int inTilePixelsPerSide)
+		SrtmHeights inHeights, boolean inIsNormalTrack)
 	{
+		final int tilePixels = inHeights.getTilePixels();
 		final double xFractionDegree = inLongDegrees - Math.floor(inLongDegrees);
 		final double yFractionDegree = inLatDegrees - Math.floor(inLatDegrees);
-		final double xPixels = xFractionDegree * (inTilePixelsPerSide-1);
-		final double yPixelsUp = yFractionDegree * (inTilePixelsPerSide-1);
+		final double xPixels = xFractionDegree * (tilePixels-1);
+		final double yPixelsUp = yFractionDegree * (tilePixels-1);
 		final double xFracPixel = xPixels - Math.floor(xPixels);
-		final int wholePixelsDown = inTilePixelsPerSide - 2 - (int) Math.floor(yPixelsUp);
+		final int wholePixelsDown = tilePixels - 2 - (int) Math.floor(yPixelsUp);
 		final double yFracPixelDown = 1.0 - (yPixelsUp - Math.floor(yPixelsUp));
-		final int topLeftIndex = wholePixelsDown * inTilePixelsPerSide + (int) Math.floor(xPixels);
+		final int topLeftIndex = wholePixelsDown * tilePixels + (int) Math.floor(xPixels);
 
-		int[] fouralts = {inHeights[topLeftIndex + inTilePixelsPerSide],
-			inHeights[topLeftIndex + inTilePixelsPerSide + 1],
-			inHeights[topLeftIndex], inHeights[topLeftIndex + 1]};
+		int[] fouralts = {inHeights.getHeight(topLeftIndex + tilePixels),
+			inHeights.getHeight(topLeftIndex + tilePixels + 1),
+			inHeights.getHeight(topLeftIndex), inHeights.getHeight(topLeftIndex + 1)};
 		final int numVoids = (fouralts[0]==SrtmSource.VOID_VAL?1:0) + (fouralts[1]==SrtmSource.VOID_VAL?1:0)
 			+ (fouralts[2]==SrtmSource.VOID_VAL?1:0) + (fouralts[3]==SrtmSource.VOID_VAL?1:0);
 
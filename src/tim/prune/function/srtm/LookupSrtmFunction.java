@@ -1,7 +1,6 @@
 package tim.prune.function.srtm;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.CookieHandler;
 import java.net.CookieManager;
@@ -9,7 +8,14 @@ import java.net.CookiePolicy;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -43,12 +49,17 @@ public class LookupSrtmFunction extends GenericFunction
 	/** Flag for whether this is a real track or a terrain one */
 	private boolean _normalTrack = true;
 	/** Flag set when any tiles had to be downloaded (but not cached) */
-	private boolean _hadToDownload = false;
+	private volatile boolean _hadToDownload = false;
 	/** Count the number of tiles downloaded and cached */
-	private int _numCached = 0;
+	private final AtomicInteger _numCached = new AtomicInteger();
+	/** Message from the most recent error, if any */
+	private volatile String _errorMessage = null;
 	/** Flag to check whether this function is currently running or not */
 	private boolean _running = false;
-	private boolean _cancelled = false;
+	private volatile boolean _cancelled = false;
+
+	/** Maximum number of tiles to fetch at the same time */
+	private static final int MAX_THREADS = 4;
 
 
 	/**
@@ -129,21 +140,22 @@ public class LookupSrtmFunction extends GenericFunction
 			overwriteZeros = true;
 		}
 
-		// Now loop again to extract the required tiles
-		HashSet<SrtmTile> tileSet = new HashSet<SrtmTile>();
+		// Now loop again to collect the required points for each tile
+		LinkedHashMap<SrtmTile, List<Integer>> tilePoints = new LinkedHashMap<>();
 		for (int i = 0; i < _track.getNumPoints(); i++)
 		{
 			// Consider points which don't have altitudes or have zero values
-			if (!_track.getPoint(i).hasAltitude()
-				|| (overwriteZeros && _track.getPoint(i).getAltitude().getValue() == 0))
+			DataPoint point = _track.getPoint(i);
+			if (!point.hasAltitude()
+				|| (overwriteZeros && point.getAltitude().getValue() == 0))
 			{
-				tileSet.add(new SrtmTile(_track.getPoint(i)));
+				tilePoints.computeIfAbsent(new SrtmTile(point), tile -> new ArrayList<>()).add(i);
 			}
 		}
 
 		CookieHandler regularCookieHandler = CookieHandler.getDefault();
 		CookieHandler.setDefault(new CookieManager(null, CookiePolicy.ACCEPT_ALL));
-		lookupValues(tileSet, overwriteZeros);
+		lookupValues(tilePoints);
 		CookieHandler.setDefault(regularCookieHandler);
 
 		// Finished
@@ -152,55 +164,59 @@ public class LookupSrtmFunction extends GenericFunction
 		if (_hadToDownload) {
 			_app.showTip(TipManager.Tip_DownloadSrtm);
 		}
-		else if (_numCached > 0) {
-			showConfirmMessage(_numCached);
+		else if (_numCached.get() > 0) {
+			showConfirmMessage(_numCached.get());
 		}
 	}
 
 
 	/**
-	 * Lookup the values from SRTM data
-	 * @param inTileSet set of tiles to get
-	 * @param inOverwriteZeros true to overwrite zero altitude values
+	 * Lookup the values from SRTM data, fetching several tiles at once
+	 * @param inTilePoints indexes of the points to look up for each tile
 	 */
-	private void lookupValues(HashSet<SrtmTile> inTileSet, boolean inOverwriteZeros)
+	private void lookupValues(Map<SrtmTile, List<Integer>> inTilePoints)
 	{
 		final String diskCachePath = getConfig().getConfigString(Config.KEY_DISK_CACHE);
 		SrtmSource[] tileSources = new SrtmSource[] {
 			new SrtmHighResSource(diskCachePath, getConfig().getConfigString(Config.KEY_EARTHDATA_AUTH)),
 			new SrtmLowResSource(diskCachePath)};
-		String errorMessage = null;
-		final int numTiles = inTileSet.size();
+		_errorMessage = null;
+		final int numTiles = inTilePoints.size();
 
 		// Update progress bar
 		if (_progress != null) {
 			_progress.showProgress(0, numTiles);
 		}
-		int currentTileIndex = 0;
-		_numCached = 0;
+		AtomicInteger numTilesDone = new AtomicInteger();
+		_numCached.set(0);
+		final int numThreads = Math.max(1, Math.min(MAX_THREADS, numTiles));
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<List<PointAltitudeEdit>>> futures = new ArrayList<>();
+		for (Map.Entry<SrtmTile, List<Integer>> entry : inTilePoints.entrySet())
+		{
+			futures.add(executor.submit(() -> {
+				List<PointAltitudeEdit> tileEdits = lookupTile(entry.getKey(), entry.getValue(), tileSources);
+				_progress.showProgress(numTilesDone.incrementAndGet(), numTiles);
+				return tileEdits;
+			}));
+		}
+		executor.shutdown();
 		ArrayList<PointAltitudeEdit> edits = new ArrayList<PointAltitudeEdit>();
-		for (SrtmTile tile : inTileSet)
+		for (Future<List<PointAltitudeEdit>> future : futures)
 		{
-			// Set progress
-			_progress.showProgress(currentTileIndex++, numTiles);
-			int[] heights = null;
-			for (SrtmSource tileSource : tileSources)
-			{
-				if (heights == null && !_cancelled)
-				{
-					try
-					{
-						heights = getHeightsForTile(tile, tileSource);
-						edits.addAll(applySrtmTileToWholeTrack(tile, heights, inOverwriteZeros,
-							tileSource.getTilePixels()));
-					}
-					catch (IOException ioe) {
-						errorMessage = ioe.getClass().getName() + " - " + ioe.getMessage();
-					} catch (SrtmAuthException authExc) {
-						errorMessage = I18nManager.getText("error.srtm.authenticationfailed") + " - " + authExc.getMessage();
-					}
-				}
+			if (_cancelled) {
+				break;
+			}
+			try {
+				edits.addAll(future.get());
 			}
+			catch (ExecutionException e) {
+				_errorMessage = e.getCause().getClass().getName() + " - " + e.getCause().getMessage();
+			}
+			catch (InterruptedException ignored) {}
+		}
+		if (_cancelled) {
+			executor.shutdownNow();
 		}
 
 		_progress.close();
@@ -208,8 +224,8 @@ public class LookupSrtmFunction extends GenericFunction
 			return;
 		}
 
-		if (errorMessage != null) {
-			_app.showErrorMessageNoLookup(getNameKey(), errorMessage);
+		if (_errorMessage != null) {
+			_app.showErrorMessageNoLookup(getNameKey(), _errorMessage);
 		}
 		if (!edits.isEmpty())
 		{
@@ -234,101 +250,96 @@ public class LookupSrtmFunction extends GenericFunction
 	}
 
 	/**
-	 * Get the height array for the given tile, using the given source
+	 * Get the heights for a single tile and use them for its points,
+	 * trying each of the sources in turn
 	 * @param inTile tile to get data for
-	 * @param inTileSource tile source to use
-	 * @return int array containing heights
-	 * @throws IOException on IO failure
-	 * @throws SrtmAuthException on authentication failure
+	 * @param inPointIndexes indexes of the points within this tile
+	 * @param inTileSources sources to try
+	 * @return list of edits for the points
 	 */
-	private int[] getHeightsForTile(SrtmTile inTile, SrtmSource inTileSource)
-		throws IOException, SrtmAuthException
+	private List<PointAltitudeEdit> lookupTile(SrtmTile inTile, List<Integer> inPointIndexes,
+		SrtmSource[] inTileSources)
 	{
-		int[] heights = null;
-		// Open zipinputstream on url and check size
-		ZipInputStream inStream = getStreamToSrtmData(inTile, inTileSource);
-		boolean entryOk = false;
-		if (inStream != null)
+		for (SrtmSource tileSource : inTileSources)
 		{
-			ZipEntry entry = inStream.getNextEntry();
-			entryOk = (entry != null && entry.getSize() == inTileSource.getTileSizeBytes());
-			if (entryOk)
+			if (_cancelled) {
+				break;
+			}
+			try
 			{
-				final int ARRLENGTH = inTileSource.getTilePixels() * inTileSource.getTilePixels();
-				heights = new int[ARRLENGTH];
-
-				// Read entire file contents into one byte array
-				for (int i = 0; i < ARRLENGTH; i++)
-				{
-					heights[i] = inStream.read() * 256 + inStream.read();
-					if (heights[i] >= 32768) {heights[i] -= 65536;}
+				SrtmHeights heights = getHeightsForTile(inTile, tileSource);
+				if (heights != null) {
+					return applySrtmTileToPoints(inPointIndexes, heights);
 				}
 			}
-			// Close stream from url
-			inStream.close();
-		}
-
-		if (!entryOk) {
-			heights = null;
+			catch (IOException ioe) {
+				_errorMessage = ioe.getClass().getName() + " - " + ioe.getMessage();
+			} catch (SrtmAuthException authExc) {
+				_errorMessage = I18nManager.getText("error.srtm.authenticationfailed") + " - " + authExc.getMessage();
+			}
 		}
-		return heights;
+		return new ArrayList<>();
 	}
 
 	/**
+	 * Get the heights for the given tile, using the given source.
 	 * See whether the SRTM file is already available locally first, then try online
-	 * @param inTile tile to get
-	 * @param inSrtmSource source of data to use
-	 * @return ZipInputStream either on the local file or on the downloaded zip file
-	 * @throws SrtmAuthException if authentication failed
+	 * @param inTile tile to get data for
+	 * @param inTileSource tile source to use
+	 * @return decoded heights, or null if not available
+	 * @throws IOException on IO failure
+	 * @throws SrtmAuthException on authentication failure
 	 */
-	private ZipInputStream getStreamToSrtmData(SrtmTile inTile, SrtmSource inSrtmSource)
-	throws IOException, SrtmAuthException
+	private SrtmHeights getHeightsForTile(SrtmTile inTile, SrtmSource inTileSource)
+		throws IOException, SrtmAuthException
 	{
-		ZipInputStream localData = null;
-		try {
-			localData = getStreamToLocalHgtFile(inSrtmSource.getCacheDir(),
-				inSrtmSource.getFilename(inTile));
-		}
-		catch (IOException ioe) {
-			localData = null;
-		}
-		if (localData != null)
+		final int tilePixels = inTileSource.getTilePixels();
+		File localFile = getLocalHgtFile(inTileSource.getCacheDir(), inTileSource.getFilename(inTile));
+		if (localFile != null)
 		{
-			return localData;
+			SrtmHeights heights = SrtmHeightCache.getSharedCache().getHeights(localFile, tilePixels);
+			if (heights != null) {
+				return heights;
+			}
+			// Zip file is corrupt or holds the wrong tile, so delete it to let it be downloaded again
+			localFile.delete();
 		}
 		// try to download to cache
-		SrtmSource.Result result = inSrtmSource.downloadTile(inTile);
+		SrtmSource.Result result = inTileSource.downloadTile(inTile);
 		if (result == SrtmSource.Result.DOWNLOADED)
 		{
-			_numCached++;
-			return getStreamToLocalHgtFile(inSrtmSource.getCacheDir(), inSrtmSource.getFilename(inTile));
+			_numCached.incrementAndGet();
+			localFile = getLocalHgtFile(inTileSource.getCacheDir(), inTileSource.getFilename(inTile));
+			return (localFile == null ? null : SrtmHeightCache.getSharedCache().getHeights(localFile, tilePixels));
 		}
-		if (result == SrtmSource.Result.NOT_ENABLED) {
+		if (result == SrtmSource.Result.NOT_ENABLED || result == SrtmSource.Result.DOWNLOAD_FAILED) {
 			return null;
 		}
 		// If we don't have a cache, we may be able to download it temporarily
-		if (result != SrtmSource.Result.DOWNLOAD_FAILED)
+		_hadToDownload = true;
+		URL tileUrl = inTileSource.getUrl(inTile);
+		if (tileUrl == null) {
+			return null;
+		}
+		URLConnection conn = tileUrl.openConnection();
+		conn.setRequestProperty("User-Agent", "GpsPrune v" + GpsPrune.VERSION_NUMBER);
+		try (ZipInputStream inStream = new ZipInputStream(conn.getInputStream()))
 		{
-			_hadToDownload = true;
-			URL tileUrl = inSrtmSource.getUrl(inTile);
-			if (tileUrl == null) {
-				return null;
+			ZipEntry entry = inStream.getNextEntry();
+			if (entry != null && entry.getSize() == inTileSource.getTileSizeBytes()) {
+				return SrtmHeightCache.readHeights(inStream, tilePixels);
 			}
-			URLConnection conn = tileUrl.openConnection();
-			conn.setRequestProperty("User-Agent", "GpsPrune v" + GpsPrune.VERSION_NUMBER);
-			return new ZipInputStream(conn.getInputStream());
 		}
-		// everything failed
 		return null;
 	}
 
 	/**
 	 * Get the SRTM file from the local cache, if available
+	 * @param inCacheDir cache directory
 	 * @param inFilename filename to look for
-	 * @return ZipInputStream on the local file or null if not there
+	 * @return local zip file or null if not there
 	 */
-	private ZipInputStream getStreamToLocalHgtFile(File inCacheDir, String inFilename)
-	throws IOException
+	private static File getLocalHgtFile(File inCacheDir, String inFilename)
 	{
 		if (inCacheDir != null && inCacheDir.exists()
 			&& inCacheDir.isDirectory() && inCacheDir.canRead())
@@ -338,45 +349,33 @@ public class LookupSrtmFunction extends GenericFunction
 				&& srtmFile.length() > 400)
 			{
 				// File found, use this one
-				return new ZipInputStream(new FileInputStream(srtmFile));
+				return srtmFile;
 			}
 		}
 		return null;
 	}
 
 	/**
-	 * Given the height data read in from file, generate the edits to modify the track
-	 * @param inTile tile being applied
-	 * @param inHeights height data read in from file
-	 * @param inOverwriteZeros true to overwrite zero altitude values
-	 * @param inTilePixelsPerSide number of pixels on side of tile
+	 * Given the height data read in from file, generate the edits for the points in this tile
+	 * @param inPointIndexes indexes of the points within the tile
+	 * @param inHeights decoded heights of the tile
 	 * @return list of edits to apply
 	 */
-	private ArrayList<PointAltitudeEdit> applySrtmTileToWholeTrack(SrtmTile inTile, int[] inHeights,
-		boolean inOverwriteZeros, int inTilePixelsPerSide)
+	private List<PointAltitudeEdit> applySrtmTileToPoints(List<Integer> inPointIndexes, SrtmHeights inHeights)
 	{
 		ArrayList<PointAltitudeEdit> edits = new ArrayList<>();
-		if (inHeights == null) {
-			return edits;
-		}
-		// Loop over all points in track, try to apply altitude from array
-		for (int p = 0; p < _track.getNumPoints(); p++)
+		for (int p : inPointIndexes)
 		{
 			DataPoint point = _track.getPoint(p);
-			final boolean doCalculation = !point.hasAltitude()
-				|| (inOverwriteZeros && point.getAltitude().getValue() == 0);
-			if (doCalculation && inTile.contains(point))
+			final double altitude = Interpolator.calculateAltitude(point.getLongitude().getDouble(),
+				point.getLatitude().getDouble(), inHeights, _normalTrack);
+			if (altitude != SrtmSource.VOID_VAL)
 			{
-				final double altitude = Interpolator.calculateAltitude(point.getLongitude().getDouble(),
-					point.getLatitude().getDouble(), inHeights, _normalTrack, inTilePixelsPerSide);
-				if (altitude != SrtmSource.VOID_VAL)
-				{
-					// Found an altitude, so create a command for it
-					// (use UK Locale to force a decimal point when rounding the decimal value
-					// instead of using the locale-specific character like comma)
-					String roundedValue = NumberUtils.formatNumberUk(altitude, 3);
-					edits.add(new PointAltitudeEdit(p, roundedValue, UnitSetLibrary.UNITS_METRES));
-				}
+				// Found an altitude, so create a command for it
+				// (use UK Locale to force a decimal point when rounding the decimal value
+				// instead of using the locale-specific character like comma)
+				String roundedValue = NumberUtils.formatNumberUk(altitude, 3);
+				edits.add(new PointAltitudeEdit(p, roundedValue, UnitSetLibrary.UNITS_METRES));
 			}
 		}
 		return edits;
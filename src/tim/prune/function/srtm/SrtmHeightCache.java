@@ -0,0 +1,246 @@
+package tim.prune.function.srtm;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Cache of decoded SRTM tiles, shared by all the altitude lookups.
+ * Each zipped tile in the disk cache is unpacked once into a plain hgt file
+ * next to it, which is then memory-mapped in bands of rows instead of being inflated again.
+ * The tiles are kept until the total size of their mapped bands exceeds the limit,
+ * and then the least recently used tiles are dropped first.
+ */
+public class SrtmHeightCache
+{
+	/** Tiles in order of access, least recently used first */
+	private final LinkedHashMap<File, SrtmHeights> _tiles = new LinkedHashMap<>(16, 0.75f, true);
+	/** Size limit in bytes */
+	private final long _maxBytes;
+	/** Size of the cached tiles in bytes */
+	private long _currentBytes = 0L;
+
+	/** Default size limit in megabytes */
+	public static final int DEFAULT_LIMIT_MB = 512;
+	/** The cache shared by all the lookups */
+	private static final SrtmHeightCache SHARED_CACHE = new SrtmHeightCache(DEFAULT_LIMIT_MB * 1024L * 1024L);
+
+
+	/**
+	 * Constructor
+	 * @param inMaxBytes size limit in bytes
+	 */
+	SrtmHeightCache(long inMaxBytes) {
+		_maxBytes = inMaxBytes;
+	}
+
+	/**
+	 * @return the cache shared by all the lookups
+	 */
+	public static SrtmHeightCache getSharedCache() {
+		return SHARED_CACHE;
+	}
+
+	/**
+	 * Get the heights for a zipped tile in the disk cache
+	 * @param inZipFile zipped hgt file
+	 * @param inTilePixels number of pixels on each side of the tile
+	 * @return decoded heights, or null if the zip file is corrupt or doesn't hold a tile of the right size
+	 * @throws IOException if the file couldn't be read
+	 */
+	public SrtmHeights getHeights(File inZipFile, int inTilePixels) throws IOException
+	{
+		synchronized (this)
+		{
+			SrtmHeights heights = _tiles.get(inZipFile);
+			if (heights != null) {
+				return heights;
+			}
+		}
+		SrtmHeights heights = loadHeights(inZipFile, inTilePixels);
+		if (heights != null) {
+			addTile(inZipFile, heights);
+		}
+		return heights;
+	}
+
+	/**
+	 * Use the decoded file, unpacking it from the zip file first if necessary
+	 */
+	private static SrtmHeights loadHeights(File inZipFile, int inTilePixels) throws IOException
+	{
+		final long numBytes = inTilePixels * (long) inTilePixels * 2L;
+		File decodedFile = getDecodedFile(inZipFile);
+		if (decodedFile.length() == numBytes && decodedFile.lastModified() >= inZipFile.lastModified()) {
+			return new SrtmHeights(decodedFile, inTilePixels);
+		}
+		try
+		{
+			try (ZipInputStream inStream = openTile(inZipFile, numBytes))
+			{
+				if (inStream == null) {
+					return null;
+				}
+				if (unpack(inStream, decodedFile, numBytes)) {
+					return new SrtmHeights(decodedFile, inTilePixels);
+				}
+			}
+			// Can't write the decoded file, so just keep the heights in memory
+			try (ZipInputStream inStream = openTile(inZipFile, numBytes))
+			{
+				return (inStream == null ? null : readHeights(inStream, inTilePixels));
+			}
+		}
+		catch (ZipException | EOFException e)
+		{
+			System.err.println("Corrupt zip file " + inZipFile.getName() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Open the zip file and move to its hgt entry
+	 * @return stream positioned at the start of the hgt data, or null if the entry has the wrong size
+	 */
+	private static ZipInputStream openTile(File inZipFile, long inNumBytes) throws IOException
+	{
+		ZipInputStream inStream = new ZipInputStream(new FileInputStream(inZipFile));
+		try
+		{
+			ZipEntry entry = inStream.getNextEntry();
+			if (entry != null && entry.getSize() == inNumBytes) {
+				return inStream;
+			}
+		}
+		catch (IOException e)
+		{
+			inStream.close();
+			throw e;
+		}
+		inStream.close();
+		return null;
+	}
+
+	/**
+	 * @param inZipFile zipped hgt file
+	 * @return file for the unpacked hgt data, in the same directory
+	 */
+	static File getDecodedFile(File inZipFile)
+	{
+		String name = inZipFile.getName();
+		if (name.toLowerCase().endsWith(".zip")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		else {
+			name = name + ".hgt";
+		}
+		return new File(inZipFile.getParentFile(), name);
+	}
+
+	/**
+	 * Unpack the hgt data from the stream into a temporary file, and then move it into place
+	 * @return true if the file was written, false if it couldn't be written
+	 * @throws IOException if the zip file is corrupt
+	 */
+	private static boolean unpack(InputStream inStream, File inDecodedFile, long inNumBytes)
+		throws IOException
+	{
+		File tempFile;
+		try {
+			tempFile = File.createTempFile("srtm", ".tmp", inDecodedFile.getParentFile());
+		}
+		catch (IOException | SecurityException e) {
+			return false;
+		}
+		try
+		{
+			try (OutputStream outStream = new FileOutputStream(tempFile))
+			{
+				byte[] buffer = new byte[64 * 1024];
+				long numLeft = inNumBytes;
+				while (numLeft > 0)
+				{
+					final int numRead = inStream.read(buffer, 0, (int) Math.min(buffer.length, numLeft));
+					if (numRead < 0) {
+						throw new EOFException("Unexpected end of hgt data in " + inDecodedFile.getName());
+					}
+					outStream.write(buffer, 0, numRead);
+					numLeft -= numRead;
+				}
+			}
+			Files.move(tempFile.toPath(), inDecodedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		}
+		catch (ZipException | EOFException e) {
+			throw e;
+		}
+		catch (IOException e)
+		{
+			// Disk may be full, or the old decoded file may still be mapped and can't be replaced
+			System.err.println("Failed to write " + inDecodedFile.getName() + ": " + e.getMessage());
+			return false;
+		}
+		finally {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Read the whole height grid from the stream in one go
+	 * @param inStream stream positioned at the start of the hgt data
+	 * @param inTilePixels number of pixels on each side of the tile
+	 * @return heights held in memory
+	 * @throws IOException if the data couldn't be read or was too short
+	 */
+	static SrtmHeights readHeights(InputStream inStream, int inTilePixels) throws IOException
+	{
+		byte[] bytes = new byte[inTilePixels * inTilePixels * 2];
+		new DataInputStream(inStream).readFully(bytes);
+		// Heights are big-endian signed shorts
+		return new SrtmHeights(ByteBuffer.wrap(bytes).asShortBuffer(), inTilePixels);
+	}
+
+	/**
+	 * Add a tile to the cache, dropping the least recently used ones if necessary
+	 */
+	private synchronized void addTile(File inZipFile, SrtmHeights inHeights)
+	{
+		SrtmHeights previous = _tiles.put(inZipFile, inHeights);
+		if (previous != null) {
+			_currentBytes -= previous.getNumBytes();
+		}
+		_currentBytes += inHeights.getNumBytes();
+		Iterator<Map.Entry<File, SrtmHeights>> iterator = _tiles.entrySet().iterator();
+		// Always keep the tile which was just added
+		while (_currentBytes > _maxBytes && _tiles.size() > 1)
+		{
+			SrtmHeights heights = iterator.next().getValue();
+			iterator.remove();
+			_currentBytes -= heights.getNumBytes();
+		}
+	}
+
+	/** @return number of tiles currently held */
+	public synchronized int getNumTiles() {
+		return _tiles.size();
+	}
+
+	/** @return size of the cached tiles in bytes */
+	public synchronized long getCurrentBytes() {
+		return _currentBytes;
+	}
+}
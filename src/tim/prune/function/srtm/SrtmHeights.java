@@ -0,0 +1,147 @@
+package tim.prune.function.srtm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decoded height grid of a single SRTM tile, held as signed shorts
+ * either in memory or read from an uncompressed hgt file.
+ * A file is memory-mapped one band of rows at a time, and the band
+ * is moved when a lookup falls outside it, so only a small part
+ * of each tile is mapped however many tiles are in use.
+ */
+public class SrtmHeights
+{
+	/** Heights from top left, row by row, or null if they're read from the file */
+	private final ShortBuffer _heights;
+	/** Uncompressed hgt file, or null if the heights are in memory */
+	private final File _file;
+	/** Number of pixels on each side of the tile */
+	private final int _tilePixels;
+	/** Band of rows currently mapped from the file, replaced by lookups on any thread */
+	private volatile Window _window = null;
+
+	/** Number of rows in each mapped band */
+	static final int WINDOW_ROWS = 256;
+
+
+	/** Band of rows mapped from the file */
+	private static class Window
+	{
+		private final ShortBuffer _heights;
+		private final int _startIndex, _endIndex;
+
+		private Window(ShortBuffer inHeights, int inStartIndex, int inEndIndex)
+		{
+			_heights = inHeights;
+			_startIndex = inStartIndex;
+			_endIndex = inEndIndex;
+		}
+	}
+
+	/**
+	 * Constructor for heights in memory
+	 * @param inHeights buffer of heights
+	 * @param inTilePixels number of pixels on each side of the tile
+	 */
+	SrtmHeights(ShortBuffer inHeights, int inTilePixels)
+	{
+		_heights = inHeights;
+		_file = null;
+		_tilePixels = inTilePixels;
+	}
+
+	/**
+	 * Constructor for heights read from an uncompressed file
+	 * @param inFile hgt file, which must have the right size
+	 * @param inTilePixels number of pixels on each side of the tile
+	 */
+	SrtmHeights(File inFile, int inTilePixels)
+	{
+		_heights = null;
+		_file = inFile;
+		_tilePixels = inTilePixels;
+	}
+
+	/**
+	 * Make a height grid from an int array
+	 * @param inHeights heights from top left, row by row
+	 * @param inTilePixels number of pixels on each side of the tile
+	 * @return height grid
+	 */
+	static SrtmHeights fromArray(int[] inHeights, int inTilePixels)
+	{
+		short[] heights = new short[inHeights.length];
+		for (int i = 0; i < inHeights.length; i++) {
+			heights[i] = (short) inHeights[i];
+		}
+		return new SrtmHeights(ShortBuffer.wrap(heights), inTilePixels);
+	}
+
+	/**
+	 * @param inIndex pixel index from top left
+	 * @return height at that pixel in metres, or VOID_VAL
+	 */
+	public int getHeight(int inIndex)
+	{
+		if (_heights != null) {
+			return _heights.get(inIndex);
+		}
+		Window window = _window;
+		if (window == null || inIndex < window._startIndex || inIndex >= window._endIndex)
+		{
+			window = mapWindow(inIndex / _tilePixels);
+			if (window == null) {
+				return SrtmSource.VOID_VAL;
+			}
+			_window = window;
+		}
+		return window._heights.get(inIndex - window._startIndex);
+	}
+
+	/**
+	 * Map a band of rows around the given row
+	 * @param inRow row index from the top
+	 * @return mapped band, or null if the file couldn't be read
+	 */
+	private Window mapWindow(int inRow)
+	{
+		final int numRows = getNumWindowRows();
+		final int startRow = Math.max(0, Math.min(inRow - numRows / 2, _tilePixels - numRows));
+		final long rowBytes = _tilePixels * 2L;
+		try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ))
+		{
+			// The mapping stays valid after the channel is closed, and is released with the window
+			ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, startRow * rowBytes, numRows * rowBytes);
+			return new Window(bytes.asShortBuffer(), startRow * _tilePixels, (startRow + numRows) * _tilePixels);
+		}
+		catch (IOException e)
+		{
+			System.err.println("Failed to read " + _file.getName() + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/** @return number of rows mapped at once */
+	private int getNumWindowRows() {
+		return Math.min(WINDOW_ROWS, _tilePixels);
+	}
+
+	/** @return number of pixels on each side of the tile */
+	public int getTilePixels() {
+		return _tilePixels;
+	}
+
+	/** @return number of bytes held in memory or mapped at once */
+	public long getNumBytes()
+	{
+		if (_heights != null) {
+			return _heights.capacity() * 2L;
+		}
+		return getNumWindowRows() * _tilePixels * 2L;
+	}
+}
@@ -102,6 +102,14 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 
 	/** Scaling factor of display from OS */
 	private double _lastScale = 1.0;
+	/** Pixel positions of the track points at the current zoom level, reused while panning */
+	private TrackPixels _trackPixels = null;
+	/** Number of points considered in the last repaint, and time taken in nanoseconds */
+	private int _numPaintCandidates = 0;
+	private long _paintPointsNanos = 0L;
+
+	/** Flag to show frame timings on the map, set with -Dgpsprune.paintstats=true */
+	private static final boolean SHOW_PAINT_STATS = Boolean.getBoolean("gpsprune.paintstats");
 
 	/** Constant for click sensitivity when selecting nearest point */
 	private static final int CLICK_SENSITIVITY = 10;
@@ -358,6 +366,7 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 	 */
 	public void paint(Graphics inG)
 	{
+		final long paintStartNanos = System.nanoTime();
 		super.paint(inG);
 		if (_mapImage != null && (_mapImage.getWidth() != getScaledWidth() || _mapImage.getHeight() != getScaledHeight())) {
 			_mapImage = null;
@@ -464,6 +473,9 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 				case DEFAULT:
 					break;
 			}
+			if (SHOW_PAINT_STATS) {
+				paintStatistics(inG, System.nanoTime() - paintStartNanos);
+			}
 		}
 		else
 		{
@@ -481,6 +493,23 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		paintChildren(inG);
 	}
 
+	/**
+	 * Show the frame time and number of painted points, to check the painting performance
+	 * @param inG graphics object
+	 * @param inFrameNanos time taken for this frame so far
+	 */
+	private void paintStatistics(Graphics inG, long inFrameNanos)
+	{
+		final String stats = String.format("frame %.1f ms, track %.1f ms, points %d / %d",
+			inFrameNanos / 1e6, _paintPointsNanos / 1e6, _numPaintCandidates, _track.getNumPoints());
+		FontMetrics fm = inG.getFontMetrics();
+		final int y = getHeight() - 10;
+		inG.setColor(Color.WHITE);
+		inG.fillRect(5, y - fm.getAscent(), fm.stringWidth(stats) + 4, fm.getHeight());
+		inG.setColor(Color.BLACK);
+		inG.drawString(stats, 7, y);
+	}
+
 	/**
 	 * @return true if the currently selected point is visible, false if off-screen or nothing selected
 	 */
@@ -613,6 +642,7 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		if (trackOpacity > 0.0f)
 		{
 			// Paint the track points on top
+			final long startNanos = System.nanoTime();
 			boolean pointsPainted = true;
 			try
 			{
@@ -642,6 +672,7 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 			}
 			catch (NullPointerException | ArrayIndexOutOfBoundsException ignored) {}
 			// ignore, probably due to data being changed during drawing
+			_paintPointsNanos = System.nanoTime() - startNanos;
 
 			// Zoom to fit if no points found
 			if (!pointsPainted && _checkBounds)
@@ -692,9 +723,23 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		final int halfWinWidth  = winWidth / 2;
 		final int halfWinHeight = winHeight / 2;
 
-		final int numPoints = _track.getNumPoints();
-		final int[] xPixels = new int[numPoints];
-		final int[] yPixels = new int[numPoints];
+		final PointColumns columns = _track.getColumns();
+		final int numPoints = columns.getNumPoints();
+		// Pixel positions are only recalculated when the zoom level or the points change
+		final int zoom = _mapPosition.getZoom();
+		if (_trackPixels == null || !_trackPixels.isValidFor(_track, zoom)) {
+			_trackPixels = new TrackPixels(_track, zoom);
+		}
+		final TrackPixels pixels = _trackPixels;
+		final int xOffset = halfWinWidth - _mapPosition.getCentreX();
+		final int yOffset = halfWinHeight - _mapPosition.getCentreY();
+		// Find which points might be visible
+		final double pixelSize = _mapPosition.getBoundsFromPixels(1);
+		final double centreX = _mapPosition.getXFromPixels(0, 0), centreY = _mapPosition.getYFromPixels(0, 0);
+		final PaintedPoints paintedPoints = new PaintedPoints(_track,
+			centreX - halfWinWidth * pixelSize, centreX + (winWidth - halfWinWidth) * pixelSize,
+			centreY - halfWinHeight * pixelSize, centreY + (winHeight - halfWinHeight) * pixelSize, pixelSize, pixels);
+		_numPaintCandidates = paintedPoints.getNumCandidates();
 
 		final int pointSeparationForArrowsSqd = 400;
 		final int pointSeparation1dForArrows = (int) (Math.sqrt(pointSeparationForArrowsSqd) * 0.7);
@@ -720,35 +765,58 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		boolean prevPointVisible = false;
 		boolean anyWaypoints = false;
 		boolean drawnLastArrow = false;	// avoid painting arrows on adjacent lines, looks too busy
-		for (int i=0; i<numPoints; i++)
+		// Remember the last painted colour and whether a line ended at the previous point
+		Color prevColour = null;
+		boolean prevLineDrawn = false;
+		int lastVisited = -1;
+		for (int i=paintedPoints.getFirst(); i>=0; i=paintedPoints.getNext(i))
 		{
-			// Calculate pixel position of point from its x, y coordinates
-			int px = halfWinWidth  + _mapPosition.getXFromCentre(_track.getX(i));
-			int py = halfWinHeight + _mapPosition.getYFromCentre(_track.getY(i));
-			px = wrapLongitudeValue(px, winWidth, _mapPosition.getZoom());
-			// Remember these calculated pixel values so they don't have to be recalculated
-			xPixels[i] = px; yPixels[i] = py;
+			if (i != lastVisited + 1 && paintedPoints.isCulled())
+			{
+				// Points have been skipped, none of them visible, so find the previous track point
+				final int prevTrackPoint = PaintedPoints.getPreviousTrackPoint(columns, i);
+				if (prevTrackPoint >= 0)
+				{
+					prevX = getPixelX(pixels, prevTrackPoint, xOffset, winWidth);
+					prevY = pixels.getY(prevTrackPoint) + yOffset;
+				}
+				prevPointVisible = false;
+				prevLineDrawn = false;
+			}
+			lastVisited = i;
+			// Pixel position of point in the window
+			final int px = getPixelX(pixels, i, xOffset, winWidth);
+			final int py = pixels.getY(i) + yOffset;
 
 			final boolean currPointVisible = px >= 0 && px < winWidth && py >= 0 && py < winHeight;
-			final boolean isWaypoint = _track.getPoint(i).isWaypoint();
+			final boolean isWaypoint = columns.isWaypoint(i);
 			anyWaypoints = anyWaypoints || isWaypoint;
 			if (!isWaypoint)
 			{
+				Color trackColour = null;
 				if (currPointVisible || (drawLines && prevPointVisible))
 				{
 					// For track points, work out which colour to use
 					if (_trackInfo.isPointMarkedForDeletion(i)) {
-						inG.setColor(currentColour);
+						trackColour = currentColour;
 					}
 					else if (pointColourer != null)
 					{  // use the point colourer if there is one
-						Color trackColour = pointColourer.getColour(i);
-						inG.setColor(trackColour);
+						trackColour = pointColourer.getColour(i);
 					}
 					else
 					{
-						inG.setColor(pointColour);
+						trackColour = pointColour;
 					}
+					// Many points fall on the same pixel when zoomed out, these don't need painting again
+					if (px == prevX && py == prevY && trackColour.equals(prevColour)
+						&& !columns.isSegmentStart(i) && (prevLineDrawn || !drawLines))
+					{
+						prevPointVisible = currPointVisible;
+						drawnLastArrow = false;
+						continue;
+					}
+					inG.setColor(trackColour);
 
 					// Draw rectangle for track point if it's visible
 					if (currPointVisible)
@@ -759,15 +827,18 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 						pointsPainted = true;
 					}
 				}
+				prevColour = trackColour;
+				prevLineDrawn = false;
 
 				// Connect track points if either of them are visible
 				if (drawLines
 				 && (currPointVisible || prevPointVisible)
 				 && !(prevX == -1 && prevY == -1)
-				 && !_track.getPoint(i).getSegmentStart())
+				 && !columns.isSegmentStart(i))
 				{
 					inG.drawLine(prevX, prevY, px, py);
 					pointsPainted = true;
+					prevLineDrawn = true;
 
 					// Now consider whether we need to draw an arrow as well
 					if (drawArrows)
@@ -816,12 +887,12 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 			final int nameHeight = fm.getHeight();
 			_waypointColours.setSalt(_app.getConfig().getConfigInt(Config.KEY_WPICON_SALT));
 			int numWaypoints = 0;
-			for (int i=0; i<_track.getNumPoints(); i++)
+			for (int i=paintedPoints.getFirst(); i>=0; i=paintedPoints.getNext(i))
 			{
-				if (_track.getPoint(i).isWaypoint())
+				if (columns.isWaypoint(i))
 				{
-					int px = xPixels[i];
-					int py = yPixels[i];
+					int px = getPixelX(pixels, i, xOffset, winWidth);
+					int py = pixels.getY(i) + yOffset;
 					if (px >= 0 && px < winWidth && py >= 0 && py < winHeight)
 					{
 						if (_waypointIconDefinition == null) {
@@ -850,12 +921,12 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 			// Loop over points again, now draw names for waypoints
 			int[] nameXs = {0, 0, 0, 0};
 			int[] nameYs = {0, 0, 0, 0};
-			for (int i=0; i<_track.getNumPoints(); i += numPointSteps)
+			for (int i=paintedPoints.getFirst(); i>=0; i=paintedPoints.getNext(i))
 			{
-				if (_track.getPoint(i).isWaypoint())
+				if (columns.isWaypoint(i) && (i % numPointSteps) == 0)
 				{
-					int px = xPixels[i];
-					int py = yPixels[i];
+					int px = getPixelX(pixels, i, xOffset, winWidth);
+					int py = pixels.getY(i) + yOffset;
 					if (px >= 0 && px < winWidth && py >= 0 && py < winHeight)
 					{
 						// Figure out where to draw waypoint name so it doesn't obscure track
@@ -892,12 +963,12 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		}
 		// Loop over points, drawing blobs for photo / audio points
 		inG.setColor(secondColour);
-		for (int i=0; i<_track.getNumPoints(); i++)
+		for (int i=paintedPoints.getFirst(); i>=0; i=paintedPoints.getNext(i))
 		{
 			if (_track.getPoint(i).hasMedia())
 			{
-				int px = xPixels[i];
-				int py = yPixels[i];
+				int px = getPixelX(pixels, i, xOffset, winWidth);
+				int py = pixels.getY(i) + yOffset;
 				if (px >= 0 && px < winWidth && py >= 0 && py < winHeight)
 				{
 					inG.drawRect(px-1, py-1, 2, 2);
@@ -913,18 +984,21 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 			inG.setColor(rangeColour);
 			for (int i=_selection.getStart(); i<=_selection.getEnd(); i++)
 			{
-				int px = xPixels[i];
-				int py = yPixels[i];
-				inG.drawRect(px-1, py-1, 2, 2);
+				if (paintedPoints.isCandidate(i))
+				{
+					int px = getPixelX(pixels, i, xOffset, winWidth);
+					int py = pixels.getY(i) + yOffset;
+					inG.drawRect(px-1, py-1, 2, 2);
+				}
 			}
 		}
 
 		// Draw crosshairs at selected point
 		int selectedPoint = _selection.getCurrentPointIndex();
-		if (selectedPoint >= 0)
+		if (selectedPoint >= 0 && selectedPoint < numPoints)
 		{
-			int px = xPixels[selectedPoint];
-			int py = yPixels[selectedPoint];
+			int px = getPixelX(pixels, selectedPoint, xOffset, winWidth);
+			int py = pixels.getY(selectedPoint) + yOffset;
 			inG.setColor(currentColour);
 			// crosshairs
 			inG.drawLine(px, 0, px, winHeight);
@@ -934,6 +1008,20 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 		return pointsPainted;
 	}
 
+	/**
+	 * Calculate the pixel x coordinate of the given point, wrapping if necessary
+	 * @param inPixels pixel positions of the track
+	 * @param inIndex point index
+	 * @param inXOffset offset from the world pixels to the window
+	 * @param inWinWidth window width in pixels
+	 * @return pixel x coordinate
+	 */
+	private int getPixelX(TrackPixels inPixels, int inIndex, int inXOffset, int inWinWidth)
+	{
+		final int px = inPixels.getX(inIndex) + inXOffset;
+		return wrapLongitudeValue(px, inWinWidth, _mapPosition.getZoom());
+	}
+
 	/**
 	 * Wrap the given pixel value if appropriate and possible
 	 * @param inPx Pixel x coordinate
@@ -1486,8 +1574,10 @@ public class MapCanvas extends JPanel implements MouseListener, MouseMotionListe
 			_tileManager.setMapSource(config.getConfigInt(Config.KEY_MAPSOURCE_INDEX));
 			_waypointIconDefinition = WaypointIcons.getDefinition(config, _app.getIconManager());
 		}
-		if ((inUpdateType & (DataSubscriber.DATA_ADDED_OR_REMOVED + DataSubscriber.DATA_EDITED)) > 0) {
+		if ((inUpdateType & (DataSubscriber.DATA_ADDED_OR_REMOVED + DataSubscriber.DATA_EDITED)) > 0)
+		{
 			_midpoints.updateData(_track);
+			_trackPixels = null;
 		}
 		// See if rect mode has been activated
 		final App.AppMode appMode = _app.getCurrentMode();
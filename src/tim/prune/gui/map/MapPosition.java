@@ -119,7 +119,7 @@ public class MapPosition
 	 * @param inZoom zoom value to use
 	 * @return pixels
 	 */
-	private static int transformToPixels(double inValue, int inZoom) {
+	static int transformToPixels(double inValue, int inZoom) {
 		return (int) (inValue * MAP_TILE_SIZE * (1 << inZoom));
 	}
 
@@ -161,6 +161,16 @@ public class MapPosition
 		return transformToPixels(inValue) - (int) _yPosition;
 	}
 
+	/** @return x pixel of the centre of the display, measured from the left edge of the world */
+	int getCentreX() {
+		return (int) _xPosition;
+	}
+
+	/** @return y pixel of the centre of the display, measured from the top edge of the world */
+	int getCentreY() {
+		return (int) _yPosition;
+	}
+
 	/**
 	 * Convert a pixel value into a bounds value for sensitivity
 	 * @param inPixels number of pixels
@@ -3,6 +3,8 @@ package tim.prune.gui.map;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import tim.prune.config.Config;
 import tim.prune.gui.map.tile.*;
@@ -18,8 +20,8 @@ public class MapTileManager implements TileManager
 	private final TileConsumer _consumer;
 	/** Current map source */
 	private MapSource _mapSource = null;
-	/** Array of tile caches, one per layer */
-	private final MemTileCacher[] _tempCaches;
+	/** Memory cache of decoded tiles, shared between all tile managers */
+	private final MemTileCache _memCache;
 	/** Handler for reading from and writing to the disk cache */
 	private final DiskCache _diskCache = new DiskCache();
 	/** Coordinator of the asynchronous downloaders */
@@ -33,18 +35,30 @@ public class MapTileManager implements TileManager
 	/** Number of tiles in each direction for this zoom level */
 	private int _numTileIndices = 1;
 
+	/** Number of threads for decoding downloaded tiles */
+	private static final int NUM_DECODER_THREADS = 2;
+	/** Executor for decoding downloaded tiles, shared by all tile managers */
+	private static final ExecutorService DECODER = createDecoder();
+
 
 	/**
 	 * Constructor
 	 * @param inConsumer consumer object to be notified
 	 */
 	public MapTileManager(TileConsumer inConsumer)
+	{
+		this(inConsumer, MemTileCache.getSharedCache());
+	}
+
+	/**
+	 * Constructor
+	 * @param inConsumer consumer object to be notified
+	 * @param inMemCache memory cache to use
+	 */
+	public MapTileManager(TileConsumer inConsumer, MemTileCache inMemCache)
 	{
 		_consumer = inConsumer;
-		_tempCaches = new MemTileCacher[2];
-		for (int i=0; i<2; i++) {
-			_tempCaches[i] = new MemTileCacher();
-		}
+		_memCache = inMemCache;
 	}
 
 	/**
@@ -55,11 +69,10 @@ public class MapTileManager implements TileManager
 	 */
 	public void centreMap(int inZoom, int inTileX, int inTileY)
 	{
+		// Tiles from all zoom levels are kept in the memory cache, so it doesn't need to know
 		setZoom(inZoom);
-		// Pass params onto all memory cachers
-		for (MemTileCacher cacher : _tempCaches) {
-			cacher.centreMap(inZoom, inTileX, inTileY);
-		}
+		// Downloads nearest the centre go first, and those far away are dropped
+		_coordinator.setView(inZoom, inTileX, inTileY);
 	}
 
 	/** @param inZoom zoom level to set */
@@ -90,13 +103,10 @@ public class MapTileManager implements TileManager
 	}
 
 	/**
-	 * Clear all the memory caches due to changed config / zoom
+	 * Clear the memory cache due to changed config
 	 */
-	public void clearMemoryCaches()
-	{
-		for (MemTileCacher cacher : _tempCaches) {
-			cacher.clearAll();
-		}
+	public void clearMemoryCaches() {
+		_memCache.clearAll();
 	}
 
 	/**
@@ -112,9 +122,15 @@ public class MapTileManager implements TileManager
 	 */
 	public void setMapSource(MapSource inMapSource)
 	{
-		_mapSource = inMapSource;
-		if (_mapSource == null) {_mapSource = MapSourceLibrary.getSource(0);}
-		clearMemoryCaches();
+		MapSource newSource = inMapSource;
+		if (newSource == null) {newSource = MapSourceLibrary.getSource(0);}
+		// Tiles are identified by source name, so only drop them if the source has been redefined
+		if (_mapSource != null && _mapSource != newSource
+			&& _mapSource.getName().equals(newSource.getName()))
+		{
+			_memCache.clearSource(newSource.getName());
+		}
+		_mapSource = newSource;
 		_numLayers = _mapSource.getNumLayers();
 	}
 
@@ -144,23 +160,23 @@ public class MapTileManager implements TileManager
 		inX = ((inX % _numTileIndices) + _numTileIndices) % _numTileIndices;
 
 		// Check first in memory cache for tile
-		MemTileCacher tempCache = _tempCaches[inLayer];
-		Image tileImage = tempCache.getTile(inX, inY);
+		setMemoryLimit(inConfig);
+		TileDef tileDef = new TileDef(_mapSource, inLayer, inX, inY, _zoom);
+		Image tileImage = _memCache.getTile(tileDef);
 		if (tileImage != null) {
 			return tileImage;
 		}
 
-		TileDef tileDef = new TileDef(_mapSource, inLayer, inX, inY, _zoom);
 		// Tile wasn't in memory, but maybe it's in disk cache (if there is one)
 		final String diskCachePath = inConfig.getConfigString(Config.KEY_DISK_CACHE);
-		_diskCache.setBasePath(diskCachePath);
+		_diskCache.setBasePath(diskCachePath, inConfig.getConfigBoolean(Config.KEY_DISK_CACHE_PACKED));
 		MapTile mapTile = _diskCache.getTile(tileDef);
 		if (mapTile != null && mapTile.getImage() != null)
 		{
 			tileImage = mapTile.getImage();
 			// System.out.println("Got an image from the disk cache, width = " + tileImage.getWidth(null));
 			// Pass tile to memory cache
-			tempCache.setTile(tileImage, inX, inY, _zoom);
+			_memCache.setTile(tileDef, tileImage);
 			// trigger the load from file
 			tileImage.getWidth((img, infoFlags, x, y, width, height) -> tileUpdate(infoFlags));
 		}
@@ -178,6 +194,19 @@ public class MapTileManager implements TileManager
 		return tileImage;
 	}
 
+	/**
+	 * Apply the memory limit from the config to the memory cache
+	 * @param inConfig config object
+	 */
+	private void setMemoryLimit(Config inConfig)
+	{
+		int limitMb = inConfig.getConfigInt(Config.KEY_TILE_CACHE_MEMORY);
+		if (limitMb <= 0) {
+			limitMb = MemTileCache.DEFAULT_LIMIT_MB;
+		}
+		_memCache.setMemoryLimit(limitMb * 1024L * 1024L);
+	}
+
 	/**
 	 * Method called by image loader to inform of updates to the tiles
 	 * @param infoFlags flags describing how much of the image is known
@@ -204,28 +233,30 @@ public class MapTileManager implements TileManager
 		if (inDef == null || inDef._mapSource == null || inResult == null || inResult.isEmpty()) {
 			return;
 		}
-		// construct image from result bytes
-		Image image = Toolkit.getDefaultToolkit().createImage(inResult.getData());
-		image.getWidth((img, infoFlags, x, y, width, height) -> processReturnedTile(inDef, inResult, image, infoFlags));
+		// decode the image on a separate thread, so that neither the downloads nor the painting wait
+		DECODER.execute(() -> processReturnedTile(inDef, inResult));
 	}
 
-	private boolean processReturnedTile(TileDef inDef, TileBytes inResult, Image image, int infoFlags)
+	/**
+	 * Decode the downloaded tile and pass it on to the caches
+	 * @param inDef tile definition
+	 * @param inResult bytes of result
+	 */
+	private void processReturnedTile(TileDef inDef, TileBytes inResult)
 	{
-		final boolean imgComplete = (infoFlags & ImageObserver.ALLBITS) > 0;
-		final boolean hasError = (infoFlags & (ImageObserver.ERROR | ImageObserver.ABORT)) > 0;
-		if (!imgComplete || hasError) {
-			return !imgComplete;
+		BufferedImage image = TileDecoder.decode(inResult.getData());
+		if (image == null) {
+			return;
 		}
 		try {
-			final int imgWidth = image.getWidth(null);
-			if (imgWidth == 512)
+			if (image.getWidth() == 2 * TileDecoder.TILE_SIZE)
 			{
 				// Double resolution, so need to slice and store as 4 separate tiles
-				_mapSource.setDoubleRes(inDef._layerIdx);
+				inDef._mapSource.setDoubleRes(inDef._layerIdx);
 				// Construct four different images, pass each one in turn
 				for (int subtile=0; subtile<4; subtile++)
 				{
-					BufferedImage quarter = createSubtile(image, subtile);
+					BufferedImage quarter = TileDecoder.getSubtile(image, subtile);
 					processDownloadedTile(quarter, inDef.zoomIn(subtile));
 				}
 			} else
@@ -240,34 +271,35 @@ public class MapTileManager implements TileManager
 		if (_consumer != null) {
 			_consumer.tilesUpdated(true);
 		}
-		return false; // no more information needed
 	}
 
-	private BufferedImage createSubtile(Image image, int subtile)
+	/**
+	 * @return executor with a few daemon threads for decoding tiles
+	 */
+	private static ExecutorService createDecoder()
 	{
-		BufferedImage result = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
-		Graphics g = result.createGraphics();
-		final int xOffset = (subtile % 2) * 256;
-		final int yOffset = (subtile / 2) * 256;
-		g.drawImage(image, -xOffset, -yOffset, null);
-		return result;
+		return Executors.newFixedThreadPool(NUM_DECODER_THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "TileDecoder");
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 	// Got a possible race condition here where a tile is requested and triggered, and then it's requested _again_
 	// exactly when the coordinator has finished downloading it but it's not in the memcaches yet - in worst case
 	// a second download will be triggered for the same tile
 
-	private void processDownloadedTile(Image inImage, TileBytes inBytes, TileDef inDefinition) throws CacheFailure
+	private void processDownloadedTile(BufferedImage inImage, TileBytes inBytes, TileDef inDefinition) throws CacheFailure
 	{
-		// Pass image to appropriate memcacher
-		_tempCaches[inDefinition._layerIdx].setTile(inImage, inDefinition._x, inDefinition._y, inDefinition._zoom);
+		// Pass image to memory cache
+		_memCache.setTile(inDefinition, inImage);
 		_diskCache.saveTileBytes(inBytes, inDefinition);
 	}
 
 	private void processDownloadedTile(BufferedImage inImage, TileDef inDefinition) throws CacheFailure
 	{
-		// Pass image to appropriate memcacher
-		_tempCaches[inDefinition._layerIdx].setTile(inImage, inDefinition._x, inDefinition._y, inDefinition._zoom);
+		// Pass image to memory cache
+		_memCache.setTile(inDefinition, inImage);
 		_diskCache.saveTileImage(inImage, inDefinition);
 	}
 }
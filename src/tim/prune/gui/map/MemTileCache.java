@@ -0,0 +1,191 @@
+package tim.prune.gui.map;
+
+import java.awt.Image;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import tim.prune.gui.map.tile.TileDef;
+
+/**
+ * Memory-based cache of decoded map tiles, shared by all the tile managers.
+ * Tiles are kept for all sources, layers and zoom levels until the total
+ * estimated size exceeds the memory limit, and then the least recently used
+ * tiles are dropped first.
+ * For caching of tiles on disk, see the DiskCache class.
+ */
+public class MemTileCache
+{
+	/** Tiles in order of access, least recently used first */
+	private final LinkedHashMap<TileDef, CachedTile> _tiles = new LinkedHashMap<>(256, 0.75f, true);
+	/** Memory limit in bytes */
+	private long _maxBytes;
+	/** Estimated size of the cached tiles in bytes */
+	private long _currentBytes = 0L;
+	/** Counters for statistics */
+	private long _numHits = 0L, _numMisses = 0L, _numEvictions = 0L;
+
+	/** Default memory limit in megabytes */
+	public static final int DEFAULT_LIMIT_MB = 128;
+	/** Assumed size of a tile whose dimensions aren't known yet */
+	private static final long DEFAULT_TILE_BYTES = 256L * 256L * 4L;
+	/** The cache shared by all the tile managers */
+	private static final MemTileCache SHARED_CACHE = new MemTileCache(DEFAULT_LIMIT_MB * 1024L * 1024L);
+
+
+	/**
+	 * Constructor
+	 * @param inMaxBytes memory limit in bytes
+	 */
+	public MemTileCache(long inMaxBytes) {
+		_maxBytes = inMaxBytes;
+	}
+
+	/**
+	 * @return the cache shared by the map canvas and the map grouter
+	 */
+	public static MemTileCache getSharedCache() {
+		return SHARED_CACHE;
+	}
+
+	/**
+	 * Set the memory limit, dropping tiles if necessary
+	 * @param inMaxBytes memory limit in bytes
+	 */
+	public synchronized void setMemoryLimit(long inMaxBytes)
+	{
+		if (inMaxBytes != _maxBytes)
+		{
+			_maxBytes = inMaxBytes;
+			evictIfNecessary();
+		}
+	}
+
+	/**
+	 * @param inDef tile definition
+	 * @return selected tile if already loaded, or null otherwise
+	 */
+	public synchronized Image getTile(TileDef inDef)
+	{
+		CachedTile tile = _tiles.get(inDef);
+		if (tile == null)
+		{
+			_numMisses++;
+			return null;
+		}
+		_numHits++;
+		return tile._image;
+	}
+
+	/**
+	 * Save the specified tile
+	 * @param inDef tile definition
+	 * @param inTile image to save
+	 */
+	public synchronized void setTile(TileDef inDef, Image inTile)
+	{
+		if (inDef == null || inTile == null) {
+			return;
+		}
+		CachedTile tile = new CachedTile(inTile);
+		CachedTile previous = _tiles.put(inDef, tile);
+		if (previous != null) {
+			_currentBytes -= previous._numBytes;
+		}
+		_currentBytes += tile._numBytes;
+		evictIfNecessary();
+	}
+
+	/**
+	 * Drop the least recently used tiles until the size is within the limit
+	 */
+	private void evictIfNecessary()
+	{
+		Iterator<Map.Entry<TileDef, CachedTile>> iterator = _tiles.entrySet().iterator();
+		while (_currentBytes > _maxBytes && iterator.hasNext())
+		{
+			CachedTile tile = iterator.next().getValue();
+			iterator.remove();
+			_currentBytes -= tile._numBytes;
+			_numEvictions++;
+		}
+	}
+
+	/**
+	 * @param inTile tile image
+	 * @return estimated number of bytes used by the decoded image
+	 */
+	private static long getEstimatedBytes(Image inTile)
+	{
+		final int width = inTile.getWidth(null), height = inTile.getHeight(null);
+		if (width <= 0 || height <= 0) {
+			return DEFAULT_TILE_BYTES;
+		}
+		return width * (long) height * 4L;
+	}
+
+	/**
+	 * Clear all the cached images
+	 */
+	public synchronized void clearAll()
+	{
+		_tiles.clear();
+		_currentBytes = 0L;
+	}
+
+	/**
+	 * Clear all the cached images from the given map source
+	 * @param inSourceName name of map source
+	 */
+	public synchronized void clearSource(String inSourceName)
+	{
+		Iterator<Map.Entry<TileDef, CachedTile>> iterator = _tiles.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<TileDef, CachedTile> entry = iterator.next();
+			if (entry.getKey()._mapSource.getName().equals(inSourceName))
+			{
+				_currentBytes -= entry.getValue()._numBytes;
+				iterator.remove();
+			}
+		}
+	}
+
+	/** @return number of tiles currently held */
+	public synchronized int getNumTiles() {
+		return _tiles.size();
+	}
+
+	/** @return estimated size of the cached tiles in bytes */
+	public synchronized long getCurrentBytes() {
+		return _currentBytes;
+	}
+
+	/** @return number of requests answered from the cache */
+	public synchronized long getNumHits() {
+		return _numHits;
+	}
+
+	/** @return number of requests for tiles which weren't in the cache */
+	public synchronized long getNumMisses() {
+		return _numMisses;
+	}
+
+	/** @return number of tiles dropped to stay within the memory limit */
+	public synchronized long getNumEvictions() {
+		return _numEvictions;
+	}
+
+	/** Image together with its estimated size when it was stored */
+	private static class CachedTile
+	{
+		private final Image _image;
+		private final long _numBytes;
+
+		private CachedTile(Image inImage)
+		{
+			_image = inImage;
+			_numBytes = getEstimatedBytes(inImage);
+		}
+	}
+}
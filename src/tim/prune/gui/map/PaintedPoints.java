@@ -0,0 +1,105 @@
+package tim.prune.gui.map;
+
+import java.util.BitSet;
+
+import tim.prune.data.PointColumns;
+import tim.prune.data.Track;
+
+/**
+ * Decides which points need to be considered when painting the track.
+ * When zoomed in, the track's spatial index is used to skip all the points
+ * which lie well outside the visible area.  Each point just after a candidate
+ * is also visited, so that lines leading out of the visible area can still be drawn.
+ * Otherwise the merged points of the track pixels are visited, skipping the track
+ * points which land on the same pixel as the one before.
+ */
+class PaintedPoints
+{
+	private final int _numPoints;
+	/** Points which might be visible, or the merged points if not culled */
+	private final BitSet _candidates;
+	private final boolean _culled;
+
+	/** Margin around the window in pixels, to allow for rounding and point size */
+	private static final int MARGIN_PIXELS = 4;
+
+
+	/**
+	 * Constructor
+	 * @param inTrack track to be painted
+	 * @param inMinX minimum x value visible in the window
+	 * @param inMaxX maximum x value visible in the window
+	 * @param inMinY minimum y value visible in the window
+	 * @param inMaxY maximum y value visible in the window
+	 * @param inPixelSize size of one pixel in x and y units
+	 * @param inPixels pixel positions of the track at the current zoom level
+	 */
+	PaintedPoints(Track inTrack, double inMinX, double inMaxX, double inMinY, double inMaxY, double inPixelSize,
+		TrackPixels inPixels)
+	{
+		_numPoints = inTrack.getColumns().getNumPoints();
+		final double margin = MARGIN_PIXELS * inPixelSize;
+		final double minX = inMinX - margin, maxX = inMaxX + margin;
+		// If the window shows the edge of the world then points could be wrapped onto it
+		_culled = minX > 0.0 && maxX < 1.0;
+		if (_culled) {
+			_candidates = inTrack.getPointsInRectangle(minX, inMinY - margin, maxX, inMaxY + margin);
+		}
+		else {
+			_candidates = inPixels.getMergedPoints();
+		}
+	}
+
+	/** @return true if only the points near the visible area are visited */
+	boolean isCulled() {
+		return _culled;
+	}
+
+	/** @return number of points which are visited, for statistics */
+	int getNumCandidates() {
+		return _candidates.cardinality();
+	}
+
+	/** @return true if the given point may be visible */
+	boolean isCandidate(int inIndex) {
+		return !_culled || _candidates.get(inIndex);
+	}
+
+	/** @return index of the first point to visit, or -1 if none */
+	int getFirst() {
+		return _candidates.nextSetBit(0);
+	}
+
+	/**
+	 * @param inIndex index of the current point
+	 * @return index of the next point to visit, or -1 if none
+	 */
+	int getNext(int inIndex)
+	{
+		final int next;
+		if (_culled && _candidates.get(inIndex)) {
+			next = inIndex + 1;
+		}
+		else {
+			next = _candidates.nextSetBit(inIndex + 1);
+		}
+		return next < _numPoints ? next : -1;
+	}
+
+	/**
+	 * Find the last track point before the given index, used when points have been skipped
+	 * @param inColumns point columns of the track
+	 * @param inIndex index of the current point
+	 * @return index of previous track point, or -1 if none
+	 */
+	static int getPreviousTrackPoint(PointColumns inColumns, int inIndex)
+	{
+		for (int i=inIndex-1; i>=0; i--)
+		{
+			if (!inColumns.isWaypoint(i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
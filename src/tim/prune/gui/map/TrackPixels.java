@@ -0,0 +1,83 @@
+package tim.prune.gui.map;
+
+import java.util.BitSet;
+
+import tim.prune.data.PointColumns;
+import tim.prune.data.Track;
+
+/**
+ * Pixel positions of all the points of a track at one zoom level, measured from the
+ * top left corner of the world map.  Panning the map just moves all of them by the same
+ * offset, so they only need to be calculated again when the zoom level or the points change.
+ * Also holds the points which need to be visited when the whole track is painted,
+ * leaving out each track point which lands on the same pixel as the track point before it.
+ */
+class TrackPixels
+{
+	private final PointColumns _columns;
+	private final int _numPoints;
+	private final int _zoom;
+	private final int[] _xPixels, _yPixels;
+	/** Points which don't share a pixel with the previous track point */
+	private final BitSet _mergedPoints;
+
+
+	/**
+	 * Constructor, calculating the positions of all the points
+	 * @param inTrack track to be painted
+	 * @param inZoom zoom level
+	 */
+	TrackPixels(Track inTrack, int inZoom)
+	{
+		_columns = inTrack.getColumns();
+		_numPoints = _columns.getNumPoints();
+		_zoom = inZoom;
+		_xPixels = new int[_numPoints];
+		_yPixels = new int[_numPoints];
+		_mergedPoints = new BitSet(_numPoints);
+		int prevTrackPoint = -1;
+		for (int i=0; i<_numPoints; i++)
+		{
+			_xPixels[i] = MapPosition.transformToPixels(_columns.getX(i), inZoom);
+			_yPixels[i] = MapPosition.transformToPixels(_columns.getY(i), inZoom);
+			if (_columns.isWaypoint(i))
+			{
+				_mergedPoints.set(i);
+				continue;
+			}
+			// Segment starts and photo or audio points are always kept
+			final boolean samePixel = prevTrackPoint >= 0 && _xPixels[i] == _xPixels[prevTrackPoint]
+				&& _yPixels[i] == _yPixels[prevTrackPoint];
+			if (!samePixel || _columns.isSegmentStart(i) || inTrack.getPoint(i).hasMedia()) {
+				_mergedPoints.set(i);
+			}
+			prevTrackPoint = i;
+		}
+	}
+
+	/**
+	 * @param inTrack track to be painted
+	 * @param inZoom zoom level
+	 * @return true if these positions are still the right ones for the given track and zoom level
+	 */
+	boolean isValidFor(Track inTrack, int inZoom)
+	{
+		final PointColumns columns = inTrack.getColumns();
+		return columns == _columns && columns.getNumPoints() == _numPoints && inZoom == _zoom;
+	}
+
+	/** @return x pixel of the given point from the left edge of the world */
+	int getX(int inIndex) {
+		return _xPixels[inIndex];
+	}
+
+	/** @return y pixel of the given point from the top edge of the world */
+	int getY(int inIndex) {
+		return _yPixels[inIndex];
+	}
+
+	/** @return the points to visit when the whole track is painted */
+	BitSet getMergedPoints() {
+		return _mergedPoints;
+	}
+}
@@ -11,5 +11,5 @@ public interface Coordinator
 
 	void finishedTile(TileDef inDef, TileBytes inResult);
 
-	void threadFinished();
+	void failedTile(TileDef inDef, Exception inException);
 }
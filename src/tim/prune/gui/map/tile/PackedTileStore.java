@@ -0,0 +1,137 @@
+package tim.prune.gui.map.tile;
+
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import tim.prune.gui.map.CacheFailure;
+import tim.prune.gui.map.MapTile;
+
+/**
+ * Tile store keeping all the tiles of each map layer in a single pack file,
+ * so that looking up a tile doesn't need any file system access
+ */
+public class PackedTileStore implements TileStore
+{
+	private final String _basePath;
+
+
+	/**
+	 * Constructor
+	 * @param inBasePath path to root of the tile cache
+	 */
+	public PackedTileStore(String inBasePath) {
+		_basePath = inBasePath;
+	}
+
+	/**
+	 * @param inBasePath path to root of the tile cache
+	 * @param inSiteName site name of the map layer, as used for the directory store
+	 * @return pack file for the given layer
+	 */
+	public static TilePackFile getPackFile(String inBasePath, String inSiteName)
+	{
+		String name = inSiteName;
+		while (name.endsWith("/") || name.endsWith(File.separator)) {
+			name = name.substring(0, name.length() - 1);
+		}
+		return TilePackFile.getPackFile(new File(inBasePath, name + TilePackFile.FILE_EXTENSION));
+	}
+
+	/**
+	 * @param inTileDef tile definition
+	 * @return pack file for the tile's layer, or null if not possible
+	 */
+	private TilePackFile getPackFile(TileDef inTileDef)
+	{
+		String siteName = inTileDef._mapSource.getSiteName(inTileDef._layerIdx);
+		if (_basePath == null || siteName == null || siteName.isEmpty()) {
+			return null;
+		}
+		return getPackFile(_basePath, siteName);
+	}
+
+	/**
+	 * Get a tile from the pack file
+	 * @param inTileDef tile definition
+	 * @return tile object if possible, otherwise null
+	 */
+	public MapTile getTile(TileDef inTileDef)
+	{
+		TilePackFile packFile = getPackFile(inTileDef);
+		if (packFile == null) {
+			return null;
+		}
+		try
+		{
+			TilePackFile.StoredTile tile = packFile.getTile(inTileDef._zoom, inTileDef._x, inTileDef._y);
+			if (tile == null || tile.getBytes().length == 0) {
+				return null;
+			}
+			boolean isExpired = ((System.currentTimeMillis() - tile.getTimestamp()) > CACHE_TIME_LIMIT);
+			Image image = Toolkit.getDefaultToolkit().createImage(tile.getBytes());
+			image.getWidth(null);
+			return new MapTile(image, isExpired);
+		}
+		catch (IOException e) {
+			System.err.println("error reading tile: " + e.getClass().getName() + ": " + e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Save the bytes of a downloaded tile to the pack file
+	 */
+	public void saveTileBytes(TileBytes inBytes, TileDef inDefinition) throws CacheFailure
+	{
+		saveTile(inBytes.getData(), inDefinition);
+	}
+
+	/**
+	 * Save a sliced Image from a downloaded tile to the pack file
+	 * @param inImage rendered image to be saved
+	 * @param inDefinition tile definition
+	 */
+	public void saveTileImage(RenderedImage inImage, TileDef inDefinition) throws CacheFailure
+	{
+		if (getPackFile(inDefinition) == null) {return;} // no cache specified
+		if (!inDefinition._mapSource.getFileExtension(inDefinition._layerIdx).equals("png")) {
+			return; // can only write png tiles
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{
+			if (!ImageIO.write(inImage, "png", out)) {
+				throw new CacheFailure();
+			}
+		}
+		catch (IOException e) {
+			throw new CacheFailure();
+		}
+		saveTile(out.toByteArray(), inDefinition);
+	}
+
+	/**
+	 * Save the given bytes to the pack file
+	 */
+	private void saveTile(byte[] inBytes, TileDef inDefinition) throws CacheFailure
+	{
+		TilePackFile packFile = getPackFile(inDefinition);
+		if (packFile == null || inBytes == null) {return;} // no cache specified
+		try {
+			packFile.saveTile(inDefinition._zoom, inDefinition._x, inDefinition._y,
+				inBytes, System.currentTimeMillis());
+		}
+		catch (IOException e)
+		{
+			System.err.println("Failed to write to: " + packFile.getFile().getAbsolutePath());
+			e.printStackTrace();
+			throw new CacheFailure();
+		}
+	}
+}
@@ -1,26 +1,34 @@
 package tim.prune.gui.map.tile;
 
+import java.util.Arrays;
+
 /**
  * Container for the results of a TileWorker
- * having processed a tile definition
+ * having processed a tile definition.
+ * The bytes are collected in a buffer which grows as needed.
  */
 public class TileBytes
 {
 	private byte[] _data = null;
+	private int _length = 0;
+
+	/** Initial size of buffer, enough for most tiles */
+	private static final int INITIAL_SIZE = 32 * 1024;
+
 
 	public void addBytes(byte[] inData, int inNumBytes)
 	{
 		if (inNumBytes > 0)
 		{
-			final int totalBytes = (_data == null ? 0 : _data.length) + inNumBytes;
-			byte[] result = new byte[totalBytes];
-			int targetIdx = 0;
-			if (_data != null) {
-				System.arraycopy(_data, 0, result, 0, _data.length);
-				targetIdx = _data.length;
+			final int totalBytes = _length + inNumBytes;
+			if (_data == null) {
+				_data = new byte[Math.max(INITIAL_SIZE, totalBytes)];
 			}
-			System.arraycopy(inData, 0, result, targetIdx, inNumBytes);
-			_data = result;
+			else if (totalBytes > _data.length) {
+				_data = Arrays.copyOf(_data, Math.max(totalBytes, _data.length * 2));
+			}
+			System.arraycopy(inData, 0, _data, _length, inNumBytes);
+			_length = totalBytes;
 		}
 	}
 
@@ -28,13 +36,24 @@ public class TileBytes
 	 * @return true if there are no bytes
 	 */
 	public boolean isEmpty() {
-		return _data == null || _data.length == 0;
+		return _length == 0;
+	}
+
+	/**
+	 * @return number of bytes
+	 */
+	public int getLength() {
+		return _length;
 	}
 
 	/**
-	 * @return byte data
+	 * @return byte data, trimmed to the right length
 	 */
-	public byte[] getData() {
+	public byte[] getData()
+	{
+		if (_data != null && _data.length != _length) {
+			_data = Arrays.copyOf(_data, _length);
+		}
 		return _data;
 	}
 }
@@ -0,0 +1,69 @@
+package tim.prune.gui.map.tile;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes the bytes of downloaded tiles into images which are ready to draw,
+ * so that this work doesn't need to be done by the painting thread
+ */
+public abstract class TileDecoder
+{
+	/** Width of a regular tile */
+	public static final int TILE_SIZE = 256;
+
+	/**
+	 * Decode the given bytes into an image
+	 * @param inBytes bytes of image file
+	 * @return decoded image, or null if the format isn't supported
+	 */
+	public static BufferedImage decode(byte[] inBytes)
+	{
+		try
+		{
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(inBytes));
+			if (image == null) {
+				return null;
+			}
+			if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+				return image;
+			}
+			return copyRegion(image, 0, 0, image.getWidth(), image.getHeight());
+		}
+		catch (IOException | RuntimeException e)
+		{
+			System.err.println("Failed to decode tile: " + e.getClass().getName() + " - " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Extract one quarter of a double-resolution tile
+	 * @param inImage 512 pixel image
+	 * @param inSubtile index of subtile, from 0 to 3 in the same order as TileDef.zoomIn
+	 * @return regular-sized image
+	 */
+	public static BufferedImage getSubtile(BufferedImage inImage, int inSubtile)
+	{
+		final int xOffset = (inSubtile % 2) * TILE_SIZE;
+		final int yOffset = (inSubtile / 2) * TILE_SIZE;
+		return copyRegion(inImage, xOffset, yOffset, TILE_SIZE, TILE_SIZE);
+	}
+
+	/**
+	 * Copy a region of the given image into a new image of a type which is quick to draw
+	 */
+	private static BufferedImage copyRegion(BufferedImage inImage, int inX, int inY, int inWidth, int inHeight)
+	{
+		final int type = inImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage result = new BufferedImage(inWidth, inHeight, type);
+		Graphics2D g = result.createGraphics();
+		g.drawImage(inImage, -inX, -inY, null);
+		g.dispose();
+		return result;
+	}
+}
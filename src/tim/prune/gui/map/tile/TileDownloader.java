@@ -17,20 +17,17 @@ public class TileDownloader extends TileWorker
 	}
 
 	@Override
-	protected TileBytes processTile(TileDef def)
+	protected TileBytes processTile(TileDef def) throws IOException
 	{
 		URL tileUrl = def.getUrl();
 		if (tileUrl == null) {
 			return null;
 		}
-		InputStream in = null;
-		TileBytes result = null;
-		try
+		URLConnection conn = tileUrl.openConnection();
+		conn.setRequestProperty("User-Agent", "GpsPrune v" + GpsPrune.VERSION_NUMBER);
+		try (InputStream in = conn.getInputStream())
 		{
-			URLConnection conn = tileUrl.openConnection();
-			conn.setRequestProperty("User-Agent", "GpsPrune v" + GpsPrune.VERSION_NUMBER);
-			in = conn.getInputStream();
-			result = new TileBytes();
+			TileBytes result = new TileBytes();
 			int bytesRead = 0;
 			byte[] buffer = new byte[4096];
 			while (bytesRead >= 0)
@@ -38,19 +35,13 @@ public class TileDownloader extends TileWorker
 				bytesRead = in.read(buffer, 0, buffer.length);
 				result.addBytes(buffer, bytesRead);
 			}
-
-			// TODO: if this worked, maybe we just came back online?
+			return result;
 		}
 		catch (IOException e)
 		{
+			// The coordinator decides whether to try again later
 			System.err.println("IOE: " + e.getClass().getName() + " - " + e.getMessage());
-			// TODO: if this didn't work, maybe we are now offline, or maybe we just need to block this URL to avoid retries?
-		}
-		finally {
-			try {
-				in.close();
-			} catch (IOException | NullPointerException ignored) {}
+			throw e;
 		}
-		return result;
 	}
 }
@@ -0,0 +1,768 @@
+package tim.prune.gui.map.tile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Single container file holding many map tiles for one layer of a map source.
+ * The file consists of a header followed by tile records, each with
+ * the tile's key, its timestamp, the length and then the bytes of the image.
+ * Saving a tile again appends a new record, and the index always points
+ * to the latest one, until the file is compacted by a purge.
+ * Reads go through a memory-mapped window of fixed size, which is
+ * moved along the file as required, so that only part of the file
+ * is mapped at a time and appending doesn't require a new mapping.
+ * The index is saved in a separate file when the pack is closed, so that
+ * opening it again only needs to scan the records appended since then.
+ * Appending and compacting lock the file, so that several instances
+ * can share the same cache directory.
+ */
+public class TilePackFile
+{
+	/** File on disk */
+	private final File _file;
+	/** Channel for reading and writing, or null if not opened yet */
+	private FileChannel _channel = null;
+	/** Memory-mapped window onto part of the file, or null */
+	private MappedByteBuffer _window = null;
+	/** Position in the file of the start of the window */
+	private long _windowStart = 0L;
+	/** Index from tile key to record */
+	private final HashMap<Long, Entry> _index = new HashMap<>();
+	/** Position at which to append the next record */
+	private long _endPosition = 0L;
+	/** Position of the header of the last record, or -1 if there are no records */
+	private long _lastRecordPosition = -1L;
+	/** End position covered by the saved index file, or -1 if it's not up to date */
+	private long _savedEndPosition = -1L;
+	/** Flag set when the file was found not to exist, to avoid checking again for every tile */
+	private boolean _missing = false;
+
+	/** Identifier at the start of each file */
+	private static final byte[] MAGIC = "GPSPTILE".getBytes(StandardCharsets.US_ASCII);
+	/** Version of the file format */
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = MAGIC.length + 4;
+	/** Highest zoom level which fits in the key */
+	private static final int MAX_ZOOM = 0xff;
+	/** Size of each record header: key, timestamp and length */
+	private static final int RECORD_HEADER_SIZE = 8 + 8 + 4;
+	/** Size of the mapped window, which is also the alignment of its start */
+	static final int WINDOW_SIZE = 8 * 1024 * 1024;
+	/** Extension of pack files */
+	public static final String FILE_EXTENSION = ".tilepack";
+	/** Extension added to the pack file name for the saved index */
+	static final String INDEX_EXTENSION = ".idx";
+	/** Identifier at the start of each saved index */
+	private static final byte[] INDEX_MAGIC = "GPSPTIDX".getBytes(StandardCharsets.US_ASCII);
+	/** Number of scanned records after which the index is saved straight away */
+	private static final int MIN_RECORDS_TO_SAVE = 1000;
+	/** Number of attempts to replace or delete a file which may still be mapped */
+	private static final int MAX_FILE_ATTEMPTS = 3;
+
+	/** Open pack files, so that each file is only indexed once */
+	private static final HashMap<File, TilePackFile> OPEN_FILES = new HashMap<>();
+
+
+	/** Operation on the file system which may fail while the file is still mapped */
+	private interface FileOperation
+	{
+		void run() throws IOException;
+	}
+
+	/** Location of a single tile within the file */
+	private static class Entry
+	{
+		private final long _position;
+		private final int _length;
+		private final long _timestamp;
+
+		private Entry(long inPosition, int inLength, long inTimestamp)
+		{
+			_position = inPosition;
+			_length = inLength;
+			_timestamp = inTimestamp;
+		}
+	}
+
+	/** Tile contents together with the time it was saved */
+	public static class StoredTile
+	{
+		private final byte[] _bytes;
+		private final long _timestamp;
+
+		private StoredTile(byte[] inBytes, long inTimestamp)
+		{
+			_bytes = inBytes;
+			_timestamp = inTimestamp;
+		}
+
+		/** @return bytes of the tile image */
+		public byte[] getBytes() {
+			return _bytes;
+		}
+
+		/** @return time at which the tile was saved, in ms */
+		public long getTimestamp() {
+			return _timestamp;
+		}
+	}
+
+
+	/**
+	 * Constructor
+	 * @param inFile file on disk, which doesn't need to exist yet
+	 */
+	private TilePackFile(File inFile) {
+		_file = inFile;
+	}
+
+	/**
+	 * Get the pack file object for the given file, sharing it if it's already open
+	 * @param inFile file on disk
+	 * @return pack file object
+	 */
+	public static TilePackFile getPackFile(File inFile)
+	{
+		File file = inFile.getAbsoluteFile();
+		synchronized (OPEN_FILES)
+		{
+			return OPEN_FILES.computeIfAbsent(file, TilePackFile::new);
+		}
+	}
+
+	/**
+	 * @param inZoom zoom level
+	 * @param inX x coordinate of tile
+	 * @param inY y coordinate of tile
+	 * @return single key combining all three
+	 */
+	static long makeKey(int inZoom, int inX, int inY) {
+		return ((long) inZoom << 56) | ((long) inX << 28) | inY;
+	}
+
+	/** @return the file on disk */
+	public File getFile() {
+		return _file;
+	}
+
+	/** @return the file holding the saved index */
+	File getIndexFile() {
+		return new File(_file.getPath() + INDEX_EXTENSION);
+	}
+
+	/**
+	 * Close all the open pack files, saving their indexes
+	 */
+	public static void closeAll()
+	{
+		ArrayList<TilePackFile> files;
+		synchronized (OPEN_FILES) {
+			files = new ArrayList<>(OPEN_FILES.values());
+		}
+		for (TilePackFile file : files)
+		{
+			try {
+				file.close();
+			}
+			catch (IOException e) {
+				System.err.println("Failed to close " + file.getFile().getName() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Open the file if necessary, and load or build the index
+	 * @param inCreate true to create the file if it doesn't exist
+	 * @return true if the file is open
+	 */
+	private boolean open(boolean inCreate) throws IOException
+	{
+		if (_channel != null) {
+			return true;
+		}
+		if (_missing || !_file.exists())
+		{
+			_missing = true;
+			if (!inCreate) {
+				return false;
+			}
+			File dir = _file.getParentFile();
+			if (dir != null && !dir.exists() && !dir.mkdirs()) {
+				throw new IOException("Failed to create directory: " + dir.getAbsolutePath());
+			}
+		}
+		_missing = false;
+		_channel = FileChannel.open(_file.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try (FileLock lock = _channel.lock())
+		{
+			if (_channel.size() == 0L)
+			{
+				// New file, so any index left over from a deleted one doesn't apply
+				Files.deleteIfExists(getIndexFile().toPath());
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.put(MAGIC).putInt(VERSION).flip();
+				_channel.write(header, 0L);
+			}
+		}
+		checkHeader();
+		final long startPosition = (loadIndex() ? _endPosition : HEADER_SIZE);
+		if (scanRecords(startPosition) >= MIN_RECORDS_TO_SAVE) {
+			saveIndex();
+		}
+		return true;
+	}
+
+	/**
+	 * Check the file header, and close the file if it's not a pack file
+	 */
+	private void checkHeader() throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		_channel.read(header, 0L);
+		header.flip();
+		boolean valid = header.remaining() >= HEADER_SIZE;
+		if (valid)
+		{
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			valid = Arrays.equals(magic, MAGIC) && header.getInt() == VERSION;
+		}
+		if (!valid)
+		{
+			closeChannel();
+			throw new IOException("Not a tile pack file: " + _file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Scan through the record headers from the given position to add them to the index
+	 * @param inPosition position of the first record header to read
+	 * @return number of records scanned
+	 */
+	private int scanRecords(long inPosition) throws IOException
+	{
+		final long fileSize = _channel.size();
+		long position = inPosition;
+		int numRecords = 0;
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		while (position + RECORD_HEADER_SIZE <= fileSize)
+		{
+			if (!readFully(recordHeader, position)) {
+				break;
+			}
+			final long key = recordHeader.getLong();
+			final long timestamp = recordHeader.getLong();
+			final int length = recordHeader.getInt();
+			final long dataPosition = position + RECORD_HEADER_SIZE;
+			if (length < 0 || dataPosition + length > fileSize) {
+				break; // incomplete record, left over from an interrupted write
+			}
+			_index.put(key, new Entry(dataPosition, length, timestamp));
+			_lastRecordPosition = position;
+			position = dataPosition + length;
+			numRecords++;
+		}
+		_endPosition = position;
+		return numRecords;
+	}
+
+	/**
+	 * Load the saved index, if there is one which matches the file
+	 * @return true if the index was loaded
+	 */
+	private boolean loadIndex()
+	{
+		File indexFile = getIndexFile();
+		if (!indexFile.exists()) {
+			return false;
+		}
+		boolean valid = false;
+		try (DataInputStream inStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile))))
+		{
+			byte[] magic = new byte[INDEX_MAGIC.length];
+			inStream.readFully(magic);
+			if (!Arrays.equals(magic, INDEX_MAGIC) || inStream.readInt() != VERSION) {
+				return false;
+			}
+			final long endPosition = inStream.readLong();
+			final long lastRecordPosition = inStream.readLong();
+			final int numEntries = inStream.readInt();
+			if (endPosition < HEADER_SIZE || endPosition > _channel.size() || numEntries < 0) {
+				return false;
+			}
+			for (int i=0; i<numEntries; i++)
+			{
+				final long key = inStream.readLong();
+				final long position = inStream.readLong();
+				final int length = inStream.readInt();
+				_index.put(key, new Entry(position, length, inStream.readLong()));
+			}
+			valid = matchesLastRecord(lastRecordPosition, endPosition);
+			if (valid)
+			{
+				_endPosition = endPosition;
+				_lastRecordPosition = lastRecordPosition;
+				_savedEndPosition = endPosition;
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Failed to read tile index: " + e.getMessage());
+		}
+		finally
+		{
+			if (!valid) {
+				_index.clear();
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * Check that the last record of a loaded index is still in the file, because
+	 * the file may have been compacted or replaced since the index was saved
+	 * @return true if the record header at the given position matches the index
+	 */
+	private boolean matchesLastRecord(long inLastRecordPosition, long inEndPosition) throws IOException
+	{
+		if (inLastRecordPosition < 0L) {
+			return inEndPosition == HEADER_SIZE && _index.isEmpty();
+		}
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		if (!readFully(recordHeader, inLastRecordPosition)) {
+			return false;
+		}
+		Entry entry = _index.get(recordHeader.getLong());
+		return entry != null && entry._timestamp == recordHeader.getLong()
+			&& entry._length == recordHeader.getInt()
+			&& entry._position == inLastRecordPosition + RECORD_HEADER_SIZE
+			&& entry._position + entry._length == inEndPosition;
+	}
+
+	/**
+	 * Save the index if it has changed since it was loaded or last saved.
+	 * Failure isn't an error, the records will just be scanned again next time.
+	 */
+	private void saveIndex()
+	{
+		if (_channel == null || _endPosition == _savedEndPosition) {
+			return;
+		}
+		File indexFile = getIndexFile();
+		File tempFile = new File(indexFile.getPath() + ".tmp");
+		try
+		{
+			try (DataOutputStream outStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+			{
+				outStream.write(INDEX_MAGIC);
+				outStream.writeInt(VERSION);
+				outStream.writeLong(_endPosition);
+				outStream.writeLong(_lastRecordPosition);
+				outStream.writeInt(_index.size());
+				for (Map.Entry<Long, Entry> mapEntry : _index.entrySet())
+				{
+					Entry entry = mapEntry.getValue();
+					outStream.writeLong(mapEntry.getKey());
+					outStream.writeLong(entry._position);
+					outStream.writeInt(entry._length);
+					outStream.writeLong(entry._timestamp);
+				}
+			}
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			_savedEndPosition = _endPosition;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Failed to save tile index: " + e.getMessage());
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Called with the file locked, to pick up any records which another instance
+	 * has appended since the index was built
+	 */
+	private void catchUpWithFile() throws IOException
+	{
+		final long fileSize = _channel.size();
+		if (fileSize < _endPosition)
+		{
+			// File has been compacted by another instance, so all the positions have changed
+			_index.clear();
+			_window = null;
+			_lastRecordPosition = -1L;
+			_savedEndPosition = -1L;
+			scanRecords(HEADER_SIZE);
+		}
+		else if (fileSize > _endPosition) {
+			scanRecords(_endPosition);
+		}
+	}
+
+	/**
+	 * Fill the given buffer from the given position in the file, using the mapped window if possible
+	 * @param inBuffer buffer to fill, which is then flipped ready for reading
+	 * @param inPosition position in file
+	 * @return true if buffer was filled
+	 */
+	private boolean readFully(ByteBuffer inBuffer, long inPosition) throws IOException
+	{
+		inBuffer.clear();
+		final int length = inBuffer.remaining();
+		if (!windowContains(inPosition, length)) {
+			moveWindow(inPosition, length);
+		}
+		if (windowContains(inPosition, length))
+		{
+			ByteBuffer view = _window.duplicate();
+			final int start = (int) (inPosition - _windowStart);
+			view.position(start).limit(start + length);
+			inBuffer.put(view);
+		}
+		else
+		{
+			long position = inPosition;
+			while (inBuffer.hasRemaining())
+			{
+				final int numRead = _channel.read(inBuffer, position);
+				if (numRead < 0) {
+					return false;
+				}
+				position += numRead;
+			}
+		}
+		inBuffer.flip();
+		return true;
+	}
+
+	/**
+	 * @return true if the current window covers the given range of the file
+	 */
+	private boolean windowContains(long inPosition, int inLength)
+	{
+		return _window != null && inPosition >= _windowStart
+			&& inPosition + inLength <= _windowStart + _window.capacity();
+	}
+
+	/**
+	 * Map a new window starting at the window boundary before the given position,
+	 * unless the range is too big for a window, goes past the end of the file
+	 * or lies in the unmapped tail of the current window
+	 */
+	private void moveWindow(long inPosition, int inLength) throws IOException
+	{
+		final long fileSize = _channel.size();
+		if (inLength > WINDOW_SIZE || inPosition + inLength > fileSize) {
+			return;
+		}
+		final long start = inPosition - inPosition % WINDOW_SIZE;
+		if (_window != null && start == _windowStart) {
+			return; // range was appended after this window was mapped, so read it without remapping
+		}
+		// Window may be extended to include a record crossing the boundary
+		final long end = Math.min(fileSize, Math.max(start + WINDOW_SIZE, inPosition + inLength));
+		// The old window is dropped, only one is mapped at a time
+		_window = null;
+		_window = _channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		_windowStart = start;
+	}
+
+	/**
+	 * @param inZoom zoom level
+	 * @param inX x coordinate of tile
+	 * @param inY y coordinate of tile
+	 * @return stored tile, or null if not found
+	 */
+	public synchronized StoredTile getTile(int inZoom, int inX, int inY) throws IOException
+	{
+		if (!open(false)) {
+			return null;
+		}
+		Entry entry = _index.get(makeKey(inZoom, inX, inY));
+		if (entry == null) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(entry._length);
+		if (!readFully(buffer, entry._position)) {
+			return null;
+		}
+		return new StoredTile(buffer.array(), entry._timestamp);
+	}
+
+	/**
+	 * @param inZoom zoom level
+	 * @param inX x coordinate of tile
+	 * @param inY y coordinate of tile
+	 * @return true if the file contains the given tile
+	 */
+	public synchronized boolean containsTile(int inZoom, int inX, int inY) throws IOException
+	{
+		return open(false) && _index.containsKey(makeKey(inZoom, inX, inY));
+	}
+
+	/**
+	 * Save the given tile, replacing any previous version
+	 * @param inZoom zoom level
+	 * @param inX x coordinate of tile
+	 * @param inY y coordinate of tile
+	 * @param inBytes bytes of tile image
+	 * @param inTimestamp time of saving in ms
+	 */
+	public synchronized void saveTile(int inZoom, int inX, int inY, byte[] inBytes, long inTimestamp)
+		throws IOException
+	{
+		open(true);
+		final long key = makeKey(inZoom, inX, inY);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + inBytes.length);
+		record.putLong(key).putLong(inTimestamp).putInt(inBytes.length).put(inBytes).flip();
+		try (FileLock lock = _channel.lock())
+		{
+			catchUpWithFile();
+			long position = _endPosition;
+			while (record.hasRemaining()) {
+				position += _channel.write(record, position);
+			}
+			_index.put(key, new Entry(_endPosition + RECORD_HEADER_SIZE, inBytes.length, inTimestamp));
+			_lastRecordPosition = _endPosition;
+			_endPosition = position;
+		}
+		_missing = false;
+	}
+
+	/**
+	 * @return number of tiles in the file
+	 */
+	public synchronized int getNumTiles() throws IOException
+	{
+		return open(false) ? _index.size() : 0;
+	}
+
+	/**
+	 * @return number of tiles for each zoom level
+	 */
+	public synchronized int[] getNumTilesPerZoom() throws IOException
+	{
+		int[] numTiles = new int[MAX_ZOOM + 1];
+		if (open(false))
+		{
+			for (long key : _index.keySet()) {
+				numTiles[getZoom(key)]++;
+			}
+		}
+		return numTiles;
+	}
+
+	/**
+	 * @return total size of all the current tiles in bytes
+	 */
+	public synchronized long getTotalTileBytes() throws IOException
+	{
+		long total = 0L;
+		if (open(false))
+		{
+			for (Entry entry : _index.values()) {
+				total += entry._length;
+			}
+		}
+		return total;
+	}
+
+	/** @return zoom level of the given key */
+	private static int getZoom(long inKey) {
+		return (int) (inKey >>> 56) & MAX_ZOOM;
+	}
+
+	/**
+	 * Remove tiles from the file and compact it, also removing the records of old
+	 * versions of tiles. If no tiles are left, the file is deleted.
+	 * @param inShouldRemove test of each tile's timestamp, to decide if it should be removed
+	 * @return number of tiles removed
+	 * @throws IOException if the file couldn't be compacted, in which case it's left unchanged
+	 */
+	public synchronized int purge(LongPredicate inShouldRemove) throws IOException
+	{
+		if (!open(false)) {
+			return 0;
+		}
+		File tempFile = new File(_file.getPath() + ".tmp");
+		HashMap<Long, Entry> newIndex = new HashMap<>();
+		long endPosition = HEADER_SIZE;
+		int numRemoved = 0;
+		try (FileLock lock = _channel.lock())
+		{
+			catchUpWithFile();
+			// Find the records to keep, in file order
+			ArrayList<Map.Entry<Long, Entry>> toKeep = new ArrayList<>();
+			long keptBytes = HEADER_SIZE;
+			for (Map.Entry<Long, Entry> mapEntry : _index.entrySet())
+			{
+				if (!inShouldRemove.test(mapEntry.getValue()._timestamp))
+				{
+					toKeep.add(mapEntry);
+					keptBytes += RECORD_HEADER_SIZE + mapEntry.getValue()._length;
+				}
+			}
+			numRemoved = _index.size() - toKeep.size();
+			if (!toKeep.isEmpty() && keptBytes == _endPosition) {
+				return 0; // nothing to remove, and no old records either
+			}
+			if (!toKeep.isEmpty())
+			{
+				toKeep.sort((a, b) -> Long.compare(a.getValue()._position, b.getValue()._position));
+				endPosition = writeCompactedFile(tempFile, toKeep, newIndex);
+			}
+		}
+		catch (IOException e)
+		{
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+		closeChannel();
+		if (newIndex.isEmpty())
+		{
+			retryAfterUnmapping(() -> Files.deleteIfExists(_file.toPath()));
+			Files.deleteIfExists(getIndexFile().toPath());
+			_missing = true;
+			return numRemoved;
+		}
+		// Replace the file with the compacted one, which fails on some systems while the old one is mapped
+		try {
+			retryAfterUnmapping(() -> Files.move(tempFile.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING));
+		}
+		catch (IOException e)
+		{
+			// Old file is still complete, so reopen it to carry on using it
+			Files.deleteIfExists(tempFile.toPath());
+			open(false);
+			throw e;
+		}
+		Files.deleteIfExists(getIndexFile().toPath());
+		_channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		_index.putAll(newIndex);
+		_endPosition = endPosition;
+		for (Entry entry : newIndex.values()) {
+			_lastRecordPosition = Math.max(_lastRecordPosition, entry._position - RECORD_HEADER_SIZE);
+		}
+		_savedEndPosition = -1L;
+		saveIndex();
+		return numRemoved;
+	}
+
+	/**
+	 * Copy the given records into a new file, through the channel rather than the mapped window
+	 * @param inTempFile file to write
+	 * @param inRecords records to copy, in file order
+	 * @param inNewIndex index to fill with the new positions of the records
+	 * @return end position of the new file
+	 */
+	private long writeCompactedFile(File inTempFile, ArrayList<Map.Entry<Long, Entry>> inRecords,
+		HashMap<Long, Entry> inNewIndex) throws IOException
+	{
+		long position = HEADER_SIZE;
+		try (FileChannel outChannel = FileChannel.open(inTempFile.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC).putInt(VERSION).flip();
+			outChannel.write(header, 0L);
+			for (Map.Entry<Long, Entry> mapEntry : inRecords)
+			{
+				Entry entry = mapEntry.getValue();
+				final long recordLength = RECORD_HEADER_SIZE + entry._length;
+				long copied = 0L;
+				while (copied < recordLength)
+				{
+					final long numCopied = _channel.transferTo(entry._position - RECORD_HEADER_SIZE + copied,
+						recordLength - copied, outChannel.position(position + copied));
+					if (numCopied <= 0) {
+						throw new IOException("Failed to copy tile record");
+					}
+					copied += numCopied;
+				}
+				inNewIndex.put(mapEntry.getKey(), new Entry(position + RECORD_HEADER_SIZE, entry._length, entry._timestamp));
+				position += recordLength;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Run the given operation, retrying after releasing the old mapping if it fails,
+	 * because on some systems a file can't be replaced or deleted while it's mapped
+	 */
+	private static void retryAfterUnmapping(FileOperation inOperation) throws IOException
+	{
+		for (int attempt = 1; ; attempt++)
+		{
+			try
+			{
+				inOperation.run();
+				return;
+			}
+			catch (IOException e)
+			{
+				if (attempt >= MAX_FILE_ATTEMPTS) {
+					throw e;
+				}
+				// An unreferenced mapping is only released when it's garbage collected
+				System.gc();
+				try {
+					Thread.sleep(100L * attempt);
+				}
+				catch (InterruptedException ie)
+				{
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Close the file, for example before it is deleted, saving the index first
+	 */
+	public synchronized void close() throws IOException
+	{
+		if (_channel != null)
+		{
+			saveIndex();
+			closeChannel();
+		}
+	}
+
+	/**
+	 * Close the channel and drop the index
+	 */
+	private void closeChannel() throws IOException
+	{
+		if (_channel != null)
+		{
+			_channel.close();
+			_channel = null;
+			_window = null;
+			_index.clear();
+			_lastRecordPosition = -1L;
+			_savedEndPosition = -1L;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package tim.prune.gui.map.tile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import tim.prune.fileutils.FileList;
+import tim.prune.function.cache.TileSet;
+
+/**
+ * Copies the tiles of a layer from the directory layout
+ * (site/zoom/x/y.ext) into the corresponding pack file.
+ * The original files are left in place.
+ */
+public abstract class TilePackMigrator
+{
+	/**
+	 * Copy all the tiles of the given site into its pack file
+	 * @param inBasePath path to root of the tile cache
+	 * @param inSiteName site name of the map layer
+	 * @return number of tiles copied
+	 * @throws IOException if the pack file couldn't be written
+	 */
+	public static int migrate(String inBasePath, String inSiteName) throws IOException
+	{
+		File siteDir = new File(inBasePath, inSiteName);
+		if (!siteDir.isDirectory()) {
+			return 0;
+		}
+		TilePackFile packFile = PackedTileStore.getPackFile(inBasePath, inSiteName);
+		int numCopied = 0;
+		for (File zoomDir : FileList.filesIn(siteDir))
+		{
+			if (!zoomDir.isDirectory() || !TileSet.isNumeric(zoomDir.getName())) {
+				continue;
+			}
+			final int zoom = Integer.parseInt(zoomDir.getName());
+			for (File xDir : FileList.filesIn(zoomDir))
+			{
+				if (!xDir.isDirectory() || !TileSet.isNumeric(xDir.getName())) {
+					continue;
+				}
+				final int x = Integer.parseInt(xDir.getName());
+				for (File tileFile : FileList.filesIn(xDir))
+				{
+					final String name = tileFile.getName();
+					if (!tileFile.isFile() || !TileSet.isNumericUntilDot(name)) {
+						continue;
+					}
+					final int y = Integer.parseInt(name.substring(0, name.indexOf('.')));
+					if (packFile.containsTile(zoom, x, y)) {
+						continue; // already there, maybe newer
+					}
+					byte[] bytes = Files.readAllBytes(tileFile.toPath());
+					if (bytes.length > 0)
+					{
+						packFile.saveTile(zoom, x, y, bytes, tileFile.lastModified());
+						numCopied++;
+					}
+				}
+			}
+		}
+		return numCopied;
+	}
+}
@@ -0,0 +1,38 @@
+package tim.prune.gui.map.tile;
+
+import java.awt.image.RenderedImage;
+
+import tim.prune.gui.map.CacheFailure;
+import tim.prune.gui.map.MapTile;
+
+/**
+ * Interface for the different ways of storing map tiles on disk
+ */
+public interface TileStore
+{
+	/** Time limit to cache images for */
+	long CACHE_TIME_LIMIT = 20 * 24 * 60 * 60 * 1000L; // 20 days in ms
+
+	/**
+	 * Get a tile from the store
+	 * @param inTileDef tile definition
+	 * @return tile object if possible, otherwise null
+	 */
+	MapTile getTile(TileDef inTileDef);
+
+	/**
+	 * Save the bytes of a downloaded tile
+	 * @param inBytes bytes of the tile image
+	 * @param inDefinition tile definition
+	 * @throws CacheFailure if the tile couldn't be saved
+	 */
+	void saveTileBytes(TileBytes inBytes, TileDef inDefinition) throws CacheFailure;
+
+	/**
+	 * Save a sliced image from a downloaded tile
+	 * @param inImage rendered image to be saved
+	 * @param inDefinition tile definition
+	 * @throws CacheFailure if the tile couldn't be saved
+	 */
+	void saveTileImage(RenderedImage inImage, TileDef inDefinition) throws CacheFailure;
+}
@@ -1,5 +1,7 @@
 package tim.prune.gui.map.tile;
 
+import java.io.IOException;
+
 /**
  * Abstract worker object which just does _something_
  * to process each given Tile Definition and return
@@ -19,12 +21,23 @@ public abstract class TileWorker implements Runnable
 		TileDef tileDef = _parent.getNextDefinition();
 		while (tileDef != null)
 		{
-			TileBytes result = processTile(tileDef);
-			_parent.finishedTile(tileDef, result);
+			try
+			{
+				TileBytes result = processTile(tileDef);
+				_parent.finishedTile(tileDef, result);
+			}
+			catch (IOException e) {
+				_parent.failedTile(tileDef, e);
+			}
 			tileDef = _parent.getNextDefinition();
 		}
-		_parent.threadFinished();
 	}
 
-	protected abstract TileBytes processTile(TileDef def);
+	/**
+	 * Process the given tile
+	 * @param def tile definition
+	 * @return result of processing, or null if there is no tile
+	 * @throws IOException if the processing failed and could be tried again later
+	 */
+	protected abstract TileBytes processTile(TileDef def) throws IOException;
 }
@@ -1,19 +1,79 @@
 package tim.prune.gui.map.tile;
 
+import java.io.FileNotFoundException;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Schedules the processing of requested tiles by a limited number of workers.
+ * Waiting tiles are processed nearest the centre of the view first,
+ * and those which are no longer near the view are dropped.
+ */
 public class TileWorkerCoordinator implements Coordinator
 {
 	private final TileManager _parent;
 	private final TileWorkerBuilder _builder;
-	private final LinkedList<TileDef> _waitingDefs = new LinkedList<>();
-	private final HashSet<TileDef> _processingDefs = new HashSet<>();
-	private final ArrayList<Thread> _threads = new ArrayList<>();
-	private int _previousZoom = -1;
+	/** Waiting tiles in order of priority */
+	private final PriorityQueue<WaitingTile> _waitingQueue = new PriorityQueue<>();
+	/** Waiting tiles by definition, to quickly check for duplicates */
+	private final HashMap<TileDef, WaitingTile> _waitingDefs = new HashMap<>();
+	/** Tiles currently being processed */
+	private final HashMap<TileDef, WaitingTile> _processingDefs = new HashMap<>();
+	/** Number of tiles currently being processed for each host */
+	private final HashMap<String, Integer> _hostCounts = new HashMap<>();
+	private int _numWorkers = 0;
 	private final int _maxNumThreads;
+	/** Counter to keep equal priorities in order of request */
+	private long _sequence = 0L;
+	/** Current view, or -1 if not known */
+	private int _viewZoom = -1, _viewTileX = 0, _viewTileY = 0;
+
 	private static final int DEFAULT_MAX_THREADS = 20;
+	/** Maximum number of tiles being processed at once from the same host */
+	private static final int MAX_PER_HOST = 6;
+	/** Waiting tiles further than this many tiles from the centre of the view are dropped */
+	private static final int MAX_TILE_DISTANCE = 10;
+	/** Number of attempts to make for each tile */
+	private static final int MAX_ATTEMPTS = 3;
+	/** Delay before the first retry, doubled for each subsequent one */
+	private static final long RETRY_DELAY_MS = 1000L;
+	/** Executor shared by all coordinators to run the workers */
+	private static final ExecutorService EXECUTOR = createExecutor();
+
+
+	/** Tile waiting to be processed */
+	private static class WaitingTile implements Comparable<WaitingTile>
+	{
+		private final TileDef _def;
+		private final String _host;
+		private final int _attempt;
+		/** Time before which the tile shouldn't be tried again, for retries */
+		private final long _notBefore;
+		private long _sequence = 0L;
+		private double _distance = 0.0;
+
+		private WaitingTile(TileDef inDef, String inHost, int inAttempt, long inNotBefore)
+		{
+			_def = inDef;
+			_host = inHost;
+			_attempt = inAttempt;
+			_notBefore = inNotBefore;
+		}
+
+		@Override
+		public int compareTo(WaitingTile inOther)
+		{
+			final int distCompare = Double.compare(_distance, inOther._distance);
+			return distCompare != 0 ? distCompare : Long.compare(_sequence, inOther._sequence);
+		}
+	}
 
 
 	/**
@@ -37,72 +97,212 @@ public class TileWorkerCoordinator implements Coordinator
 		_maxNumThreads = inMaxThreads;
 	}
 
+	/**
+	 * @return executor using virtual threads if available, otherwise a limited pool of daemon threads
+	 */
+	private static ExecutorService createExecutor()
+	{
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException ignored) {} // not available before Java 21
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_MAX_THREADS * 2, DEFAULT_MAX_THREADS * 2,
+			30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "TileWorker");
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	/**
 	 * Entry method to trigger a tile download
 	 * @param inDef definition of requested tile
 	 */
 	public synchronized void triggerDownload(TileDef inDef)
 	{
-		for (TileDef def : _waitingDefs) {
-			if (def.equals(inDef)) {
-				return; // already queued
-			}
-		}
-		if (_processingDefs.contains(inDef)) {
-			return; // already being processed
+		if (_waitingDefs.containsKey(inDef) || _processingDefs.containsKey(inDef)) {
+			return; // already queued or being processed
 		}
 		// New, so add to queue
-		_waitingDefs.add(inDef);
+		addToQueue(new WaitingTile(inDef, getHost(inDef), 1, 0L));
 		// Maybe add another worker
-		if (_threads.size() < _maxNumThreads)
+		if (_numWorkers < _maxNumThreads)
+		{
+			_numWorkers++;
+			EXECUTOR.execute(_builder.createWorker(this));
+		}
+	}
+
+	/**
+	 * @return host name of the tile's url, or an empty string
+	 */
+	private static String getHost(TileDef inDef)
+	{
+		try
+		{
+			URL url = inDef.getUrl();
+			return url == null ? "" : url.getHost();
+		}
+		catch (RuntimeException e) {
+			return "";
+		}
+	}
+
+	/** Add the given tile to the queue according to its distance from the view */
+	private void addToQueue(WaitingTile inTile)
+	{
+		inTile._sequence = _sequence++;
+		inTile._distance = getDistanceFromView(inTile._def);
+		_waitingDefs.put(inTile._def, inTile);
+		_waitingQueue.add(inTile);
+		notifyAll();
+	}
+
+	/**
+	 * Set the current view, so that tiles nearest the centre are processed first
+	 * and waiting tiles which are no longer needed are dropped
+	 * @param inZoom zoom level
+	 * @param inTileX x index of the centre tile
+	 * @param inTileY y index of the centre tile
+	 */
+	public synchronized void setView(int inZoom, int inTileX, int inTileY)
+	{
+		if (inZoom == _viewZoom && inTileX == _viewTileX && inTileY == _viewTileY) {
+			return;
+		}
+		_viewZoom = inZoom;
+		_viewTileX = inTileX;
+		_viewTileY = inTileY;
+		// Drop the tiles which are now too far away, and reorder the rest
+		ArrayList<WaitingTile> remaining = new ArrayList<>(_waitingQueue);
+		_waitingQueue.clear();
+		for (WaitingTile tile : remaining)
 		{
-			Thread thread = new Thread(_builder.createWorker(this));
-			_threads.add(thread);
-			thread.start();
+			// Tiles from the next zoom level out are used for double-resolution layers
+			final int zoomDiff = inZoom - tile._def._zoom;
+			tile._distance = getDistanceFromView(tile._def);
+			if ((zoomDiff == 0 || zoomDiff == 1) && tile._distance <= MAX_TILE_DISTANCE) {
+				_waitingQueue.add(tile);
+			}
+			else {
+				_waitingDefs.remove(tile._def);
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * @param inDef tile definition
+	 * @return distance of the tile centre from the view centre, in tiles at the view's zoom level
+	 */
+	private double getDistanceFromView(TileDef inDef)
+	{
+		if (_viewZoom < 0) {
+			return 0.0;
 		}
+		final double scale = Math.pow(2.0, _viewZoom - inDef._zoom);
+		final double numTiles = Math.pow(2.0, _viewZoom);
+		double xDist = Math.abs((inDef._x + 0.5) * scale - (_viewTileX + 0.5)) % numTiles;
+		xDist = Math.min(xDist, numTiles - xDist); // wrap around
+		final double yDist = Math.abs((inDef._y + 0.5) * scale - (_viewTileY + 0.5));
+		return Math.max(xDist, yDist);
 	}
 
 	@Override
 	public synchronized TileDef getNextDefinition()
 	{
-		TileDef def = _waitingDefs.isEmpty() ? null : _waitingDefs.pop();
-		if (def == null) {
-			return null;
+		while (!_waitingQueue.isEmpty())
+		{
+			final long now = System.currentTimeMillis();
+			WaitingTile tile = takeNextTile(now);
+			if (tile != null)
+			{
+				_waitingDefs.remove(tile._def);
+				_processingDefs.put(tile._def, tile);
+				_hostCounts.merge(tile._host, 1, Integer::sum);
+				return tile._def;
+			}
+			// Everything is either waiting for a retry or for its host, so wait for something to change
+			try {
+				wait(RETRY_DELAY_MS);
+			}
+			catch (InterruptedException e) {
+				break;
+			}
 		}
-		int zoom = def._zoom;
-		if (zoom != _previousZoom)
+		// Nothing more to do, so this worker is finished
+		_numWorkers--;
+		return null;
+	}
+
+	/**
+	 * Take the first tile from the queue which can be processed now
+	 * @param inNow current time in ms
+	 * @return tile, or null if none can be processed yet
+	 */
+	private WaitingTile takeNextTile(long inNow)
+	{
+		ArrayList<WaitingTile> skipped = null;
+		WaitingTile result = null;
+		while (result == null && !_waitingQueue.isEmpty())
 		{
-			_processingDefs.clear();
-			_previousZoom = zoom;
+			WaitingTile tile = _waitingQueue.poll();
+			if (tile._notBefore <= inNow && _hostCounts.getOrDefault(tile._host, 0) < MAX_PER_HOST) {
+				result = tile;
+			}
+			else
+			{
+				if (skipped == null) {
+					skipped = new ArrayList<>();
+				}
+				skipped.add(tile);
+			}
+		}
+		if (skipped != null) {
+			_waitingQueue.addAll(skipped);
 		}
-		_processingDefs.add(def);
-		return def;
+		return result;
 	}
 
 	@Override
-	public synchronized void finishedTile(TileDef inDef, TileBytes inResult)
+	public void finishedTile(TileDef inDef, TileBytes inResult)
 	{
 		if (_parent != null) {
 			_parent.returnTile(inDef, inResult);
 		}
-		_processingDefs.remove(inDef);
+		synchronized (this)
+		{
+			finishProcessing(inDef);
+		}
 	}
 
 	@Override
-	public void threadFinished()
+	public synchronized void failedTile(TileDef inDef, Exception inException)
 	{
-		// Go through _threads and remove the finished ones
-		synchronized(this)
+		WaitingTile tile = finishProcessing(inDef);
+		// Try again later, unless the tile just doesn't exist
+		if (tile != null && tile._attempt < MAX_ATTEMPTS && !(inException instanceof FileNotFoundException)
+			&& !_waitingDefs.containsKey(inDef))
 		{
-			ArrayList<Thread> livingThreads = new ArrayList<>();
-			for (Thread t : _threads)
-			{
-				if (t.isAlive() && t != Thread.currentThread()) {
-					livingThreads.add(t);
-				}
-			}
-			_threads.clear();
-			_threads.addAll(livingThreads);
+			final long delay = RETRY_DELAY_MS << (tile._attempt - 1);
+			addToQueue(new WaitingTile(inDef, tile._host, tile._attempt + 1, System.currentTimeMillis() + delay));
+		}
+	}
+
+	/**
+	 * Remove the given tile from the processing set and release its host
+	 * @param inDef tile definition
+	 * @return the tile which was being processed, or null
+	 */
+	private WaitingTile finishProcessing(TileDef inDef)
+	{
+		WaitingTile tile = _processingDefs.remove(inDef);
+		if (tile != null) {
+			_hostCounts.computeIfPresent(tile._host, (host, count) -> count > 1 ? count - 1 : null);
 		}
+		notifyAll();
+		return tile;
 	}
 }
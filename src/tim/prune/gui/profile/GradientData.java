@@ -1,8 +1,7 @@
 package tim.prune.gui.profile;
 
 import tim.prune.I18nManager;
-import tim.prune.data.GradientCalculator;
-import tim.prune.data.SpeedValue;
+import tim.prune.data.TrackMotion;
 import tim.prune.data.Track;
 import tim.prune.data.UnitSet;
 
@@ -29,22 +28,21 @@ public class GradientData extends ProfileData
 		initArrays();
 		_hasData = false;
 		_minValue = _maxValue = 0.0;
-		SpeedValue speed = new SpeedValue();
 		if (_track != null)
 		{
+			TrackMotion motion = _track.getMotion();
 			for (int i=0; i<_track.getNumPoints(); i++)
 			{
-				// Get the gradient either from the speed values or from the distances and altitudes
-				GradientCalculator.calculateGradient(_track, i, speed);
-				if (speed.isValid())
+				// Gradient is either from the speed values or from the distances and altitudes
+				_pointHasData[i] = motion.hasGradient(i);
+				if (_pointHasData[i])
 				{
-					double speedValue = speed.getValue() * 100.0; // convert to %
+					double speedValue = motion.getGradient(i) * 100.0; // convert to %
 					_pointValues[i] = speedValue;
 					if (speedValue < _minValue || !_hasData) {_minValue = speedValue;}
 					if (speedValue > _maxValue || !_hasData) {_maxValue = speedValue;}
 					_hasData = true;
 				}
-				_pointHasData[i] = speed.isValid();
 			}
 		}
 	}
@@ -6,15 +6,20 @@ import java.awt.FlowLayout;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 
 import tim.prune.I18nManager;
 import tim.prune.config.ColourScheme;
@@ -151,6 +156,16 @@ public class ProfileChart extends GenericDisplay
 	private JPopupMenu _popup = null;
 	/** Parameters last time chart was drawn */
 	private ChartParameters _previousParameters = new ChartParameters();
+	/** Envelope of the data values for each pixel column */
+	private ProfileEnvelope _envelope = null;
+	/** Copy of the data values from which the envelope was made */
+	private double[] _envelopeValues = null;
+	/** Counter to discard envelopes made from old data */
+	private int _envelopeVersion = 0;
+	/** Plot width for which an envelope is being made in the background */
+	private int _pendingPlotWidth = -1;
+	/** Background job making the envelope for the pending width */
+	private Future<?> _pendingJob = null;
 
 	/** Possible scales to use */
 	private final ChartScale _chartScale = new ChartScale();
@@ -158,6 +173,12 @@ public class ProfileChart extends GenericDisplay
 	private static final int BORDER_WIDTH = 6;
 	/** Minimum size for profile chart in pixels */
 	private static final Dimension MINIMUM_SIZE = new Dimension(200, 110);
+	/** Single daemon thread for making envelopes when the chart is resized */
+	private static final ExecutorService ENVELOPE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ProfileEnvelope");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 
 	/**
@@ -285,41 +306,50 @@ public class ProfileChart extends GenericDisplay
 
 		try
 		{
-			// loop through points
-			g.setColor(barColour);
-			int previousX = -1;
-			for (int p = 0; p < numPoints; p++)
+			// loop through the pixel columns, using the envelope made for the current width if available
+			final int plotWidth = width - 2 * BORDER_WIDTH - 1;
+			final ProfileEnvelope envelope = getEnvelope(plotWidth);
+			final double columnScale = 1.0 * plotWidth / envelope.getPlotWidth();
+			final int columnWidth = (int) (Math.max(_xScaleFactor, columnScale) + 1.0);
+			int firstColumn = 0, lastColumn = envelope.getNumColumns() - 1;
+			Rectangle clip = g.getClipBounds();
+			if (clip != null)
 			{
-				if (p == selectionStart) {
-					g.setColor(rangeColour);
+				// only the changed part of the chart may need to be painted
+				firstColumn = Math.max(firstColumn, (int) ((clip.x - BORDER_WIDTH - 1) / columnScale) - 1);
+				lastColumn = Math.min(lastColumn, (int) ((clip.x + clip.width - BORDER_WIDTH) / columnScale) + 1);
+			}
+			for (int c = firstColumn; c <= lastColumn; c++)
+			{
+				if (!envelope.hasData(c)) {
+					continue;
 				}
-				else if (p == (selectionEnd+1)) {
-					g.setColor(barColour);
+				final boolean inRange = selectionStart >= 0 && envelope.getFirstIndex(c) <= selectionEnd
+					&& envelope.getLastIndex(c) >= selectionStart;
+				g.setColor(inRange ? rangeColour : barColour);
+				final int x = (int) (columnScale * c) + 1;
+				final double colMax = envelope.getMaxValue(c);
+				final double colMin = envelope.getMinValue(c);
+				// Normal case is the minimum value greater than zero
+				if (minValue >= 0)
+				{
+					y = (int) (yScaleFactor * (colMax - minValue));
+					g.fillRect(BORDER_WIDTH+x, height-BORDER_WIDTH - y, columnWidth, y);
 				}
-
-				final int x = (int) (_xScaleFactor * p) + 1;
-				if (_data.hasData(p) && x != previousX)
+				else
 				{
-					final double value = _data.getData(p);
-					// Normal case is the minimum value greater than zero
-					if (minValue >= 0)
-					{
-						y = (int) (yScaleFactor * (value - minValue));
-						g.fillRect(BORDER_WIDTH+x, height-BORDER_WIDTH - y, barWidth, y);
-					}
-					else if (value >= 0.0)
+					if (colMax >= 0.0)
 					{
 						// Bar upwards from the zero line
-						y = height-BORDER_WIDTH - (int) (yScaleFactor * (value - minValue));
-						g.fillRect(BORDER_WIDTH+x, y, barWidth, zeroY - y);
+						y = height-BORDER_WIDTH - (int) (yScaleFactor * (colMax - minValue));
+						g.fillRect(BORDER_WIDTH+x, y, columnWidth, zeroY - y);
 					}
-					else
+					if (colMin < 0.0)
 					{
 						// Bar downwards from the zero line
-						int barHeight = (int) (yScaleFactor * value);
-						g.fillRect(BORDER_WIDTH+x, zeroY, barWidth, -barHeight);
+						int barHeight = (int) (yScaleFactor * colMin);
+						g.fillRect(BORDER_WIDTH+x, zeroY, columnWidth, -barHeight);
 					}
-					previousX = x;
 				}
 			}
 
@@ -444,6 +474,7 @@ public class ProfileChart extends GenericDisplay
 		if (inUpdateType != SELECTION_CHANGED)
 		{
 			_data.init(_config.getUnitSet());
+			invalidateEnvelope();
 			_previousParameters.clear();
 		}
 		// Update the menu if necessary
@@ -557,6 +588,72 @@ public class ProfileChart extends GenericDisplay
 			}
 		}
 		_data.init(_config.getUnitSet());
+		invalidateEnvelope();
 		repaint();
 	}
+
+	/**
+	 * Get the envelope of the data values for painting
+	 * @param inPlotWidth width of the plot area in pixels
+	 * @return envelope, which may have been made for a different width
+	 */
+	private ProfileEnvelope getEnvelope(int inPlotWidth)
+	{
+		final int numPoints = _track.getNumPoints();
+		ProfileEnvelope envelope = _envelope;
+		if (envelope == null || envelope.getNumPoints() != numPoints)
+		{
+			// Data has changed, so copy the values and build it straight away
+			cancelPendingJob();
+			_envelopeValues = _data.copyValues(numPoints);
+			envelope = new ProfileEnvelope(_envelopeValues, inPlotWidth);
+			_envelope = envelope;
+		}
+		else if (envelope.getPlotWidth() != inPlotWidth && _pendingPlotWidth != inPlotWidth)
+		{
+			// Only the width has changed, so stretch the old one until the new one is ready,
+			// which supersedes any job still waiting for an older width
+			cancelPendingJob();
+			_pendingPlotWidth = inPlotWidth;
+			final int version = _envelopeVersion;
+			final double[] values = _envelopeValues;
+			_pendingJob = ENVELOPE_EXECUTOR.submit(() -> {
+				ProfileEnvelope newEnvelope = new ProfileEnvelope(values, inPlotWidth);
+				SwingUtilities.invokeLater(() -> {
+					if (version == _envelopeVersion && _pendingPlotWidth == inPlotWidth)
+					{
+						_envelope = newEnvelope;
+						_pendingPlotWidth = -1;
+						_pendingJob = null;
+						repaint();
+					}
+				});
+			});
+		}
+		return envelope;
+	}
+
+	/**
+	 * The data values have changed, so the envelope needs to be rebuilt
+	 */
+	private void invalidateEnvelope()
+	{
+		cancelPendingJob();
+		_envelope = null;
+		_envelopeValues = null;
+		_envelopeVersion++;
+	}
+
+	/**
+	 * Cancel the background job for the pending width, if it hasn't started yet
+	 */
+	private void cancelPendingJob()
+	{
+		if (_pendingJob != null)
+		{
+			_pendingJob.cancel(false);
+			_pendingJob = null;
+		}
+		_pendingPlotWidth = -1;
+	}
 }
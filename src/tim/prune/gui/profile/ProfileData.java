@@ -73,6 +73,20 @@ public abstract class ProfileData
 		return _maxValue;
 	}
 
+	/**
+	 * @param inNumPoints number of points
+	 * @return copy of the values which isn't changed by later calls to init,
+	 *         with NaN for the points without data
+	 */
+	double[] copyValues(int inNumPoints)
+	{
+		double[] values = new double[inNumPoints];
+		for (int p=0; p<inNumPoints; p++) {
+			values[p] = hasData(p) ? _pointValues[p] : Double.NaN;
+		}
+		return values;
+	}
+
 	/**
 	 * Get the data from the track and populate the value arrays
 	 */
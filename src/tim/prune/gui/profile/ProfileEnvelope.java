@@ -0,0 +1,95 @@
+package tim.prune.gui.profile;
+
+/**
+ * Minimum and maximum values of the profile data for each pixel column of the chart,
+ * so that the chart can be painted without going through all the points
+ */
+class ProfileEnvelope
+{
+	/** Number of points in the track */
+	private final int _numPoints;
+	/** Width of the plot area in pixels */
+	private final int _plotWidth;
+	/** Scale factor from point index to column */
+	private final double _xScaleFactor;
+	/** Index of the first and last point in each column */
+	private final int[] _firstIndexes, _lastIndexes;
+	/** Flags for whether any points in each column have data */
+	private final boolean[] _hasData;
+	/** Minimum and maximum values in each column */
+	private final double[] _minValues, _maxValues;
+
+
+	/**
+	 * Constructor
+	 * @param inValues copied values of the profile data, with NaN for no data
+	 * @param inPlotWidth width of the plot area in pixels
+	 */
+	ProfileEnvelope(double[] inValues, int inPlotWidth)
+	{
+		final int numPoints = inValues.length;
+		_numPoints = numPoints;
+		_plotWidth = inPlotWidth;
+		_xScaleFactor = 1.0 * inPlotWidth / Math.max(numPoints, 1);
+		final int numColumns = (numPoints == 0 ? 0 : getColumn(numPoints - 1) + 1);
+		_firstIndexes = new int[numColumns];
+		_lastIndexes = new int[numColumns];
+		_hasData = new boolean[numColumns];
+		_minValues = new double[numColumns];
+		_maxValues = new double[numColumns];
+		int column = -1;
+		for (int p=0; p<numPoints; p++)
+		{
+			final int pointColumn = getColumn(p);
+			if (pointColumn != column)
+			{
+				column = pointColumn;
+				_firstIndexes[column] = p;
+			}
+			_lastIndexes[column] = p;
+			final double value = inValues[p];
+			if (!Double.isNaN(value))
+			{
+				if (!_hasData[column] || value < _minValues[column]) {
+					_minValues[column] = value;
+				}
+				if (!_hasData[column] || value > _maxValues[column]) {
+					_maxValues[column] = value;
+				}
+				_hasData[column] = true;
+			}
+		}
+	}
+
+	/**
+	 * @param inPointIndex point index
+	 * @return column in which this point is drawn
+	 */
+	int getColumn(int inPointIndex) {
+		return (int) (_xScaleFactor * inPointIndex);
+	}
+
+	/** @return number of points in the track */
+	int getNumPoints() {return _numPoints;}
+
+	/** @return width of the plot area */
+	int getPlotWidth() {return _plotWidth;}
+
+	/** @return number of columns */
+	int getNumColumns() {return _hasData.length;}
+
+	/** @return true if any point in the column has data */
+	boolean hasData(int inColumn) {return _hasData[inColumn];}
+
+	/** @return minimum value in the column */
+	double getMinValue(int inColumn) {return _minValues[inColumn];}
+
+	/** @return maximum value in the column */
+	double getMaxValue(int inColumn) {return _maxValues[inColumn];}
+
+	/** @return index of the first point in the column */
+	int getFirstIndex(int inColumn) {return _firstIndexes[inColumn];}
+
+	/** @return index of the last point in the column */
+	int getLastIndex(int inColumn) {return _lastIndexes[inColumn];}
+}
@@ -1,8 +1,7 @@
 package tim.prune.gui.profile;
 
 import tim.prune.I18nManager;
-import tim.prune.data.SpeedCalculator;
-import tim.prune.data.SpeedValue;
+import tim.prune.data.TrackMotion;
 import tim.prune.data.Track;
 import tim.prune.data.UnitSet;
 
@@ -29,22 +28,21 @@ public class SpeedData extends ProfileData
 		initArrays();
 		_hasData = false;
 		_minValue = _maxValue = 0.0;
-		SpeedValue speed = new SpeedValue();
 		if (_track != null)
 		{
+			TrackMotion motion = _track.getMotion();
 			for (int i=0; i<_track.getNumPoints(); i++)
 			{
-				// Get the speed either from the speed value or from the distances and timestamps
-				SpeedCalculator.calculateSpeed(_track, i, inUnitSet, speed);
-				if (speed.isValid())
+				// Speed is either from the speed value or from the distances and timestamps
+				_pointHasData[i] = motion.hasHorizontalSpeed(i);
+				if (_pointHasData[i])
 				{
-					double speedValue = speed.getValue();
+					double speedValue = motion.getHorizontalSpeed(i, inUnitSet.getSpeedUnit());
 					_pointValues[i] = speedValue;
 					if (speedValue < _minValue || !_hasData) {_minValue = speedValue;}
 					if (speedValue > _maxValue || !_hasData) {_maxValue = speedValue;}
 					_hasData = true;
 				}
-				_pointHasData[i] = speed.isValid();
 			}
 		}
 	}
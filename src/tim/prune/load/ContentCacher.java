@@ -65,6 +65,14 @@ public abstract class ContentCacher
 	}
 
 
+	/**
+	 * @return true if the contents are only the first part of the data
+	 */
+	public boolean isTruncated() {
+		return false;
+	}
+
+
 	/**
 	 * Clear the memory
 	 */
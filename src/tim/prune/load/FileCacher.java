@@ -1,17 +1,24 @@
 package tim.prune.load;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 
 /**
- * Class to load the contents of a file
- * into an array for later retrieval
+ * Class to load the first part of a file
+ * into an array for the preview and for guessing the fields.
+ * Large files are not loaded completely, but read again line by line
+ * once the options have been chosen.
  */
 public class FileCacher extends ContentCacher
 {
+	/** Flag set if the file has more lines than were cached */
+	private boolean _truncated = false;
+
+	/** Maximum number of non-blank lines to cache */
+	private static final int MAX_LINES = 5000;
+
+
 	/**
 	 * Constructor
 	 * @param inFile File object to cache
@@ -23,14 +30,14 @@ public class FileCacher extends ContentCacher
 
 
 	/**
-	 * Load the specified file into memory
+	 * Load the start of the specified file into memory
 	 */
 	private void loadFile(File inFile)
 	{
 		ArrayList<String> contentList = new ArrayList<String>();
 		if (inFile != null && inFile.exists() && inFile.canRead())
 		{
-			try (BufferedReader reader = new BufferedReader(new FileReader(inFile)))
+			try (MappedLineReader reader = new MappedLineReader(inFile))
 			{
 				String currLine = reader.readLine();
 				if (currLine != null && currLine.startsWith("<?xml")) {
@@ -38,12 +45,16 @@ public class FileCacher extends ContentCacher
 				}
 				while (currLine != null)
 				{
-					if (currLine.indexOf('\0') >= 0)
-					{
-						reader.close();
+					if (currLine.indexOf('\0') >= 0) {
 						return; // it's a binary file, shouldn't use this cacher
 					}
-					if (currLine.trim().length() > 0) {
+					if (currLine.trim().length() > 0)
+					{
+						if (contentList.size() == MAX_LINES)
+						{
+							_truncated = true;
+							break;
+						}
 						contentList.add(currLine);
 					}
 					currLine = reader.readLine();
@@ -53,4 +64,11 @@ public class FileCacher extends ContentCacher
 		}
 		setContents(contentList);
 	}
+
+	/**
+	 * @return true if only the first part of the file was cached
+	 */
+	public boolean isTruncated() {
+		return _truncated;
+	}
 }
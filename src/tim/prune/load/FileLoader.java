@@ -98,6 +98,26 @@ public class FileLoader
 		}
 	}
 
+	/**
+	 * @param inFile file to check
+	 * @return true if the file is loaded as kml or gpx by the xml loader
+	 */
+	public static boolean isXmlFile(File inFile)
+	{
+		final String name = inFile.getName().toLowerCase();
+		return name.endsWith(".kml") || name.endsWith(".gpx") || name.endsWith(".xml");
+	}
+
+	/**
+	 * @param inFile file to check
+	 * @return true if the file is loaded as gzipped xml
+	 */
+	public static boolean isGzipFile(File inFile)
+	{
+		final String name = inFile.getName().toLowerCase();
+		return name.endsWith(".gz") || name.endsWith(".gzip");
+	}
+
 	/**
 	 * Open the selected input file
 	 * @param inFile file to open
@@ -116,8 +136,7 @@ public class FileLoader
 		if (fileExtension.length() > 4) {
 			fileExtension = fileExtension.substring(fileExtension.length() - 4);
 		}
-		if (fileExtension.equals(".kml") || fileExtension.equals(".gpx")
-			|| fileExtension.equals(".xml"))
+		if (isXmlFile(inFile))
 		{
 			// Use xml loader for kml, gpx and xml filenames
 			_xmlFileLoader.openFile(fileLock, inAutoAppend);
@@ -127,7 +146,7 @@ public class FileLoader
 			// Use zip loader for zipped kml (or zipped gpx)
 			_zipFileLoader.openFile(fileLock, inAutoAppend);
 		}
-		else if (fileExtension.endsWith(".gz") || fileExtension.equals("gzip"))
+		else if (isGzipFile(inFile))
 		{
 			// Use gzip loader for gzipped xml
 			_gzipFileLoader.openFile(fileLock, inAutoAppend);
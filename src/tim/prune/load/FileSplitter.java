@@ -33,7 +33,6 @@ public class FileSplitter
 		if (_cacher == null) return null;
 		String[] contents = _cacher.getContents();
 		if (contents == null || contents.length == 0) return null;
-		String delimStr = checkDelimiter(inDelim);
 		// Count non-blank rows and max field count
 		_numRows = 0;
 		int maxFields = 0;
@@ -42,7 +41,7 @@ public class FileSplitter
 			if (line != null && !line.trim().equals(""))
 			{
 				_numRows++;
-				String[] splitLine = line.split(delimStr);
+				String[] splitLine = LineSplitter.split(line, inDelim);
 				if (splitLine != null && splitLine.length > maxFields)
 				{
 					maxFields = splitLine.length;
@@ -66,7 +65,7 @@ public class FileSplitter
 				{
 					// Don't use trimmed string here because you'll lose empty fields at beginning
 					// if separated by spaces or tabs
-					String[] splitLine = wholeLine.split(delimStr);
+					String[] splitLine = LineSplitter.split(wholeLine, inDelim);
 					if (splitLine != null)
 					{
 						// Check if columns are blank or not
@@ -121,19 +120,4 @@ public class FileSplitter
 		// Should probably trap out of range values
 		return !_columnStates[inColumnNum];
 	}
-
-	/**
-	 * Check the delimiter for proper regular expression matching
-	 * @param inDelim character selected as delimiter
-	 * @return regular expression for splitting
-	 */
-	private static String checkDelimiter(char inDelim)
-	{
-		String result = "" + inDelim;
-		// Don't pass asterisks or dots without escaping them for RE
-		if (inDelim == '*' || inDelim == '.') {
-			result = "\\" + result;
-		}
-		return result;
-	}
 }
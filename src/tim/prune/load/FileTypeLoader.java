@@ -64,15 +64,7 @@ public class FileTypeLoader
 	 */
 	protected void loadData(List<DataPoint> inPointList, SourceInfo inSourceInfo, boolean inAppend)
 	{
-		// Set the source info on each of the created points
-		int index = 0;
-		for (DataPoint point : inPointList) {
-			point.setSourceInfo(inSourceInfo);
-			point.setOriginalIndex(index++);
-		}
-		if (inSourceInfo != null) {
-			inSourceInfo.setNumPoints(inPointList.size());
-		}
+		setSourceInfo(inPointList, inSourceInfo);
 		final CompoundCommand command = new CompoundCommand(DataSubscriber.FILE_LOADED);
 		if (inAppend) {
 			command.addCommand(new AppendRangeCmd(inPointList));
@@ -111,6 +103,23 @@ public class FileTypeLoader
 		}
 	}
 
+	/**
+	 * Set the source info on each of the created points
+	 * @param inPointList list of points created from data
+	 * @param inSourceInfo information about the data source
+	 */
+	protected static void setSourceInfo(List<DataPoint> inPointList, SourceInfo inSourceInfo)
+	{
+		int index = 0;
+		for (DataPoint point : inPointList) {
+			point.setSourceInfo(inSourceInfo);
+			point.setOriginalIndex(index++);
+		}
+		if (inSourceInfo != null) {
+			inSourceInfo.setNumPoints(inPointList.size());
+		}
+	}
+
 	/**
 	 * @return filename from the source info
 	 */
@@ -136,23 +145,12 @@ public class FileTypeLoader
 	protected List<DataPoint> createPoints(Field[] inFields, Object[][] inData,
 		PointCreateOptions inOptions)
 	{
-		ArrayList<DataPoint> points = new ArrayList<>();
-		boolean firstTrackPoint = true;
+		LoadedPoints points = new LoadedPoints();
 		FieldList fields = new FieldList(inFields);
-		for (Object[] objects : inData)
-		{
-			DataPoint point = new DataPoint((String[]) objects, fields, inOptions);
-			if (point.isValid())
-			{
-				if (firstTrackPoint && !point.isWaypoint())
-				{
-					point.setSegmentStart(true);
-					firstTrackPoint = false;
-				}
-				points.add(point);
-			}
+		for (Object[] objects : inData) {
+			points.addPoint(new DataPoint((String[]) objects, fields, inOptions), null);
 		}
-		return points;
+		return points.getPoints();
 	}
 
 	/**
@@ -169,34 +167,49 @@ public class FileTypeLoader
 		if (appendOption == JOptionPane.CANCEL_OPTION) {
 			return;
 		}
-		// give data to App
-		List<DataPoint> points = createPoints(inHandler.getFieldArray(),
-			inHandler.getDataArray(), null);
+		// give data to App, the points have already been created by the handler
+		List<DataPoint> points = inHandler.getLoadedPoints().getPoints();
 		loadData(points, inSourceInfo, appendOption == JOptionPane.YES_OPTION);
-		if (inMediaLinks != null && inMediaLinks.getLinkArray() != null
-				&& inMediaLinks.getLinkArray().length == points.size())
+		ArrayList<ItemToLoad> items = getLinkedMedia(points, inSourceInfo, inMediaLinks);
+		if (!items.isEmpty()) {
+			_app.loadLinkedMedia(items);
+		}
+	}
+
+	/**
+	 * Build list of linked media to be loaded after the points
+	 * @param inPoints loaded points
+	 * @param inSourceInfo info about file
+	 * @param inMediaLinks media links matching the points, if any
+	 * @return list of items to load, maybe empty
+	 */
+	protected static ArrayList<ItemToLoad> getLinkedMedia(List<DataPoint> inPoints, SourceInfo inSourceInfo,
+		MediaLinkInfo inMediaLinks)
+	{
+		ArrayList<ItemToLoad> items = new ArrayList<>();
+		if (inMediaLinks == null || inMediaLinks.getLinkArray() == null
+			|| inMediaLinks.getLinkArray().length != inPoints.size())
 		{
-			// Build list of linked media to be loaded afterwards
-			ArrayList<ItemToLoad> items = new ArrayList<>();
-			for (int i=0; i<points.size(); i++)
+			return items;
+		}
+		for (int i=0; i<inPoints.size(); i++)
+		{
+			String link = inMediaLinks.getLinkArray()[i];
+			if (link != null)
 			{
-				String link = inMediaLinks.getLinkArray()[i];
-				if (link != null)
+				DataPoint point = inPoints.get(i);
+				if (looksLikeUrl(link))
 				{
-					DataPoint point = points.get(i);
-					if (looksLikeUrl(link))
-					{
-						try {
-							items.add(ItemToLoad.mediaUrl(new URL(link), point));
-						} catch (MalformedURLException ignored) {}
-					}
-					else {
-						items.add(ItemToLoad.archivedFile(inSourceInfo.getFile(), link, point));
-					}
+					try {
+						items.add(ItemToLoad.mediaUrl(new URL(link), point));
+					} catch (MalformedURLException ignored) {}
+				}
+				else {
+					items.add(ItemToLoad.archivedFile(inSourceInfo.getFile(), link, point));
 				}
 			}
-			_app.loadLinkedMedia(items);
 		}
+		return items;
 	}
 
 	private static boolean looksLikeUrl(String inLink)
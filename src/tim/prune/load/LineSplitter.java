@@ -0,0 +1,67 @@
+package tim.prune.load;
+
+/**
+ * Splits lines of delimited text into fields without using regular expressions.
+ * The results match those of String.split with the delimiter as a literal,
+ * so trailing empty fields are removed but leading ones are kept.
+ */
+public abstract class LineSplitter
+{
+	/**
+	 * Count the fields in the given line
+	 * @param inLine line of text
+	 * @param inDelim delimiter character
+	 * @return number of fields which split would return
+	 */
+	public static int countFields(String inLine, char inDelim)
+	{
+		final int length = inLine.length();
+		if (length == 0) {
+			return 1;
+		}
+		int fieldIndex = 0;
+		int numFields = 0;
+		boolean fieldEmpty = true;
+		for (int i=0; i<length; i++)
+		{
+			if (inLine.charAt(i) == inDelim)
+			{
+				if (!fieldEmpty) {
+					numFields = fieldIndex + 1;
+				}
+				fieldIndex++;
+				fieldEmpty = true;
+			}
+			else {
+				fieldEmpty = false;
+			}
+		}
+		if (!fieldEmpty) {
+			numFields = fieldIndex + 1;
+		}
+		return numFields;
+	}
+
+	/**
+	 * Split the given line into fields
+	 * @param inLine line of text
+	 * @param inDelim delimiter character
+	 * @return array of fields
+	 */
+	public static String[] split(String inLine, char inDelim)
+	{
+		final int numFields = countFields(inLine, inDelim);
+		String[] result = new String[numFields];
+		int start = 0;
+		for (int i=0; i<numFields; i++)
+		{
+			int end = inLine.indexOf(inDelim, start);
+			if (end < 0) {
+				end = inLine.length();
+			}
+			result[i] = inLine.substring(start, end);
+			start = end + 1;
+		}
+		return result;
+	}
+}
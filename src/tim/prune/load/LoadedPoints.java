@@ -0,0 +1,64 @@
+package tim.prune.load;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.ValuePool;
+
+/**
+ * Default sink for points as they are loaded, which keeps the valid
+ * points in order together with their media links, ready to be added to the track.
+ * Repeated field values are shared between the points of this load.
+ */
+public class LoadedPoints implements PointSink
+{
+	private final ArrayList<DataPoint> _points = new ArrayList<>();
+	private final ArrayList<String> _links = new ArrayList<>();
+	private boolean _hasLink = false;
+	private boolean _firstTrackPoint = true;
+	private final ValuePool _valuePool = new ValuePool();
+
+
+	/**
+	 * Receive a point, ignoring it if it's not valid, and treating empty links as missing
+	 * @see tim.prune.load.PointSink#addPoint(tim.prune.data.DataPoint, java.lang.String)
+	 */
+	public void addPoint(DataPoint inPoint, String inLink)
+	{
+		if (inPoint == null || !inPoint.isValid()) {
+			return;
+		}
+		if (_firstTrackPoint && !inPoint.isWaypoint())
+		{
+			inPoint.setSegmentStart(true);
+			_firstTrackPoint = false;
+		}
+		inPoint.poolValues(_valuePool);
+		final String link = (inLink == null || inLink.isEmpty() ? null : inLink);
+		_points.add(inPoint);
+		_links.add(link);
+		_hasLink |= (link != null);
+	}
+
+	/** @return list of received points */
+	public List<DataPoint> getPoints() {
+		return _points;
+	}
+
+	/** @return number of received points */
+	public int getNumPoints() {
+		return _points.size();
+	}
+
+	/**
+	 * @return array of links matching the points, or null if there aren't any
+	 */
+	public String[] getLinkArray()
+	{
+		if (!_hasLink) {
+			return null;
+		}
+		return _links.toArray(new String[0]);
+	}
+}
@@ -0,0 +1,163 @@
+package tim.prune.load;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads lines of text from a file through a memory-mapped window
+ * which moves along the file, so that files of any size can be read
+ * without holding more than the window in memory
+ */
+class MappedLineReader implements Closeable
+{
+	private final FileChannel _channel;
+	private final long _fileSize;
+	private final long _windowSize;
+	private final CharsetDecoder _decoder;
+	/** Mapped part of the file */
+	private MappedByteBuffer _window = null;
+	/** Position of the window within the file */
+	private long _windowStart = 0L;
+	/** Decoded characters not yet returned */
+	private final CharBuffer _chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+	private final StringBuilder _line = new StringBuilder();
+	private boolean _endOfInput = false;
+	/** Flag set when the last line ended with a carriage return */
+	private boolean _lastWasReturn = false;
+
+	private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+	/** Window must be big enough to hold at least one whole character */
+	private static final long MIN_WINDOW_SIZE = 16L;
+	private static final int CHAR_BUFFER_SIZE = 64 * 1024;
+
+
+	/**
+	 * Constructor using the default character set
+	 * @param inFile file to read
+	 */
+	MappedLineReader(File inFile) throws IOException {
+		this(inFile, Charset.defaultCharset(), DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 * @param inFile file to read
+	 * @param inCharset character set of the file
+	 * @param inWindowSize number of bytes to map at once
+	 */
+	MappedLineReader(File inFile, Charset inCharset, long inWindowSize) throws IOException
+	{
+		_channel = FileChannel.open(inFile.toPath(), StandardOpenOption.READ);
+		_fileSize = _channel.size();
+		_windowSize = Math.max(inWindowSize, MIN_WINDOW_SIZE);
+		_decoder = inCharset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		_chars.flip();
+		mapWindow(0L);
+	}
+
+	/** Map the window starting at the given position */
+	private void mapWindow(long inStart) throws IOException
+	{
+		_windowStart = inStart;
+		_window = _channel.map(FileChannel.MapMode.READ_ONLY, inStart, Math.min(_windowSize, _fileSize - inStart));
+	}
+
+	/**
+	 * @return the next line without its line ending, or null at the end of the file
+	 */
+	String readLine() throws IOException
+	{
+		_line.setLength(0);
+		boolean anyChars = false;
+		while (true)
+		{
+			if (!_chars.hasRemaining() && !fillChars()) {
+				return anyChars ? _line.toString() : null;
+			}
+			final char[] array = _chars.array();
+			final int start = _chars.position();
+			final int limit = _chars.limit();
+			if (_lastWasReturn)
+			{
+				_lastWasReturn = false;
+				if (array[start] == '\n')
+				{
+					// skip the second half of a \r\n line ending
+					_chars.position(start + 1);
+					continue;
+				}
+			}
+			int end = start;
+			while (end < limit && array[end] != '\n' && array[end] != '\r') {
+				end++;
+			}
+			_line.append(array, start, end - start);
+			if (end < limit)
+			{
+				_lastWasReturn = (array[end] == '\r');
+				_chars.position(end + 1);
+				return _line.toString();
+			}
+			_chars.position(end);
+			anyChars = true;
+		}
+	}
+
+	/**
+	 * Decode more characters from the file
+	 * @return true if there are some characters available
+	 */
+	private boolean fillChars() throws IOException
+	{
+		_chars.clear();
+		while (_chars.position() == 0 && !_endOfInput)
+		{
+			final boolean lastWindow = (_windowStart + _window.limit() >= _fileSize);
+			CoderResult result = _decoder.decode(_window, _chars, lastWindow);
+			if (result.isUnderflow())
+			{
+				if (lastWindow)
+				{
+					_decoder.decode(ByteBuffer.allocate(0), _chars, true);
+					_decoder.flush(_chars);
+					_endOfInput = true;
+				}
+				else {
+					// Any incomplete character at the end of the window is decoded with the next one
+					mapWindow(_windowStart + _window.position());
+				}
+			}
+		}
+		_chars.flip();
+		return _chars.hasRemaining();
+	}
+
+	/** @return number of bytes of the file read so far */
+	long getPosition() {
+		return _windowStart + _window.position();
+	}
+
+	/** @return total size of the file in bytes */
+	long getFileSize() {
+		return _fileSize;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		_window = null;
+		_channel.close();
+	}
+}
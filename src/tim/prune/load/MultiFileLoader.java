@@ -0,0 +1,271 @@
+package tim.prune.load;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import tim.prune.App;
+import tim.prune.DataSubscriber;
+import tim.prune.I18nManager;
+import tim.prune.cmd.AppendRangeCmd;
+import tim.prune.cmd.CompoundCommand;
+import tim.prune.cmd.DeleteAllPointsCmd;
+import tim.prune.cmd.RemoveCorrelatedMediaCmd;
+import tim.prune.data.DataPoint;
+import tim.prune.data.SourceInfo;
+import tim.prune.gui.ProgressDialog;
+import tim.prune.gui.ProgressIndicator;
+import tim.prune.load.xml.XmlFileLoader;
+import tim.prune.load.xml.XmlHandler;
+
+/**
+ * Loader for several gpx / kml files at once.
+ * The files are parsed in parallel on a limited number of threads,
+ * while a progress dialog shows how many files have been parsed.
+ * Then all the points are appended in the original order of the files
+ * with a single command, so they can be undone together.
+ */
+public class MultiFileLoader extends FileTypeLoader
+{
+	/** Flag set by the progress dialog to stop loading */
+	private volatile boolean _cancelled = false;
+
+	/** Maximum number of files to parse at the same time */
+	private static final int MAX_THREADS = 4;
+
+
+	/** Result of parsing a single file */
+	private static class ParsedFile
+	{
+		private final File _file;
+		private final XmlHandler _handler;
+		private final String _error;
+
+		private ParsedFile(File inFile, XmlHandler inHandler, String inError)
+		{
+			_file = inFile;
+			_handler = inHandler;
+			_error = inError;
+		}
+	}
+
+	/** Points and media merged from all the parsed files, along with any errors */
+	static class MergedFiles
+	{
+		final ArrayList<DataPoint> _points = new ArrayList<>();
+		final ArrayList<ItemToLoad> _mediaItems = new ArrayList<>();
+		final ArrayList<File> _loadedFiles = new ArrayList<>();
+		final ArrayList<String> _errors = new ArrayList<>();
+	}
+
+
+	/**
+	 * Constructor
+	 * @param inApp App object
+	 */
+	public MultiFileLoader(App inApp) {
+		super(inApp);
+	}
+
+	/**
+	 * @param inFile file to check
+	 * @return true if the file can be loaded without asking any questions
+	 */
+	public static boolean canLoad(File inFile) {
+		return FileLoader.isXmlFile(inFile) || FileLoader.isGzipFile(inFile);
+	}
+
+	/**
+	 * Load all the given files in the background, showing the progress,
+	 * and then inform the app when finished
+	 * @param inFiles files to load, all of which must be loadable
+	 */
+	public void loadFiles(List<File> inFiles)
+	{
+		if (!SwingUtilities.isEventDispatchThread())
+		{
+			SwingUtilities.invokeLater(() -> loadFiles(inFiles));
+			return;
+		}
+		_cancelled = false;
+		ProgressDialog progress = new ProgressDialog(getApp().getFrame(), "function.open", null,
+			() -> _cancelled = true);
+		progress.show();
+		new Thread(() -> {
+			MergedFiles merged = parseAndMerge(inFiles,
+				(current, max) -> SwingUtilities.invokeLater(() -> progress.showProgress(current, max)));
+			SwingUtilities.invokeLater(() -> {
+				progress.close();
+				if (!_cancelled) {
+					addPoints(merged);
+				}
+				getApp().informDataLoadComplete();
+			});
+		}).start();
+	}
+
+	/**
+	 * Parse all the given files and merge their points in the order of the files
+	 * @param inFiles files to parse
+	 * @param inProgress progress indicator, or null
+	 * @return merged points, empty if cancelled
+	 */
+	MergedFiles parseAndMerge(List<File> inFiles, ProgressIndicator inProgress)
+	{
+		MergedFiles merged = new MergedFiles();
+		for (ParsedFile parsed : parseFiles(inFiles, inProgress))
+		{
+			if (parsed._error != null) {
+				merged._errors.add(parsed._error);
+			}
+			if (parsed._handler == null) {
+				continue;
+			}
+			List<DataPoint> points = parsed._handler.getLoadedPoints().getPoints();
+			if (points.isEmpty()) {
+				continue;
+			}
+			SourceInfo sourceInfo = makeSourceInfo(parsed._file, parsed._handler);
+			setSourceInfo(points, sourceInfo);
+			merged._points.addAll(points);
+			merged._mediaItems.addAll(getLinkedMedia(points, sourceInfo,
+				new MediaLinkInfo(parsed._handler.getLinkArray())));
+			merged._loadedFiles.add(parsed._file);
+		}
+		return merged;
+	}
+
+	/**
+	 * Show any errors and then add the merged points with a single command,
+	 * called on the event dispatch thread
+	 * @param inMerged points and errors from all the files
+	 */
+	private void addPoints(MergedFiles inMerged)
+	{
+		for (String error : inMerged._errors) {
+			getApp().showErrorMessageNoLookup("error.load.dialogtitle", error);
+		}
+		if (inMerged._points.isEmpty())
+		{
+			JOptionPane.showMessageDialog(getApp().getFrame(), I18nManager.getText("error.load.nopoints"),
+				I18nManager.getText("function.open"), JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		final int appendOption = getAppendOption(false);
+		if (appendOption == JOptionPane.CANCEL_OPTION) {
+			return;
+		}
+		final CompoundCommand command = new CompoundCommand(DataSubscriber.FILE_LOADED);
+		if (appendOption != JOptionPane.YES_OPTION)
+		{
+			command.addCommand(new RemoveCorrelatedMediaCmd())
+				.addCommand(new DeleteAllPointsCmd());
+		}
+		final int numPoints = inMerged._points.size();
+		command.addCommand(new AppendRangeCmd(inMerged._points));
+		command.setDescription(I18nManager.getTextWithNumber("undo.loadpoints", numPoints));
+		command.setConfirmText(I18nManager.getTextWithNumber("confirm.pointsadded", numPoints));
+		if (getApp().execute(command))
+		{
+			getApp().addRecentFiles(inMerged._loadedFiles);
+			if (!inMerged._mediaItems.isEmpty()) {
+				getApp().loadLinkedMedia(inMerged._mediaItems);
+			}
+		}
+	}
+
+	/**
+	 * Parse all the files in parallel
+	 * @param inFiles files to parse
+	 * @param inProgress progress indicator, or null
+	 * @return results in the same order as the given files, or an empty list if cancelled
+	 */
+	private List<ParsedFile> parseFiles(List<File> inFiles, ProgressIndicator inProgress)
+	{
+		final int numFiles = inFiles.size();
+		final int numThreads = Math.max(1, Math.min(MAX_THREADS,
+			Math.min(numFiles, Runtime.getRuntime().availableProcessors())));
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<ParsedFile>> futures = new ArrayList<>();
+		for (File file : inFiles) {
+			futures.add(executor.submit(() -> parseFile(file)));
+		}
+		executor.shutdown();
+		ArrayList<ParsedFile> results = new ArrayList<>();
+		for (int i=0; i<numFiles; i++)
+		{
+			ParsedFile result = null;
+			try {
+				result = futures.get(i).get();
+			}
+			catch (ExecutionException e)
+			{
+				result = new ParsedFile(inFiles.get(i), null, I18nManager.getText("error.load.othererror")
+					+ " " + inFiles.get(i).getName() + " - " + e.getCause().getClass().getName());
+			}
+			catch (InterruptedException ignored) {}
+			if (_cancelled || result == null)
+			{
+				executor.shutdownNow();
+				return new ArrayList<>();
+			}
+			results.add(result);
+			if (inProgress != null) {
+				inProgress.showProgress(i + 1, numFiles);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Parse a single file
+	 * @param inFile file to parse
+	 * @return result containing the handler with the points, or the error message
+	 */
+	private ParsedFile parseFile(File inFile) throws IOException
+	{
+		if (_cancelled) {
+			return null;
+		}
+		try (InputStream fileStream = new FileInputStream(inFile);
+			InputStream inStream = (FileLoader.isGzipFile(inFile) ? new GZIPInputStream(fileStream) : fileStream))
+		{
+			XmlFileLoader xmlLoader = new XmlFileLoader(getApp());
+			final String error = xmlLoader.parseXmlStreamQuietly(inStream);
+			if (error != null)
+			{
+				return new ParsedFile(inFile, null, I18nManager.getText("error.load.othererror")
+					+ " " + inFile.getName() + " - " + error);
+			}
+			if (xmlLoader.getHandler() == null)
+			{
+				// Wasn't either kml or gpx
+				return new ParsedFile(inFile, null,
+					I18nManager.getText("error.load.unknownxml") + " " + inFile.getName());
+			}
+			return new ParsedFile(inFile, xmlLoader.getHandler(), null);
+		}
+	}
+	/**
+	 * @return source info for the given file
+	 */
+	private static SourceInfo makeSourceInfo(File inFile, XmlHandler inHandler)
+	{
+		SourceInfo sourceInfo = new SourceInfo(inFile, inHandler.getFileType(), inHandler.getFileVersion());
+		sourceInfo.setFileTitle(inHandler.getFileTitle());
+		sourceInfo.setFileDescription(inHandler.getFileDescription());
+		sourceInfo.setExtensionInfo(inHandler.getExtensionInfo());
+		return sourceInfo;
+	}
+}
@@ -1,6 +1,7 @@
 package tim.prune.load;
 
 import java.util.Calendar;
+import java.util.TimeZone;
 
 /**
  * Class to hold a single NMEA message
@@ -12,8 +13,9 @@ public class NmeaMessage
 	private final String _altitude;
 	private final String _timestamp;
 	private String _date = null;
-	private final boolean _fix;
 	private boolean _segment = false;
+	private String _speed = null;
+	private String _course = null;
 
 	/**
 	 * Constructor
@@ -21,24 +23,14 @@ public class NmeaMessage
 	 * @param inLongitude longitude
 	 * @param inAltitude altitude
 	 * @param inTimestamp timestamp
-	 * @param inFix fix = 0, 1 or 2
 	 */
 	public NmeaMessage(String inLatitude, String inLongitude,
-		String inAltitude, String inTimestamp, String inFix)
+		String inAltitude, String inTimestamp)
 	{
 		_latitude = inLatitude;
 		_longitude = inLongitude;
 		_altitude = inAltitude;
 		_timestamp = inTimestamp;
-		_fix = inFix != null && !inFix.isEmpty()
-			&& !inFix.equals("0");
-	}
-
-	/**
-	 * @return true if message has a fix
-	 */
-	public boolean hasFix() {
-		return _fix;
 	}
 
 	/**
@@ -71,6 +63,26 @@ public class NmeaMessage
 		return _segment;
 	}
 
+	/**
+	 * @param inSpeed speed in knots from RMC or VTG sentence
+	 * @param inCourse course in degrees from RMC or VTG sentence
+	 */
+	public void setMotion(String inSpeed, String inCourse)
+	{
+		_speed = inSpeed;
+		_course = inCourse;
+	}
+
+	/** @return speed in knots, or null */
+	public String getSpeed() {
+		return _speed;
+	}
+
+	/** @return course in degrees, or null */
+	public String getCourse() {
+		return _course;
+	}
+
 	/**
 	 * Insert a separator between degrees and minutes
 	 * @param inCoordinate NMEA coordinate string
@@ -92,34 +104,85 @@ public class NmeaMessage
 	}
 
 	/**
-	 * Use time from NMEA message, and today's date (as date isn't given in GPGGA messages)
-	 * @return Timestamp in parseable format
+	 * NMEA times are in UTC, so if there's a date this gives an ISO 8601 timestamp in UTC.
+	 * Without a date, today's date is used as before, giving the time in milliseconds.
+	 * Values out of range are wrapped, so that 30th February becomes 1st March.
+	 * @return timestamp, or null if the time isn't valid
 	 */
-	public String getTimestamp()
+	public String getUtcTimestamp()
 	{
+		if (_timestamp == null || _timestamp.length() < 6) {
+			return null;
+		}
+		final int hours, minutes, seconds;
 		try
 		{
+			hours = Integer.parseInt(_timestamp.substring(0, 2));
+			minutes = Integer.parseInt(_timestamp.substring(2, 4));
+			seconds = Integer.parseInt(_timestamp.substring(4, 6));
+		}
+		catch (NumberFormatException e) {
+			return null; // ignore parsing errors, just have no timestamp
+		}
+		// Keep up to three digits of fractional seconds
+		int fractionEnd = 7;
+		while (fractionEnd < _timestamp.length() && fractionEnd < 10 && isDigits(_timestamp, fractionEnd, fractionEnd + 1)) {
+			fractionEnd++;
+		}
+		final String fraction = (_timestamp.length() > 7 && _timestamp.charAt(6) == '.' && fractionEnd > 7)
+			? _timestamp.substring(6, fractionEnd) : "";
+		final int millis = fraction.isEmpty() ? 0 : Integer.parseInt((fraction.substring(1) + "00").substring(0, 3));
+
+		final int[] date = parseDate(_date);
+		if (date == null)
+		{
+			// No date given, so use today's date
 			Calendar cal = Calendar.getInstance();
-			// use date if available (today if not)
-			if (_date != null && _date.length() == 6)
-			{
-				try {
-					cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(_date.substring(0, 2)));
-					cal.set(Calendar.MONTH, Integer.parseInt(_date.substring(2, 4))-1); // month starts at zero
-					int year = Integer.parseInt(_date.substring(4, 6));
-					if (year < 80) {year += 2000;} else {year += 1900;} // two-digit year hack
-					cal.set(Calendar.YEAR, year);
-				}
-				catch (Exception ignored) {} // ignore exceptions for date, still take time
-			}
-			cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(_timestamp.substring(0, 2)));
-			cal.set(Calendar.MINUTE, Integer.parseInt(_timestamp.substring(2, 4)));
-			cal.set(Calendar.SECOND, Integer.parseInt(_timestamp.substring(4, 6)));
-			cal.set(Calendar.MILLISECOND, 0);
-			// Return time as number of milliseconds
+			cal.set(Calendar.HOUR_OF_DAY, hours);
+			cal.set(Calendar.MINUTE, minutes);
+			cal.set(Calendar.SECOND, seconds);
+			cal.set(Calendar.MILLISECOND, millis);
 			return "" + cal.getTimeInMillis();
 		}
-		catch (Exception ignored) {}  // ignore parsing errors, just have no timestamp
-		return null;
+		Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		cal.clear();
+		cal.set(date[2], date[1] - 1, date[0], hours, minutes, seconds); // month starts at zero
+		return String.format("%04d-%02d-%02dT%02d:%02d:%02d", cal.get(Calendar.YEAR),
+			cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH), cal.get(Calendar.HOUR_OF_DAY),
+			cal.get(Calendar.MINUTE), cal.get(Calendar.SECOND)) + fraction + "Z";
+	}
+
+	/**
+	 * @param inDate date from RMC sentence in the form ddmmyy
+	 * @return day, month and four-digit year, or null if the date isn't given
+	 */
+	private static int[] parseDate(String inDate)
+	{
+		if (inDate == null || inDate.length() != 6) {
+			return null;
+		}
+		try
+		{
+			int year = Integer.parseInt(inDate.substring(4, 6));
+			year += (year < 80 ? 2000 : 1900); // two-digit year hack
+			return new int[] {Integer.parseInt(inDate.substring(0, 2)),
+				Integer.parseInt(inDate.substring(2, 4)), year};
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/** @return true if the given range of the string only contains digits */
+	private static boolean isDigits(String inString, int inStart, int inEnd)
+	{
+		for (int i=inStart; i<inEnd; i++)
+		{
+			final char c = inString.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
 	}
 }
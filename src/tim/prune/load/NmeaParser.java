@@ -0,0 +1,534 @@
+package tim.prune.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.FieldGpx;
+import tim.prune.data.FieldList;
+import tim.prune.data.PointCreateOptions;
+import tim.prune.data.UnitSetLibrary;
+
+/**
+ * Parser for NMEA sentences, working directly on the bytes of the file.
+ * Sentences with a wrong checksum are ignored, and the GGA, RMC and VTG sentences
+ * for the same time are combined into a single point, with the position and altitude
+ * from the GGA sentence and the speed and course from the VTG or RMC sentence.
+ * VTG sentences have no time, so they're held until the epoch they belong to is known.
+ * Only the fields which are actually used are converted into Strings.
+ */
+public class NmeaParser
+{
+	/** Sink to receive the points */
+	private final PointSink _sink;
+	/** Fields of each point, shared by all points */
+	private final FieldList _fieldList = new FieldList(Field.LATITUDE, Field.LONGITUDE,
+		Field.ALTITUDE, Field.TIMESTAMP, Field.SPEED, FieldGpx.getField("course"));
+	private final PointCreateOptions _options = new PointCreateOptions();
+
+	/** Buffer holding the current line */
+	private final byte[] _line = new byte[MAX_LINE_LENGTH];
+	private int _lineLength = 0;
+	private boolean _lineTooLong = false;
+	/** Start and end positions of each field of the current sentence */
+	private final int[] _fieldStarts = new int[MAX_FIELDS];
+	private final int[] _fieldEnds = new int[MAX_FIELDS];
+	private int _numFields = 0;
+
+	/** Time of the current epoch in ms since midnight, or -1 if none */
+	private int _epochTime = -1;
+	private String _epochTimeString = null;
+	private String _ggaLatitude = null, _ggaLongitude = null, _altitude = null;
+	private boolean _hasGga = false, _ggaFix = false;
+	private String _rmcLatitude = null, _rmcLongitude = null;
+	private boolean _hasRmc = false, _rmcValid = false;
+	private String _speed = null, _course = null;
+	private boolean _motionFromVtg = false;
+	/** Speed and course from a VTG sentence not yet given to an epoch */
+	private String _pendingSpeed = null, _pendingCourse = null;
+	private boolean _hasPendingVtg = false;
+	/** True if VTG sentences come before the timed sentences of their epoch */
+	private boolean _vtgLeadsEpoch = false;
+	private boolean _seenTimedSentence = false;
+
+	/** Most recent date from an RMC sentence */
+	private String _lastDate = null;
+	/** Fixes received before the first date, waiting to be given one */
+	private final ArrayList<NmeaMessage> _undatedMessages = new ArrayList<>();
+	/** Time of day in ms of each of the undated fixes */
+	private final ArrayList<Integer> _undatedTimes = new ArrayList<>();
+	private boolean _newSegment = true;
+
+	private int _numSentences = 0;
+	private int _numBadChecksums = 0;
+
+	/** NMEA sentences are limited to 82 characters, so anything much longer is garbage */
+	private static final int MAX_LINE_LENGTH = 256;
+	private static final int MAX_FIELDS = 32;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+
+	/**
+	 * Constructor
+	 * @param inSink sink to receive the points
+	 */
+	public NmeaParser(PointSink inSink)
+	{
+		_sink = inSink;
+		_options.setSpeedUnits(UnitSetLibrary.SPEED_UNITS_KNOTS);
+		_options.setAltitudeUnits(UnitSetLibrary.UNITS_METRES);
+	}
+
+	/**
+	 * Parse the whole of the given stream and pass all the points to the sink
+	 * @param inStream stream to read, which is not closed
+	 */
+	public void parse(InputStream inStream) throws IOException
+	{
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int numRead;
+		while ((numRead = inStream.read(buffer)) >= 0)
+		{
+			for (int i=0; i<numRead; i++) {
+				processByte(buffer[i]);
+			}
+		}
+		endLine();
+		finish();
+	}
+
+	/**
+	 * Add the given byte to the current line, processing the line if it's finished
+	 * @param inByte byte from file
+	 */
+	private void processByte(byte inByte)
+	{
+		if (inByte == '\n' || inByte == '\r') {
+			endLine();
+		}
+		else if (_lineLength < MAX_LINE_LENGTH) {
+			_line[_lineLength++] = inByte;
+		}
+		else {
+			_lineTooLong = true;
+		}
+	}
+
+	/** Process the current line, if any, and start a new one */
+	private void endLine()
+	{
+		if (_lineLength > 0 && !_lineTooLong) {
+			processLine(_line, _lineLength);
+		}
+		_lineLength = 0;
+		_lineTooLong = false;
+	}
+
+	/**
+	 * Process a single line
+	 * @param inLine buffer containing line
+	 * @param inLength length of line
+	 */
+	void processLine(byte[] inLine, int inLength)
+	{
+		if (!splitSentence(inLine, inLength)) {
+			return;
+		}
+		_numSentences++;
+		final int addressLength = _fieldEnds[0] - _fieldStarts[0];
+		if (addressLength < 5) {
+			return;
+		}
+		// Ignore the talker id (GP, GN, GL, ...) and just look at the sentence type
+		final int typeStart = _fieldEnds[0] - 3;
+		if (matches(inLine, typeStart, "GGA")) {
+			processGga(inLine);
+		}
+		else if (matches(inLine, typeStart, "RMC")) {
+			processRmc(inLine);
+		}
+		else if (matches(inLine, typeStart, "VTG")) {
+			processVtg(inLine);
+		}
+	}
+
+	/**
+	 * Check the checksum of the sentence and find the positions of its fields
+	 * @param inLine buffer containing line
+	 * @param inLength length of line
+	 * @return true if the sentence is valid
+	 */
+	private boolean splitSentence(byte[] inLine, int inLength)
+	{
+		int start = 0;
+		while (start < inLength && inLine[start] != '$') {
+			start++;
+		}
+		if (start >= inLength) {
+			return false;
+		}
+		start++;
+		int end = start;
+		int checksum = 0;
+		_numFields = 0;
+		_fieldStarts[0] = start;
+		while (end < inLength && inLine[end] != '*')
+		{
+			final byte b = inLine[end];
+			checksum ^= b;
+			if (b == ',')
+			{
+				if (_numFields == MAX_FIELDS - 1) {
+					return false;
+				}
+				_fieldEnds[_numFields++] = end;
+				_fieldStarts[_numFields] = end + 1;
+			}
+			end++;
+		}
+		_fieldEnds[_numFields++] = end;
+		// Checksum is optional, but if it's there it has to match
+		if (end < inLength)
+		{
+			final int expected = (end + 2 < inLength)
+				? (hexValue(inLine[end + 1]) << 4 | hexValue(inLine[end + 2])) : -1;
+			if (expected != checksum)
+			{
+				_numBadChecksums++;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param inByte character
+	 * @return value of hex digit, or a large negative number if not a hex digit
+	 */
+	private static int hexValue(byte inByte)
+	{
+		if (inByte >= '0' && inByte <= '9') {
+			return inByte - '0';
+		}
+		if (inByte >= 'A' && inByte <= 'F') {
+			return inByte - 'A' + 10;
+		}
+		if (inByte >= 'a' && inByte <= 'f') {
+			return inByte - 'a' + 10;
+		}
+		return -0x100;
+	}
+
+	/** Process a GGA sentence, giving position, altitude and fix */
+	private void processGga(byte[] inLine)
+	{
+		if (_numFields < 10) {
+			return;
+		}
+		startEpoch(inLine, 1);
+		_hasGga = true;
+		_ggaLatitude = getCoordinate(inLine, 2);
+		_ggaLongitude = getCoordinate(inLine, 4);
+		_altitude = getField(inLine, 9);
+		final int fixLength = _fieldEnds[6] - _fieldStarts[6];
+		_ggaFix = fixLength > 0 && !(fixLength == 1 && inLine[_fieldStarts[6]] == '0');
+	}
+
+	/** Process an RMC sentence, giving date, position, speed and course */
+	private void processRmc(byte[] inLine)
+	{
+		if (_numFields < 10) {
+			return;
+		}
+		startEpoch(inLine, 1);
+		_hasRmc = true;
+		_rmcValid = _fieldEnds[2] > _fieldStarts[2] && inLine[_fieldStarts[2]] == 'A';
+		_rmcLatitude = getCoordinate(inLine, 3);
+		_rmcLongitude = getCoordinate(inLine, 5);
+		if (!_motionFromVtg)
+		{
+			_speed = getField(inLine, 7);
+			_course = getField(inLine, 8);
+		}
+		String date = getField(inLine, 9);
+		if (date != null && !date.equals(_lastDate))
+		{
+			if (_lastDate == null) {
+				backfillDate(date, _epochTime);
+			}
+			_lastDate = date;
+		}
+	}
+
+	/** Process a VTG sentence, giving speed and course for the current epoch */
+	private void processVtg(byte[] inLine)
+	{
+		if (_numFields < 6) {
+			return;
+		}
+		String speed = getField(inLine, 5);
+		String course = getField(inLine, 1);
+		if (speed != null || course != null)
+		{
+			_pendingSpeed = speed;
+			_pendingCourse = course;
+			_hasPendingVtg = true;
+			// If the file starts with a VTG, then each VTG comes before the rest of its epoch
+			if (!_seenTimedSentence) {
+				_vtgLeadsEpoch = true;
+			}
+		}
+	}
+
+	/** Give the speed and course from the pending VTG sentence, if any, to the current epoch */
+	private void applyPendingVtg()
+	{
+		if (_hasPendingVtg)
+		{
+			_speed = _pendingSpeed;
+			_course = _pendingCourse;
+			_motionFromVtg = true;
+			_pendingSpeed = _pendingCourse = null;
+			_hasPendingVtg = false;
+		}
+	}
+
+	/**
+	 * Start a new epoch if the time of this sentence is different from the current one
+	 * @param inLine buffer containing line
+	 * @param inTimeField index of field containing the time
+	 */
+	private void startEpoch(byte[] inLine, int inTimeField)
+	{
+		final int time = parseTimeOfDay(inLine, _fieldStarts[inTimeField], _fieldEnds[inTimeField]);
+		if (time >= 0 && time == _epochTime)
+		{
+			// VTG came between two sentences of this epoch
+			applyPendingVtg();
+			return;
+		}
+		if (!_vtgLeadsEpoch) {
+			applyPendingVtg();
+		}
+		finishEpoch();
+		_epochTime = time;
+		_epochTimeString = getField(inLine, inTimeField);
+		_seenTimedSentence = true;
+		applyPendingVtg();
+	}
+
+	/**
+	 * Combine all the sentences of the current epoch into a point, if there was a fix
+	 */
+	private void finishEpoch()
+	{
+		if (!_hasGga && !_hasRmc) {
+			return;
+		}
+		final boolean useGga = _hasGga && _ggaFix;
+		final boolean hasFix = useGga || (!_hasGga && _rmcValid);
+		if (hasFix)
+		{
+			NmeaMessage message = new NmeaMessage(useGga ? _ggaLatitude : _rmcLatitude,
+				useGga ? _ggaLongitude : _rmcLongitude, useGga ? _altitude : null, _epochTimeString);
+			message.setSegment(_newSegment);
+			message.setMotion(_speed, _course);
+			if (_lastDate == null)
+			{
+				_undatedMessages.add(message);
+				_undatedTimes.add(_epochTime);
+			}
+			else
+			{
+				message.setDate(_lastDate);
+				addPoint(message);
+			}
+		}
+		// Start a new segment if fix lost
+		_newSegment = !hasFix;
+		_epochTime = -1;
+		_epochTimeString = null;
+		_hasGga = _ggaFix = _hasRmc = _rmcValid = _motionFromVtg = false;
+		_ggaLatitude = _ggaLongitude = _altitude = _rmcLatitude = _rmcLongitude = null;
+		_speed = _course = null;
+	}
+
+	/**
+	 * Give the first date to the fixes received before it, and pass them to the sink.
+	 * Fixes with a later time of day than the first dated one must be from the day before.
+	 * @param inDate date from RMC sentence, or null to use today's date
+	 * @param inDatedTime time of day in ms of the sentence giving the date, or -1
+	 */
+	private void backfillDate(String inDate, int inDatedTime)
+	{
+		String previousDate = null;
+		for (int i=0; i<_undatedMessages.size(); i++)
+		{
+			NmeaMessage message = _undatedMessages.get(i);
+			if (inDate != null && inDatedTime >= 0 && _undatedTimes.get(i) > inDatedTime)
+			{
+				if (previousDate == null) {
+					previousDate = getPreviousDate(inDate);
+				}
+				message.setDate(previousDate);
+			}
+			else {
+				message.setDate(inDate);
+			}
+			addPoint(message);
+		}
+		_undatedMessages.clear();
+		_undatedTimes.clear();
+	}
+
+	/**
+	 * @param inDate date from RMC sentence in the form ddmmyy
+	 * @return the date of the day before in the same form, or the given date if it's not valid
+	 */
+	static String getPreviousDate(String inDate)
+	{
+		try
+		{
+			final int year = Integer.parseInt(inDate.substring(4, 6));
+			LocalDate date = LocalDate.of(year < 80 ? 2000 + year : 1900 + year,
+				Integer.parseInt(inDate.substring(2, 4)), Integer.parseInt(inDate.substring(0, 2)));
+			return date.minusDays(1).format(DateTimeFormatter.ofPattern("ddMMyy"));
+		}
+		catch (RuntimeException e) {
+			return inDate;
+		}
+	}
+
+	/**
+	 * Finish the last epoch and pass all remaining points to the sink
+	 */
+	private void finish()
+	{
+		if (!_vtgLeadsEpoch) {
+			applyPendingVtg();
+		}
+		finishEpoch();
+		backfillDate(null, -1);
+	}
+
+	/**
+	 * Create a point from the given message and pass it to the sink
+	 * @param inMessage message containing all the values
+	 */
+	private void addPoint(NmeaMessage inMessage)
+	{
+		String[] values = new String[] {inMessage.getLatitude(), inMessage.getLongitude(),
+			inMessage.getAltitude(), inMessage.getUtcTimestamp(), inMessage.getSpeed(), inMessage.getCourse()};
+		DataPoint point = new DataPoint(values, _fieldList, _options);
+		point.setSegmentStart(inMessage.getSegmentFlag());
+		_sink.addPoint(point, null);
+	}
+
+	/**
+	 * @param inLine buffer containing line
+	 * @param inField index of field
+	 * @return the field as a String, or null if empty
+	 */
+	private String getField(byte[] inLine, int inField)
+	{
+		final int length = _fieldEnds[inField] - _fieldStarts[inField];
+		if (length <= 0) {
+			return null;
+		}
+		return new String(inLine, _fieldStarts[inField], length, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * @param inLine buffer containing line
+	 * @param inField index of the field containing the value, followed by the hemisphere
+	 * @return the coordinate with its hemisphere letter, or null if empty
+	 */
+	private String getCoordinate(byte[] inLine, int inField)
+	{
+		final int valueLength = _fieldEnds[inField] - _fieldStarts[inField];
+		if (valueLength <= 0) {
+			return null;
+		}
+		// Join the value and hemisphere together, leaving out the comma between them
+		final int hemisphereLength = _fieldEnds[inField + 1] - _fieldStarts[inField + 1];
+		char[] chars = new char[valueLength + hemisphereLength];
+		for (int i=0; i<valueLength; i++) {
+			chars[i] = (char) inLine[_fieldStarts[inField] + i];
+		}
+		for (int i=0; i<hemisphereLength; i++) {
+			chars[valueLength + i] = (char) inLine[_fieldStarts[inField + 1] + i];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @param inLine buffer containing line
+	 * @param inStart start position
+	 * @param inEnd end position
+	 * @return time of day in ms from a time field of the form hhmmss.sss, or -1 if not valid
+	 */
+	static int parseTimeOfDay(byte[] inLine, int inStart, int inEnd)
+	{
+		if (inEnd - inStart < 6) {
+			return -1;
+		}
+		final int hours = parseTwoDigits(inLine, inStart);
+		final int minutes = parseTwoDigits(inLine, inStart + 2);
+		final int seconds = parseTwoDigits(inLine, inStart + 4);
+		if (hours < 0 || minutes < 0 || seconds < 0) {
+			return -1;
+		}
+		int millis = 0, scale = 100;
+		for (int i=inStart + 7; i<inEnd && scale > 0; i++)
+		{
+			final int digit = inLine[i] - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			millis += digit * scale;
+			scale /= 10;
+		}
+		return ((hours * 60 + minutes) * 60 + seconds) * 1000 + millis;
+	}
+
+	/**
+	 * @return value of the two digits at the given position, or -1 if they're not digits
+	 */
+	private static int parseTwoDigits(byte[] inLine, int inStart)
+	{
+		final int tens = inLine[inStart] - '0', units = inLine[inStart + 1] - '0';
+		if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+			return -1;
+		}
+		return tens * 10 + units;
+	}
+
+	/**
+	 * @return true if the bytes at the given position match the given text
+	 */
+	private static boolean matches(byte[] inLine, int inStart, String inText)
+	{
+		for (int i=0; i<inText.length(); i++)
+		{
+			if (inLine[inStart + i] != inText.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return number of sentences read with a valid checksum */
+	public int getNumSentences() {
+		return _numSentences;
+	}
+
+	/** @return number of sentences ignored because of a wrong checksum */
+	public int getNumBadChecksums() {
+		return _numBadChecksums;
+	}
+}
@@ -0,0 +1,17 @@
+package tim.prune.load;
+
+import tim.prune.data.DataPoint;
+
+/**
+ * Interface for receiving loaded points one by one,
+ * as soon as each one has been parsed
+ */
+public interface PointSink
+{
+	/**
+	 * Receive a single point
+	 * @param inPoint point created from the parsed values
+	 * @param inLink link to media for this point, or null
+	 */
+	public void addPoint(DataPoint inPoint, String inLink);
+}
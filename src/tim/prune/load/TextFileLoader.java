@@ -16,6 +16,7 @@ import javax.swing.event.DocumentListener;
 import javax.swing.table.TableCellEditor;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import tim.prune.App;
@@ -28,6 +29,7 @@ import tim.prune.data.SourceInfo;
 import tim.prune.data.Unit;
 import tim.prune.data.UnitSetLibrary;
 import tim.prune.gui.GuiGridLayout;
+import tim.prune.gui.ProgressDialog;
 import tim.prune.gui.WizardLayout;
 
 
@@ -70,6 +72,8 @@ public class TextFileLoader extends FileTypeLoader
 	private static final int SNIPPET_SIZE = 6;
 	private static final int MAX_SNIPPET_WIDTH = 80;
 	private static final char[] DELIMITERS = {',', '\t', ';', ' '};
+	/** Files bigger than this show a progress bar while being loaded */
+	private static final long PROGRESS_FILE_SIZE = 10L * 1024 * 1024;
 
 
 	/**
@@ -170,7 +174,7 @@ public class TextFileLoader extends FileTypeLoader
 		{
 			return false;
 		}
-		// Use a FileCacher to read the file into an array
+		// Use a FileCacher to read the start of the file into an array
 		_contentCacher = new FileCacher(inFile);
 
 		return preCheckContents();
@@ -193,30 +197,25 @@ public class TextFileLoader extends FileTypeLoader
 			_delimiterInfos[i] = new DelimiterInfo(DELIMITERS[i]);
 		}
 
-		String[] splitFields = null;
 		for (int lineNum=0; lineNum<contents.length && fileOK; lineNum++)
 		{
 			final String currLine = contents[lineNum];
 			// check for invalid characters
 			if (currLine.indexOf('\0') >= 0) {fileOK = false;}
 			// check for commas
-			splitFields = currLine.split(",");
-			final int commaFields = splitFields.length;
+			final int commaFields = LineSplitter.countFields(currLine, ',');
 			if (commaFields > 1) _delimiterInfos[0].incrementNumRecords();
 			_delimiterInfos[0].updateMaxFields(commaFields);
 			// check for tabs
-			splitFields = currLine.split("\t");
-			final int tabFields = splitFields.length;
+			final int tabFields = LineSplitter.countFields(currLine, '\t');
 			if (tabFields > 1) _delimiterInfos[1].incrementNumRecords();
 			_delimiterInfos[1].updateMaxFields(tabFields);
 			// check for semicolons
-			splitFields = currLine.split(";");
-			final int semicolonFields = splitFields.length;
+			final int semicolonFields = LineSplitter.countFields(currLine, ';');
 			if (semicolonFields > 1) _delimiterInfos[2].incrementNumRecords();
 			_delimiterInfos[2].updateMaxFields(semicolonFields);
 			// check for spaces
-			splitFields = currLine.split(" ");
-			final int spaceFields = splitFields.length;
+			final int spaceFields = LineSplitter.countFields(currLine, ' ');
 			if (spaceFields > 1) _delimiterInfos[3].incrementNumRecords();
 			_delimiterInfos[3].updateMaxFields(spaceFields);
 			// increment counters
@@ -539,7 +538,9 @@ public class TextFileLoader extends FileTypeLoader
 				else
 				{
 					fields = _delimiterInfos[i].getMaxFields();
-					_statusLabel.setText("" + numRecords + " " + I18nManager.getText("dialog.openoptions.deliminfo.records")
+					// If only the start of the file was checked, there are more records than this
+					final String moreRecords = (_contentCacher.isTruncated() ? "+" : "");
+					_statusLabel.setText("" + numRecords + moreRecords + " " + I18nManager.getText("dialog.openoptions.deliminfo.records")
 						+ " " + fields + " " + I18nManager.getText("dialog.openoptions.deliminfo.fields"));
 				}
 			}
@@ -683,18 +684,64 @@ public class TextFileLoader extends FileTypeLoader
 
 		// dispose of dialog
 		_dialog.dispose();
+		final ContentCacher cacher = _contentCacher;
+		final FileToBeLoaded fileLock = _fileLock;
 		// Append or not?
 		int appendOption = getAppendOption(_autoAppend);
+		final boolean append = (appendOption == JOptionPane.YES_OPTION);
+		if (appendOption != JOptionPane.CANCEL_OPTION && file != null)
+		{
+			// The preview may only have the start of the file, so read it all again in a separate thread
+			final TextFileStreamer streamer = new TextFileStreamer(file, _currentDelimiter, _lastSelectedFields, options);
+			new Thread(() -> {
+				loadFile(streamer, sourceInfo, append);
+				cacher.clear();
+				fileLock.release();
+			}).start();
+			return;
+		}
 		if (appendOption != JOptionPane.CANCEL_OPTION)
 		{
-			// give data to App
-			List<DataPoint> points = createPoints(_fieldTableModel.getFieldArray(),
+			// give pasted data to App
+			List<DataPoint> points = createPoints(_lastSelectedFields,
 				_fileExtractTableModel.getData(), options);
-			loadData(points, sourceInfo, appendOption == JOptionPane.YES_OPTION);
+			loadData(points, sourceInfo, append);
 		}
 		// clear up file cacher
-		_contentCacher.clear();
-		_fileLock.release();
+		cacher.clear();
+		fileLock.release();
+	}
+
+	/**
+	 * Read all the points from the file and load them
+	 * @param inStreamer streamer to read the file
+	 * @param inSourceInfo source information
+	 * @param inAppend true to append, false to replace
+	 */
+	private void loadFile(TextFileStreamer inStreamer, SourceInfo inSourceInfo, boolean inAppend)
+	{
+		ProgressDialog progress = null;
+		if (inSourceInfo.getFile().length() > PROGRESS_FILE_SIZE)
+		{
+			progress = new ProgressDialog(_parentFrame, "function.open");
+			progress.show();
+		}
+		try
+		{
+			LoadedPoints points = inStreamer.readPoints(progress);
+			loadData(points.getPoints(), inSourceInfo, inAppend);
+		}
+		catch (IOException e)
+		{
+			getApp().showErrorMessageNoLookup("error.load.dialogtitle",
+				I18nManager.getText("error.load.othererror") + " " + e.getMessage());
+		}
+		finally
+		{
+			if (progress != null) {
+				progress.close();
+			}
+		}
 	}
 
 	/**
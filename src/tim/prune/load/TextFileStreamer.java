@@ -0,0 +1,90 @@
+package tim.prune.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.FieldList;
+import tim.prune.data.PointCreateOptions;
+import tim.prune.gui.ProgressIndicator;
+
+/**
+ * Reads all the points from a delimited text file in a single pass,
+ * splitting each line with the selected delimiter and creating each point
+ * straight away, without keeping the text of the whole file
+ */
+class TextFileStreamer
+{
+	private final File _file;
+	private final char _delimiter;
+	private final FieldList _fieldList;
+	private final int _numFields;
+	private final PointCreateOptions _options;
+
+	/** Report progress after reading this many bytes */
+	private static final long PROGRESS_STEP = 1024L * 1024;
+
+
+	/**
+	 * Constructor
+	 * @param inFile file to read
+	 * @param inDelimiter delimiter character
+	 * @param inFields selected fields
+	 * @param inOptions options such as units
+	 */
+	TextFileStreamer(File inFile, char inDelimiter, Field[] inFields, PointCreateOptions inOptions)
+	{
+		_file = inFile;
+		_delimiter = inDelimiter;
+		_fieldList = new FieldList(inFields);
+		_numFields = inFields.length;
+		_options = inOptions;
+	}
+
+	/**
+	 * Read the points from the file
+	 * @param inProgress progress indicator, or null
+	 * @return loaded points
+	 */
+	LoadedPoints readPoints(ProgressIndicator inProgress) throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		try (MappedLineReader reader = new MappedLineReader(_file))
+		{
+			final int totalKb = (int) Math.min(Integer.MAX_VALUE, reader.getFileSize() / 1024L);
+			long nextReport = 0L;
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.indexOf('\0') < 0 && !line.trim().isEmpty()) {
+					points.addPoint(new DataPoint(splitLine(line), _fieldList, _options), null);
+				}
+				if (inProgress != null && reader.getPosition() >= nextReport)
+				{
+					inProgress.showProgress((int) (reader.getPosition() / 1024L), totalKb);
+					nextReport = reader.getPosition() + PROGRESS_STEP;
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Split the line into values, in the same way as the FileSplitter does for the preview
+	 * @param inLine line of text
+	 * @return trimmed values, at least as many as the selected fields
+	 */
+	String[] splitLine(String inLine)
+	{
+		String[] values = LineSplitter.split(inLine, _delimiter);
+		for (int i=0; i<values.length; i++) {
+			values[i] = values[i].trim();
+		}
+		if (values.length < _numFields) {
+			values = Arrays.copyOf(values, _numFields);
+		}
+		return values;
+	}
+}
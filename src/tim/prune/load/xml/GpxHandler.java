@@ -1,6 +1,5 @@
 package tim.prune.load.xml;
 
-import java.util.ArrayList;
 import java.util.Stack;
 
 import org.xml.sax.Attributes;
@@ -31,8 +30,6 @@ public class GpxHandler extends XmlHandler
 	private final GpxTag _sym = new GpxTag();
 	private GpxTag _currentTag = null;
 	private final ExtensionInfo _extensionInfo = new ExtensionInfo();
-	private final ArrayList<String[]> _pointList = new ArrayList<>();
-	private final ArrayList<String> _linkList = new ArrayList<>();
 	private Stack<String> _extensionTags = null;
 	private FieldGpx _gpxField = null;
 
@@ -293,7 +290,7 @@ public class GpxHandler extends XmlHandler
 	 */
 	private void processPoint()
 	{
-		// Values go into a String array matching the order in getFieldArray()
+		// Values go into a String array matching the order in the field list
 		addCurrentValue(Field.ALTITUDE, _elevation.getValue());
 		if (_insideWaypoint) {
 			addCurrentValue(Field.WAYPT_NAME, _pointName.getValue());
@@ -308,45 +305,10 @@ public class GpxHandler extends XmlHandler
 		addCurrentValue(Field.DESCRIPTION, _description.getValue());
 		addCurrentValue(Field.COMMENT, _comment.getValue());
 		addCurrentValue(Field.SYMBOL, _sym.getValue());
-		_pointList.add(getCurrentValues());
-		_linkList.add(_link.getValue());
+		addCurrentPoint(_link.getValue());
 	}
 
 
-	/**
-	 * Return the parsed information as a 2d array
-	 * @see tim.prune.load.xml.XmlHandler#getDataArray()
-	 */
-	public String[][] getDataArray()
-	{
-		int numPoints = _pointList.size();
-		// construct data array
-		String[][] result = new String[numPoints][];
-		for (int i=0; i<numPoints; i++) {
-			result[i] = _pointList.get(i);
-		}
-		return result;
-	}
-
-	/**
-	 * @return array of links, or null if none
-	 */
-	public String[] getLinkArray()
-	{
-		int numPoints = _linkList.size();
-		boolean hasLink = false;
-		String[] result = new String[numPoints];
-		for (int i=0; i<numPoints; i++)
-		{
-			result[i] = _linkList.get(i);
-			if (result[i] != null) {hasLink = true;}
-		}
-		if (!hasLink) {
-			result = null;
-		}
-		return result;
-	}
-
 	/**
 	 * @return file title
 	 */
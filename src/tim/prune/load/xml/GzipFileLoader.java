@@ -1,8 +1,5 @@
 package tim.prune.load.xml;
 
-import java.io.FileInputStream;
-import java.util.zip.GZIPInputStream;
-
 import tim.prune.App;
 import tim.prune.I18nManager;
 import tim.prune.data.SourceInfo;
@@ -38,11 +35,11 @@ public class GzipFileLoader
 	 */
 	public void openFile(FileToBeLoaded inFileLock, boolean inAutoAppend)
 	{
-		try (GZIPInputStream istream = new GZIPInputStream(new FileInputStream(inFileLock.getFile())))
+		try
 		{
 			_xmlLoader.reset();
 			// Parse the stream using either Xerces or java classes
-			_xmlLoader.parseXmlStream(istream);
+			_xmlLoader.parseXmlFile(inFileLock.getFile(), true);
 			XmlHandler handler = _xmlLoader.getHandler();
 			if (handler == null) {
 				_app.showErrorMessage("error.load.dialogtitle", "error.load.noread");
@@ -26,8 +26,6 @@ public class KmlHandler extends XmlHandler
 	private String _timestamp = null, _imgLink = null;
 	private StringBuffer _coordinates = null;
 	private ArrayList<String> _coordinateList = null;
-	private ArrayList<String[]> _pointList = new ArrayList<>();
-	private ArrayList<String> _linkList = new ArrayList<>();
 	private final ExtensionInfo _extensionInfo = new ExtensionInfo();
 	// variables for gx extensions / 2.3 timestamps
 	private ArrayList<String> _whenList = new ArrayList<>();
@@ -263,8 +261,7 @@ public class KmlHandler extends XmlHandler
 			{
 				// Add single point to list
 				final String name = (isSingleSelection ? _name : null);
-				_pointList.add(makeStringArray(true, coords, name, _desc, _timestamp));
-				_linkList.add(_imgLink);
+				makePoint(true, coords, name, _desc, _timestamp, _imgLink);
 			}
 			else if (numPoints > 1)
 			{
@@ -274,11 +271,9 @@ public class KmlHandler extends XmlHandler
 				{
 					if (coord != null && coord.trim().length()>3)
 					{
-						String[] pointArray = makeStringArray(firstPoint, coord, null, null, null);
+						makePoint(firstPoint, coord, null, null, null, null);
 						firstPoint = false;
-						_pointList.add(pointArray);
 					}
-					_linkList.add(null);
 				}
 			}
 		}
@@ -324,10 +319,9 @@ public class KmlHandler extends XmlHandler
 								addCurrentValue(exField.getField(), getFieldValue(exField, p));
 							}
 						}
-						_pointList.add(getCurrentValues());
+						addCurrentPoint(null);
 					}
 				}
-				_linkList.add(null);
 			}
 		}
 		_whenList.clear();
@@ -371,16 +365,16 @@ public class KmlHandler extends XmlHandler
 	}
 
 	/**
-	 * Construct the String array for the given coordinates and name
+	 * Construct the point for the given coordinates and name
 	 * @param inFirstPoint true if this is the first point in a segment
 	 * @param inCoordinates coordinate string in Kml format
 	 * @param inName name of waypoint, or null if track point
 	 * @param inDesc description of waypoint, if any
 	 * @param inTimestamp timestamp of waypoint, if any
-	 * @return String array for point
+	 * @param inLink link to image, if any
 	 */
-	private String[] makeStringArray(boolean inFirstPoint, String inCoordinates,
-		String inName, String inDesc, String inTimestamp)
+	private void makePoint(boolean inFirstPoint, String inCoordinates,
+		String inName, String inDesc, String inTimestamp, String inLink)
 	{
 		resetCurrentValues();
 		String[] values = inCoordinates.split(",");
@@ -397,39 +391,7 @@ public class KmlHandler extends XmlHandler
 		addCurrentValue(Field.DESCRIPTION, inDesc);
 		addCurrentValue(Field.TIMESTAMP, inTimestamp);
 		addCurrentValue(Field.NEW_SEGMENT, inFirstPoint ? "1" : null);
-		return getCurrentValues();
-	}
-
-	/**
-	 * Return the parsed information as a 2d array
-	 * @see tim.prune.load.xml.XmlHandler#getDataArray()
-	 */
-	public String[][] getDataArray()
-	{
-		int numPoints = _pointList.size();
-		// construct data array
-		String[][] result = new String[numPoints][];
-		for (int i=0; i<numPoints; i++) {
-			result[i] = _pointList.get(i);
-		}
-		return result;
-	}
-
-	/**
-	 * @return array of links, or null if none
-	 */
-	public String[] getLinkArray()
-	{
-		int numPoints = _linkList.size();
-		boolean hasLink = false;
-		String[] result = new String[numPoints];
-		for (int i=0; i<numPoints; i++)
-		{
-			result[i] = _linkList.get(i);
-			if (result[i] != null) {hasLink = true;}
-		}
-		if (!hasLink) {result = null;}
-		return result;
+		addCurrentPoint(inLink);
 	}
 
 	/**
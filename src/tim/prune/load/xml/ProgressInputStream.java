@@ -0,0 +1,84 @@
+package tim.prune.load.xml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import tim.prune.gui.ProgressIndicator;
+
+/**
+ * Input stream which counts the bytes read from the underlying stream
+ * and reports the progress in kilobytes to a progress indicator
+ */
+class ProgressInputStream extends FilterInputStream
+{
+	private final ProgressIndicator _progress;
+	/** Total size of the stream in kB */
+	private final int _totalKb;
+	private long _numBytesRead = 0L;
+	private int _lastReportedKb = -1;
+
+	/** Report progress after this many kB */
+	private static final int REPORT_STEP_KB = 256;
+
+
+	/**
+	 * Constructor
+	 * @param inStream stream to read from
+	 * @param inTotalBytes total number of bytes expected
+	 * @param inProgress progress indicator to inform
+	 */
+	ProgressInputStream(InputStream inStream, long inTotalBytes, ProgressIndicator inProgress)
+	{
+		super(inStream);
+		_progress = inProgress;
+		_totalKb = (int) Math.min(Integer.MAX_VALUE, inTotalBytes / 1024L);
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		final int result = super.read();
+		if (result >= 0) {
+			bytesRead(1);
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] inBuffer, int inOffset, int inLength) throws IOException
+	{
+		final int numRead = super.read(inBuffer, inOffset, inLength);
+		if (numRead > 0) {
+			bytesRead(numRead);
+		}
+		return numRead;
+	}
+
+	@Override
+	public long skip(long inNumBytes) throws IOException
+	{
+		final long numSkipped = super.skip(inNumBytes);
+		if (numSkipped > 0L) {
+			bytesRead(numSkipped);
+		}
+		return numSkipped;
+	}
+
+	/** @return number of bytes read so far */
+	long getNumBytesRead() {
+		return _numBytesRead;
+	}
+
+	/** Count the read bytes and inform the indicator if necessary */
+	private void bytesRead(long inNumBytes)
+	{
+		_numBytesRead += inNumBytes;
+		final int currentKb = (int) Math.min(Integer.MAX_VALUE, _numBytesRead / 1024L);
+		if (_progress != null && (_lastReportedKb < 0 || currentKb - _lastReportedKb >= REPORT_STEP_KB))
+		{
+			_lastReportedKb = currentKb;
+			_progress.showProgress(currentKb, _totalKb);
+		}
+	}
+}
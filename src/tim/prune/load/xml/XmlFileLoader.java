@@ -1,9 +1,10 @@
 package tim.prune.load.xml;
 
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -15,6 +16,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import tim.prune.App;
 import tim.prune.I18nManager;
 import tim.prune.data.SourceInfo;
+import tim.prune.gui.ProgressDialog;
 import tim.prune.load.FileToBeLoaded;
 import tim.prune.load.FileTypeLoader;
 import tim.prune.load.MediaLinkInfo;
@@ -31,6 +33,8 @@ public class XmlFileLoader extends DefaultHandler implements Runnable
 	private XmlHandler _handler = null;
 	private String _unknownType = null;
 
+	/** Files bigger than this show a progress bar while being parsed */
+	private static final long PROGRESS_FILE_SIZE = 10L * 1024 * 1024;
 
 	/**
 	 * Constructor
@@ -71,19 +75,11 @@ public class XmlFileLoader extends DefaultHandler implements Runnable
 	 */
 	public void run()
 	{
-		FileInputStream inStream = null;
 		boolean success = false;
-		try
-		{
-			inStream = new FileInputStream(_fileLock.getFile());
-			success = parseXmlStream(inStream);
-		}
-		catch (FileNotFoundException fnfe) {}
-
-		// Clean up the stream, don't need it any more
-		if (inStream != null) {
-			try {inStream.close();} catch (IOException e2) {}
+		try {
+			success = parseXmlFile(_fileLock.getFile(), false);
 		}
+		catch (IOException ignored) {}
 
 		if (success)
 		{
@@ -111,6 +107,35 @@ public class XmlFileLoader extends DefaultHandler implements Runnable
 	}
 
 
+	/**
+	 * Parse the given file, showing the progress through the file if it's large
+	 * @param inFile file to parse
+	 * @param inGzipped true if the file is gzipped
+	 * @return true on success
+	 */
+	boolean parseXmlFile(File inFile, boolean inGzipped) throws IOException
+	{
+		final long fileSize = inFile.length();
+		ProgressDialog progress = null;
+		if (fileSize > PROGRESS_FILE_SIZE)
+		{
+			progress = new ProgressDialog(_app.getFrame(), "function.open");
+			progress.show();
+		}
+		// Progress is measured by the bytes read from the file, before any unzipping
+		try (InputStream inStream = new ProgressInputStream(new FileInputStream(inFile), fileSize, progress))
+		{
+			InputStream xmlStream = (inGzipped ? new GZIPInputStream(inStream) : inStream);
+			return parseXmlStream(xmlStream);
+		}
+		finally
+		{
+			if (progress != null) {
+				progress.close();
+			}
+		}
+	}
+
 	/**
 	 * Try both Xerces and the built-in java classes to parse the given xml stream
 	 * @param inStream input stream from file / zip / gzip
@@ -118,34 +143,44 @@ public class XmlFileLoader extends DefaultHandler implements Runnable
 	 */
 	public boolean parseXmlStream(InputStream inStream)
 	{
-		boolean success = false;
+		final String error = parseXmlStreamQuietly(inStream);
+		if (error != null)
+		{
+			// Show error dialog
+			_app.showErrorMessageNoLookup("error.load.dialogtitle",
+				I18nManager.getText("error.load.othererror") + " " + error);
+		}
+		return error == null;
+	}
+
+	/**
+	 * Parse the given xml stream like parseXmlStream, but without showing any error
+	 * @param inStream input stream from file / zip / gzip
+	 * @return null on success, otherwise the error message from the built-in parser
+	 */
+	public String parseXmlStreamQuietly(InputStream inStream)
+	{
 		// Firstly, try to use xerces to parse the xml (will throw an exception if not available)
 		try
 		{
 			SAXParser saxParser = SAXParserFactory.newInstance("org.apache.xerces.parsers.SAXParser", null).newSAXParser();
 			saxParser.parse(inStream, this);
-			success = true; // worked
+			return null; // worked
 		}
 		catch (Throwable e) {} // don't care too much if it didn't work, there's a backup
 
 		// If that didn't work, try the built-in classes (which work for xml1.0 but handling for 1.1 contains bugs)
-		if (!success)
+		reset(); // throw away any points from the first attempt
+		try
 		{
-			try
-			{
-				// Construct a SAXParser and use this as a default handler
-				SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
-				saxParser.parse(inStream, this);
-				success = true;
-			}
-			catch (Exception e)
-			{
-				// Show error dialog
-				_app.showErrorMessageNoLookup("error.load.dialogtitle",
-					I18nManager.getText("error.load.othererror") + " " + e.getMessage());
-			}
+			// Construct a SAXParser and use this as a default handler
+			SAXParser saxParser = SAXParserFactory.newInstance().newSAXParser();
+			saxParser.parse(inStream, this);
+			return null;
+		}
+		catch (Exception e) {
+			return String.valueOf(e.getMessage());
 		}
-		return success;
 	}
 
 	/**
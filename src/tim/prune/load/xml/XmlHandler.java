@@ -1,74 +1,75 @@
 package tim.prune.load.xml;
 
-import java.util.ArrayList;
-
 import org.xml.sax.Attributes;
 import org.xml.sax.helpers.DefaultHandler;
 
+import tim.prune.data.DataPoint;
 import tim.prune.data.ExtensionInfo;
 import tim.prune.data.Field;
+import tim.prune.data.FieldList;
 import tim.prune.data.FileType;
+import tim.prune.load.LoadedPoints;
+import tim.prune.load.PointSink;
 
 /**
- * Abstract superclass of xml handlers
+ * Abstract superclass of xml handlers.
+ * Each point is turned into a DataPoint as soon as it has been parsed
+ * and passed to the point sink, rather than collecting all the values first.
+ * All the points share the same field list, which may grow during parsing
+ * if further fields are found.
  */
 public abstract class XmlHandler extends DefaultHandler
 {
 	private FileType _fileType = null;
 	private int _fileVersion = VERSION_UNKNOWN;
-	private final ArrayList<Field> _fieldList = new ArrayList<>();
+	private final FieldList _fieldList = new FieldList();
 	private String[] _currentValues = null;
+	private final LoadedPoints _loadedPoints = new LoadedPoints();
+	private PointSink _pointSink = _loadedPoints;
 
 	private static final int VERSION_UNKNOWN = -1;
 
 
-	/**
-	 * Method for returning data loaded from file
-	 * @return 2d String array containing data
-	 */
-	public abstract String[][] getDataArray();
-
 	/** Add a field to the list */
 	protected void addField(Field inField) {
-		_fieldList.add(inField);
+		_fieldList.addField(inField);
 	}
 
 	/** @return true if the given field is already present in the list */
-	protected boolean hasField(Field inField)
-	{
-		for (Field field : _fieldList)
-		{
-			if (field.equals(inField)) {
-				return true;
-			}
-		}
-		return false;
+	protected boolean hasField(Field inField) {
+		return _fieldList.contains(inField);
 	}
 
 	/** @return index of the given field in the list */
-	protected int getFieldIndex(Field inField)
-	{
-		int index = 0;
-		for (Field field : _fieldList)
-		{
-			if (field.equals(inField)) {
-				return index;
-			}
-			index++;
-		}
-		return -1;
+	protected int getFieldIndex(Field inField) {
+		return _fieldList.getFieldIndex(inField);
+	}
+
+	/**
+	 * @return field list shared by all the points
+	 */
+	public final FieldList getFieldList() {
+		return _fieldList;
+	}
+
+	/**
+	 * Send the points to the given sink instead of keeping them
+	 * @param inSink sink to receive the points
+	 */
+	public void setPointSink(PointSink inSink) {
+		_pointSink = (inSink == null ? _loadedPoints : inSink);
 	}
 
 	/**
-	 * @return field array describing fields of data
+	 * @return the points loaded so far, unless another sink has been set
 	 */
-	public final Field[] getFieldArray() {
-		return _fieldList.toArray(new Field[0]);
+	public LoadedPoints getLoadedPoints() {
+		return _loadedPoints;
 	}
 
 	/** Reset the current values array for the next point */
 	protected void resetCurrentValues() {
-		_currentValues = new String[_fieldList.size()];
+		_currentValues = new String[_fieldList.getNumFields()];
 	}
 
 	/**
@@ -84,7 +85,7 @@ public abstract class XmlHandler extends DefaultHandler
 		int index = getFieldIndex(inField);
 		if (_currentValues == null || _currentValues.length <= index)
 		{
-			String[] newValues = new String[_fieldList.size()];
+			String[] newValues = new String[_fieldList.getNumFields()];
 			if (_currentValues != null) {
 				System.arraycopy(_currentValues, 0, newValues, 0, _currentValues.length);
 			}
@@ -93,17 +94,24 @@ public abstract class XmlHandler extends DefaultHandler
 		_currentValues[index] = inValue;
 	}
 
-	/** @return the value array for the current point */
-	protected String[] getCurrentValues() {
-		return _currentValues;
+	/**
+	 * Create a point from the current values and pass it on to the sink
+	 * @param inLink link to media, or null
+	 */
+	protected void addCurrentPoint(String inLink)
+	{
+		if (_currentValues != null)
+		{
+			_pointSink.addPoint(new DataPoint(_currentValues, _fieldList, null), inLink);
+			_currentValues = null;
+		}
 	}
 
 	/**
-	 * Can be overridden (eg by gpx handler) to provide an array of links to media
-	 * @return array of Strings if any, or null
+	 * @return array of links to media matching the loaded points if any, or null
 	 */
 	public String[] getLinkArray() {
-		return null;
+		return _loadedPoints.getLinkArray();
 	}
 
 	/** Set the file type */
@@ -6,9 +6,11 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
 import javax.swing.BorderFactory;
@@ -457,7 +459,7 @@ public class FileSaver
 				JOptionPane.WARNING_MESSAGE, null, buttonTexts, buttonTexts[1])
 			== JOptionPane.YES_OPTION)
 		{
-			try (FileWriter writer = new FileWriter(saveFile))
+			try (Writer writer = new BufferedWriter(new FileWriter(saveFile), ParallelTextWriter.OUTPUT_BUFFER_SIZE))
 			{
 				// Determine delimiter character to use
 				final char delimiter = getDelimiter();
@@ -492,9 +494,10 @@ public class FileSaver
 					selStart = _app.getTrackInfo().getSelection().getStart();
 					selEnd = _app.getTrackInfo().getSelection().getEnd();
 				}
-				// Loop over points outputting each in turn to buffer
+				// Find which points to save
 				Track track = _app.getTrackInfo().getTrack();
 				final int numPoints = track.getNumPoints();
+				final int[] pointIndexes = new int[numPoints];
 				int numSaved = 0;
 				for (int p=0; p<numPoints; p++)
 				{
@@ -504,27 +507,38 @@ public class FileSaver
 						|| (!point.isWaypoint() && point.getPhoto()!=null && _pointTypeSelector.getPhotopointsSelected())
 						|| (!point.isWaypoint() && point.getAudio()!=null && _pointTypeSelector.getAudiopointsSelected()))
 						&& (!_pointTypeSelector.getJustSelection() || (p>=selStart && p<=selEnd));
-					if (!savePoint) {continue;}
-					numSaved++;
-					firstField = true;
-					StringBuffer buffer = new StringBuffer();
-					for (int f=0; f<numFields; f++)
+					if (savePoint)
 					{
-						info = _model.getFieldInfo(f);
-						if (info.isSelected())
-						{
-							// output field separator
-							if (!firstField) {
-								buffer.append(delimiter);
-							}
-							saveField(buffer, point, info.getField(), coordFormat, altitudeUnit, timestampFormat);
-							firstField = false;
-						}
+						pointIndexes[numSaved] = p;
+						numSaved++;
 					}
-					// Output to file
-					writer.write(buffer.toString());
-					writer.write(lineSeparator);
 				}
+				// Get the selected fields
+				ArrayList<Field> fieldList = new ArrayList<>();
+				for (int f=0; f<numFields; f++)
+				{
+					info = _model.getFieldInfo(f);
+					if (info.isSelected()) {
+						fieldList.add(info.getField());
+					}
+				}
+				final Field[] fields = fieldList.toArray(new Field[0]);
+				final Coordinate.Format rowCoordFormat = coordFormat;
+				final Unit rowAltitudeUnit = altitudeUnit;
+				final Timestamp.Format rowTimestampFormat = timestampFormat;
+				// Format the rows in parallel, keeping their order
+				ParallelTextWriter.writeItems(writer, numSaved, (item, buffer) -> {
+					DataPoint point = track.getPoint(pointIndexes[item]);
+					for (int f=0; f<fields.length; f++)
+					{
+						// output field separator
+						if (f > 0) {
+							buffer.append(delimiter);
+						}
+						saveField(buffer, point, fields[f], rowCoordFormat, rowAltitudeUnit, rowTimestampFormat);
+					}
+					buffer.append(lineSeparator);
+				}, null);
 				// Store directory in config for later
 				_app.getConfig().setConfigString(Config.KEY_TRACK_DIR, saveFile.getParentFile().getAbsolutePath());
 				// Add to recent file list
@@ -561,7 +575,7 @@ public class FileSaver
 	 * @param inAltitudeUnit altitude unit
 	 * @param inTimestampFormat timestamp format
 	 */
-	private void saveField(StringBuffer inBuffer, DataPoint inPoint, Field inField,
+	private static void saveField(StringBuilder inBuffer, DataPoint inPoint, Field inField,
 		Coordinate.Format inCoordFormat, Unit inAltitudeUnit, Timestamp.Format inTimestampFormat)
 	{
 		// Output field according to type
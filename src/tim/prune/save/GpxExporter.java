@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.FlowLayout;
 import java.awt.event.ActionListener;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -362,10 +363,12 @@ public class GpxExporter extends GenericFunction
 		{
 			// normal writing to file - firstly specify UTF8 encoding if requested
 			if (_forceUtf8Radio != null && _forceUtf8Radio.isSelected()) {
-				writer = new OutputStreamWriter(new FileOutputStream(_exportFile), StandardCharsets.UTF_8);
+				writer = new OutputStreamWriter(new BufferedOutputStream(
+					new FileOutputStream(_exportFile), ParallelTextWriter.OUTPUT_BUFFER_SIZE), StandardCharsets.UTF_8);
 			}
 			else {
-				writer = new OutputStreamWriter(new FileOutputStream(_exportFile));
+				writer = new OutputStreamWriter(new BufferedOutputStream(
+					new FileOutputStream(_exportFile), ParallelTextWriter.OUTPUT_BUFFER_SIZE));
 			}
 			SettingsForExport settings = new SettingsForExport();
 			settings.setExportTrackPoints(_pointTypeSelector.getTrackpointsSelected());
@@ -0,0 +1,138 @@
+package tim.prune.save;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes the text for a list of items, such as the points of a track.
+ * Chunks of items are formatted in parallel into reusable buffers,
+ * and then the chunks are written to the output in their original order.
+ */
+public abstract class ParallelTextWriter
+{
+	/** Formats a single item into the given buffer */
+	public interface ItemFormatter {
+		void format(int inItem, StringBuilder inBuffer);
+	}
+
+	/** Number of items formatted together in one chunk */
+	static final int CHUNK_SIZE = 1000;
+	/** Size in bytes of the buffer to use between the writers and the output files */
+	public static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+
+	/**
+	 * Format all the items and write them to the writer in order
+	 * @param inWriter writer to write to
+	 * @param inNumItems number of items
+	 * @param inFormatter formatter for each item, which must be safe to call from several threads
+	 * @param inProgress informed of the number of items written after each chunk, or null
+	 * @throws IOException if the text couldn't be written
+	 */
+	public static void writeItems(Writer inWriter, int inNumItems, ItemFormatter inFormatter,
+		IntConsumer inProgress) throws IOException
+	{
+		final int numChunks = (inNumItems + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		if (numChunks <= 1 || parallelism <= 1)
+		{
+			writeItemsInline(inWriter, inNumItems, inFormatter, inProgress);
+			return;
+		}
+		// Limit the number of chunks waiting to be written, so that their buffers can be reused
+		final int maxPending = parallelism * 2;
+		ArrayDeque<CompletableFuture<StringBuilder>> pending = new ArrayDeque<>();
+		ArrayDeque<StringBuilder> spareBuffers = new ArrayDeque<>();
+		char[] chars = new char[0];
+		int nextChunk = 0;
+		try
+		{
+			while (nextChunk < numChunks || !pending.isEmpty())
+			{
+				while (nextChunk < numChunks && pending.size() < maxPending)
+				{
+					final StringBuilder buffer = spareBuffers.isEmpty() ? new StringBuilder() : spareBuffers.pop();
+					final int start = nextChunk * CHUNK_SIZE;
+					final int end = Math.min(start + CHUNK_SIZE, inNumItems);
+					pending.add(CompletableFuture.supplyAsync(() -> formatItems(buffer, start, end, inFormatter)));
+					nextChunk++;
+				}
+				StringBuilder buffer = pending.poll().join();
+				chars = writeBuffer(inWriter, buffer, chars);
+				spareBuffers.push(buffer);
+				if (inProgress != null) {
+					inProgress.accept(Math.min((nextChunk - pending.size()) * CHUNK_SIZE, inNumItems));
+				}
+			}
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		finally
+		{
+			// Don't leave any chunks still being formatted
+			for (CompletableFuture<StringBuilder> future : pending) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Format and write all the items in the current thread, using a single buffer
+	 */
+	private static void writeItemsInline(Writer inWriter, int inNumItems, ItemFormatter inFormatter,
+		IntConsumer inProgress) throws IOException
+	{
+		StringBuilder buffer = new StringBuilder();
+		char[] chars = new char[0];
+		for (int start=0; start<inNumItems; start+=CHUNK_SIZE)
+		{
+			final int end = Math.min(start + CHUNK_SIZE, inNumItems);
+			formatItems(buffer, start, end, inFormatter);
+			chars = writeBuffer(inWriter, buffer, chars);
+			if (inProgress != null) {
+				inProgress.accept(end);
+			}
+		}
+	}
+
+	/**
+	 * Write the contents of the buffer and then empty it
+	 * @param inWriter writer to write to
+	 * @param inBuffer buffer holding the formatted text
+	 * @param inChars array to copy the text into, if it's big enough
+	 * @return the array used, so that it can be used again
+	 */
+	private static char[] writeBuffer(Writer inWriter, StringBuilder inBuffer, char[] inChars)
+		throws IOException
+	{
+		final int length = inBuffer.length();
+		final char[] chars = (inChars.length < length ? new char[length] : inChars);
+		inBuffer.getChars(0, length, chars, 0);
+		inWriter.write(chars, 0, length);
+		inBuffer.setLength(0);
+		return chars;
+	}
+
+	/**
+	 * Format the given range of items into the buffer
+	 * @return the buffer
+	 */
+	private static StringBuilder formatItems(StringBuilder inBuffer, int inStart, int inEnd,
+		ItemFormatter inFormatter)
+	{
+		for (int i=inStart; i<inEnd; i++) {
+			inFormatter.format(i, inBuffer);
+		}
+		return inBuffer;
+	}
+}
@@ -17,6 +17,7 @@ import tim.prune.data.Track;
 import tim.prune.data.TrackInfo;
 import tim.prune.data.UnitSetLibrary;
 import tim.prune.gui.ProgressDialog;
+import tim.prune.save.ParallelTextWriter;
 import tim.prune.save.SettingsForExport;
 
 /**
@@ -165,6 +166,7 @@ public abstract class GpxWriter
 		// Loop over waypoints
 		final int numPoints = inTrack.getNumPoints();
 		int numSaved = 0;
+		StringBuilder buffer = new StringBuilder();
 		for (int i=0; i<numPoints; i++)
 		{
 			if (!shouldExportIndex(i)) {
@@ -182,32 +184,32 @@ public abstract class GpxWriter
 				_progress.setValue(i);
 			}
 			// Make a wpt element for each waypoint
-			exportWaypoint(point, inWriter);
+			exportWaypoint(point, buffer);
+			inWriter.append(buffer);
+			buffer.setLength(0);
 			numSaved++;
 		}
 		return numSaved;
 	}
 
 	/**
-	 * Export the specified waypoint into the file
+	 * Export the specified waypoint into the buffer
 	 * @param inPoint waypoint to export
-	 * @param inWriter writer object
-	 * @throws IOException on write failure
+	 * @param inBuffer buffer to append to
 	 */
-	private void exportWaypoint(DataPoint inPoint, Writer inWriter)
-		throws IOException
+	private void exportWaypoint(DataPoint inPoint, StringBuilder inBuffer)
 	{
-		inWriter.write("\t<wpt lat=\"");
-		inWriter.write(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
-		inWriter.write("\" lon=\"");
-		inWriter.write(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
-		inWriter.write("\">\n");
+		inBuffer.append("\t<wpt lat=\"");
+		inBuffer.append(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append("\" lon=\"");
+		inBuffer.append(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append("\">\n");
 		// altitude if available
 		if (inPoint.hasAltitude() || _settings.getExportMissingAltitudesAsZero())
 		{
-			inWriter.write("\t\t<ele>");
-			inWriter.write(inPoint.hasAltitude() ? inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES) : "0");
-			inWriter.write("</ele>\n");
+			inBuffer.append("\t\t<ele>");
+			inBuffer.append(inPoint.hasAltitude() ? inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES) : "0");
+			inBuffer.append("</ele>\n");
 		}
 		// timestamp if available (some waypoints have timestamps, some not)
 		if (_settings.getExportTimestamps())
@@ -215,19 +217,19 @@ public abstract class GpxWriter
 			Timestamp waypointTimestamp = getPointTimestamp(inPoint);
 			if (waypointTimestamp != null && waypointTimestamp.isValid())
 			{
-				inWriter.write("\t\t<time>");
-				inWriter.write(getPointTimestamp(inPoint).getText(Timestamp.Format.ISO8601, null));
-				inWriter.write("</time>\n");
+				inBuffer.append("\t\t<time>");
+				inBuffer.append(getPointTimestamp(inPoint).getText(Timestamp.Format.ISO8601, null));
+				inBuffer.append("</time>\n");
 			}
 		}
 		// magvar, geoidheight
 		for (FieldGpx field : FieldGpx.getFirstFields()) {
-			writeGpxTag(inWriter, "\t\t", inPoint, field);
+			writeGpxTag(inBuffer, "\t\t", inPoint, field);
 		}
 		// write waypoint name after elevation and time
-		inWriter.write("\t\t<name>");
-		inWriter.write(XmlUtils.fixCdata(inPoint.getWaypointName().trim()));
-		inWriter.write("</name>\n");
+		inBuffer.append("\t\t<name>");
+		inBuffer.append(XmlUtils.fixCdata(inPoint.getWaypointName().trim()));
+		inBuffer.append("</name>\n");
 		// comment, if any
 		String comment = XmlUtils.fixCdata(inPoint.getFieldValue(Field.COMMENT));
 		final String desc = XmlUtils.fixCdata(inPoint.getFieldValue(Field.DESCRIPTION));
@@ -236,40 +238,40 @@ public abstract class GpxWriter
 		}
 		if (!isEmpty(comment))
 		{
-			inWriter.write("\t\t<cmt>");
-			inWriter.write(comment);
-			inWriter.write("</cmt>\n");
+			inBuffer.append("\t\t<cmt>");
+			inBuffer.append(comment);
+			inBuffer.append("</cmt>\n");
 		}
 		// description, if any
 		if (!isEmpty(desc))
 		{
-			inWriter.write("\t\t<desc>");
-			inWriter.write(desc);
-			inWriter.write("</desc>\n");
+			inBuffer.append("\t\t<desc>");
+			inBuffer.append(desc);
+			inBuffer.append("</desc>\n");
 		}
 		if (versionSupportsPointLinks())
 		{
 			// Media links, if any
 			if (_settings.getExportPhotoPoints() && inPoint.getPhoto() != null)
 			{
-				inWriter.write("\t\t");
-				inWriter.write(makeMediaLink(inPoint.getPhoto()));
-				inWriter.write('\n');
+				inBuffer.append("\t\t");
+				inBuffer.append(makeMediaLink(inPoint.getPhoto()));
+				inBuffer.append('\n');
 			}
 			if (_settings.getExportAudioPoints() && inPoint.getAudio() != null)
 			{
-				inWriter.write("\t\t");
-				inWriter.write(makeMediaLink(inPoint.getAudio()));
-				inWriter.write('\n');
+				inBuffer.append("\t\t");
+				inBuffer.append(makeMediaLink(inPoint.getAudio()));
+				inBuffer.append('\n');
 			}
 		}
 		// symbol, if any
 		final String symbol = XmlUtils.fixCdata(inPoint.getFieldValue(Field.SYMBOL));
 		if (!isEmpty(symbol))
 		{
-			inWriter.write("\t\t<sym>");
-			inWriter.write(symbol);
-			inWriter.write("</sym>\n");
+			inBuffer.append("\t\t<sym>");
+			inBuffer.append(symbol);
+			inBuffer.append("</sym>\n");
 		}
 		// write waypoint type if any
 		String type = inPoint.getFieldValue(Field.WAYPT_TYPE);
@@ -278,27 +280,27 @@ public abstract class GpxWriter
 			type = type.trim();
 			if (!type.equals(""))
 			{
-				inWriter.write("\t\t<type>");
-				inWriter.write(type);
-				inWriter.write("</type>\n");
+				inBuffer.append("\t\t<type>");
+				inBuffer.append(type);
+				inBuffer.append("</type>\n");
 			}
 		}
 		// fix, sat, hdop, vdop, pdop, ageofdgpsdata, dgpsid
 		for (FieldGpx field : FieldGpx.getSecondFields()) {
-			writeGpxTag(inWriter, "\t\t", inPoint, field);
+			writeGpxTag(inBuffer, "\t\t", inPoint, field);
 		}
-		exportWaypointExtensions(inPoint, inWriter);
-		inWriter.write("\t</wpt>\n");
+		exportWaypointExtensions(inPoint, inBuffer);
+		inBuffer.append("\t</wpt>\n");
 	}
 
 	/** @return true if the output version supports the link tag for points */
 	protected abstract boolean versionSupportsPointLinks();
 
-	/** Export the extension tags from the given waypoint to the writer */
-	protected abstract void exportWaypointExtensions(DataPoint inPoint, Writer inWriter) throws IOException;
+	/** Export the extension tags from the given waypoint to the buffer */
+	protected abstract void exportWaypointExtensions(DataPoint inPoint, StringBuilder inBuffer);
 
-	/** Export the extension tags from the given trackpoint to the writer */
-	protected abstract void exportTrackpointExtensions(DataPoint inPoint, Writer inWriter) throws IOException;
+	/** Export the extension tags from the given trackpoint to the buffer */
+	protected abstract void exportTrackpointExtensions(DataPoint inPoint, StringBuilder inBuffer);
 
 	/**
 	 * Loop through the track outputting the relevant track points
@@ -314,7 +316,8 @@ public abstract class GpxWriter
 		final boolean exportTrackPoints = _settings.getExportTrackPoints();
 		final boolean exportPhotos = _settings.getExportPhotoPoints();
 		final boolean exportAudios = _settings.getExportAudioPoints();
-		// Loop over track points
+		// Find the indexes of the track points to export
+		final int[] pointIndexes = new int[numPoints];
 		for (int i=0; i<numPoints; i++)
 		{
 			if (!shouldExportIndex(i)) {
@@ -324,91 +327,89 @@ public abstract class GpxWriter
 			if (point.isWaypoint()) {
 				continue;
 			}
-			if (_progress != null) {
-				_progress.setValue(i);
-			}
 			if ((point.getPhoto()==null && exportTrackPoints) || (point.getPhoto()!=null && exportPhotos)
 				|| (point.getAudio()!=null && exportAudios))
 			{
-				// restart track segment if necessary
-				if ((numSaved > 0) && point.getSegmentStart()) {
-					inWriter.write("\t\t</trkseg>\n\t\t<trkseg>\n");
-				}
-				if (numSaved == 0)
-				{
-					String trackStart = "\t<trk>\n\t\t<name>" + inTrackName + "</name>\n\t\t<number>1</number>\n\t\t<trkseg>\n";
-					inWriter.write(trackStart);
-				}
-				exportTrackpoint(point, inWriter);
+				pointIndexes[numSaved] = i;
 				numSaved++;
 			}
 		}
-		if (numSaved > 0) {
-			inWriter.write("\t\t</trkseg>\n\t</trk>\n");
+		if (numSaved == 0) {
+			return 0;
 		}
+		String trackStart = "\t<trk>\n\t\t<name>" + inTrackName + "</name>\n\t\t<number>1</number>\n\t\t<trkseg>\n";
+		inWriter.write(trackStart);
+		// Format the points in parallel, keeping their order
+		ParallelTextWriter.writeItems(inWriter, numSaved, (item, buffer) -> {
+			DataPoint point = inTrack.getPoint(pointIndexes[item]);
+			// restart track segment if necessary
+			if (item > 0 && point.getSegmentStart()) {
+				buffer.append("\t\t</trkseg>\n\t\t<trkseg>\n");
+			}
+			exportTrackpoint(point, buffer);
+		}, _progress == null ? null : numWritten -> _progress.setValue(pointIndexes[numWritten - 1]));
+		inWriter.write("\t\t</trkseg>\n\t</trk>\n");
 		return numSaved;
 	}
 
 	/**
-	 * Export the specified trackpoint into the file
+	 * Export the specified trackpoint into the buffer
 	 * @param inPoint trackpoint to export
-	 * @param inWriter writer object
+	 * @param inBuffer buffer to append to
 	 */
-	private void exportTrackpoint(DataPoint inPoint, Writer inWriter)
-		throws IOException
+	private void exportTrackpoint(DataPoint inPoint, StringBuilder inBuffer)
 	{
-		inWriter.write("\t\t\t<trkpt lat=\"");
-		inWriter.write(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
-		inWriter.write("\" lon=\"");
-		inWriter.write(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
-		inWriter.write("\">\n");
+		inBuffer.append("\t\t\t<trkpt lat=\"");
+		inBuffer.append(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append("\" lon=\"");
+		inBuffer.append(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append("\">\n");
 		// altitude
 		if (inPoint.hasAltitude() || _settings.getExportMissingAltitudesAsZero())
 		{
-			inWriter.write("\t\t\t\t<ele>");
-			inWriter.write(inPoint.hasAltitude() ? inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES) : "0");
-			inWriter.write("</ele>\n");
+			inBuffer.append("\t\t\t\t<ele>");
+			inBuffer.append(inPoint.hasAltitude() ? inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES) : "0");
+			inBuffer.append("</ele>\n");
 		}
 		// Maybe take timestamp from photo if the point hasn't got one
 		Timestamp pointTimestamp = getPointTimestamp(inPoint);
 		// timestamp if available (and selected)
 		if (pointTimestamp != null && _settings.getExportTimestamps())
 		{
-			inWriter.write("\t\t\t\t<time>");
-			inWriter.write(pointTimestamp.getText(Timestamp.Format.ISO8601, null));
-			inWriter.write("</time>\n");
+			inBuffer.append("\t\t\t\t<time>");
+			inBuffer.append(pointTimestamp.getText(Timestamp.Format.ISO8601, null));
+			inBuffer.append("</time>\n");
 		}
 		for (FieldGpx field : FieldGpx.getFirstFields()) {
-			writeGpxTag(inWriter, "\t\t\t\t", inPoint, field);
+			writeGpxTag(inBuffer, "\t\t\t\t", inPoint, field);
 		}
 		for (FieldGpx field : FieldGpx.getSecondFields()) {
-			writeGpxTag(inWriter, "\t\t\t\t", inPoint, field);
+			writeGpxTag(inBuffer, "\t\t\t\t", inPoint, field);
 		}
 		// photo, audio
 		if (inPoint.getPhoto() != null && _settings.getExportPhotoPoints())
 		{
-			inWriter.write("\t\t\t\t");
-			inWriter.write(makeMediaLink(inPoint.getPhoto()));
-			inWriter.write("\n");
+			inBuffer.append("\t\t\t\t");
+			inBuffer.append(makeMediaLink(inPoint.getPhoto()));
+			inBuffer.append("\n");
 		}
 		if (inPoint.getAudio() != null && _settings.getExportAudioPoints()) {
-			inWriter.write(makeMediaLink(inPoint.getAudio()));
+			inBuffer.append(makeMediaLink(inPoint.getAudio()));
 		}
-		exportTrackpointExtensions(inPoint, inWriter);
-		inWriter.write("\t\t\t</trkpt>\n");
+		exportTrackpointExtensions(inPoint, inBuffer);
+		inBuffer.append("\t\t\t</trkpt>\n");
 	}
 
-	private void writeGpxTag(Writer inWriter, String inIndent, DataPoint inPoint, FieldGpx field)
-		throws IOException
+	private void writeGpxTag(StringBuilder inBuffer, String inIndent, DataPoint inPoint, FieldGpx field)
 	{
 		String value = inPoint.getFieldValue(field);
 		if (value != null && versionSupportsTag(field))
 		{
-			inWriter.write(inIndent);
-			inWriter.write(field.getOpenTag());
-			inWriter.write(value);
-			inWriter.write(field.getCloseTag());
-			inWriter.write('\n');
+			inBuffer.append(inIndent);
+			inBuffer.append(field.getOpenTag());
+			inBuffer.append(value);
+			inBuffer.append(field.getCloseTag());
+			inBuffer.append('\n');
 		}
 	}
 
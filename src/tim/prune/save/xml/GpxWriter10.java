@@ -2,7 +2,6 @@ package tim.prune.save.xml;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 
 import tim.prune.data.DataPoint;
 import tim.prune.data.Field;
@@ -87,8 +86,8 @@ public class GpxWriter10 extends GpxWriter
 		return "";
 	}
 
-	/** Export the extension tags from the given waypoint to the writer */
-	protected void exportWaypointExtensions(DataPoint inPoint, Writer inWriter) throws IOException
+	/** Export the extension tags from the given waypoint to the buffer */
+	protected void exportWaypointExtensions(DataPoint inPoint, StringBuilder inBuffer)
 	{
 		for (Field field : inPoint.getFieldList().getFields(FileType.GPX))
 		{
@@ -99,18 +98,18 @@ public class GpxWriter10 extends GpxWriter
 				if (!isEmpty(value))
 				{
 					// Don't include tag category for Gpx 1.0, just use the tag
-					inWriter.write("\t\t\t\t");
-					inWriter.write(xmlField.getTag(value));
-					inWriter.write("\n");
+					inBuffer.append("\t\t\t\t");
+					inBuffer.append(xmlField.getTag(value));
+					inBuffer.append("\n");
 				}
 			}
 		}
 	}
 
-	/** Export the extension tags from the given trackpoint to the writer */
-	protected void exportTrackpointExtensions(DataPoint inPoint, Writer inWriter) throws IOException
+	/** Export the extension tags from the given trackpoint to the buffer */
+	protected void exportTrackpointExtensions(DataPoint inPoint, StringBuilder inBuffer)
 	{
 		// TODO: Maybe just the same as above?
-		exportWaypointExtensions(inPoint, inWriter);
+		exportWaypointExtensions(inPoint, inBuffer);
 	}
 }
@@ -2,7 +2,6 @@ package tim.prune.save.xml;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.util.List;
 
 import tim.prune.data.DataPoint;
@@ -95,8 +94,8 @@ public class GpxWriter11 extends GpxWriter
 		return "";
 	}
 
-	/** Export the extension tags from the given waypoint to the writer */
-	protected void exportWaypointExtensions(DataPoint inPoint, Writer inWriter) throws IOException
+	/** Export the extension tags from the given waypoint to the buffer */
+	protected void exportWaypointExtensions(DataPoint inPoint, StringBuilder inBuffer)
 	{
 		List<Field> extensionFields = inPoint.getFieldList().getFields(FileType.GPX);
 		if (extensionFields == null || extensionFields.isEmpty()) {
@@ -123,22 +122,22 @@ public class GpxWriter11 extends GpxWriter
 		{
 			if (needToOpen)
 			{
-				inWriter.write("\t\t\t\t<extensions>\n");
+				inBuffer.append("\t\t\t\t<extensions>\n");
 				needToOpen = false;
 				needToClose = true;
 			}
-			inWriter.write(line);
-			inWriter.write('\n');
+			inBuffer.append(line);
+			inBuffer.append('\n');
 		}
 		if (needToClose) {
-			inWriter.write("\t\t\t\t</extensions>\n");
+			inBuffer.append("\t\t\t\t</extensions>\n");
 		}
 	}
 
-	/** Export the extension tags from the given trackpoint to the writer */
-	protected void exportTrackpointExtensions(DataPoint inPoint, Writer inWriter) throws IOException
+	/** Export the extension tags from the given trackpoint to the buffer */
+	protected void exportTrackpointExtensions(DataPoint inPoint, StringBuilder inBuffer)
 	{
 		// TODO: Maybe just the same as above?
-		exportWaypointExtensions(inPoint, inWriter);
+		exportWaypointExtensions(inPoint, inBuffer);
 	}
 }
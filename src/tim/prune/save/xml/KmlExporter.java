@@ -7,6 +7,7 @@ import java.awt.FlowLayout;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -48,6 +49,7 @@ import tim.prune.gui.WholeNumberField;
 import tim.prune.gui.colour.ColourChooser;
 import tim.prune.gui.colour.ColourPatch;
 import tim.prune.load.GenericFileFilter;
+import tim.prune.save.ParallelTextWriter;
 import tim.prune.save.PointTypeSelector;
 import tim.prune.save.VersionCombiner;
 
@@ -404,12 +406,14 @@ public class KmlExporter extends GenericFunction
 			if (!_kmzCheckbox.isSelected())
 			{
 				// normal writing to file
-				writer = new OutputStreamWriter(new FileOutputStream(_exportFile));
+				writer = new OutputStreamWriter(new BufferedOutputStream(
+					new FileOutputStream(_exportFile), ParallelTextWriter.OUTPUT_BUFFER_SIZE));
 			}
 			else
 			{
 				// kmz requested - need zip output stream
-				zipOutputStream = new ZipOutputStream(new FileOutputStream(_exportFile));
+				zipOutputStream = new ZipOutputStream(new BufferedOutputStream(
+					new FileOutputStream(_exportFile), ParallelTextWriter.OUTPUT_BUFFER_SIZE));
 				// Export images into zip file too if requested
 				if (exportImages)
 				{
@@ -2,6 +2,7 @@ package tim.prune.save.xml;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 
 import tim.prune.config.ColourUtils;
 import tim.prune.data.Coordinate;
@@ -10,6 +11,7 @@ import tim.prune.data.Timestamp;
 import tim.prune.data.Track;
 import tim.prune.data.TrackInfo;
 import tim.prune.data.UnitSetLibrary;
+import tim.prune.save.ParallelTextWriter;
 
 /** KmlWriter for version 2.2 */
 public class KmlWriter22 extends KmlWriter
@@ -53,15 +55,12 @@ public class KmlWriter22 extends KmlWriter
 
 		boolean justSelection = _exportOptions.getExportJustSelection();
 
-		// Start segment
-		inWriter.write(trackStart);
-		StringBuilder whenList = new StringBuilder();
-		StringBuilder coordList = new StringBuilder();
-
-		// Loop over track points
+		// Find the indexes of the track points to write, and where the segments break
 		final Track track = _trackInfo.getTrack();
-		boolean firstTrackpoint = true;
 		final int numPoints = track.getNumPoints();
+		final int[] pointIndexes = new int[numPoints];
+		ArrayList<Integer> segmentBreaks = new ArrayList<>();
+		boolean firstTrackpoint = true;
 		for (int i=0; i<numPoints; i++)
 		{
 			DataPoint point = track.getPoint(i);
@@ -69,46 +68,69 @@ public class KmlWriter22 extends KmlWriter
 			if (!point.isWaypoint() && writeCurrentPoint)
 			{
 				// start new track segment if necessary
-				if (point.getSegmentStart() && !firstTrackpoint)
-				{
-					inWriter.write(whenList.toString());
-					inWriter.write('\n');
-					inWriter.write(coordList.toString());
-					inWriter.write('\n');
-					inWriter.write(trackEnd);
-					whenList.setLength(0); coordList.setLength(0);
-					inWriter.write(trackStart);
+				if (point.getSegmentStart() && !firstTrackpoint) {
+					segmentBreaks.add(numSaved);
 				}
 				if (point.getPhoto() == null)
 				{
-					// Add timestamp (if any) to the list
-					whenList.append("<when>");
-					if (point.hasTimestamp()) {
-						whenList.append(point.getTimestamp().getText(Timestamp.Format.ISO8601, null));
-					}
-					whenList.append("</when>\n");
-					// Add coordinates to the list
-					coordList.append("<gx:coord>");
-					coordList.append(point.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT)).append(' ');
-					coordList.append(point.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT)).append(' ');
-					if (point.hasAltitude()) {
-						coordList.append(point.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES));
-					}
-					else {
-						coordList.append('0');
-					}
-					coordList.append("</gx:coord>\n");
+					pointIndexes[numSaved] = i;
 					numSaved++;
 					firstTrackpoint = false;
 				}
 			}
 		}
+		// Start segment
+		inWriter.write(trackStart);
+		int segmentStart = 0;
+		for (int segmentEnd : segmentBreaks)
+		{
+			writeSegment(inWriter, track, pointIndexes, segmentStart, segmentEnd);
+			inWriter.write(trackEnd);
+			inWriter.write(trackStart);
+			segmentStart = segmentEnd;
+		}
 		// end segment
-		inWriter.write(whenList.toString());
-		inWriter.write('\n');
-		inWriter.write(coordList.toString());
-		inWriter.write('\n');
+		writeSegment(inWriter, track, pointIndexes, segmentStart, numSaved);
 		inWriter.write(trackEnd);
 		return numSaved;
 	}
+
+	/**
+	 * Write the list of timestamps and then the list of coordinates for a single segment
+	 * @param inWriter writer object to write to
+	 * @param inTrack track object
+	 * @param inPointIndexes indexes of the points to write
+	 * @param inStart first entry of indexes in this segment
+	 * @param inEnd entry after the last one in this segment
+	 */
+	private static void writeSegment(OutputStreamWriter inWriter, Track inTrack, int[] inPointIndexes,
+		int inStart, int inEnd)
+	throws IOException
+	{
+		// Add timestamps (if any) to the list
+		ParallelTextWriter.writeItems(inWriter, inEnd - inStart, (item, buffer) -> {
+			DataPoint point = inTrack.getPoint(inPointIndexes[inStart + item]);
+			buffer.append("<when>");
+			if (point.hasTimestamp()) {
+				buffer.append(point.getTimestamp().getText(Timestamp.Format.ISO8601, null));
+			}
+			buffer.append("</when>\n");
+		}, null);
+		inWriter.write('\n');
+		// Add coordinates to the list
+		ParallelTextWriter.writeItems(inWriter, inEnd - inStart, (item, buffer) -> {
+			DataPoint point = inTrack.getPoint(inPointIndexes[inStart + item]);
+			buffer.append("<gx:coord>");
+			buffer.append(point.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT)).append(' ');
+			buffer.append(point.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT)).append(' ');
+			if (point.hasAltitude()) {
+				buffer.append(point.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES));
+			}
+			else {
+				buffer.append('0');
+			}
+			buffer.append("</gx:coord>\n");
+		}, null);
+		inWriter.write('\n');
+	}
 }
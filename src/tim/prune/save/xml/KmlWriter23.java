@@ -2,7 +2,6 @@ package tim.prune.save.xml;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 
 import tim.prune.config.ColourUtils;
 import tim.prune.data.Coordinate;
@@ -10,6 +9,7 @@ import tim.prune.data.DataPoint;
 import tim.prune.data.Track;
 import tim.prune.data.TrackInfo;
 import tim.prune.data.UnitSetLibrary;
+import tim.prune.save.ParallelTextWriter;
 
 /** KmlWriter for version 2.3 */
 public class KmlWriter23 extends KmlWriter
@@ -47,12 +47,10 @@ public class KmlWriter23 extends KmlWriter
 
 		boolean justSelection = _exportOptions.getExportJustSelection();
 
-		// Start segment
-		inWriter.write(trackStart);
-		// Loop over track points
+		// Find the indexes of the track points to write
 		final Track track = _trackInfo.getTrack();
-		boolean firstTrackpoint = true;
 		final int numPoints = track.getNumPoints();
+		final int[] pointIndexes = new int[numPoints];
 		for (int i=0; i<numPoints; i++)
 		{
 			DataPoint point = track.getPoint(i);
@@ -60,42 +58,44 @@ public class KmlWriter23 extends KmlWriter
 			// ignore points with photos or audios here, just write the track points
 			if (!point.isWaypoint() && writeCurrentPoint && !point.hasMedia())
 			{
-				// start new track segment if necessary
-				if (point.getSegmentStart() && !firstTrackpoint) {
-					inWriter.write(trackEnd);
-					inWriter.write(trackStart);
-				}
-				if (point.getPhoto() == null)
-				{
-					exportTrackpoint(point, inWriter);
-					numSaved++;
-					firstTrackpoint = false;
-				}
+				pointIndexes[numSaved] = i;
+				numSaved++;
 			}
 		}
+		// Start segment
+		inWriter.write(trackStart);
+		final String segmentBreak = trackEnd + trackStart;
+		ParallelTextWriter.writeItems(inWriter, numSaved, (item, buffer) -> {
+			DataPoint point = track.getPoint(pointIndexes[item]);
+			// start new track segment if necessary
+			if (item > 0 && point.getSegmentStart()) {
+				buffer.append(segmentBreak);
+			}
+			exportTrackpoint(point, buffer);
+		}, null);
 		// end segment
 		inWriter.write(trackEnd);
 		return numSaved;
 	}
 
 	/**
-	 * Export the specified trackpoint into the file
+	 * Export the specified trackpoint into the buffer
 	 * @param inPoint trackpoint to export
-	 * @param inWriter writer object
+	 * @param inBuffer buffer to append to
 	 */
-	private void exportTrackpoint(DataPoint inPoint, Writer inWriter) throws IOException
+	private static void exportTrackpoint(DataPoint inPoint, StringBuilder inBuffer)
 	{
-		inWriter.write(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
-		inWriter.write(',');
-		inWriter.write(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append(inPoint.getLongitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
+		inBuffer.append(',');
+		inBuffer.append(inPoint.getLatitude().output(Coordinate.Format.DECIMAL_FORCE_POINT));
 		// Altitude if point has one
-		inWriter.write(',');
+		inBuffer.append(',');
 		if (inPoint.hasAltitude()) {
-			inWriter.write("" + inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES));
+			inBuffer.append(inPoint.getAltitude().getStringValue(UnitSetLibrary.UNITS_METRES));
 		}
 		else {
-			inWriter.write('0');
+			inBuffer.append('0');
 		}
-		inWriter.write('\n');
+		inBuffer.append('\n');
 	}
 }
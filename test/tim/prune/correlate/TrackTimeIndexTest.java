@@ -0,0 +1,83 @@
+package tim.prune.correlate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.Latitude;
+import tim.prune.data.Longitude;
+import tim.prune.data.Photo;
+import tim.prune.data.Track;
+
+/**
+ * Tests for finding the points either side of media using the sorted timestamps
+ */
+class TrackTimeIndexTest
+{
+	@Test
+	void testSameAsComparingAllPoints()
+	{
+		Random random = new Random(808L);
+		Track track = new Track();
+		long millis = 1600000000000L;
+		for (int i=0; i<2000; i++)
+		{
+			DataPoint point = new DataPoint(Latitude.make(1.0 + i * 0.001), Longitude.make(2.0));
+			// mostly increasing, with some repeats and jumps backwards
+			millis += random.nextInt(4000) - (random.nextInt(50) == 0 ? 60000 : 0);
+			if (random.nextInt(20) != 0) {
+				point.setFieldValue(Field.TIMESTAMP, formatMillis(millis), false);
+			}
+			if (random.nextInt(100) == 0) {
+				point.setPhoto(new Photo(new File("linked" + i + ".jpg")));
+			}
+			track.appendPoint(point);
+		}
+		final TimeZone timezone = TimeZone.getTimeZone("UTC");
+		TrackTimeIndex index = new TrackTimeIndex(track, timezone);
+		Photo photo = new Photo(new File("abc.jpg"));
+		for (int i=0; i<500; i++)
+		{
+			final long mediaMillis = 1600000000000L - 100000L + random.nextInt(4100000);
+			final long offset = random.nextInt(10) - 5;
+			PointMediaPair expected = new PointMediaPair(photo);
+			for (int p=0; p<track.getNumPoints(); p++)
+			{
+				DataPoint point = track.getPoint(p);
+				if (point.getPhoto() == null && point.hasTimestamp()) {
+					expected.addPoint(point, (point.getTimestamp().getMilliseconds(timezone) - mediaMillis) / 1000L + offset);
+				}
+			}
+			PointMediaPair actual = index.findPointPair(photo, mediaMillis, offset);
+			assertSame(expected.getPointBefore(), actual.getPointBefore());
+			assertSame(expected.getPointAfter(), actual.getPointAfter());
+			assertEquals(expected.getSecondsBefore(), actual.getSecondsBefore());
+			assertEquals(expected.getSecondsAfter(), actual.getSecondsAfter());
+		}
+	}
+
+	@Test
+	void testNoPoints()
+	{
+		TrackTimeIndex index = new TrackTimeIndex(new Track(), TimeZone.getTimeZone("UTC"));
+		PointMediaPair pair = index.findPointPair(new Photo(new File("abc.jpg")), 1000L, 0L);
+		assertNull(pair.getPointBefore());
+		assertNull(pair.getPointAfter());
+	}
+
+	/** @return ISO text for the given time, with milliseconds */
+	private static String formatMillis(long inMillis)
+	{
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(new Date(inMillis));
+	}
+}
@@ -120,4 +120,17 @@ class FieldListTest
 		assertEquals(3, combined2.getFieldIndex(Field.TIMESTAMP));
 		assertEquals(-1, combined2.getFieldIndex(Field.LONGITUDE));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testContainsAll()
+	{
+		FieldList fields = new FieldList(Field.LATITUDE, Field.LONGITUDE, new FieldCustom("heart"));
+		assertTrue(fields.containsAll(null));
+		assertTrue(fields.containsAll(fields));
+		assertTrue(fields.containsAll(new FieldList(Field.LONGITUDE)));
+		// custom fields are matched by name
+		assertTrue(fields.containsAll(new FieldList(new FieldCustom("heart"), Field.LATITUDE)));
+		assertFalse(fields.containsAll(new FieldList(Field.LATITUDE, Field.ALTITUDE)));
+		assertFalse(fields.containsAll(new FieldList(new FieldCustom("cadence"))));
+	}
+}
@@ -0,0 +1,176 @@
+package tim.prune.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.cmd.SetSegmentsCmd;
+
+/**
+ * Tests for the primitive point columns held by the Track
+ */
+class PointColumnsTest
+{
+	@Test
+	void testEmptyTrack()
+	{
+		Track track = new Track();
+		PointColumns columns = track.getColumns();
+		assertEquals(0, columns.getNumPoints());
+		assertFalse(columns.hasTrackPoints());
+		assertFalse(columns.hasWaypoints());
+		assertFalse(columns.getLatRange().hasData());
+	}
+
+	@Test
+	void testCoordinatesAndFlags()
+	{
+		Track track = new Track();
+		track.appendPoint(new DataPoint(1.5, -2.0));
+		DataPoint waypoint = new DataPoint(1.0, 3.0);
+		waypoint.setWaypointName("wp");
+		track.appendPoint(waypoint);
+		DataPoint point = new DataPoint(-1.0, 4.0);
+		point.setSegmentStart(true);
+		track.appendPoint(point);
+
+		PointColumns columns = track.getColumns();
+		assertEquals(3, columns.getNumPoints());
+		assertEquals(1.5, columns.getLatitude(0), 0.000001);
+		assertEquals(4.0, columns.getLongitude(2), 0.000001);
+		assertEquals(track.getX(1), columns.getX(1));
+		assertEquals(track.getY(2), columns.getY(2));
+		assertFalse(columns.isWaypoint(0));
+		assertTrue(columns.isWaypoint(1));
+		assertFalse(columns.isSegmentStart(0));
+		assertTrue(columns.isSegmentStart(2));
+		assertTrue(columns.hasTrackPoints());
+		assertTrue(columns.hasWaypoints());
+		assertEquals(-1.0, columns.getLatRange().getMinimum(), 0.000001);
+		assertEquals(4.0, columns.getLonRange().getMaximum(), 0.000001);
+		assertEquals(DataPoint.calculateRadiansBetween(track.getPoint(0), point),
+			columns.calculateRadiansBetween(0, 2), 0.0000001);
+	}
+
+	@Test
+	void testOnlyWaypoints()
+	{
+		Track track = new Track();
+		DataPoint waypoint = new DataPoint(1.0, 3.0);
+		waypoint.setWaypointName("wp");
+		track.appendPoint(waypoint);
+		assertTrue(track.hasWaypoints());
+		assertFalse(track.hasTrackPoints());
+	}
+
+	@Test
+	void testSegmentCommandRefreshesColumns()
+	{
+		Track track = new Track();
+		for (int i=0; i<4; i++) {
+			track.appendPoint(new DataPoint(1.0 + i, 2.0));
+		}
+		assertFalse(track.getColumns().isSegmentStart(2));
+		SetSegmentsCmd command = new SetSegmentsCmd();
+		command.addSegmentFlag(track.getPoint(2));
+		assertTrue(command.execute(new TrackInfo(track)));
+		assertTrue(track.getColumns().isSegmentStart(2));
+	}
+
+	@Test
+	void testIncrementalUpdatesMatchRebuild()
+	{
+		Track track = new Track();
+		Random random = new Random(11L);
+		PointColumns columns = track.getColumns();
+		for (int i=0; i<400; i++)
+		{
+			final int action = random.nextInt(10);
+			if (action < 6 || track.getNumPoints() < 5)
+			{
+				DataPoint point = new DataPoint(random.nextDouble() * 100.0 - 50.0, random.nextDouble() * 300.0 - 150.0);
+				point.setSegmentStart(random.nextInt(5) == 0);
+				if (random.nextInt(4) == 0) {
+					point.setWaypointName("wp" + i);
+				}
+				if (action < 4) {
+					track.appendPoint(point);
+				}
+				else {
+					track.insertPoint(point, random.nextInt(track.getNumPoints() + 1));
+				}
+			}
+			else if (action < 9) {
+				track.deletePoint(random.nextInt(track.getNumPoints()));
+			}
+			else {
+				track.cropTo(track.getNumPoints() - 2);
+			}
+			// Columns are updated in place rather than being rebuilt
+			assertSame(columns, track.getColumns());
+			checkColumns(new PointColumns(track), columns);
+		}
+	}
+
+	@Test
+	void testHeapFootprint()
+	{
+		// Measure the bytes allocated by this thread, if the jvm can count them
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+			return;
+		}
+		final long threadId = Thread.currentThread().getId();
+		final int numPoints = 100000;
+
+		long startBytes = bean.getThreadAllocatedBytes(threadId);
+		DataPoint[] points = new DataPoint[numPoints];
+		for (int i=0; i<numPoints; i++)
+		{
+			points[i] = new DataPoint(45.0 + i * 0.0001, 7.0 + i * 0.0001);
+			points[i].setSegmentStart(i % 1000 == 0);
+		}
+		final long pointBytes = bean.getThreadAllocatedBytes(threadId) - startBytes;
+
+		// The x and y values which the Track used to hold
+		startBytes = bean.getThreadAllocatedBytes(threadId);
+		double[] xValues = new double[numPoints], yValues = new double[numPoints];
+		final long xyBytes = bean.getThreadAllocatedBytes(threadId) - startBytes;
+
+		Track track = new Track(new FieldList(), points);
+		startBytes = bean.getThreadAllocatedBytes(threadId);
+		PointColumns columns = track.getColumns();
+		final long columnBytes = bean.getThreadAllocatedBytes(threadId) - startBytes;
+
+		assertEquals(numPoints, columns.getNumPoints());
+		assertEquals(xValues.length, yValues.length);
+		// Two bits per point for the flags, plus the ranges
+		assertTrue(columnBytes <= xyBytes + numPoints / 4 + 1024, "columns: " + columnBytes + ", x and y: " + xyBytes);
+		assertTrue(columnBytes * 10 < pointBytes, "columns: " + columnBytes + ", points: " + pointBytes);
+	}
+
+	/** Check that the two sets of columns are the same */
+	private static void checkColumns(PointColumns inExpected, PointColumns inActual)
+	{
+		assertEquals(inExpected.getNumPoints(), inActual.getNumPoints());
+		for (int i=0; i<inExpected.getNumPoints(); i++)
+		{
+			assertEquals(inExpected.getX(i), inActual.getX(i));
+			assertEquals(inExpected.getY(i), inActual.getY(i));
+			assertEquals(inExpected.isWaypoint(i), inActual.isWaypoint(i));
+			assertEquals(inExpected.isSegmentStart(i), inActual.isSegmentStart(i));
+		}
+		assertEquals(inExpected.hasTrackPoints(), inActual.hasTrackPoints());
+		assertEquals(inExpected.hasWaypoints(), inActual.hasWaypoints());
+		assertEquals(inExpected.getLatRange().getMinimum(), inActual.getLatRange().getMinimum());
+		assertEquals(inExpected.getLonRange().getMaximum(), inActual.getLonRange().getMaximum());
+		assertEquals(inExpected.getXRange().getMinimum(), inActual.getXRange().getMinimum());
+		assertEquals(inExpected.getYRange().getMaximum(), inActual.getYRange().getMaximum());
+	}
+}
@@ -0,0 +1,144 @@
+package tim.prune.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.gui.map.MapUtils;
+
+/**
+ * Tests for the spatial index of track points
+ */
+class PointGridTest
+{
+	@Test
+	void testEmptyTrack()
+	{
+		Track track = new Track();
+		assertEquals(-1, track.getNearestPointIndex(0.5, 0.5, 0.01, false));
+		assertTrue(track.getPointsInRectangle(0.0, 0.0, 1.0, 1.0).isEmpty());
+	}
+
+	@Test
+	void testNearestMatchesLinearScan()
+	{
+		Track track = makeRandomTrack(2000, 31L);
+		Random random = new Random(7L);
+		for (int i=0; i<500; i++)
+		{
+			final double x = random.nextDouble() * 1.2 - 0.1;
+			final double y = random.nextDouble() * 1.2 - 0.1;
+			final double maxDist = (i % 3 == 0) ? -1.0 : random.nextDouble() * 0.01;
+			final boolean justTrackPoints = (i % 2 == 0);
+			assertEquals(findNearestLinearly(track, x, y, maxDist, justTrackPoints),
+				track.getNearestPointIndex(x, y, maxDist, justTrackPoints));
+		}
+	}
+
+	@Test
+	void testNearestAcrossDateLine()
+	{
+		Track track = new Track();
+		track.appendPoint(new DataPoint(10.0, 179.9));
+		track.appendPoint(new DataPoint(10.0, 0.0));
+		final double x = MapUtils.getXFromLongitude(-179.9);
+		final double y = track.getY(0);
+		assertEquals(0, track.getNearestPointIndex(x, y, 0.01, false));
+	}
+
+	@Test
+	void testNearestAfterEdits()
+	{
+		Track track = makeRandomTrack(1000, 11L);
+		Random random = new Random(3L);
+		for (int edit=0; edit<60; edit++)
+		{
+			// Query first so that the grid exists, and is then updated by the edit
+			assertEquals(findNearestLinearly(track, 0.5, 0.5, -1.0, false), track.getNearestPointIndex(0.5, 0.5, -1.0, false));
+			final int index = random.nextInt(track.getNumPoints());
+			switch (edit % 4)
+			{
+				case 0:
+					track.deletePoint(index);
+					break;
+				case 1:
+					track.insertPoint(new DataPoint(random.nextDouble() * 100.0 - 50.0, random.nextDouble() * 300.0 - 150.0), index);
+					break;
+				case 2:
+					// far outside the existing points, so the grid has to be rebuilt
+					track.appendPoint(new DataPoint(85.0, 10.0 * edit));
+					break;
+				default:
+					track.cropTo(track.getNumPoints() - 5);
+			}
+			for (int i=0; i<20; i++)
+			{
+				final double x = random.nextDouble(), y = random.nextDouble();
+				final double maxDist = (i % 2 == 0) ? -1.0 : 0.01;
+				assertEquals(findNearestLinearly(track, x, y, maxDist, i % 3 == 0),
+					track.getNearestPointIndex(x, y, maxDist, i % 3 == 0));
+			}
+			BitSet inside = track.getPointsInRectangle(0.2, 0.2, 0.7, 0.7);
+			for (int i=0; i<track.getNumPoints(); i++)
+			{
+				final double x = track.getX(i), y = track.getY(i);
+				assertEquals(x >= 0.2 && x <= 0.7 && y >= 0.2 && y <= 0.7, inside.get(i));
+			}
+		}
+	}
+
+	@Test
+	void testPointsInRectangle()
+	{
+		Track track = makeRandomTrack(1000, 5L);
+		BitSet inside = track.getPointsInRectangle(0.3, 0.4, 0.6, 0.55);
+		for (int i=0; i<track.getNumPoints(); i++)
+		{
+			final double x = track.getX(i), y = track.getY(i);
+			final boolean expected = x >= 0.3 && x <= 0.6 && y >= 0.4 && y <= 0.55;
+			assertEquals(expected, inside.get(i));
+		}
+	}
+
+	private static Track makeRandomTrack(int inNumPoints, long inSeed)
+	{
+		Random random = new Random(inSeed);
+		Track track = new Track();
+		for (int i=0; i<inNumPoints; i++)
+		{
+			DataPoint point = new DataPoint(random.nextDouble() * 140.0 - 70.0, random.nextDouble() * 360.0 - 180.0);
+			if (i % 10 == 0) {
+				point.setWaypointName("wp" + i);
+			}
+			track.appendPoint(point);
+		}
+		return track;
+	}
+
+	/** Same algorithm as the Track used before it had the grid */
+	private static int findNearestLinearly(Track inTrack, double inX, double inY,
+		double inMaxDist, boolean inJustTrackPoints)
+	{
+		int nearestPoint = 0;
+		double nearestDist = -1.0;
+		for (int i=0; i < inTrack.getNumPoints(); i++)
+		{
+			if (!inJustTrackPoints || !inTrack.getPoint(i).isWaypoint())
+			{
+				double dist = Math.abs(inTrack.getY(i) - inY) + PointGrid.getMinXDist(inTrack.getX(i) - inX);
+				if (dist < nearestDist || nearestDist < 0.0)
+				{
+					nearestPoint = i;
+					nearestDist = dist;
+				}
+			}
+		}
+		if (nearestDist > inMaxDist && inMaxDist > 0.0) {
+			return -1;
+		}
+		return nearestPoint;
+	}
+}
@@ -0,0 +1,178 @@
+package tim.prune.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the range statistics taken from the index,
+ * which should be the same as those calculated directly
+ */
+class RangeStatsIndexTest
+{
+	@Test
+	void testSameAsDirectCalculation()
+	{
+		Track track = makeTrack(new Random(1234L), 2000);
+		for (int tolerance : new int[] {0, 5, 20})
+		{
+			Random random = new Random(tolerance);
+			RangeStatsIndex index = track.getRangeStatsIndex(tolerance);
+			for (int i=0; i<200; i++)
+			{
+				final int start = random.nextInt(track.getNumPoints());
+				final int end = start + random.nextInt(track.getNumPoints() - start);
+				checkSame(new RangeStats(track, start, end, tolerance), index.getRangeStats(start, end));
+			}
+			checkSame(new RangeStats(track, 0, track.getNumPoints() - 1, tolerance),
+				index.getRangeStats(0, track.getNumPoints() - 1));
+		}
+	}
+
+	@Test
+	void testLongClimbsAndFlats()
+	{
+		// long steady climbs and descents, and flat sections within the tolerance
+		Random random = new Random(42L);
+		List<DataPoint> points = new ArrayList<>();
+		double altitude = 1000.0;
+		for (int i=0; i<3000; i++)
+		{
+			final int stage = i / 500;
+			altitude += (stage == 1 ? 0.5 : (stage == 3 ? -0.3 : 0.0)) + random.nextInt(3) - 1;
+			DataPoint point = new DataPoint(Latitude.make(46.0 + i * 0.0001), Longitude.make(7.0),
+				new Altitude((int) altitude, UnitSetLibrary.UNITS_METRES));
+			point.setSegmentStart(i == 2200);
+			points.add(point);
+		}
+		Track track = new Track();
+		track.appendRange(points);
+		for (int tolerance : new int[] {0, 2, 10, 50})
+		{
+			RangeStatsIndex index = track.getRangeStatsIndex(tolerance);
+			for (int start : new int[] {0, 17, 256, 300, 612, 1100, 1530, 2000, 2300})
+			{
+				for (int end : new int[] {start, start + 40, start + 700, 2999})
+				{
+					final int endIndex = Math.min(end, 2999);
+					checkSame(new RangeStats(track, start, endIndex, tolerance), index.getRangeStats(start, endIndex));
+				}
+			}
+		}
+	}
+
+	@Test
+	void testAfterEdits()
+	{
+		Track track = makeTrack(new Random(99L), 1000);
+		RangeStatsIndex index = track.getRangeStatsIndex(2);
+		final int lastIndex = track.getNumPoints() - 1;
+		checkSame(new RangeStats(track, 10, lastIndex, 2), index.getRangeStats(10, lastIndex));
+		// delete a point and append some more
+		track.deletePoint(600);
+		track.appendRange(makePoints(new Random(7L), 300));
+		final int newLastIndex = track.getNumPoints() - 1;
+		checkSame(new RangeStats(track, 10, newLastIndex, 2), index.getRangeStats(10, newLastIndex));
+		// edit an altitude
+		track.getPoint(700).setFieldValue(Field.ALTITUDE, "5000", false);
+		track.pointsChanged(700);
+		checkSame(new RangeStats(track, 650, newLastIndex, 2), index.getRangeStats(650, newLastIndex));
+		assertEquals(5000, index.getRangeStats(0, newLastIndex).getTotalAltitudeRange().getMaximum(UnitSetLibrary.UNITS_METRES));
+	}
+
+	@Test
+	void testIndexPerTolerance()
+	{
+		Track track = makeTrack(new Random(5L), 500);
+		RangeStatsIndex index0 = track.getRangeStatsIndex(0);
+		RangeStatsIndex index5 = track.getRangeStatsIndex(5);
+		assertNotSame(index0, index5);
+		// switching between tolerances doesn't rebuild the indexes
+		assertSame(index0, track.getRangeStatsIndex(0));
+		assertSame(index5, track.getRangeStatsIndex(5));
+		// all of them are updated after an edit
+		track.getPoint(300).setFieldValue(Field.ALTITUDE, "4000", false);
+		track.pointsChanged(300);
+		final int lastIndex = track.getNumPoints() - 1;
+		checkSame(new RangeStats(track, 0, lastIndex, 0), index0.getRangeStats(0, lastIndex));
+		checkSame(new RangeStats(track, 0, lastIndex, 5), index5.getRangeStats(0, lastIndex));
+	}
+
+	@Test
+	void testOnlyWaypoints()
+	{
+		Track track = new Track();
+		DataPoint waypoint = new DataPoint(1.0, 2.0);
+		waypoint.setWaypointName("wp");
+		track.appendPoint(waypoint);
+		RangeStats stats = track.getRangeStatsIndex(0).getRangeStats(0, 0);
+		assertEquals(1, stats.getNumPoints());
+		assertEquals(0, stats.getNumSegments());
+		assertFalse(stats.getTotalAltitudeRange().hasRange());
+	}
+
+	private static void checkSame(RangeStats inExpected, RangeStats inActual)
+	{
+		final Unit metres = UnitSetLibrary.UNITS_METRES;
+		assertEquals(inExpected.getNumPoints(), inActual.getNumPoints());
+		assertEquals(inExpected.getNumSegments(), inActual.getNumSegments());
+		assertEquals(inExpected.getTotalDistance(metres), inActual.getTotalDistance(metres), 0.01);
+		assertEquals(inExpected.getMovingDistance(metres), inActual.getMovingDistance(metres), 0.01);
+		assertEquals(inExpected.getMovingDurationInSeconds(), inActual.getMovingDurationInSeconds());
+		assertEquals(inExpected.getTotalDurationInSeconds(), inActual.getTotalDurationInSeconds());
+		assertEquals(inExpected.getTimestampsIncomplete(), inActual.getTimestampsIncomplete());
+		assertEquals(inExpected.getTimestampsOutOfSequence(), inActual.getTimestampsOutOfSequence());
+		checkSame(inExpected.getTotalAltitudeRange(), inActual.getTotalAltitudeRange());
+		checkSame(inExpected.getMovingAltitudeRange(), inActual.getMovingAltitudeRange());
+	}
+
+	private static void checkSame(AltitudeRange inExpected, AltitudeRange inActual)
+	{
+		final Unit metres = UnitSetLibrary.UNITS_METRES;
+		assertEquals(inExpected.hasRange(), inActual.hasRange());
+		assertEquals(inExpected.getMinimum(metres), inActual.getMinimum(metres));
+		assertEquals(inExpected.getMaximum(metres), inActual.getMaximum(metres));
+		assertEquals(inExpected.getClimb(metres), inActual.getClimb(metres));
+		assertEquals(inExpected.getDescent(metres), inActual.getDescent(metres));
+	}
+
+	private static Track makeTrack(Random inRandom, int inNumPoints)
+	{
+		Track track = new Track();
+		track.appendRange(makePoints(inRandom, inNumPoints));
+		return track;
+	}
+
+	/**
+	 * @return points with random altitudes, gaps in timestamps, segments and waypoints
+	 */
+	private static List<DataPoint> makePoints(Random inRandom, int inNumPoints)
+	{
+		List<DataPoint> points = new ArrayList<>();
+		double altitude = 500.0;
+		for (int i=0; i<inNumPoints; i++)
+		{
+			altitude += inRandom.nextGaussian() * 8.0;
+			DataPoint point = new DataPoint(Latitude.make(46.0 + i * 0.0001 + inRandom.nextDouble() * 0.0001),
+				Longitude.make(7.0 + inRandom.nextDouble() * 0.001),
+				inRandom.nextInt(20) == 0 ? null : new Altitude((int) altitude, UnitSetLibrary.UNITS_METRES));
+			if (inRandom.nextInt(15) != 0)
+			{
+				final int seconds = i * 5 + (inRandom.nextInt(50) == 0 ? -100 : 0);
+				point.setFieldValue(Field.TIMESTAMP, "" + (1600000000L + seconds), false);
+			}
+			if (inRandom.nextInt(40) == 0) {
+				point.setWaypointName("wp" + i);
+			}
+			else {
+				point.setSegmentStart(inRandom.nextInt(60) == 0);
+			}
+			points.add(point);
+		}
+		return points;
+	}
+}
@@ -2,7 +2,18 @@ package tim.prune.data;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -100,4 +111,169 @@ class TimestampTest
 		second = new TimestampUtc("1970-01-01T00:28:51.800Z");
 		Assertions.assertEquals("1970-01-01T00:27:51.800Z", TimestampUtc.interpolate(first, second, 0.5));
 	}
+
+	@Test
+	void testZoneOffsetFormats()
+	{
+		final long baseMillis = new TimestampUtc("2018-03-03T10:22:33Z").getMilliseconds(null);
+		assertEquals(baseMillis - 90 * 60 * 1000L, new TimestampUtc("2018-03-03T10:22:33+01:30").getMilliseconds(null));
+		assertEquals(baseMillis + 90 * 60 * 1000L, new TimestampUtc("2018-03-03T10:22:33-0130").getMilliseconds(null));
+		assertEquals(baseMillis + 500L, new TimestampUtc("2018-03-03T10:22:33,5+00").getMilliseconds(null));
+		// Offsets out of range are ignored
+		assertEquals(baseMillis, new TimestampUtc("2018-03-03T10:22:33+25").getMilliseconds(null));
+		// Incomplete offsets and too many digits aren't allowed
+		assertFalse(new TimestampUtc("2018-03-03T10:22:33+01:").isValid());
+		assertFalse(new TimestampUtc("2018-03-03T10:22:33+1").isValid());
+		assertFalse(new TimestampUtc("2018-03-03T10:22:33.1234").isValid());
+		assertFalse(new TimestampUtc("2018-03-03T10:22:33.").isValid());
+		assertFalse(new TimestampUtc("2018-03-03T10:22:33Zx").isValid());
+	}
+
+	@Test
+	void testOtherFormats()
+	{
+		final long baseMillis = new TimestampUtc("2018-03-03T10:22:33Z").getMilliseconds(null);
+		assertEquals(baseMillis, new TimestampUtc("2018/03/03 10.22.33").getMilliseconds(null));
+		assertFalse(new TimestampUtc("2018/03/03 10.22.3x").isValid());
+		assertFalse(new TimestampUtc("2018/03/03 10.22.333").isValid());
+		// seconds since 1970
+		assertEquals(baseMillis, new TimestampUtc("" + (baseMillis / 1000L)).getMilliseconds(null));
+		// fixed format using the month name
+		Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+		cal.setTimeInMillis(baseMillis);
+		String monthName = String.format("%tb", cal);
+		assertEquals(baseMillis, new TimestampUtc("03 " + monthName + " 2018 10:22:33").getMilliseconds(null));
+		assertFalse(new TimestampUtc("not a timestamp").isValid());
+	}
+
+	@Test
+	void testSameAsLenientCalendar()
+	{
+		Random random = new Random(19L);
+		Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+		for (int i=0; i<5000; i++)
+		{
+			final int year = 1700 + random.nextInt(700);
+			// Values out of range should overflow just as the calendar does
+			final int month = random.nextInt(14), day = random.nextInt(33);
+			final int hour = random.nextInt(26), minute = random.nextInt(62), second = random.nextInt(62);
+			cal.clear();
+			cal.set(year, month - 1, day, hour, minute, second);
+			String text = String.format("%04d-%02d-%02dT%02d:%02d:%02d", year, month, day, hour, minute, second);
+			assertEquals(cal.getTimeInMillis(), new TimestampUtc(text).getMilliseconds(null), text);
+		}
+	}
+
+	@Test
+	void testParallelParsing() throws Exception
+	{
+		final String[] texts = {"2018-03-03T10:22:33.45+01:00", "2018/03/03 10:22:33",
+			"Sat Mar 03 10:22:33 2018", "03 Mar 2018 10:22:33", "1520072553"};
+		final long[] expected = new long[texts.length];
+		for (int i=0; i<texts.length; i++) {
+			expected[i] = TimestampUtc.parseMillis(texts[i]);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t=0; t<8; t++)
+			{
+				final int offset = t;
+				results.add(executor.submit(() -> {
+					boolean allSame = true;
+					for (int i=0; i<2000; i++)
+					{
+						final int index = (i + offset) % texts.length;
+						allSame &= (TimestampUtc.parseMillis(texts[index]) == expected[index]);
+					}
+					return allSame;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testIsoFormatSameAsDateFormat()
+	{
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+		SimpleDateFormat formatWithMillis = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		formatWithMillis.setTimeZone(TimeZone.getTimeZone("GMT"));
+		Random random = new Random(1234L);
+		// from 1901 to 2100, including dates before 1970
+		final long minMillis = -2177452800000L, maxMillis = 4102444800000L;
+		for (int i=0; i<5000; i++)
+		{
+			final long millis = minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+			final Date date = new Date(millis);
+			assertEquals(format.format(date), TimestampUtc.formatIso8601(millis, false));
+			assertEquals(formatWithMillis.format(date), TimestampUtc.formatIso8601(millis, true));
+		}
+		// Leap days and the ends of years
+		assertEquals("2000-02-29T00:00:00Z", TimestampUtc.formatIso8601(951782400000L, false));
+		assertEquals("1999-12-31T23:59:59.999Z", TimestampUtc.formatIso8601(946684799999L, true));
+		assertEquals("1970-01-01T00:00:00.000Z", TimestampUtc.formatIso8601(0L, true));
+		// Outside the range of four-digit years
+		assertNull(TimestampUtc.formatIso8601(-2300000000000L, false));
+	}
+
+	@Test
+	void testIsoTextWithAndWithoutTimezone()
+	{
+		final TimeZone gmtZone = TimeZone.getTimeZone("GMT");
+		for (String text : new String[] {"2018-03-03T10:22:33Z", "2018-03-03T10:22:33.941Z", "1955-11-05T06:15:00Z"})
+		{
+			Timestamp stamp = new TimestampUtc(text);
+			assertEquals(text, stamp.getText(Timestamp.Format.ISO8601, null));
+			assertEquals(text, stamp.getText(Timestamp.Format.ISO8601, gmtZone));
+		}
+	}
+
+	@Test
+	void testParallelFormatting() throws Exception
+	{
+		final Timestamp.Format[] formats = {Timestamp.Format.ISO8601, Timestamp.Format.LOCALE};
+		final TimeZone[] zones = {TimeZone.getTimeZone("GMT"), TimeZone.getTimeZone("GMT+05:00")};
+		final Timestamp[] stamps = new Timestamp[50];
+		final String[] expected = new String[stamps.length * 4];
+		for (int i=0; i<stamps.length; i++)
+		{
+			stamps[i] = new TimestampUtc(1500000000000L + i * 86400123L);
+			for (int f=0; f<4; f++) {
+				expected[i * 4 + f] = stamps[i].getText(formats[f / 2], zones[f % 2]);
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t=0; t<8; t++)
+			{
+				final int offset = t;
+				results.add(executor.submit(() -> {
+					boolean allSame = true;
+					for (int i=0; i<2000; i++)
+					{
+						final int index = (i + offset) % expected.length;
+						final int f = index % 4;
+						allSame &= stamps[index / 4].getText(formats[f / 2], zones[f % 2]).equals(expected[index]);
+					}
+					return allSame;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
 }
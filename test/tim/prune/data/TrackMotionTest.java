@@ -0,0 +1,100 @@
+package tim.prune.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the speeds and gradients of a whole track,
+ * which should be the same as those from the calculators
+ */
+class TrackMotionTest
+{
+	@Test
+	void testSameAsCalculators()
+	{
+		Track track = makeTrack(new Random(4321L), 1500);
+		TrackMotion motion = track.getMotion();
+		UnitSet unitSet = UnitSetLibrary.getUnitSet(1);
+		SpeedValue value = new SpeedValue();
+		for (int i=0; i<track.getNumPoints(); i++)
+		{
+			SpeedCalculator.calculateSpeed(track, i, unitSet, value);
+			assertEquals(value.isValid(), motion.hasHorizontalSpeed(i), "speed " + i);
+			if (value.isValid()) {
+				assertEquals(value.getValue(), motion.getHorizontalSpeed(i, unitSet.getSpeedUnit()), 0.0001);
+			}
+			SpeedCalculator.calculateVerticalSpeed(track, i, unitSet, value);
+			assertEquals(value.isValid(), motion.hasVerticalSpeed(i), "vertical speed " + i);
+			if (value.isValid()) {
+				assertEquals(value.getValue(), motion.getVerticalSpeed(i, unitSet.getVerticalSpeedUnit()), 0.0001);
+			}
+			GradientCalculator.calculateGradient(track, i, value);
+			assertEquals(value.isValid(), motion.hasGradient(i), "gradient " + i);
+			if (value.isValid()) {
+				assertEquals(value.getValue(), motion.getGradient(i), 0.000001);
+			}
+		}
+	}
+
+	@Test
+	void testRecalculatedAfterChange()
+	{
+		Track track = makeTrack(new Random(5L), 100);
+		TrackMotion motion = track.getMotion();
+		assertSame(motion, track.getMotion());
+		track.deletePoint(50);
+		assertNotSame(motion, track.getMotion());
+		assertEquals(99, track.getMotion().getNumPoints());
+		assertFalse(track.getMotion().hasHorizontalSpeed(99));
+	}
+
+	@Test
+	void testTimestamps()
+	{
+		Track track = new Track();
+		for (int i=0; i<3; i++)
+		{
+			DataPoint point = new DataPoint(1.0, 2.0 + i * 0.001);
+			if (i != 1) {
+				point.setFieldValue(Field.TIMESTAMP, "2024-05-06T07:08:0" + (i * 3) + ".500Z", false);
+			}
+			track.appendPoint(point);
+		}
+		TrackMotion motion = track.getMotion();
+		assertTrue(motion.hasTimestamp(0));
+		assertFalse(motion.hasTimestamp(1));
+		assertEquals(6L, motion.getSecondsBetween(0, 2));
+	}
+
+	/**
+	 * @return track with random altitudes, uneven timestamps, segments and waypoints
+	 */
+	private static Track makeTrack(Random inRandom, int inNumPoints)
+	{
+		Track track = new Track();
+		double altitude = 300.0;
+		long seconds = 1600000000L;
+		for (int i=0; i<inNumPoints; i++)
+		{
+			altitude += inRandom.nextGaussian() * 5.0;
+			DataPoint point = new DataPoint(Latitude.make(46.0 + i * 0.00005 + inRandom.nextDouble() * 0.00005),
+				Longitude.make(7.0 + inRandom.nextDouble() * 0.0005),
+				inRandom.nextInt(10) == 0 ? null : new Altitude((int) altitude, UnitSetLibrary.UNITS_METRES));
+			seconds += inRandom.nextInt(3) - (inRandom.nextInt(40) == 0 ? 5 : 0);
+			if (inRandom.nextInt(12) != 0) {
+				point.setFieldValue(Field.TIMESTAMP, "" + seconds, false);
+			}
+			if (inRandom.nextInt(30) == 0) {
+				point.setWaypointName("wp" + i);
+			}
+			else {
+				point.setSegmentStart(inRandom.nextInt(50) == 0);
+			}
+			track.appendPoint(point);
+		}
+		return track;
+	}
+}
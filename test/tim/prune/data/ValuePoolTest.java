@@ -0,0 +1,51 @@
+package tim.prune.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.load.LoadedPoints;
+
+/**
+ * Tests for the sharing of repeated field values within a load
+ */
+class ValuePoolTest
+{
+	@Test
+	void testPooledValues()
+	{
+		FieldCustom heartField = new FieldCustom("heart");
+		FieldList fields = new FieldList(Field.LATITUDE, Field.LONGITUDE, Field.WAYPT_TYPE, heartField);
+		LoadedPoints points = new LoadedPoints();
+		points.addPoint(new DataPoint(new String[] {"1.0", "2.0", new String("summit"), new String("120")}, fields, null), null);
+		points.addPoint(new DataPoint(new String[] {"1.5", "2.5", new String("summit"), new String("120")}, fields, null), null);
+		DataPoint point1 = points.getPoints().get(0), point2 = points.getPoints().get(1);
+		assertSame(point1.getFieldValue(Field.WAYPT_TYPE), point2.getFieldValue(Field.WAYPT_TYPE));
+		assertSame(point1.getFieldValue(heartField), point2.getFieldValue(heartField));
+		// Built-in fields other than types and symbols aren't pooled
+		ValuePool pool = new ValuePool();
+		assertNotSame(pool.getValue(Field.LATITUDE, new String("1.0")), pool.getValue(Field.LATITUDE, new String("1.0")));
+
+		// A separate load doesn't share values with this one
+		LoadedPoints otherPoints = new LoadedPoints();
+		otherPoints.addPoint(new DataPoint(new String[] {"1.0", "2.0", new String("summit"), "121"}, fields, null), null);
+		assertNotSame(point1.getFieldValue(Field.WAYPT_TYPE), otherPoints.getPoints().get(0).getFieldValue(Field.WAYPT_TYPE));
+	}
+
+	@Test
+	void testDistinctColumnNotPooled()
+	{
+		FieldCustom timeField = new FieldCustom("time");
+		ValuePool pool = new ValuePool();
+		for (int i=0; i<2000; i++)
+		{
+			pool.getValue(Field.SYMBOL, "flag" + (i % 10));
+			pool.getValue(timeField, "" + i);
+		}
+		// Repeated values in the column with mostly distinct values are no longer shared
+		String value = pool.getValue(timeField, new String("5"));
+		assertNotSame(value, pool.getValue(timeField, new String("5")));
+		String symbol = pool.getValue(Field.SYMBOL, new String("flag3"));
+		assertSame(symbol, pool.getValue(Field.SYMBOL, new String("flag3")));
+	}
+}
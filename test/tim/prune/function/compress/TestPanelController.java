@@ -0,0 +1,87 @@
+package tim.prune.function.compress;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.MarkingData;
+import tim.prune.data.Track;
+import tim.prune.function.compress.methods.CompressionMethod;
+import tim.prune.function.compress.methods.DouglasPeuckerMethod;
+import tim.prune.function.compress.methods.NearbyFactorMethod;
+import tim.prune.function.compress.methods.WackyPointsMethod;
+
+public class TestPanelController
+{
+	@Test
+	public void testSameAsRunningAllMethods() throws Exception
+	{
+		Random random = new Random(21L);
+		Track track = new Track();
+		for (int i=0; i<400; i++)
+		{
+			DataPoint point = new DataPoint(47.0 + i * 0.0001 + random.nextDouble() * 0.00005,
+				8.0 + random.nextDouble() * 0.001);
+			point.setSegmentStart(i == 0 || i == 150);
+			track.appendPoint(point);
+		}
+		final int[] lastTotal = {-1};
+		PanelController controller = new PanelController(track, num -> lastTotal[0] = num, new JPanel());
+		controller.addMethod(makeActive(new NearbyFactorMethod(500)), null);
+		controller.addMethod(makeActive(new WackyPointsMethod(2.0)), null);
+		controller.addMethod(makeActive(new DouglasPeuckerMethod(1000)), null);
+
+		MarkingData markings = recalculate(controller);
+		MarkingData expected = runMethods(track, controller.getMethodList());
+		assertSameMarkings(expected, markings, track);
+		Assertions.assertEquals(expected.getNumDeleted(), lastTotal[0]);
+		// Nothing changed, so the cached result is used again
+		Assertions.assertSame(markings, recalculate(controller));
+
+		// Swap the last two methods so that only they have to be recalculated
+		controller.movePanelDown(1);
+		markings = recalculate(controller);
+		expected = runMethods(track, controller.getMethodList());
+		assertSameMarkings(expected, markings, track);
+	}
+
+	/** Recalculate in the background and wait for the result */
+	private static MarkingData recalculate(PanelController inController) throws Exception
+	{
+		CompletableFuture<MarkingData> result = new CompletableFuture<>();
+		inController.recalculateAll(result::complete);
+		return result.get(30, TimeUnit.SECONDS);
+	}
+
+	private static CompressionMethod makeActive(CompressionMethod inMethod)
+	{
+		inMethod.setActive(true);
+		return inMethod;
+	}
+
+	/** Run all the methods from scratch, as the dialog used to */
+	private static MarkingData runMethods(Track inTrack, MethodList inMethods)
+	{
+		MarkingData markings = new MarkingData(inTrack);
+		for (CompressionMethod method : inMethods) {
+			method.preview(inTrack, new TrackDetails(inTrack), markings);
+		}
+		return markings;
+	}
+
+	private static void assertSameMarkings(MarkingData inExpected, MarkingData inActual, Track inTrack)
+	{
+		Assertions.assertTrue(inExpected.getNumDeleted() > 0);
+		for (int i=0; i<inTrack.getNumPoints(); i++)
+		{
+			Assertions.assertEquals(inExpected.isPointMarkedForDeletion(i), inActual.isPointMarkedForDeletion(i));
+			Assertions.assertEquals(inExpected.isPointMarkedForSegmentBreak(i), inActual.isPointMarkedForSegmentBreak(i));
+		}
+	}
+}
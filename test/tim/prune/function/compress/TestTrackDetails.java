@@ -4,7 +4,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.FieldList;
 import tim.prune.data.MarkingData;
+import tim.prune.data.PointCreateOptions;
 import tim.prune.data.Track;
 
 public class TestTrackDetails
@@ -51,6 +54,30 @@ public class TestTrackDetails
 		}
 	}
 
+	@Test
+	public void testMeanRadians_pointWithoutCoordinates()
+	{
+		Track track = new Track();
+		for (int i=0; i<5; i++)
+		{
+			if (i == 2)
+			{
+				DataPoint point = new DataPoint(new String[] {"", ""},
+					new FieldList(Field.LATITUDE, Field.LONGITUDE), new PointCreateOptions());
+				Assertions.assertFalse(point.isValid());
+				track.appendPoint(point);
+			}
+			else {
+				track.appendPoint(new DataPoint(1.0, 1.0 + 0.05 * i));
+			}
+		}
+		TrackDetails details = new TrackDetails(track);
+		details.initialise();
+		// Only the distances between the pairs of points with coordinates are counted
+		final double expected = DataPoint.calculateRadiansBetween(track.getPoint(0), track.getPoint(1));
+		Assertions.assertEquals(expected, details.getMeanRadians(), 1e-12);
+	}
+
 	@Test
 	public void testSegments_afterDeletion()
 	{
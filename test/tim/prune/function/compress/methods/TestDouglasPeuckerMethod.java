@@ -1,5 +1,7 @@
 package tim.prune.function.compress.methods;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -97,4 +99,86 @@ public class TestDouglasPeuckerMethod
 			Assertions.assertFalse(markings.isPointMarkedForSegmentBreak(i));
 		}
 	}
+
+	@Test
+	public void testLongZigzag()
+	{
+		// Almost every point is kept, which needs one split per point
+		Track track = new Track();
+		for (int i=0; i<20000; i++)
+		{
+			DataPoint point = new DataPoint(47.0 + (i % 2) * 0.01, 8.0 + i * 0.0001);
+			point.setSegmentStart(i == 0);
+			track.appendPoint(point);
+		}
+		final int numDeleted = checkDeletedPoints(track, 2000);
+		Assertions.assertTrue(numDeleted < 100);
+	}
+
+	@Test
+	public void testDeletedPointsWithinThreshold()
+	{
+		Random random = new Random(2345L);
+		Track track = new Track();
+		double latitude = 47.0, longitude = 8.0;
+		for (int i=0; i<60000; i++)
+		{
+			latitude += random.nextDouble() * 0.0002 - 0.0001;
+			longitude += random.nextDouble() * 0.0002 - 0.00005;
+			DataPoint point = new DataPoint(latitude, longitude);
+			point.setSegmentStart(i % 25000 == 0);
+			track.appendPoint(point);
+		}
+		final int numDeleted = checkDeletedPoints(track, 3000);
+		Assertions.assertTrue(numDeleted > 50000);
+	}
+
+	/**
+	 * Compress the track and check that each deleted point is within the threshold
+	 * of the line between the kept points either side of it
+	 * @return number of deleted points
+	 */
+	private static int checkDeletedPoints(Track inTrack, int inFactor)
+	{
+		TrackDetails details = new TrackDetails(inTrack);
+		MarkingData markings = new MarkingData(inTrack);
+		final int numDeleted = new DouglasPeuckerMethod(inFactor).compress(inTrack, details, markings);
+		Assertions.assertEquals(numDeleted, markings.getNumDeleted());
+		final double threshold = details.getTrackSpan() / inFactor;
+		int prevKept = 0;
+		for (int i=1; i<inTrack.getNumPoints(); i++)
+		{
+			if (markings.isPointMarkedForDeletion(i))
+			{
+				Assertions.assertFalse(inTrack.getPoint(i).getSegmentStart(), "Segment start " + i);
+				continue;
+			}
+			for (int j=prevKept+1; j<i; j++) {
+				Assertions.assertTrue(getDistance(inTrack, prevKept, i, j) <= threshold, "Point " + j);
+			}
+			prevKept = i;
+		}
+		return numDeleted;
+	}
+
+	/** @return distance of point from the line segment between the start and end points */
+	private static double getDistance(Track inTrack, int inStart, int inEnd, int inPoint)
+	{
+		final double abX = inTrack.getX(inEnd) - inTrack.getX(inStart);
+		final double abY = inTrack.getY(inEnd) - inTrack.getY(inStart);
+		final double acX = inTrack.getX(inPoint) - inTrack.getX(inStart);
+		final double acY = inTrack.getY(inPoint) - inTrack.getY(inStart);
+		final double dist2AB = abX * abX + abY * abY;
+		final double distAP = (abX * acX + abY * acY) / dist2AB;
+		if (distAP < 0.0) {
+			return Math.sqrt(acX * acX + acY * acY);
+		}
+		if (distAP > 1.0)
+		{
+			final double bcX = inTrack.getX(inPoint) - inTrack.getX(inEnd);
+			final double bcY = inTrack.getY(inPoint) - inTrack.getY(inEnd);
+			return Math.sqrt(bcX * bcX + bcY * bcY);
+		}
+		return Math.abs(abY * acX - abX * acY) / Math.sqrt(dist2AB);
+	}
 }
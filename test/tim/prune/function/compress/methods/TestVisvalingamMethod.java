@@ -0,0 +1,91 @@
+package tim.prune.function.compress.methods;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.MarkingData;
+import tim.prune.data.Track;
+import tim.prune.function.compress.CompressionMethodType;
+import tim.prune.function.compress.TrackDetails;
+
+public class TestVisvalingamMethod
+{
+	@Test
+	public void testSerialize_inactive()
+	{
+		VisvalingamMethod method = new VisvalingamMethod(500);
+		Assertions.assertFalse(method.isActive());
+		Assertions.assertEquals(CompressionMethodType.VISVALINGAM, method.getType());
+		Assertions.assertEquals("oVIS:500", method.getTotalSettingsString());
+		Assertions.assertEquals("500", method.getParam());
+	}
+
+	@Test
+	public void testDeserialize_active()
+	{
+		CompressionMethod method = CompressionMethod.fromSettingsString("xVIS:1234");
+		Assertions.assertNotNull(method);
+		Assertions.assertTrue(method instanceof VisvalingamMethod);
+		Assertions.assertTrue(method.isActive());
+		Assertions.assertEquals("xVIS:1234", method.getTotalSettingsString());
+	}
+
+	@Test
+	public void testDeserialize_fail()
+	{
+		Assertions.assertNull(CompressionMethod.fromSettingsString("VIS:"));
+		Assertions.assertNull(CompressionMethod.fromSettingsString("VIS:abcd"));
+	}
+
+	@Test
+	public void testReduceToTarget()
+	{
+		Track track = new Track();
+		for (int i=0; i<100; i++)
+		{
+			DataPoint point = new DataPoint(47.0 + Math.sin(i / 10.0) * 0.01, 8.0 + i * 0.001);
+			point.setSegmentStart(i == 0 || i == 50);
+			track.appendPoint(point);
+		}
+		TrackDetails details = new TrackDetails(track);
+		MarkingData markings = new MarkingData(track);
+		Assertions.assertEquals(80, new VisvalingamMethod(20).compress(track, details, markings));
+		Assertions.assertEquals(80, markings.getNumDeleted());
+		// Segment starts and ends are kept
+		for (int i : new int[] {0, 49, 50, 99}) {
+			Assertions.assertFalse(markings.isPointMarkedForDeletion(i), "Point " + i);
+		}
+	}
+
+	@Test
+	public void testKeepsCorners()
+	{
+		// Straight line with a single corner
+		Track track = new Track();
+		for (int i=0; i<21; i++)
+		{
+			DataPoint point = new DataPoint(47.0 + Math.max(0, i - 10) * 0.001, 8.0 + Math.min(i, 10) * 0.001);
+			point.setSegmentStart(i == 0);
+			track.appendPoint(point);
+		}
+		TrackDetails details = new TrackDetails(track);
+		MarkingData markings = new MarkingData(track);
+		Assertions.assertEquals(18, new VisvalingamMethod(3).compress(track, details, markings));
+		Assertions.assertFalse(markings.isPointMarkedForDeletion(10));
+	}
+
+	@Test
+	public void testNothingToDelete()
+	{
+		Track track = new Track();
+		for (int i=0; i<10; i++) {
+			track.appendPoint(new DataPoint(47.0 + i * 0.001, 8.0 + (i % 2) * 0.001));
+		}
+		TrackDetails details = new TrackDetails(track);
+		MarkingData markings = new MarkingData(track);
+		Assertions.assertEquals(0, new VisvalingamMethod(10).compress(track, details, markings));
+		Assertions.assertEquals(0, new VisvalingamMethod(0).compress(track, details, markings));
+		Assertions.assertEquals(0, markings.getNumDeleted());
+	}
+}
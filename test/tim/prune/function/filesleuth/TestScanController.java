@@ -2,10 +2,15 @@ package tim.prune.function.filesleuth;
 
 import org.junit.jupiter.api.Test;
 
+import tim.prune.function.filesleuth.data.ContentIndex;
+import tim.prune.function.filesleuth.data.TrackContents;
 import tim.prune.function.filesleuth.data.TrackFile;
 import tim.prune.function.filesleuth.data.TrackFileList;
 import tim.prune.function.filesleuth.data.TrackFileStatus;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -73,6 +78,57 @@ public class TestScanController
 		assertEquals(NUM_SCANNERS, numComplete);
 	}
 
+	@Test
+	public void testIndexedFileNotScanned() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File indexedFile = new File(dir, "indexed.gpx");
+		File newFile = new File(dir, "new.gpx");
+		Files.writeString(indexedFile.toPath(), "<gpx></gpx>");
+		Files.writeString(newFile.toPath(), "<gpx></gpx>");
+		File indexFile = ContentIndex.getIndexFile(dir, dir);
+		try
+		{
+			ContentIndex index = new ContentIndex(indexFile, null);
+			TrackContents contents = new TrackContents(null);
+			contents.addString("carrot");
+			index.putContents(indexedFile, contents);
+
+			TrackFileList tracks = new TrackFileList();
+			ScanController controller = new ScanController(tracks, null, index);
+			controller.setScannerCreator(FakeFileScanner::new);
+			tracks.foundFile(indexedFile.toPath());
+			tracks.foundFile(newFile.toPath());
+			tracks.setListComplete();
+			// Indexed file is complete straight away, the other one needs scanning
+			TrackFile track = tracks.getCurrentContents().get(0);
+			assertEquals(TrackFileStatus.COMPLETE, track.getStatus());
+			SearchResult result = new SearchResult(track);
+			assertTrue(track.matchesStringFilter("carrot", result));
+			assertEquals(TrackFileStatus.SCANNING, tracks.getCurrentContents().get(1).getStatus());
+			assertFalse(indexFile.exists());
+
+			// Wait for fake scanner to complete its work, after which the index is saved
+			try {
+				Thread.sleep(2000L);
+			}
+			catch (InterruptedException ignored) {}
+			assertEquals(TrackFileStatus.COMPLETE, tracks.getCurrentContents().get(1).getStatus());
+			assertTrue(indexFile.exists());
+			ContentIndex savedIndex = new ContentIndex(indexFile, null);
+			assertEquals(2, savedIndex.getNumFiles());
+			assertEquals(1, savedIndex.getContents(newFile).getNumStrings());
+		}
+		finally
+		{
+			indexedFile.delete();
+			newFile.delete();
+			indexFile.delete();
+			indexFile.getParentFile().delete();
+			dir.delete();
+		}
+	}
+
 	private int countTracksWithStatus(TrackFileList inTracks, TrackFileStatus inStatus)
 	{
 		int num = 0;
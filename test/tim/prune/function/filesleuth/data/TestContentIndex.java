@@ -0,0 +1,147 @@
+package tim.prune.function.filesleuth.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.TimeZone;
+
+import tim.prune.data.DoubleRange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestContentIndex
+{
+	@Test
+	public void testSaveAndLoad() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File trackFile = makeFile(dir, "track.gpx", "<gpx></gpx>");
+		File indexFile = ContentIndex.getIndexFile(dir, dir);
+		try
+		{
+			final TimeZone timezone = TimeZone.getTimeZone("GMT");
+			ContentIndex index = new ContentIndex(indexFile, timezone);
+			assertNull(index.getContents(trackFile));
+			TrackContents contents = new TrackContents(timezone);
+			contents.setName("Track name");
+			contents.addString("Carrots");
+			contents.addString("broccoli and peas");
+			contents.addDateString("2021-05-06T10:11:12Z");
+			contents.addDateString("2021-07-08T10:11:12Z");
+			contents.addCoordinates(46.5, 7.25);
+			contents.addCoordinates(47.5, 9.75);
+			contents.addCoordinates(47.0, -1.5);
+			index.putContents(trackFile, contents);
+			assertTrue(index.save());
+			assertTrue(indexFile.exists());
+
+			ContentIndex loaded = new ContentIndex(indexFile, timezone);
+			assertEquals(1, loaded.getNumFiles());
+			TrackContents loadedContents = loaded.getContents(trackFile);
+			assertNotNull(loadedContents);
+			assertEquals("Track name", loadedContents.getNameOrDescription());
+			assertEquals(2, loadedContents.getNumStrings());
+			assertTrue(loadedContents.getStrings().contains("carrots"));
+			assertTrue(loadedContents.getStrings().contains("broccoli and peas"));
+			assertEquals(contents.getDateRange(), loadedContents.getDateRange());
+			assertEquals("2021-05-06", loadedContents.getDateRange().getDateFrom().toString());
+			TrackBounds bounds = loadedContents.getBounds();
+			assertEquals(46.5, bounds.getLatitudeRange().getMinimum());
+			assertEquals(47.5, bounds.getLatitudeRange().getMaximum());
+			for (int i=0; i<bounds.getLongitudeRanges().length; i++)
+			{
+				DoubleRange expected = contents.getBounds().getLongitudeRanges()[i];
+				DoubleRange actual = bounds.getLongitudeRanges()[i];
+				assertEquals(expected.hasData(), actual.hasData());
+				if (expected.hasData())
+				{
+					assertEquals(expected.getMinimum(), actual.getMinimum());
+					assertEquals(expected.getMaximum(), actual.getMaximum());
+				}
+			}
+
+			// Index can't be used with a different timezone
+			assertNull(new ContentIndex(indexFile, TimeZone.getTimeZone("GMT+02:00")).getContents(trackFile));
+		}
+		finally {
+			deleteAll(dir);
+		}
+	}
+
+	@Test
+	public void testChangedAndDeletedFiles() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File trackFile1 = makeFile(dir, "track1.gpx", "<gpx></gpx>");
+		File trackFile2 = makeFile(dir, "track2.gpx", "<gpx></gpx>");
+		File indexFile = ContentIndex.getIndexFile(dir, dir);
+		try
+		{
+			ContentIndex index = new ContentIndex(indexFile, null);
+			index.putContents(trackFile1, new TrackContents(null));
+			index.putContents(trackFile2, new TrackContents(null));
+			assertTrue(index.save());
+
+			// Changed file has to be scanned again
+			makeFile(dir, "track1.gpx", "<gpx><trk></trk></gpx>");
+			ContentIndex loaded = new ContentIndex(indexFile, null);
+			assertNull(loaded.getContents(trackFile1));
+			assertNotNull(loaded.getContents(trackFile2));
+
+			// Deleted file is removed when saving
+			assertTrue(trackFile1.delete());
+			assertTrue(loaded.save());
+			assertEquals(1, new ContentIndex(indexFile, null).getNumFiles());
+			// but files are only checked once per search, so saving again doesn't check them
+			ContentIndex reloaded = new ContentIndex(indexFile, null);
+			assertEquals(1, reloaded.getNumFiles());
+			assertTrue(reloaded.save());
+			assertTrue(trackFile2.delete());
+			assertTrue(reloaded.save());
+			assertEquals(1, new ContentIndex(indexFile, null).getNumFiles());
+		}
+		finally {
+			deleteAll(dir);
+		}
+	}
+
+	@Test
+	public void testCorruptIndex() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File trackFile = makeFile(dir, "track.gpx", "<gpx></gpx>");
+		File indexFile = makeFile(dir, "index.dat", "not an index");
+		try
+		{
+			ContentIndex index = new ContentIndex(indexFile, null);
+			assertNull(index.getContents(trackFile));
+			assertEquals(0, index.getNumFiles());
+		}
+		finally {
+			deleteAll(dir);
+		}
+	}
+
+	private static File makeFile(File inDir, String inName, String inContents) throws IOException
+	{
+		File file = new File(inDir, inName);
+		Files.writeString(file.toPath(), inContents);
+		return file;
+	}
+
+	private static void deleteAll(File inDir)
+	{
+		for (File file : inDir.listFiles())
+		{
+			if (file.isDirectory()) {
+				deleteAll(file);
+			}
+			else {
+				file.delete();
+			}
+		}
+		inDir.delete();
+	}
+}
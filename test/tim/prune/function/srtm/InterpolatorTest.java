@@ -99,21 +99,22 @@ class InterpolatorTest extends Interpolator
 			1, 3, 5, 3, 1,
 			1, 3, 3, 3, 4,
 			1, 1, 1, 1, 1};
-		double botLeftCorner = Interpolator.calculateAltitude(15.0, 18.0, altitudes, true, 5);
+		SrtmHeights heights = SrtmHeights.fromArray(altitudes, 5);
+		double botLeftCorner = Interpolator.calculateAltitude(15.0, 18.0, heights, true);
 		assertEquals(1.0, botLeftCorner);
-		double topLeftCorner = Interpolator.calculateAltitude(15.0, 18.9999, altitudes, true, 5);
+		double topLeftCorner = Interpolator.calculateAltitude(15.0, 18.9999, heights, true);
 		assertEquals(2.0, topLeftCorner);
-		double middle = Interpolator.calculateAltitude(19.5, 100.5, altitudes, true, 5);
+		double middle = Interpolator.calculateAltitude(19.5, 100.5, heights, true);
 		assertEquals(5.0, middle);
 		// Also should work if lat/longs are negative
-		botLeftCorner = Interpolator.calculateAltitude(-15.0, -18.0, altitudes, true, 5);
+		botLeftCorner = Interpolator.calculateAltitude(-15.0, -18.0, heights, true);
 		assertEquals(1.0, botLeftCorner);
 		// middle of the bottom left corner between 1,1,1,3
-		double interpolated = Interpolator.calculateAltitude(2.125, 44.125, altitudes, true, 5);
+		double interpolated = Interpolator.calculateAltitude(2.125, 44.125, heights, true);
 		assertEquals((1.0+1.0+1.0+3.0)/4.0, interpolated);
-		interpolated = Interpolator.calculateAltitude(-40.875, 44.125, altitudes, true, 5);
+		interpolated = Interpolator.calculateAltitude(-40.875, 44.125, heights, true);
 		assertEquals((1.0+1.0+1.0+3.0)/4.0, interpolated);
-		interpolated = Interpolator.calculateAltitude(-40.875, -33.875, altitudes, true, 5);
+		interpolated = Interpolator.calculateAltitude(-40.875, -33.875, heights, true);
 		assertEquals((1.0+1.0+1.0+3.0)/4.0, interpolated);
 	}
 
@@ -127,10 +128,11 @@ class InterpolatorTest extends Interpolator
 			4, 4, 4, 4, 4, 4, 4,
 			5, 5, 5, 5, 5, 5, 5,
 			6, 6, 6, 6, 6, 6, 6};
+		SrtmHeights heights = SrtmHeights.fromArray(altitudes, 7);
 		StringBuilder builder = new StringBuilder();
 		for (int i=0; i<100; i++)
 		{
-			double height = Interpolator.calculateAltitude(11.2, 58.0 + i/100.0, altitudes, true, 7);
+			double height = Interpolator.calculateAltitude(11.2, 58.0 + i/100.0, heights, true);
 			builder.append(String.format(Locale.US, "%.3f", height));
 			builder.append(',');
 		}
@@ -0,0 +1,195 @@
+package tim.prune.function.srtm;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the decoding and caching of SRTM heights
+ */
+class SrtmHeightCacheTest
+{
+	@Test
+	void testReadHeights() throws IOException
+	{
+		byte[] bytes = {0x01, 0x02, (byte) 0xff, (byte) 0xfe, (byte) 0x80, 0x00, 0x00, 0x00};
+		SrtmHeights heights = SrtmHeightCache.readHeights(new ByteArrayInputStream(bytes), 2);
+		assertEquals(258, heights.getHeight(0));
+		assertEquals(-2, heights.getHeight(1));
+		assertEquals(SrtmSource.VOID_VAL, heights.getHeight(2));
+		assertEquals(0, heights.getHeight(3));
+		assertEquals(8L, heights.getNumBytes());
+	}
+
+	@Test
+	void testTooShort()
+	{
+		byte[] bytes = {0x01, 0x02, 0x03};
+		assertThrows(EOFException.class,
+			() -> SrtmHeightCache.readHeights(new ByteArrayInputStream(bytes), 2));
+	}
+
+	@Test
+	void testDecodedFileName()
+	{
+		File dir = new File("srtm");
+		assertEquals("N46E007.hgt", SrtmHeightCache.getDecodedFile(new File(dir, "N46E007.hgt.zip")).getName());
+		assertEquals("N46E007.SRTMGL1.hgt", SrtmHeightCache.getDecodedFile(new File(dir, "N46E007.SRTMGL1.hgt.zip")).getName());
+	}
+
+	@Test
+	void testUnpackAndMap() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File zipFile1 = makeZipFile(dir, "N01E002.hgt.zip", 5, 100);
+		File zipFile2 = makeZipFile(dir, "N01E003.hgt.zip", 5, 200);
+		File wrongSize = makeZipFile(dir, "N01E004.hgt.zip", 4, 300);
+		try
+		{
+			// limit only allows one tile to be kept
+			SrtmHeightCache cache = new SrtmHeightCache(60L);
+			SrtmHeights heights = cache.getHeights(zipFile1, 5);
+			assertTrue(SrtmHeightCache.getDecodedFile(zipFile1).exists());
+			assertEquals(50L, SrtmHeightCache.getDecodedFile(zipFile1).length());
+			assertEquals(100, heights.getHeight(0));
+			assertEquals(124, heights.getHeight(24));
+			assertSame(heights, cache.getHeights(zipFile1, 5));
+			// interpolate at the bottom left corner
+			assertEquals(120.0, Interpolator.calculateAltitude(2.0, 1.0, heights, true));
+
+			SrtmHeights heights2 = cache.getHeights(zipFile2, 5);
+			assertEquals(224, heights2.getHeight(24));
+			assertEquals(1, cache.getNumTiles());
+			assertEquals(50L, cache.getCurrentBytes());
+			// first tile is read again from the decoded file
+			assertEquals(124, cache.getHeights(zipFile1, 5).getHeight(24));
+
+			assertNull(cache.getHeights(wrongSize, 5));
+		}
+		finally
+		{
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@Test
+	void testCorruptZip() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File zipFile = makeZipFile(dir, "N01E002.hgt.zip", 5, 100);
+		try
+		{
+			// cut the zip file off in the middle of the hgt data
+			byte[] bytes = Files.readAllBytes(zipFile.toPath());
+			Files.write(zipFile.toPath(), Arrays.copyOf(bytes, 60));
+			assertNull(new SrtmHeightCache(1000L).getHeights(zipFile, 5));
+		}
+		finally {
+			deleteAll(dir);
+		}
+	}
+
+	@Test
+	void testDecodedFileNotWritable() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		File zipFile = makeZipFile(dir, "N01E002.hgt.zip", 5, 100);
+		// a non-empty directory in the way of the decoded file can't be replaced
+		File decodedFile = SrtmHeightCache.getDecodedFile(zipFile);
+		assertTrue(new File(decodedFile, "other").mkdirs());
+		try
+		{
+			SrtmHeights heights = new SrtmHeightCache(1000L).getHeights(zipFile, 5);
+			assertNotNull(heights);
+			assertEquals(124, heights.getHeight(24));
+			assertTrue(zipFile.exists());
+		}
+		finally {
+			deleteAll(dir);
+		}
+	}
+
+	@Test
+	void testMappedWindow() throws IOException
+	{
+		File dir = Files.createTempDirectory("gpsprune").toFile();
+		final int tilePixels = SrtmHeights.WINDOW_ROWS * 2 + 10;
+		File zipFile = makeZipFile(dir, "N01E002.hgt.zip", tilePixels, 0);
+		try
+		{
+			SrtmHeights heights = new SrtmHeightCache(100000000L).getHeights(zipFile, tilePixels);
+			// only one band of rows is mapped at a time
+			assertEquals(SrtmHeights.WINDOW_ROWS * tilePixels * 2L, heights.getNumBytes());
+			final int numPixels = tilePixels * tilePixels;
+			final int[] indexes = {0, numPixels - 1, tilePixels * 300 + 7, 1, numPixels / 2, tilePixels * 266};
+			for (int index : indexes) {
+				assertEquals((short) index, heights.getHeight(index));
+			}
+		}
+		finally
+		{
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Delete the given directory and everything in it
+	 */
+	private static void deleteAll(File inDir)
+	{
+		for (File file : inDir.listFiles())
+		{
+			if (file.isDirectory()) {
+				deleteAll(file);
+			}
+			file.delete();
+		}
+		inDir.delete();
+	}
+
+	/**
+	 * @return zip file containing a single hgt entry with increasing heights
+	 */
+	private static File makeZipFile(File inDir, String inName, int inTilePixels, int inFirstHeight)
+		throws IOException
+	{
+		File file = new File(inDir, inName);
+		try (ZipOutputStream outStream = new ZipOutputStream(new FileOutputStream(file)))
+		{
+			ZipEntry entry = new ZipEntry(inName.replace(".zip", ""));
+			byte[] bytes = new byte[inTilePixels * inTilePixels * 2];
+			for (int i = 0; i < inTilePixels * inTilePixels; i++)
+			{
+				bytes[i * 2] = (byte) ((inFirstHeight + i) >> 8);
+				bytes[i * 2 + 1] = (byte) (inFirstHeight + i);
+			}
+			// stored so that the size is given in the entry header
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(bytes.length);
+			entry.setCrc(crc.getValue());
+			outStream.putNextEntry(entry);
+			outStream.write(bytes);
+			outStream.closeEntry();
+		}
+		return file;
+	}
+}
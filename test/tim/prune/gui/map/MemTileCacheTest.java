@@ -0,0 +1,82 @@
+package tim.prune.gui.map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.gui.map.tile.TileDef;
+
+/**
+ * Tests for the memory cache of map tiles
+ */
+class MemTileCacheTest
+{
+	private static final long TILE_BYTES = 256L * 256L * 4L;
+
+	@Test
+	void testHitsAndMisses()
+	{
+		MapSource source = new OsmMapSource("exampleName", "https://blah.org/");
+		MemTileCache cache = new MemTileCache(10 * TILE_BYTES);
+		TileDef tile = new TileDef(source, 0, 1, 2, 3);
+		assertNull(cache.getTile(tile));
+		BufferedImage image = makeImage();
+		cache.setTile(tile, image);
+		// equal definition finds the same image
+		assertSame(image, cache.getTile(new TileDef(source, 0, 1, 2, 3)));
+		// different zoom, layer or source doesn't
+		assertNull(cache.getTile(new TileDef(source, 0, 1, 2, 4)));
+		assertNull(cache.getTile(new TileDef(source, 1, 1, 2, 3)));
+		assertNull(cache.getTile(new TileDef(new OsmMapSource("other", "https://blah.org/"), 0, 1, 2, 3)));
+		assertEquals(1, cache.getNumHits());
+		assertEquals(4, cache.getNumMisses());
+		assertEquals(TILE_BYTES, cache.getCurrentBytes());
+	}
+
+	@Test
+	void testLeastRecentlyUsedEvicted()
+	{
+		MapSource source = new OsmMapSource("exampleName", "https://blah.org/");
+		MemTileCache cache = new MemTileCache(3 * TILE_BYTES);
+		// Tiles from different zoom levels are kept together
+		for (int zoom=0; zoom<3; zoom++) {
+			cache.setTile(new TileDef(source, 0, 0, 0, zoom), makeImage());
+		}
+		assertEquals(3, cache.getNumTiles());
+		// use the first one, so that the second one is now the oldest
+		assertNotNull(cache.getTile(new TileDef(source, 0, 0, 0, 0)));
+		cache.setTile(new TileDef(source, 0, 0, 0, 3), makeImage());
+		assertEquals(3, cache.getNumTiles());
+		assertEquals(1, cache.getNumEvictions());
+		assertNotNull(cache.getTile(new TileDef(source, 0, 0, 0, 0)));
+		assertNull(cache.getTile(new TileDef(source, 0, 0, 0, 1)));
+		assertNotNull(cache.getTile(new TileDef(source, 0, 0, 0, 2)));
+
+		// Reducing the limit drops more tiles
+		cache.setMemoryLimit(TILE_BYTES);
+		assertEquals(1, cache.getNumTiles());
+		assertEquals(TILE_BYTES, cache.getCurrentBytes());
+	}
+
+	@Test
+	void testClearSource()
+	{
+		MapSource source1 = new OsmMapSource("first", "https://blah.org/");
+		MapSource source2 = new OsmMapSource("second", "https://blah.org/");
+		MemTileCache cache = new MemTileCache(10 * TILE_BYTES);
+		cache.setTile(new TileDef(source1, 0, 0, 0, 1), makeImage());
+		cache.setTile(new TileDef(source2, 0, 0, 0, 1), makeImage());
+		cache.clearSource("first");
+		assertEquals(1, cache.getNumTiles());
+		assertNotNull(cache.getTile(new TileDef(source2, 0, 0, 0, 1)));
+		cache.clearAll();
+		assertEquals(0, cache.getNumTiles());
+		assertEquals(0L, cache.getCurrentBytes());
+	}
+
+	private static BufferedImage makeImage() {
+		return new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+	}
+}
@@ -0,0 +1,85 @@
+package tim.prune.gui.map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Track;
+
+/**
+ * Tests for the selection of points to paint on the map
+ */
+class PaintedPointsTest
+{
+	@Test
+	void testAllPointsWhenZoomedOut()
+	{
+		Track track = makeTrack();
+		PaintedPoints points = new PaintedPoints(track, -0.5, 1.5, 0.0, 1.0, 0.001, new TrackPixels(track, 12));
+		assertFalse(points.isCulled());
+		assertEquals(List.of(0, 1, 2, 3, 4, 5), visit(points));
+	}
+
+	@Test
+	void testMergedPointsWhenZoomedOut()
+	{
+		Track track = new Track();
+		for (int i=0; i<6; i++) {
+			track.appendPoint(new DataPoint(45.0 + (i / 3) + i * 0.00001, 7.0 + (i / 3)));
+		}
+		// points 1, 2 are on the same pixel as point 0, and 4, 5 on the same pixel as 3
+		PaintedPoints points = new PaintedPoints(track, -0.5, 1.5, 0.0, 1.0, 0.001, new TrackPixels(track, 5));
+		assertFalse(points.isCulled());
+		assertEquals(List.of(0, 3), visit(points));
+		assertEquals(2, points.getNumCandidates());
+		// all points can still be used for the selection
+		assertTrue(points.isCandidate(4));
+	}
+
+	@Test
+	void testCulledWhenZoomedIn()
+	{
+		Track track = makeTrack();
+		// window just around the third point
+		final double x = track.getX(2), y = track.getY(2);
+		PaintedPoints points = new PaintedPoints(track, x - 0.001, x + 0.001, y - 0.001, y + 0.001, 0.00001,
+			new TrackPixels(track, 12));
+		assertTrue(points.isCulled());
+		assertEquals(1, points.getNumCandidates());
+		assertTrue(points.isCandidate(2));
+		assertFalse(points.isCandidate(3));
+		// following point is also visited so that the line to it can be drawn
+		assertEquals(List.of(2, 3), visit(points));
+	}
+
+	@Test
+	void testPreviousTrackPoint()
+	{
+		Track track = makeTrack();
+		track.getPoint(3).setWaypointName("wp");
+		assertEquals(2, PaintedPoints.getPreviousTrackPoint(track.getColumns(), 4));
+		assertEquals(-1, PaintedPoints.getPreviousTrackPoint(track.getColumns(), 0));
+	}
+
+	private static Track makeTrack()
+	{
+		Track track = new Track();
+		for (int i=0; i<6; i++) {
+			track.appendPoint(new DataPoint(45.0 + i * 0.5, 7.0 + i * 0.5));
+		}
+		return track;
+	}
+
+	private static List<Integer> visit(PaintedPoints inPoints)
+	{
+		List<Integer> indexes = new ArrayList<>();
+		for (int i=inPoints.getFirst(); i>=0; i=inPoints.getNext(i)) {
+			indexes.add(i);
+		}
+		return indexes;
+	}
+}
@@ -0,0 +1,68 @@
+package tim.prune.gui.map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Track;
+
+/**
+ * Tests for the pixel positions of the track points at one zoom level
+ */
+class TrackPixelsTest
+{
+	@Test
+	void testSameAsMapPosition()
+	{
+		Track track = makeTrack();
+		TrackPixels pixels = new TrackPixels(track, 14);
+		MapPosition position = new MapPosition();
+		position.zoomToXY(0.5, 0.6, 0.3, 0.4, 800, 600);
+		assertTrue(position.getZoom() > 0);
+		TrackPixels current = new TrackPixels(track, position.getZoom());
+		for (int i=0; i<track.getNumPoints(); i++)
+		{
+			// panning only moves the pixels by the position of the centre
+			assertEquals(position.getXFromCentre(track.getX(i)), current.getX(i) - position.getCentreX());
+			assertEquals(position.getYFromCentre(track.getY(i)), current.getY(i) - position.getCentreY());
+		}
+		assertTrue(pixels.getX(5) > pixels.getX(0));
+	}
+
+	@Test
+	void testMergedPoints()
+	{
+		Track track = makeTrack();
+		// a waypoint and a segment start on the same pixel are kept
+		track.getPoint(1).setWaypointName("wp");
+		track.getPoint(4).setSegmentStart(true);
+		TrackPixels pixels = new TrackPixels(track, 3);
+		assertEquals("{0, 1, 3, 4}", pixels.getMergedPoints().toString());
+		// when zoomed in, every point has its own pixel
+		assertEquals(6, new TrackPixels(track, 18).getMergedPoints().cardinality());
+	}
+
+	@Test
+	void testValidity()
+	{
+		Track track = makeTrack();
+		TrackPixels pixels = new TrackPixels(track, 10);
+		assertTrue(pixels.isValidFor(track, 10));
+		assertFalse(pixels.isValidFor(track, 11));
+		track.appendPoint(new DataPoint(47.0, 9.0));
+		assertFalse(pixels.isValidFor(track, 10));
+	}
+
+	/**
+	 * @return track with two groups of three points, each group very close together
+	 */
+	private static Track makeTrack()
+	{
+		Track track = new Track();
+		for (int i=0; i<6; i++) {
+			track.appendPoint(new DataPoint(45.0 + (i / 3) + i * 0.00001, 7.0 + (i / 3)));
+		}
+		return track;
+	}
+}
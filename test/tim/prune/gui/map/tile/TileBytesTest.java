@@ -0,0 +1,45 @@
+package tim.prune.gui.map.tile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for collecting the bytes of a tile
+ */
+class TileBytesTest
+{
+	@Test
+	void testEmpty()
+	{
+		TileBytes bytes = new TileBytes();
+		assertTrue(bytes.isEmpty());
+		bytes.addBytes(new byte[10], -1);
+		assertTrue(bytes.isEmpty());
+		assertNull(bytes.getData());
+	}
+
+	@Test
+	void testManyChunks()
+	{
+		TileBytes bytes = new TileBytes();
+		byte[] buffer = new byte[4096];
+		int total = 0;
+		for (int chunk=0; chunk<30; chunk++)
+		{
+			final int chunkSize = 1000 + chunk * 100;
+			for (int i=0; i<chunkSize; i++) {
+				buffer[i] = (byte) (total + i);
+			}
+			bytes.addBytes(buffer, chunkSize);
+			total += chunkSize;
+		}
+		assertFalse(bytes.isEmpty());
+		assertEquals(total, bytes.getLength());
+		byte[] data = bytes.getData();
+		assertEquals(total, data.length);
+		for (int i=0; i<total; i++) {
+			assertEquals((byte) i, data[i]);
+		}
+	}
+}
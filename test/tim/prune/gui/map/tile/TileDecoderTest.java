@@ -0,0 +1,51 @@
+package tim.prune.gui.map.tile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the decoding of downloaded tiles
+ */
+class TileDecoderTest
+{
+	@Test
+	void testInvalidBytes() {
+		assertNull(TileDecoder.decode(new byte[] {1, 2, 3, 4}));
+	}
+
+	@Test
+	void testDecodeAndSplit() throws IOException
+	{
+		// Make a double-resolution tile with a different colour in each quarter
+		BufferedImage original = new BufferedImage(512, 512, BufferedImage.TYPE_3BYTE_BGR);
+		final int[] colours = {0xff0000, 0x00ff00, 0x0000ff, 0xffff00};
+		for (int x=0; x<512; x++)
+		{
+			for (int y=0; y<512; y++) {
+				original.setRGB(x, y, colours[(x / 256) + 2 * (y / 256)]);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(ImageIO.write(original, "png", out));
+
+		BufferedImage decoded = TileDecoder.decode(out.toByteArray());
+		assertNotNull(decoded);
+		assertEquals(512, decoded.getWidth());
+		assertEquals(BufferedImage.TYPE_INT_RGB, decoded.getType());
+		for (int subtile=0; subtile<4; subtile++)
+		{
+			BufferedImage quarter = TileDecoder.getSubtile(decoded, subtile);
+			assertEquals(256, quarter.getWidth());
+			assertEquals(256, quarter.getHeight());
+			assertEquals(colours[subtile], quarter.getRGB(0, 0) & 0xffffff);
+			assertEquals(colours[subtile], quarter.getRGB(255, 255) & 0xffffff);
+		}
+	}
+}
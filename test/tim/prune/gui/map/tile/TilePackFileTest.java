@@ -0,0 +1,268 @@
+package tim.prune.gui.map.tile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.gui.map.CacheFailure;
+import tim.prune.gui.map.MapSource;
+import tim.prune.gui.map.OsmMapSource;
+
+/**
+ * Tests for the single-file tile store
+ */
+class TilePackFileTest
+{
+	@Test
+	void testSaveAndReopen() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		assertSame(packFile, TilePackFile.getPackFile(file));
+		assertNull(packFile.getTile(5, 1, 2));
+		packFile.saveTile(5, 1, 2, new byte[] {1, 2, 3}, 1000L);
+		packFile.saveTile(5, 2, 1, new byte[] {4, 5}, 2000L);
+		packFile.saveTile(5, 1, 2, new byte[] {6, 7, 8, 9}, 3000L);
+		checkTile(packFile.getTile(5, 1, 2), new byte[] {6, 7, 8, 9}, 3000L);
+
+		// Closing saves the index, which is loaded again on reopening
+		packFile.close();
+		assertTrue(packFile.getIndexFile().exists());
+		assertEquals(2, packFile.getNumTiles());
+		checkTile(packFile.getTile(5, 1, 2), new byte[] {6, 7, 8, 9}, 3000L);
+		checkTile(packFile.getTile(5, 2, 1), new byte[] {4, 5}, 2000L);
+		assertNull(packFile.getTile(6, 1, 2));
+		assertTrue(packFile.containsTile(5, 2, 1));
+		packFile.close();
+	}
+
+	@Test
+	void testIncompleteRecordIgnored() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		packFile.saveTile(3, 3, 3, new byte[] {1, 2, 3}, 1000L);
+		packFile.saveTile(3, 3, 4, new byte[] {4, 5, 6}, 1000L);
+		packFile.close();
+		// Chop off the end of the last record
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+		assertEquals(1, packFile.getNumTiles());
+		// New tiles are written after the last complete record
+		packFile.saveTile(3, 3, 5, new byte[] {7}, 2000L);
+		packFile.close();
+		assertEquals(2, packFile.getNumTiles());
+		checkTile(packFile.getTile(3, 3, 5), new byte[] {7}, 2000L);
+		packFile.close();
+	}
+
+	@Test
+	void testRecordsAppendedByOthers() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		packFile.saveTile(8, 1, 1, new byte[] {1, 2}, 1000L);
+		packFile.saveTile(8, 1, 2, new byte[] {3}, 1000L);
+		packFile.close();
+		// Another instance appends a record after the index was saved
+		appendRecord(file, 8, 1, 3, new byte[] {4, 5, 6}, 2000L);
+		assertEquals(3, packFile.getNumTiles());
+		checkTile(packFile.getTile(8, 1, 3), new byte[] {4, 5, 6}, 2000L);
+		// and again while this one has the file open, so saving has to go after it
+		appendRecord(file, 8, 1, 4, new byte[] {7}, 3000L);
+		packFile.saveTile(8, 1, 5, new byte[] {8, 9}, 4000L);
+		checkTile(packFile.getTile(8, 1, 4), new byte[] {7}, 3000L);
+		checkTile(packFile.getTile(8, 1, 5), new byte[] {8, 9}, 4000L);
+		packFile.close();
+		assertEquals(5, packFile.getNumTiles());
+		checkTile(packFile.getTile(8, 1, 1), new byte[] {1, 2}, 1000L);
+		packFile.close();
+	}
+
+	@Test
+	void testOutdatedIndexIgnored() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		packFile.saveTile(9, 1, 1, new byte[] {1, 2, 3}, 1000L);
+		packFile.saveTile(9, 1, 2, new byte[] {4, 5}, 2000L);
+		packFile.close();
+		byte[] oldIndex = Files.readAllBytes(packFile.getIndexFile().toPath());
+		// Compacting moves the records, after which the old index doesn't match
+		assertEquals(1, packFile.purge(timestamp -> timestamp < 2000L));
+		packFile.saveTile(9, 1, 3, new byte[] {6}, 3000L);
+		packFile.close();
+		Files.write(packFile.getIndexFile().toPath(), oldIndex);
+		assertEquals(2, packFile.getNumTiles());
+		checkTile(packFile.getTile(9, 1, 2), new byte[] {4, 5}, 2000L);
+		checkTile(packFile.getTile(9, 1, 3), new byte[] {6}, 3000L);
+		packFile.close();
+
+		// Index of a deleted file isn't used for a new one
+		assertEquals(2, packFile.purge(timestamp -> true));
+		Files.write(packFile.getIndexFile().toPath(), oldIndex);
+		packFile.saveTile(9, 2, 2, new byte[] {7}, 4000L);
+		packFile.close();
+		assertEquals(1, packFile.getNumTiles());
+		checkTile(packFile.getTile(9, 2, 2), new byte[] {7}, 4000L);
+		packFile.close();
+	}
+
+	@Test
+	void testMissingFileThenSave() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		assertFalse(packFile.containsTile(2, 1, 1));
+		packFile.saveTile(2, 1, 1, new byte[] {1}, 1000L);
+		packFile.close();
+		// File is found again after closing, even though it was missing before
+		assertTrue(packFile.containsTile(2, 1, 1));
+		packFile.close();
+	}
+
+	@Test
+	void testPurge() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		packFile.saveTile(4, 1, 1, new byte[] {1, 2, 3}, 1000L);
+		packFile.saveTile(4, 1, 2, new byte[] {4, 5, 6}, 2000L);
+		packFile.saveTile(5, 2, 2, new byte[] {7, 8}, 3000L);
+		packFile.saveTile(4, 1, 2, new byte[] {9}, 4000L);
+		int[] numPerZoom = packFile.getNumTilesPerZoom();
+		assertEquals(2, numPerZoom[4]);
+		assertEquals(1, numPerZoom[5]);
+		assertEquals(6L, packFile.getTotalTileBytes());
+
+		// Nothing removed, but the old version of tile 4/1/2 is dropped
+		final long fullLength = file.length();
+		assertEquals(0, packFile.purge(timestamp -> false));
+		assertEquals(fullLength - 20 - 3, file.length()); // record header and three bytes
+		assertEquals(0, packFile.purge(timestamp -> false));
+
+		// Remove the oldest tile, the others are still readable
+		assertEquals(1, packFile.purge(timestamp -> timestamp < 2000L));
+		assertEquals(2, packFile.getNumTiles());
+		assertNull(packFile.getTile(4, 1, 1));
+		checkTile(packFile.getTile(4, 1, 2), new byte[] {9}, 4000L);
+		packFile.saveTile(6, 3, 3, new byte[] {10}, 5000L);
+		packFile.close();
+		assertEquals(3, packFile.getNumTiles());
+		checkTile(packFile.getTile(5, 2, 2), new byte[] {7, 8}, 3000L);
+		checkTile(packFile.getTile(6, 3, 3), new byte[] {10}, 5000L);
+
+		// Removing all the tiles deletes the file and its index
+		assertEquals(3, packFile.purge(timestamp -> true));
+		assertFalse(file.exists());
+		assertFalse(packFile.getIndexFile().exists());
+		assertEquals(0, packFile.getNumTiles());
+	}
+
+	@Test
+	void testRecordsAcrossWindows() throws IOException
+	{
+		File file = makeTempFile();
+		TilePackFile packFile = TilePackFile.getPackFile(file);
+		final int tileSize = TilePackFile.WINDOW_SIZE / 3 + 1;
+		for (int i=0; i<4; i++) {
+			packFile.saveTile(10, i, 0, makeBytes(tileSize, i), 1000L);
+		}
+		// Read back before and after reopening, as the windows are mapped differently
+		for (int pass=0; pass<2; pass++)
+		{
+			for (int i=3; i>=0; i--) {
+				assertArrayEquals(makeBytes(tileSize, i), packFile.getTile(10, i, 0).getBytes());
+			}
+			packFile.close();
+		}
+		assertTrue(file.delete());
+	}
+
+	private static byte[] makeBytes(int inLength, int inSeed)
+	{
+		byte[] bytes = new byte[inLength];
+		for (int i=0; i<inLength; i++) {
+			bytes[i] = (byte) (i * 7 + inSeed);
+		}
+		return bytes;
+	}
+
+	@Test
+	void testMigrateFromDirectories() throws IOException
+	{
+		File baseDir = Files.createTempDirectory("tilecache").toFile();
+		File xDir = new File(baseDir, "example.org/7/12");
+		assertTrue(xDir.mkdirs());
+		Files.write(new File(xDir, "34.png").toPath(), new byte[] {1, 2, 3});
+		Files.write(new File(xDir, "35.png").toPath(), new byte[] {4});
+		Files.write(new File(xDir, "notes.txt").toPath(), new byte[] {5});
+
+		assertEquals(2, TilePackMigrator.migrate(baseDir.getAbsolutePath(), "example.org/"));
+		TilePackFile packFile = PackedTileStore.getPackFile(baseDir.getAbsolutePath(), "example.org/");
+		assertEquals(new File(baseDir, "example.org.tilepack").getAbsoluteFile(), packFile.getFile());
+		assertArrayEquals(new byte[] {1, 2, 3}, packFile.getTile(7, 12, 34).getBytes());
+		// Tiles already in the pack aren't copied again
+		assertEquals(0, TilePackMigrator.migrate(baseDir.getAbsolutePath(), "example.org/"));
+		packFile.close();
+	}
+
+	@Test
+	void testOnlyPngImagesSaved() throws IOException, CacheFailure
+	{
+		File baseDir = Files.createTempDirectory("tilecache").toFile();
+		PackedTileStore store = new PackedTileStore(baseDir.getAbsolutePath());
+		BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+		MapSource pngSource = new OsmMapSource("png", "https://png.example.org/", "png", 18);
+		MapSource jpegSource = new OsmMapSource("jpeg", "https://jpeg.example.org/", "jpg", 18);
+		store.saveTileImage(image, new TileDef(pngSource, 0, 1, 2, 3));
+		store.saveTileImage(image, new TileDef(jpegSource, 0, 1, 2, 3));
+
+		TilePackFile pngPack = PackedTileStore.getPackFile(baseDir.getAbsolutePath(), pngSource.getSiteName(0));
+		TilePackFile jpegPack = PackedTileStore.getPackFile(baseDir.getAbsolutePath(), jpegSource.getSiteName(0));
+		assertNotNull(pngPack.getTile(3, 1, 2));
+		assertNull(jpegPack.getTile(3, 1, 2));
+		pngPack.close();
+		jpegPack.close();
+	}
+
+	private static File makeTempFile() throws IOException
+	{
+		File file = File.createTempFile("tiles", TilePackFile.FILE_EXTENSION);
+		file.deleteOnExit();
+		// start with an empty file
+		assertTrue(file.delete());
+		new File(file.getPath() + TilePackFile.INDEX_EXTENSION).deleteOnExit();
+		return file;
+	}
+
+	/**
+	 * Append a tile record directly to the file, as another instance would
+	 */
+	private static void appendRecord(File inFile, int inZoom, int inX, int inY, byte[] inBytes, long inTimestamp)
+		throws IOException
+	{
+		try (RandomAccessFile raf = new RandomAccessFile(inFile, "rw"))
+		{
+			raf.seek(raf.length());
+			raf.writeLong(TilePackFile.makeKey(inZoom, inX, inY));
+			raf.writeLong(inTimestamp);
+			raf.writeInt(inBytes.length);
+			raf.write(inBytes);
+		}
+	}
+
+	private static void checkTile(TilePackFile.StoredTile inTile, byte[] inExpectedBytes, long inExpectedTime)
+	{
+		assertNotNull(inTile);
+		assertArrayEquals(inExpectedBytes, inTile.getBytes());
+		assertEquals(inExpectedTime, inTile.getTimestamp());
+	}
+}
@@ -2,6 +2,11 @@ package tim.prune.gui.map.tile;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 
 import tim.prune.gui.map.MapSource;
@@ -92,6 +97,71 @@ class TileWorkerCoordinatorTest
 		checkExpectedResults(3, 4);
 	}
 
+	@Test
+	void testNearestTilesFirstAndStaleDropped()
+	{
+		FakeWorker.resetAll();
+		TileWorkerCoordinator coordinator = new TileWorkerCoordinator(null, FakeWorker::new, 1); // just one worker
+		coordinator.setView(3, 4, 4);
+		TileDef tile0 = new TileDef(getMapSource(), 0, 4, 4, 3);
+		TileDef tileFar = new TileDef(getMapSource(), 0, 0, 0, 3);
+		TileDef tileNear = new TileDef(getMapSource(), 0, 5, 4, 3);
+		TileDef tileOtherZoom = new TileDef(getMapSource(), 0, 40, 40, 7);
+		coordinator.triggerDownload(tile0);
+		waitABit();
+		coordinator.triggerDownload(tileFar);
+		coordinator.triggerDownload(tileNear);
+		coordinator.triggerDownload(tileOtherZoom);
+		// view moves, so the tile from the other zoom level is no longer needed
+		coordinator.setView(3, 4, 5);
+		FakeWorker.finish(tile0);
+		FakeWorker.finish(tileNear);
+		FakeWorker.finish(tileFar);
+		waitABit();
+		System.out.println("nearest first:");
+		checkExpectedResults(1, 3);
+		List<TileDef> started = new ArrayList<>();
+		for (FakeWorker.WorkLog l : FakeWorker.logs)
+		{
+			if (l.action == FakeWorker.WorkLog.Action.STARTED) {
+				started.add(l.tileDef);
+			}
+		}
+		assertEquals(List.of(tile0, tileNear, tileFar), started);
+	}
+
+	@Test
+	void testFailedTileRetried()
+	{
+		final List<TileDef> results = new ArrayList<>();
+		final AtomicInteger numAttempts = new AtomicInteger();
+		TileWorkerBuilder builder = parent -> new TileWorker(parent) {
+			@Override
+			protected TileBytes processTile(TileDef def) throws IOException
+			{
+				if (numAttempts.incrementAndGet() == 1) {
+					throw new IOException("first attempt fails");
+				}
+				return new TileBytes();
+			}
+		};
+		TileWorkerCoordinator coordinator = new TileWorkerCoordinator((def, bytes) -> {
+			synchronized (results) {
+				results.add(def);
+			}
+		}, builder);
+		TileDef tile1 = new TileDef(getMapSource(), 0, 1, 2, 3);
+		coordinator.triggerDownload(tile1);
+		for (int i=0; i<30 && numAttempts.get() < 2; i++) {
+			waitABit();
+		}
+		waitABit();
+		assertEquals(2, numAttempts.get());
+		synchronized (results) {
+			assertEquals(List.of(tile1), results);
+		}
+	}
+
 	private static void waitABit() {
 		try {Thread.sleep(100L);} catch(InterruptedException ignored) {}
 	}
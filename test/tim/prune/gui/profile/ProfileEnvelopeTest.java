@@ -0,0 +1,85 @@
+package tim.prune.gui.profile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.Altitude;
+import tim.prune.data.DataPoint;
+import tim.prune.data.Latitude;
+import tim.prune.data.Longitude;
+import tim.prune.data.Track;
+import tim.prune.data.UnitSetLibrary;
+
+/**
+ * Tests for the per-column envelope of the profile chart
+ */
+class ProfileEnvelopeTest
+{
+	@Test
+	void testMinMaxPerColumn()
+	{
+		Track track = new Track();
+		for (int i=0; i<1000; i++)
+		{
+			// every tenth point has no altitude
+			Altitude altitude = (i % 10 == 9 ? null : new Altitude(i % 7 + 100, UnitSetLibrary.UNITS_METRES));
+			track.appendPoint(new DataPoint(Latitude.make(1.0 + i * 0.001), Longitude.make(2.0), altitude));
+		}
+		AltitudeData data = new AltitudeData(track);
+		data.init(UnitSetLibrary.getUnitSet(0));
+		ProfileEnvelope envelope = new ProfileEnvelope(data.copyValues(1000), 100);
+		assertEquals(100, envelope.getNumColumns());
+		assertEquals(1000, envelope.getNumPoints());
+		assertEquals(100, envelope.getPlotWidth());
+		for (int c=0; c<100; c++)
+		{
+			assertEquals(c * 10, envelope.getFirstIndex(c));
+			assertEquals(c * 10 + 9, envelope.getLastIndex(c));
+			double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+			for (int p=c*10; p<=c*10+9; p++)
+			{
+				if (data.hasData(p))
+				{
+					min = Math.min(min, data.getData(p));
+					max = Math.max(max, data.getData(p));
+				}
+			}
+			assertTrue(envelope.hasData(c));
+			assertEquals(min, envelope.getMinValue(c));
+			assertEquals(max, envelope.getMaxValue(c));
+		}
+	}
+
+	@Test
+	void testCopiedValues()
+	{
+		double[] values = {1.0, Double.NaN, 3.0, Double.NaN};
+		ProfileEnvelope envelope = new ProfileEnvelope(values, 2);
+		assertEquals(2, envelope.getNumColumns());
+		assertEquals(1.0, envelope.getMinValue(0));
+		assertEquals(1.0, envelope.getMaxValue(0));
+		assertEquals(3.0, envelope.getMaxValue(1));
+		// points without data don't count, but still belong to their column
+		assertEquals(3, envelope.getLastIndex(1));
+		assertFalse(new ProfileEnvelope(new double[] {Double.NaN}, 10).hasData(0));
+	}
+
+	@Test
+	void testWiderThanTrack()
+	{
+		Track track = new Track();
+		for (int i=0; i<4; i++) {
+			track.appendPoint(new DataPoint(Latitude.make(1.0 + i), Longitude.make(2.0), new Altitude(i * 10, UnitSetLibrary.UNITS_METRES)));
+		}
+		AltitudeData data = new AltitudeData(track);
+		data.init(UnitSetLibrary.getUnitSet(0));
+		ProfileEnvelope envelope = new ProfileEnvelope(data.copyValues(4), 200);
+		assertEquals(151, envelope.getNumColumns());
+		assertEquals(3, envelope.getFirstIndex(150));
+		assertEquals(30.0, envelope.getMaxValue(150));
+		// columns between the points have no data
+		assertFalse(envelope.hasData(1));
+		assertTrue(envelope.hasData(50));
+	}
+}
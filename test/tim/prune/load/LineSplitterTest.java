@@ -0,0 +1,32 @@
+package tim.prune.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for splitting lines without regular expressions
+ */
+class LineSplitterTest
+{
+	@Test
+	void testSameAsStringSplit()
+	{
+		final String[] lines = {"", "a", "a,b,c", ",a", "a,", "a,,b,,", ",,,", " , ", "1.5,2.5,,x"};
+		for (String line : lines)
+		{
+			String[] expected = line.split(",");
+			assertEquals(expected.length, LineSplitter.countFields(line, ','), line);
+			assertArrayEquals(expected, LineSplitter.split(line, ','), line);
+		}
+	}
+
+	@Test
+	void testSpecialCharacters()
+	{
+		// These would have special meanings in a regular expression
+		assertArrayEquals(new String[] {"1", "2", "3"}, LineSplitter.split("1|2|3", '|'));
+		assertArrayEquals(new String[] {"1", "2"}, LineSplitter.split("1.2", '.'));
+		assertArrayEquals(new String[] {"a", "", "b"}, LineSplitter.split("a\t\tb", '\t'));
+	}
+}
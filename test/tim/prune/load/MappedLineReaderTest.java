@@ -0,0 +1,88 @@
+package tim.prune.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.Field;
+
+/**
+ * Tests for reading lines through a memory-mapped window
+ */
+class MappedLineReaderTest
+{
+	@Test
+	void testLineEndings() throws IOException
+	{
+		List<String> lines = readLines("one\ntwo\r\nthree\rfour\n\nsix", 1024L);
+		assertEquals(List.of("one", "two", "three", "four", "", "six"), lines);
+		assertEquals(List.of(), readLines("", 1024L));
+	}
+
+	@Test
+	void testSmallWindow() throws IOException
+	{
+		// Multi-byte characters will be split across the window boundaries
+		StringBuilder text = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i=0; i<50; i++)
+		{
+			String line = i + ",47.1°,Zürich €" + i;
+			expected.add(line);
+			text.append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		assertEquals(expected, readLines(text.toString(), 17L));
+	}
+
+	@Test
+	void testStreamedPoints() throws IOException
+	{
+		File file = writeFile("47.1,8.1,400\n\n47.2,8.2\n  \nabc,def\n47.3,8.3,420\n");
+		try
+		{
+			Field[] fields = {Field.LATITUDE, Field.LONGITUDE, Field.ALTITUDE};
+			TextFileStreamer streamer = new TextFileStreamer(file, ',', fields, null);
+			LoadedPoints points = streamer.readPoints(null);
+			assertEquals(3, points.getNumPoints());
+			assertTrue(points.getPoints().get(0).getSegmentStart());
+			assertTrue(points.getPoints().get(0).hasAltitude());
+			assertFalse(points.getPoints().get(1).hasAltitude());
+			assertEquals(47.3, points.getPoints().get(2).getLatitude().getDouble(), 0.0001);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private static List<String> readLines(String inText, long inWindowSize) throws IOException
+	{
+		File file = writeFile(inText);
+		List<String> lines = new ArrayList<>();
+		try (MappedLineReader reader = new MappedLineReader(file, StandardCharsets.UTF_8, inWindowSize))
+		{
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+			assertEquals(file.length(), reader.getPosition());
+		}
+		finally {
+			file.delete();
+		}
+		return lines;
+	}
+
+	private static File writeFile(String inText) throws IOException
+	{
+		File file = File.createTempFile("gpsprune", ".txt");
+		Files.write(file.toPath(), inText.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
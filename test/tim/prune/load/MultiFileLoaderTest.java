@@ -0,0 +1,95 @@
+package tim.prune.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.App;
+import tim.prune.data.DataPoint;
+
+/**
+ * Tests for the loading of several xml files at once
+ */
+class MultiFileLoaderTest
+{
+	@Test
+	void testCanLoad()
+	{
+		assertTrue(MultiFileLoader.canLoad(new File("track.gpx")));
+		assertTrue(MultiFileLoader.canLoad(new File("TRACK.KML")));
+		assertTrue(MultiFileLoader.canLoad(new File("track.gpx.gz")));
+		assertTrue(MultiFileLoader.canLoad(new File("track.gzip")));
+		assertFalse(MultiFileLoader.canLoad(new File("trackgzip")));
+		assertFalse(MultiFileLoader.canLoad(new File("track.txt")));
+		assertFalse(MultiFileLoader.canLoad(new File("track.kmz")));
+	}
+
+	@Test
+	void testPointsMergedInFileOrder() throws IOException
+	{
+		// First file is much bigger so that it's likely to be parsed last
+		StringBuilder manyPoints = new StringBuilder();
+		for (int i=0; i<5000; i++) {
+			manyPoints.append("<trkpt lat=\"1.0\" lon=\"").append(i * 0.0001).append("\"></trkpt>");
+		}
+		File file1 = writeGpx("<trk><trkseg>" + manyPoints + "</trkseg></trk>", false);
+		File file2 = writeGpx("<wpt lat=\"2.0\" lon=\"2.0\"><name>two</name></wpt>", true);
+		File file3 = File.createTempFile("broken", ".gpx");
+		file3.deleteOnExit();
+		writeBytes(file3, "<gpx><trk>".getBytes(StandardCharsets.UTF_8), false);
+		File file4 = writeGpx("<trk><trkseg><trkpt lat=\"3.0\" lon=\"3.0\"></trkpt>"
+			+ "<trkpt lat=\"3.1\" lon=\"3.1\"></trkpt></trkseg></trk>", false);
+
+		MultiFileLoader loader = new MultiFileLoader(new App(null, null));
+		List<File> files = Arrays.asList(file1, file2, file3, file4);
+		int[] progress = new int[2];
+		MultiFileLoader.MergedFiles merged = loader.parseAndMerge(files, (current, max) -> {
+			progress[0] = current;
+			progress[1] = max;
+		});
+		assertEquals(4, progress[0]);
+		assertEquals(4, progress[1]);
+
+		assertEquals(5003, merged._points.size());
+		assertEquals(1.0, merged._points.get(4999).getLatitude().getDouble());
+		DataPoint waypoint = merged._points.get(5000);
+		assertEquals("two", waypoint.getWaypointName());
+		assertEquals(file2, waypoint.getSourceInfo().getFile());
+		assertEquals(3.0, merged._points.get(5001).getLatitude().getDouble());
+		assertEquals(3.1, merged._points.get(5002).getLatitude().getDouble());
+		assertEquals(file4, merged._points.get(5002).getSourceInfo().getFile());
+		// The broken file gives an error but doesn't stop the others
+		assertEquals(Arrays.asList(file1, file2, file4), merged._loadedFiles);
+		assertEquals(1, merged._errors.size());
+		assertTrue(merged._errors.get(0).contains(file3.getName()));
+	}
+
+	private static File writeGpx(String inContents, boolean inGzipped) throws IOException
+	{
+		File file = File.createTempFile("track", inGzipped ? ".gpx.gz" : ".gpx");
+		file.deleteOnExit();
+		String gpx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">"
+			+ inContents + "</gpx>";
+		writeBytes(file, gpx.getBytes(StandardCharsets.UTF_8), inGzipped);
+		return file;
+	}
+
+	private static void writeBytes(File inFile, byte[] inBytes, boolean inGzipped) throws IOException
+	{
+		try (OutputStream fileStream = new FileOutputStream(inFile);
+			OutputStream outStream = (inGzipped ? new GZIPOutputStream(fileStream) : fileStream))
+		{
+			outStream.write(inBytes);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package tim.prune.load;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.FieldGpx;
+
+/**
+ * Tests for the parsing of NMEA sentences
+ */
+class NmeaParserTest
+{
+	@Test
+	void testChecksum() throws IOException
+	{
+		String good = withChecksum("GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,");
+		String bad = good.substring(0, good.length() - 2) + "00";
+		LoadedPoints points = new LoadedPoints();
+		NmeaParser parser = parse(points, bad, good.replace("123519", "123520").substring(0, good.indexOf('*')));
+		assertEquals(1, parser.getNumBadChecksums());
+		assertEquals(1, parser.getNumSentences());
+		assertEquals(1, points.getNumPoints());
+		assertEquals(545.4, points.getPoints().get(0).getAltitude().getMetricValue(), 0.01);
+	}
+
+	@Test
+	void testFusion() throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		parse(points,
+			withChecksum("GPRMC,123519.50,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"),
+			withChecksum("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K"),
+			withChecksum("GNGGA,123519.50,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"),
+			withChecksum("GPRMC,123520.50,A,4807.138,S,01131.100,W,022.4,084.4,230394,003.1,W"));
+		assertEquals(2, points.getNumPoints());
+		DataPoint first = points.getPoints().get(0);
+		assertEquals(48.1173, first.getLatitude().getDouble(), 0.0001);
+		assertEquals(11.5167, first.getLongitude().getDouble(), 0.0001);
+		assertEquals(545.4, first.getAltitude().getMetricValue(), 0.01);
+		// speed and course are taken from the VTG sentence
+		assertEquals("005.5", first.getFieldValue(Field.SPEED));
+		assertEquals("054.7", first.getFieldValue(FieldGpx.getField("course")));
+		assertEquals("1994-03-23T12:35:19.50Z", first.getFieldValue(Field.TIMESTAMP));
+		assertTrue(first.getTimestamp().isValid());
+		// second point only has an RMC sentence
+		DataPoint second = points.getPoints().get(1);
+		assertTrue(second.getLatitude().getDouble() < 0.0);
+		assertFalse(second.hasAltitude());
+		assertEquals("022.4", second.getFieldValue(Field.SPEED));
+		assertEquals(1000L, second.getTimestamp().getMillisecondsSince(first.getTimestamp()));
+	}
+
+	@Test
+	void testVtgBeforeEpoch() throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		parse(points,
+			withChecksum("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K"),
+			withChecksum("GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"),
+			withChecksum("GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"),
+			withChecksum("GPVTG,154.7,T,134.4,M,006.5,N,012.0,K"),
+			withChecksum("GPGGA,123520,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"),
+			withChecksum("GPRMC,123520,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"),
+			withChecksum("GPVTG,254.7,T,234.4,M,007.5,N,013.9,K"));
+		assertEquals(2, points.getNumPoints());
+		assertEquals("005.5", points.getPoints().get(0).getFieldValue(Field.SPEED));
+		assertEquals("054.7", points.getPoints().get(0).getFieldValue(FieldGpx.getField("course")));
+		assertEquals("006.5", points.getPoints().get(1).getFieldValue(Field.SPEED));
+		assertEquals("154.7", points.getPoints().get(1).getFieldValue(FieldGpx.getField("course")));
+	}
+
+	@Test
+	void testVtgAfterEpoch() throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		parse(points,
+			withChecksum("GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"),
+			withChecksum("GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"),
+			withChecksum("GPVTG,054.7,T,034.4,M,005.5,N,010.2,K"),
+			withChecksum("GPGGA,123520,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,"),
+			withChecksum("GPRMC,123520,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W"),
+			withChecksum("GPVTG,154.7,T,134.4,M,006.5,N,012.0,K"));
+		assertEquals(2, points.getNumPoints());
+		assertEquals("005.5", points.getPoints().get(0).getFieldValue(Field.SPEED));
+		assertEquals("006.5", points.getPoints().get(1).getFieldValue(Field.SPEED));
+		assertEquals("154.7", points.getPoints().get(1).getFieldValue(FieldGpx.getField("course")));
+	}
+
+	@Test
+	void testFix() throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		// no fix if the fix field is empty or zero
+		parse(points,
+			"$GPGGA,123519,4807.038,N,01131.000,E,,08,0.9,545.4,M,46.9,M,,",
+			"$GPGGA,123520,4807.038,N,01131.000,E,0,08,0.9,545.4,M,46.9,M,,");
+		assertEquals(0, points.getNumPoints());
+		parse(points,
+			"$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,",
+			"$GPGGA,123520,4807.038,N,01131.000,E,2,08,0.9,545.4,M,46.9,M,,");
+		assertEquals(2, points.getNumPoints());
+	}
+
+	@Test
+	void testDateBackfillAndSegments() throws IOException
+	{
+		LoadedPoints points = new LoadedPoints();
+		parse(points,
+			"$GPGGA,235958,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,",
+			"$GPGGA,235959,4807.038,N,01131.000,E,0,08,0.9,545.4,M,46.9,M,,",
+			"$GPGGA,000000,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,",
+			"$GPRMC,000000,A,4807.038,N,01131.000,E,022.4,084.4,240394,003.1,W",
+			"$GPGGA,000001,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,");
+		assertEquals(3, points.getNumPoints());
+		// fix before midnight is from the day before the first date
+		assertEquals("1994-03-23T23:59:58Z", points.getPoints().get(0).getFieldValue(Field.TIMESTAMP));
+		assertEquals("1994-03-24T00:00:00Z", points.getPoints().get(1).getFieldValue(Field.TIMESTAMP));
+		assertTrue(points.getPoints().get(0).getSegmentStart());
+		// fix was lost, so a new segment starts
+		assertTrue(points.getPoints().get(1).getSegmentStart());
+		assertFalse(points.getPoints().get(2).getSegmentStart());
+	}
+
+	@Test
+	void testPreviousDate()
+	{
+		assertEquals("230394", NmeaParser.getPreviousDate("240394"));
+		assertEquals("290224", NmeaParser.getPreviousDate("010324"));
+		assertEquals("311299", NmeaParser.getPreviousDate("010100"));
+		assertEquals("abcdef", NmeaParser.getPreviousDate("abcdef"));
+	}
+
+	@Test
+	void testTimeOfDay()
+	{
+		byte[] bytes = "123519.25".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(((12 * 60 + 35) * 60 + 19) * 1000 + 250, NmeaParser.parseTimeOfDay(bytes, 0, bytes.length));
+		assertEquals(-1, NmeaParser.parseTimeOfDay(bytes, 0, 5));
+		bytes = "12a519".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(-1, NmeaParser.parseTimeOfDay(bytes, 0, bytes.length));
+	}
+
+	private static NmeaParser parse(LoadedPoints inPoints, String... inLines) throws IOException
+	{
+		byte[] bytes = String.join("\r\n", inLines).getBytes(StandardCharsets.US_ASCII);
+		NmeaParser parser = new NmeaParser(inPoints);
+		parser.parse(new ByteArrayInputStream(bytes));
+		return parser;
+	}
+
+	/** @return sentence with leading $ and trailing checksum */
+	private static String withChecksum(String inSentence)
+	{
+		int checksum = 0;
+		for (int i=0; i<inSentence.length(); i++) {
+			checksum ^= inSentence.charAt(i);
+		}
+		return "$" + inSentence + String.format("*%02X", checksum);
+	}
+}
@@ -0,0 +1,92 @@
+package tim.prune.load.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+import tim.prune.data.DataPoint;
+import tim.prune.data.Field;
+import tim.prune.data.FieldGpx;
+import tim.prune.data.FileType;
+import tim.prune.load.PointSink;
+
+/**
+ * Tests for the streaming of points out of the gpx handler
+ */
+class GpxHandlerTest
+{
+	private static final String GPX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+		+ "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">"
+		+ "<wpt lat=\"46.5\" lon=\"7.5\"><name>Start</name><link href=\"photo.jpg\"/></wpt>"
+		+ "<trk><name>track</name><trkseg>"
+		+ "<trkpt lat=\"46.1\" lon=\"7.1\"><ele>500</ele><time>2024-05-01T10:00:00Z</time></trkpt>"
+		+ "<trkpt lat=\"46.2\" lon=\"7.2\"><ele>510</ele>"
+		+ "<hdop>2.5</hdop></trkpt>"
+		+ "<trkpt lat=\"no\" lon=\"7.3\"></trkpt>"
+		+ "</trkseg><trkseg><trkpt lat=\"46.3\" lon=\"7.3\"></trkpt></trkseg></trk></gpx>";
+
+
+	@Test
+	void testPointsCreatedWhileParsing()
+	{
+		XmlHandler handler = parse(null);
+		assertEquals(FileType.GPX, handler.getFileType());
+		List<DataPoint> points = handler.getLoadedPoints().getPoints();
+		// the point with an invalid latitude is dropped
+		assertEquals(4, points.size());
+		assertTrue(points.get(0).isWaypoint());
+		assertEquals("Start", points.get(0).getWaypointName());
+		assertFalse(points.get(1).isWaypoint());
+		assertTrue(points.get(1).getSegmentStart());
+		assertEquals(500, points.get(1).getAltitude().getValue());
+		assertTrue(points.get(1).hasTimestamp());
+		assertFalse(points.get(2).getSegmentStart());
+		assertTrue(points.get(3).getSegmentStart());
+		// extra field was only found at the second track point
+		FieldGpx hdop = FieldGpx.getField("hdop");
+		assertTrue(handler.getFieldList().contains(hdop));
+		assertEquals("2.5", points.get(2).getFieldValue(hdop));
+		assertNull(points.get(1).getFieldValue(hdop));
+		assertSame(points.get(1).getFieldList(), points.get(2).getFieldList());
+		// links match the loaded points
+		String[] links = handler.getLinkArray();
+		assertArrayEquals(new String[] {"photo.jpg", null, null, null}, links);
+	}
+
+	@Test
+	void testOtherSink()
+	{
+		ArrayList<DataPoint> received = new ArrayList<>();
+		XmlHandler handler = parse((point, link) -> received.add(point));
+		// all points are passed on, including the invalid one
+		assertEquals(5, received.size());
+		assertFalse(received.get(3).isValid());
+		assertEquals(Field.LATITUDE, handler.getFieldList().getField(0));
+		assertEquals(0, handler.getLoadedPoints().getNumPoints());
+		assertNull(handler.getLinkArray());
+	}
+
+	/** Parse the test file using the given sink, or the default one if null */
+	private static XmlHandler parse(PointSink inSink)
+	{
+		XmlFileLoader loader = new XmlFileLoader(null) {
+			public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException
+			{
+				super.startElement(uri, localName, qName, attributes);
+				if (inSink != null && qName.equals("gpx")) {
+					getHandler().setPointSink(inSink);
+				}
+			}
+		};
+		assertTrue(loader.parseXmlStream(new ByteArrayInputStream(GPX.getBytes(StandardCharsets.UTF_8))));
+		return loader.getHandler();
+	}
+}
@@ -0,0 +1,53 @@
+package tim.prune.save;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the writing of items formatted in chunks
+ */
+class ParallelTextWriterTest
+{
+	@Test
+	void testItemsKeepOrder() throws IOException
+	{
+		final int numItems = ParallelTextWriter.CHUNK_SIZE * 5 + 17;
+		StringWriter writer = new StringWriter();
+		List<Integer> progress = new ArrayList<>();
+		ParallelTextWriter.writeItems(writer, numItems,
+			(item, buffer) -> buffer.append(item).append('\n'), progress::add);
+		StringBuilder expected = new StringBuilder();
+		for (int i=0; i<numItems; i++) {
+			expected.append(i).append('\n');
+		}
+		assertEquals(expected.toString(), writer.toString());
+		assertEquals(6, progress.size());
+		assertEquals(numItems, progress.get(progress.size() - 1));
+	}
+
+	@Test
+	void testNoItems() throws IOException
+	{
+		StringWriter writer = new StringWriter();
+		ParallelTextWriter.writeItems(writer, 0, (item, buffer) -> buffer.append("x"), null);
+		assertEquals("", writer.toString());
+	}
+
+	@Test
+	void testFormatterException()
+	{
+		final int numItems = ParallelTextWriter.CHUNK_SIZE * 3;
+		assertThrows(IllegalStateException.class, () -> ParallelTextWriter.writeItems(new StringWriter(), numItems,
+			(item, buffer) -> {
+				if (item == numItems - 1) {
+					throw new IllegalStateException();
+				}
+			}, null));
+	}
+}